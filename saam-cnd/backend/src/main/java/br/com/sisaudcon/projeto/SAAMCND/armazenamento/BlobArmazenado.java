@@ -0,0 +1,59 @@
+package br.com.sisaudcon.projeto.SAAMCND.armazenamento;
+
+/**
+ * Resultado da gravação de um blob: referência, tamanho em bytes, SHA-256 do conteúdo e se o conteúdo
+ * era novo (false = já existia e foi deduplicado). O codec e o tamanho em disco dizem como o blob ficou
+ * gravado; codec null = gravado sem que a compressão fosse avaliada (compressão desligada).
+ */
+public class BlobArmazenado {
+
+    private final String ref;
+    private final long tamanho;
+    private final String sha256;
+    private final boolean novo;
+    private final CodecArmazenamento codec;
+    private final long tamanhoArmazenado;
+
+    public BlobArmazenado(String ref, long tamanho, String sha256, boolean novo) {
+        this(ref, tamanho, sha256, novo, null, tamanho);
+    }
+
+    public BlobArmazenado(String ref, long tamanho, String sha256, boolean novo,
+                          CodecArmazenamento codec, long tamanhoArmazenado) {
+        this.ref = ref;
+        this.tamanho = tamanho;
+        this.sha256 = sha256;
+        this.novo = novo;
+        this.codec = codec;
+        this.tamanhoArmazenado = tamanhoArmazenado;
+    }
+
+    public String getRef() {
+        return ref;
+    }
+
+    public long getTamanho() {
+        return tamanho;
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    public boolean isNovo() {
+        return novo;
+    }
+
+    public CodecArmazenamento getCodec() {
+        return codec;
+    }
+
+    public long getTamanhoArmazenado() {
+        return tamanhoArmazenado;
+    }
+
+    // Id do codec como registrado na entidade (null = não avaliado)
+    public String getCodecId() {
+        return codec != null ? codec.getId() : null;
+    }
+}
@@ -0,0 +1,13 @@
+package br.com.sisaudcon.projeto.SAAMCND.armazenamento;
+
+import java.io.IOException;
+
+/**
+ * O conteúdo lido de um blob não corresponde ao SHA-256 da sua referência (arquivo alterado ou truncado em disco).
+ */
+public class BlobCorrompidoException extends IOException {
+
+    public BlobCorrompidoException(String message) {
+        super(message);
+    }
+}
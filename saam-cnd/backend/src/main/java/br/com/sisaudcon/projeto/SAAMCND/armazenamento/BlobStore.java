@@ -0,0 +1,60 @@
+package br.com.sisaudcon.projeto.SAAMCND.armazenamento;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Armazenamento dos arquivos (PDFs) das CNDs fora do banco, endereçado pelo conteúdo: a referência de um
+ * blob é o SHA-256 do seu conteúdo, então arquivos idênticos são armazenados uma única vez.
+ * A entidade guarda apenas a referência e o tamanho (CndResultado.arquivoRef / arquivoTamanho).
+ * A compressão em disco, quando configurada, é transparente: {@link #abrir} devolve sempre o conteúdo original.
+ */
+public interface BlobStore {
+
+    /**
+     * Grava o conteúdo lido do stream (até o fim, sem fechá-lo). A gravação é atômica: um blob nunca é
+     * visível parcialmente. Se o conteúdo já existir, nada é regravado.
+     */
+    BlobArmazenado gravar(InputStream conteudo) throws IOException;
+
+    default BlobArmazenado gravar(byte[] conteudo) throws IOException {
+        return gravar(new ByteArrayInputStream(conteudo));
+    }
+
+    /**
+     * Abre o blob para leitura. O SHA-256 é conferido ao chegar ao fim do stream: conteúdo divergente
+     * da referência lança {@link BlobCorrompidoException} na última leitura.
+     *
+     * @throws java.nio.file.NoSuchFileException se não houver blob com essa referência.
+     */
+    InputStream abrir(String ref) throws IOException;
+
+    default byte[] ler(String ref) throws IOException {
+        try (InputStream in = abrir(ref)) {
+            return in.readAllBytes();
+        }
+    }
+
+    boolean existe(String ref);
+
+    /**
+     * Aplica o codec configurado a um blob já existente gravado sem compressão (ex: anterior à compressão).
+     * Um blob que não diminuir fica como está, com codec {@link CodecArmazenamento#NENHUM}; leitores
+     * concorrentes não são afetados. Com a compressão desligada nada é regravado: o blob é descrito como
+     * está (codec null se não comprimido).
+     *
+     * @throws java.nio.file.NoSuchFileException se não houver blob com essa referência.
+     */
+    BlobArmazenado recomprimir(String ref) throws IOException;
+
+    /**
+     * Move o blob para o armazenamento frio (arquivo morto), onde continua legível por {@link #abrir}.
+     * Armazenamentos sem camada fria não fazem nada.
+     *
+     * @return true se ao final o blob está no armazenamento frio (movido agora ou antes).
+     */
+    default boolean arquivar(String ref) throws IOException {
+        return false;
+    }
+}
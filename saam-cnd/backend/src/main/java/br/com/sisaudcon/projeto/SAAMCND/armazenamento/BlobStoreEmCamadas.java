@@ -0,0 +1,82 @@
+package br.com.sisaudcon.projeto.SAAMCND.armazenamento;
+
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.NoSuchFileException;
+
+/**
+ * BlobStore da aplicação: camada quente ({@link FileSystemBlobStore}, um arquivo por blob) e arquivo morto
+ * ({@link SegmentosArquivoMorto}). Gravações vão sempre para a camada quente; leituras procuram nela e depois
+ * no arquivo morto, então quem lê (download, extração, exportação) não precisa saber onde o blob está.
+ */
+@Primary
+@Component
+public class BlobStoreEmCamadas implements BlobStore {
+
+    private final FileSystemBlobStore quente;
+    private final SegmentosArquivoMorto arquivoMorto;
+
+    public BlobStoreEmCamadas(FileSystemBlobStore quente, SegmentosArquivoMorto arquivoMorto) {
+        this.quente = quente;
+        this.arquivoMorto = arquivoMorto;
+    }
+
+    @Override
+    public BlobArmazenado gravar(InputStream conteudo) throws IOException {
+        // Um PDF idêntico a um já arquivado volta a ter cópia na camada quente, lida antes do arquivo morto
+        return quente.gravar(conteudo);
+    }
+
+    @Override
+    public InputStream abrir(String ref) throws IOException {
+        try {
+            return quente.abrir(ref);
+        } catch (NoSuchFileException e) {
+            return arquivoMorto.abrir(ref);
+        }
+    }
+
+    @Override
+    public boolean existe(String ref) {
+        return quente.existe(ref) || arquivoMorto.contem(ref);
+    }
+
+    // Blobs no arquivo morto não são recomprimidos: ficam com o codec com que foram arquivados
+    @Override
+    public BlobArmazenado recomprimir(String ref) throws IOException {
+        if (quente.existe(ref)) {
+            return quente.recomprimir(ref);
+        }
+        SegmentosArquivoMorto.Entrada entrada = arquivoMorto.localizar(ref);
+        if (entrada == null) {
+            throw new NoSuchFileException("Blob " + ref + " não encontrado.");
+        }
+        long tamanho;
+        try (InputStream in = arquivoMorto.abrir(ref)) {
+            tamanho = in.transferTo(OutputStream.nullOutputStream());
+        }
+        return new BlobArmazenado(ref, tamanho, ref, false, entrada.getCodec(), entrada.getTamanho());
+    }
+
+    /**
+     * Copia o blob da camada quente para o segmento atual do arquivo morto, confere a cópia lendo-a de volta
+     * e só então remove o arquivo da camada quente. Repetir a operação (ex: após uma queda no meio) é seguro.
+     */
+    @Override
+    public boolean arquivar(String ref) throws IOException {
+        CodecArmazenamento codec = quente.codecGravado(ref);
+        if (codec == null) {
+            return arquivoMorto.contem(ref); // Já arquivado antes (ou blob inexistente)
+        }
+        arquivoMorto.arquivar(ref, codec, quente.caminho(ref, codec));
+        try (InputStream copia = arquivoMorto.abrir(ref)) {
+            copia.transferTo(OutputStream.nullOutputStream()); // BlobCorrompidoException se a cópia divergir
+        }
+        quente.remover(ref, codec);
+        return true;
+    }
+}
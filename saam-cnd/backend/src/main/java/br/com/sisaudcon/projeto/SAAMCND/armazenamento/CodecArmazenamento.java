@@ -0,0 +1,86 @@
+package br.com.sisaudcon.projeto.SAAMCND.armazenamento;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Codec de compressão com que um blob está gravado. O conteúdo lido do BlobStore é sempre o original:
+ * o codec só muda o que ocupa o disco. Registrado por resultado em CndResultado.arquivoCodec (pelo id).
+ */
+public enum CodecArmazenamento {
+
+    // Gravado como recebido (compressão desligada ou o arquivo não diminuía)
+    NENHUM("none", "") {
+        @Override
+        public OutputStream comprimir(OutputStream destino, int nivel) {
+            return destino;
+        }
+
+        @Override
+        public InputStream descomprimir(InputStream origem) {
+            return origem;
+        }
+    },
+
+    // java.util.zip (formato zlib, com Adler-32): sem dependência externa
+    DEFLATE("deflate", ".deflate") {
+        @Override
+        public OutputStream comprimir(OutputStream destino, int nivel) {
+            Deflater deflater = new Deflater(nivel);
+            return new DeflaterOutputStream(destino, deflater, TAMANHO_BUFFER) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        deflater.end(); // Deflater próprio não é liberado pelo close do stream
+                    }
+                }
+            };
+        }
+
+        @Override
+        public InputStream descomprimir(InputStream origem) {
+            return new InflaterInputStream(origem);
+        }
+    };
+
+    private static final int TAMANHO_BUFFER = 8192;
+
+    private final String id;
+    private final String sufixo;
+
+    CodecArmazenamento(String id, String sufixo) {
+        this.id = id;
+        this.sufixo = sufixo;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    // Sufixo do arquivo do blob gravado com este codec
+    public String getSufixo() {
+        return sufixo;
+    }
+
+    public abstract OutputStream comprimir(OutputStream destino, int nivel);
+
+    public abstract InputStream descomprimir(InputStream origem);
+
+    /**
+     * @throws IllegalArgumentException para um codec desconhecido ou não suportado (ex: zstd).
+     */
+    public static CodecArmazenamento porId(String id) {
+        for (CodecArmazenamento codec : values()) {
+            if (codec.id.equalsIgnoreCase(id == null ? "" : id.trim())) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("Codec de compressão não suportado: " + id + " (use none ou deflate).");
+    }
+}
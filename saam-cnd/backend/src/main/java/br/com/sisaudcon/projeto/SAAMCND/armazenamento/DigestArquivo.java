@@ -0,0 +1,36 @@
+package br.com.sisaudcon.projeto.SAAMCND.armazenamento;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * SHA-256 (hex minúsculo) do conteúdo dos arquivos das CNDs: identifica PDFs idênticos.
+ */
+public final class DigestArquivo {
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private DigestArquivo() {
+    }
+
+    public static String sha256Hex(byte[] conteudo) {
+        return hex(novoSha256().digest(conteudo));
+    }
+
+    public static MessageDigest novoSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponível na JVM.", e); // Obrigatório em toda JVM
+        }
+    }
+
+    public static String hex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(hex);
+    }
+}
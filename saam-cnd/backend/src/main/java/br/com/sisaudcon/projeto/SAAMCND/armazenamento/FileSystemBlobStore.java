@@ -0,0 +1,343 @@
+package br.com.sisaudcon.projeto.SAAMCND.armazenamento;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+
+/**
+ * {@link BlobStore} em sistema de arquivos local (ou volume compartilhado entre as réplicas).
+ * <ul>
+ *   <li>Diretórios particionados pelos 4 primeiros caracteres do SHA-256 ({@code ab/cd/abcd...}), para
+ *       não acumular milhões de arquivos num só diretório;</li>
+ *   <li>gravação num arquivo temporário do mesmo volume, com fsync, seguida de rename atômico: leitores
+ *       nunca veem um blob pela metade, e uma queda no meio deixa só o temporário para trás;</li>
+ *   <li>leitura com conferência do SHA-256 ao final do stream;</li>
+ *   <li>compressão opcional (cnd.armazenamento.compressao.codec): o blob comprimido fica ao lado do que seria
+ *       o original, com o sufixo do codec ({@code abcd....deflate}), e só quando fica menor que o original.
+ *       A leitura procura as duas formas, então blobs comprimidos e não comprimidos convivem;</li>
+ *   <li>a data de modificação de um blob é renovada a cada gravação do mesmo conteúdo: é ela que a limpeza de
+ *       órfãos compara com a carência, então um blob que acabou de ser (re)gravado nunca é removido.</li>
+ * </ul>
+ */
+@Component
+public class FileSystemBlobStore implements BlobStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileSystemBlobStore.class);
+    private static final Pattern REF_VALIDA = Pattern.compile("[0-9a-f]{64}");
+
+    private final Path raiz;
+    private final Path temporarios;
+    private final CodecArmazenamento codec;
+    private final int nivel;
+
+    // Sem compressão
+    public FileSystemBlobStore(String diretorio) {
+        this(diretorio, CodecArmazenamento.NENHUM.getId(), 6);
+    }
+
+    @Autowired
+    public FileSystemBlobStore(@Value("${cnd.armazenamento.diretorio:./dados/blobs}") String diretorio,
+                               @Value("${cnd.armazenamento.compressao.codec:none}") String codec,
+                               @Value("${cnd.armazenamento.compressao.nivel:6}") int nivel) {
+        if (nivel < Deflater.BEST_SPEED || nivel > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Nível de compressão inválido: " + nivel + " (use 1 a 9).");
+        }
+        this.raiz = Paths.get(diretorio).toAbsolutePath().normalize();
+        this.temporarios = raiz.resolve("tmp");
+        this.codec = CodecArmazenamento.porId(codec);
+        this.nivel = nivel;
+        try {
+            Files.createDirectories(temporarios);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível criar o diretório de blobs: " + raiz, e);
+        }
+        logger.info("Blobs das CNDs armazenados em {} (compressão: {}, nível {})", raiz, this.codec.getId(), nivel);
+    }
+
+    @Override
+    public BlobArmazenado gravar(InputStream conteudo) throws IOException {
+        Path temporario = Files.createTempFile(temporarios, "blob-", ".tmp");
+        try {
+            MessageDigest sha256 = DigestArquivo.novoSha256();
+            long tamanho;
+            try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.WRITE);
+                 OutputStream out = new DigestOutputStream(Channels.newOutputStream(canal), sha256)) {
+                tamanho = conteudo.transferTo(out);
+                out.flush();
+                canal.force(true);
+            }
+            String digest = DigestArquivo.hex(sha256.digest());
+            renovar(digest); // Antes de conferir se existe: a limpeza de órfãos não remove um blob renovado
+            BlobArmazenado existente = existente(digest, tamanho);
+            if (existente != null) {
+                return existente;
+            }
+            if (codec == CodecArmazenamento.NENHUM) {
+                publicar(temporario, caminho(digest));
+                return new BlobArmazenado(digest, tamanho, digest, true);
+            }
+            Path comprimido;
+            try (InputStream original = Files.newInputStream(temporario)) {
+                comprimido = comprimir(original, tamanho);
+            }
+            if (comprimido == null) {
+                publicar(temporario, caminho(digest));
+                return new BlobArmazenado(digest, tamanho, digest, true, CodecArmazenamento.NENHUM, tamanho);
+            }
+            long armazenado = Files.size(comprimido);
+            publicar(comprimido, caminho(digest, codec));
+            return new BlobArmazenado(digest, tamanho, digest, true, codec, armazenado);
+        } finally {
+            Files.deleteIfExists(temporario);
+        }
+    }
+
+    @Override
+    public InputStream abrir(String ref) throws IOException {
+        for (CodecArmazenamento gravado : CodecArmazenamento.values()) {
+            InputStream in;
+            try {
+                in = Files.newInputStream(caminho(ref, gravado));
+            } catch (NoSuchFileException e) {
+                continue; // Pode estar com o outro codec (ou acabou de ser recomprimido)
+            }
+            return new LeituraVerificada(gravado.descomprimir(in), ref);
+        }
+        throw new NoSuchFileException(caminho(ref).toString());
+    }
+
+    @Override
+    public boolean existe(String ref) {
+        for (CodecArmazenamento gravado : CodecArmazenamento.values()) {
+            if (Files.exists(caminho(ref, gravado))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public BlobArmazenado recomprimir(String ref) throws IOException {
+        Path original = caminho(ref);
+        if (codec == CodecArmazenamento.NENHUM || !Files.exists(original)) {
+            // Compressão desligada ou blob já comprimido: só descreve o blob como está (abrir confere o conteúdo)
+            long tamanho;
+            try (InputStream in = abrir(ref)) {
+                tamanho = in.transferTo(OutputStream.nullOutputStream());
+            }
+            return existente(ref, tamanho);
+        }
+        long tamanho = Files.size(original);
+        Path comprimido;
+        try (InputStream in = new LeituraVerificada(Files.newInputStream(original), ref)) {
+            comprimido = comprimir(in, tamanho);
+        }
+        if (comprimido == null) {
+            return new BlobArmazenado(ref, tamanho, ref, false, CodecArmazenamento.NENHUM, tamanho);
+        }
+        long armazenado = Files.size(comprimido);
+        publicar(comprimido, caminho(ref, codec));
+        // O comprimido já está visível: quem ainda tem o original aberto continua lendo, quem abrir agora lê o novo
+        Files.deleteIfExists(original);
+        return new BlobArmazenado(ref, tamanho, ref, false, codec, armazenado);
+    }
+
+    // Codec com que o blob está gravado aqui, ou null se não está (ex: movido para o arquivo morto)
+    CodecArmazenamento codecGravado(String ref) {
+        for (CodecArmazenamento gravado : CodecArmazenamento.values()) {
+            if (Files.exists(caminho(ref, gravado))) {
+                return gravado;
+            }
+        }
+        return null;
+    }
+
+    void remover(String ref, CodecArmazenamento gravado) throws IOException {
+        Files.deleteIfExists(caminho(ref, gravado));
+    }
+
+    /**
+     * Referências dos blobs gravados aqui cuja data de modificação é anterior ao limite (candidatos a órfãos).
+     * Percorre o diretório sob demanda: o stream precisa ser fechado. Uma referência com as duas formas
+     * (no meio de uma recompressão) pode aparecer duas vezes.
+     */
+    public Stream<String> refsModificadasAntesDe(Instant limite) throws IOException {
+        return Files.find(raiz, 3, (arquivo, atributos) -> atributos.isRegularFile()
+                        && !arquivo.startsWith(temporarios)
+                        && atributos.lastModifiedTime().toInstant().isBefore(limite))
+                .map(arquivo -> refDoArquivo(arquivo.getFileName().toString()))
+                .filter(Objects::nonNull);
+    }
+
+    // Tamanho em disco do blob (somando as formas) se ele não é modificado desde o limite; -1 se não é o caso
+    public long tamanhoSeModificadoAntesDe(String ref, Instant limite) throws IOException {
+        long tamanho = -1;
+        for (CodecArmazenamento gravado : CodecArmazenamento.values()) {
+            BasicFileAttributes atributos = atributos(caminho(ref, gravado));
+            if (atributos != null && atributos.lastModifiedTime().toInstant().isBefore(limite)) {
+                tamanho = Math.max(tamanho, 0) + atributos.size();
+            }
+        }
+        return tamanho;
+    }
+
+    /**
+     * Remove o blob (todas as formas) se ele não é modificado desde o limite. Cada arquivo é primeiro tirado do
+     * lugar (rename para o diretório de temporários) e só então a data é conferida de novo: uma gravação do mesmo
+     * conteúdo que renovou a data antes do rename faz o arquivo voltar; uma que chegar depois não o encontra e
+     * grava outra cópia.
+     *
+     * @return bytes liberados, ou -1 se nada foi removido.
+     */
+    public long removerSeModificadoAntesDe(String ref, Instant limite) throws IOException {
+        long liberados = -1;
+        for (CodecArmazenamento gravado : CodecArmazenamento.values()) {
+            Path arquivo = caminho(ref, gravado);
+            BasicFileAttributes atributos = atributos(arquivo);
+            if (atributos == null || !atributos.lastModifiedTime().toInstant().isBefore(limite)) {
+                continue;
+            }
+            Path removido = temporarios.resolve(arquivo.getFileName() + "." + UUID.randomUUID() + ".orfao");
+            try {
+                mover(arquivo, removido);
+            } catch (NoSuchFileException e) {
+                continue; // Removido por outra réplica (ou recomprimido) enquanto isso
+            }
+            atributos = Files.readAttributes(removido, BasicFileAttributes.class);
+            if (atributos.lastModifiedTime().toInstant().isBefore(limite)) {
+                Files.delete(removido);
+                liberados = Math.max(liberados, 0) + atributos.size();
+            } else {
+                publicar(removido, arquivo); // Regravado nesse meio tempo: volta para o lugar
+            }
+        }
+        return liberados;
+    }
+
+    // Nova data de modificação para o blob já gravado (qualquer forma), que está sendo gravado de novo
+    private void renovar(String ref) throws IOException {
+        FileTime agora = FileTime.from(Instant.now());
+        for (CodecArmazenamento gravado : CodecArmazenamento.values()) {
+            try {
+                Files.setLastModifiedTime(caminho(ref, gravado), agora);
+            } catch (NoSuchFileException e) {
+                // Não gravado com este codec
+            }
+        }
+    }
+
+    private static BasicFileAttributes atributos(Path arquivo) throws IOException {
+        try {
+            return Files.readAttributes(arquivo, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    // Referência do nome de arquivo de um blob (com ou sem o sufixo do codec), ou null se não for um blob
+    private static String refDoArquivo(String nome) {
+        for (CodecArmazenamento gravado : CodecArmazenamento.values()) {
+            if (nome.endsWith(gravado.getSufixo())) {
+                String ref = nome.substring(0, nome.length() - gravado.getSufixo().length());
+                if (REF_VALIDA.matcher(ref).matches()) {
+                    return ref;
+                }
+            }
+        }
+        return null;
+    }
+
+    // Blob já gravado com a referência, com qualquer codec, ou null
+    private BlobArmazenado existente(String ref, long tamanho) throws IOException {
+        for (CodecArmazenamento gravado : CodecArmazenamento.values()) {
+            try {
+                long armazenado = Files.size(caminho(ref, gravado));
+                // Sem compressão, não se sabe se o blob foi avaliado (pode ser anterior à compressão)
+                return new BlobArmazenado(ref, tamanho, ref, false,
+                        gravado == CodecArmazenamento.NENHUM ? null : gravado, armazenado);
+            } catch (NoSuchFileException e) {
+                // Tenta o próximo codec
+            }
+        }
+        return null;
+    }
+
+    // Comprime o conteúdo num temporário. Retorna o temporário (já com fsync) se ele ficou menor que o
+    // original; senão descarta e retorna null: o blob fica sem compressão.
+    private Path comprimir(InputStream original, long tamanhoOriginal) throws IOException {
+        Path temporario = Files.createTempFile(temporarios, "blob-", ".tmp");
+        boolean menor = false;
+        try {
+            try (OutputStream out = codec.comprimir(Files.newOutputStream(temporario), nivel)) {
+                original.transferTo(out);
+            }
+            menor = Files.size(temporario) < tamanhoOriginal;
+            if (menor) {
+                try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.WRITE)) {
+                    canal.force(true);
+                }
+            }
+            return menor ? temporario : null;
+        } finally {
+            if (!menor) {
+                Files.deleteIfExists(temporario);
+            }
+        }
+    }
+
+    private static void publicar(Path temporario, Path destino) throws IOException {
+        try {
+            Files.createDirectories(destino.getParent());
+            mover(temporario, destino);
+        } finally {
+            Files.deleteIfExists(temporario);
+        }
+    }
+
+    // Caminho do blob: raiz/ab/cd/abcd... (a referência é validada: nada de "../" vindo de fora)
+    Path caminho(String ref) {
+        if (ref == null || !REF_VALIDA.matcher(ref).matches()) {
+            throw new IllegalArgumentException("Referência de blob inválida: " + ref);
+        }
+        return raiz.resolve(ref.substring(0, 2)).resolve(ref.substring(2, 4)).resolve(ref);
+    }
+
+    Path caminho(String ref, CodecArmazenamento gravado) {
+        return caminho(ref).resolveSibling(ref + gravado.getSufixo());
+    }
+
+    private static void mover(Path temporario, Path destino) throws IOException {
+        try {
+            Files.move(temporario, destino, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            // Mesmo volume por construção; se o sistema de arquivos não suportar, o conteúdo é o mesmo em qualquer caso
+            Files.move(temporario, destino, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package br.com.sisaudcon.projeto.SAAMCND.armazenamento;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+
+/**
+ * Calcula o SHA-256 do que é lido de um blob (já descomprimido) e confere com a referência ao chegar ao
+ * fim do conteúdo: vale tanto para os arquivos do {@link FileSystemBlobStore} quanto para os trechos dos
+ * segmentos do arquivo morto.
+ */
+final class LeituraVerificada extends FilterInputStream {
+
+    private final MessageDigest sha256 = DigestArquivo.novoSha256();
+    private final String ref;
+    private boolean verificado;
+
+    LeituraVerificada(InputStream in, String ref) {
+        super(in);
+        this.ref = ref;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b == -1) {
+            verificar();
+        } else {
+            sha256.update((byte) b);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int lidos = super.read(b, off, len);
+        if (lidos == -1) {
+            verificar();
+        } else {
+            sha256.update(b, off, lidos);
+        }
+        return lidos;
+    }
+
+    // skip também precisa passar pelo digest
+    @Override
+    public long skip(long n) throws IOException {
+        byte[] descarte = new byte[(int) Math.min(8192, Math.max(0, n))];
+        long pulados = 0;
+        while (pulados < n) {
+            int lidos = read(descarte, 0, (int) Math.min(descarte.length, n - pulados));
+            if (lidos == -1) {
+                break;
+            }
+            pulados += lidos;
+        }
+        return pulados;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void verificar() throws IOException {
+        if (verificado) {
+            return;
+        }
+        verificado = true;
+        String lido = DigestArquivo.hex(sha256.digest());
+        if (!lido.equals(ref)) {
+            throw new BlobCorrompidoException("Blob " + ref + " corrompido: SHA-256 do conteúdo é " + lido + ".");
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package br.com.sisaudcon.projeto.SAAMCND.armazenamento;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Arquivo morto dos PDFs: blobs de CNDs vencidas há tempo, quase nunca mais baixados, reunidos em poucos
+ * arquivos grandes (segmentos) em vez de um arquivo por PDF na camada quente.
+ * <ul>
+ *   <li>Segmentos só recebem acréscimos ({@code segmento-000001.seg}): cada blob é copiado como estava
+ *       gravado (comprimido ou não), logo após o anterior. Passado o tamanho máximo, abre-se o próximo;</li>
+ *   <li>índice por segmento ({@code segmento-000001.idx}), também só de acréscimos: uma linha
+ *       {@code <ref> <codec> <posição> <tamanho>} por blob, gravada depois do conteúdo e do fsync, então
+ *       uma entrada do índice sempre aponta para bytes completos;</li>
+ *   <li>o índice fica em memória (algumas dezenas de bytes por blob). Uma referência não encontrada relê só
+ *       o que foi acrescentado aos índices desde a última leitura (ex: por outra réplica no mesmo volume);</li>
+ *   <li>acréscimos sob lock do arquivo do segmento, o que serializa também réplicas diferentes.</li>
+ * </ul>
+ */
+@Component
+public class SegmentosArquivoMorto {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentosArquivoMorto.class);
+    private static final String PREFIXO = "segmento-";
+    private static final String EXTENSAO_SEGMENTO = ".seg";
+    private static final String EXTENSAO_INDICE = ".idx";
+
+    private final Path diretorio;
+    private final long tamanhoMaximoSegmento;
+    private final Map<String, Entrada> indice = new ConcurrentHashMap<>();
+    // Quanto de cada arquivo de índice já foi lido (acesso sincronizado em recarregarIndices)
+    private final Map<Path, Long> posicaoLidaIndices = new HashMap<>();
+
+    public SegmentosArquivoMorto(@Value("${cnd.armazenamento.arquivamento.diretorio:./dados/arquivo-morto}") String diretorio,
+                                 @Value("${cnd.armazenamento.arquivamento.segmento.tamanho-maximo:256MB}") DataSize tamanhoMaximoSegmento) {
+        this.diretorio = Paths.get(diretorio).toAbsolutePath().normalize();
+        this.tamanhoMaximoSegmento = tamanhoMaximoSegmento.toBytes();
+        try {
+            Files.createDirectories(this.diretorio);
+            recarregarIndices();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível abrir o arquivo morto de blobs: " + this.diretorio, e);
+        }
+        logger.info("Arquivo morto dos blobs em {}: {} blobs arquivados.", this.diretorio, indice.size());
+    }
+
+    /**
+     * Copia para o segmento atual o blob gravado em {@code origem} com o codec informado. Se o blob já estiver
+     * arquivado (aqui ou por outra réplica), nada é copiado.
+     */
+    public synchronized Entrada arquivar(String ref, CodecArmazenamento codec, Path origem) throws IOException {
+        Entrada existente = localizar(ref);
+        if (existente != null) {
+            return existente;
+        }
+        long tamanho = Files.size(origem);
+        Path segmento = segmentoParaAcrescimo(tamanho);
+        try (FileChannel canal = FileChannel.open(segmento, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+             FileLock lock = canal.lock()) {
+            recarregarIndices();
+            existente = indice.get(ref);
+            if (existente != null) {
+                return existente; // Arquivado por outra réplica enquanto esperávamos o lock
+            }
+            long posicao = canal.size();
+            try (FileChannel entrada = FileChannel.open(origem, StandardOpenOption.READ)) {
+                long copiados = 0;
+                while (copiados < tamanho) {
+                    long n = canal.transferFrom(entrada, posicao + copiados, tamanho - copiados);
+                    if (n <= 0) {
+                        throw new EOFException("Blob " + ref + " terminou antes do esperado ao ser arquivado.");
+                    }
+                    copiados += n;
+                }
+            }
+            canal.force(true);
+            Entrada nova = new Entrada(segmento, codec, posicao, tamanho);
+            acrescentarAoIndice(indiceDo(segmento), ref, nova);
+            indice.put(ref, nova);
+            return nova;
+        }
+    }
+
+    /**
+     * Conteúdo original do blob arquivado (descomprimido e com o SHA-256 conferido ao final).
+     *
+     * @throws NoSuchFileException se o blob não estiver no arquivo morto.
+     */
+    public InputStream abrir(String ref) throws IOException {
+        Entrada entrada = localizar(ref);
+        if (entrada == null) {
+            throw new NoSuchFileException("Blob " + ref + " não está no arquivo morto.");
+        }
+        return new LeituraVerificada(entrada.getCodec().descomprimir(new TrechoSegmento(entrada)), ref);
+    }
+
+    public boolean contem(String ref) {
+        try {
+            return localizar(ref) != null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Referências arquivadas (incluindo o que outras réplicas acrescentaram aos índices), com o tamanho que cada
+     * uma ocupa nos segmentos. Os segmentos só recebem acréscimos: um blob arquivado não sai mais deles.
+     */
+    public Map<String, Long> refsArquivadas() throws IOException {
+        recarregarIndices();
+        Map<String, Long> refs = new HashMap<>();
+        indice.forEach((ref, entrada) -> refs.put(ref, entrada.getTamanho()));
+        return refs;
+    }
+
+    // Procura no índice em memória; se não achar, lê o que foi acrescentado aos índices e tenta de novo
+    Entrada localizar(String ref) throws IOException {
+        Entrada entrada = indice.get(ref);
+        if (entrada == null) {
+            recarregarIndices();
+            entrada = indice.get(ref);
+        }
+        return entrada;
+    }
+
+    private synchronized void recarregarIndices() throws IOException {
+        for (Path arquivoIndice : listar(EXTENSAO_INDICE)) {
+            long lida = posicaoLidaIndices.getOrDefault(arquivoIndice, 0L);
+            long tamanho = Files.size(arquivoIndice);
+            if (tamanho <= lida) {
+                continue;
+            }
+            ByteBuffer novos = ByteBuffer.allocate((int) (tamanho - lida));
+            try (FileChannel canal = FileChannel.open(arquivoIndice, StandardOpenOption.READ)) {
+                while (novos.hasRemaining() && canal.read(novos, lida + novos.position()) > 0) {
+                    // Lê até o tamanho visto acima
+                }
+            }
+            String texto = new String(novos.array(), 0, novos.position(), StandardCharsets.US_ASCII);
+            int fimUltimaLinha = texto.lastIndexOf('\n') + 1; // Linha incompleta (escrita em andamento) fica para a próxima
+            Path segmento = segmentoDo(arquivoIndice);
+            for (String linha : texto.substring(0, fimUltimaLinha).split("\n")) {
+                if (!linha.isEmpty()) {
+                    lerLinhaIndice(segmento, linha);
+                }
+            }
+            posicaoLidaIndices.put(arquivoIndice, lida + fimUltimaLinha);
+        }
+    }
+
+    private void lerLinhaIndice(Path segmento, String linha) {
+        String[] campos = linha.split(" ");
+        try {
+            indice.putIfAbsent(campos[0], new Entrada(segmento, CodecArmazenamento.porId(campos[1]),
+                    Long.parseLong(campos[2]), Long.parseLong(campos[3])));
+        } catch (RuntimeException e) {
+            logger.warn("Linha inválida no índice do segmento {} ignorada: '{}'", segmento.getFileName(), linha);
+        }
+    }
+
+    private static void acrescentarAoIndice(Path arquivoIndice, String ref, Entrada entrada) throws IOException {
+        String linha = ref + " " + entrada.getCodec().getId() + " " + entrada.getPosicao() + " " + entrada.getTamanho() + "\n";
+        try (FileChannel canal = FileChannel.open(arquivoIndice, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            ByteBuffer bytes = ByteBuffer.wrap(linha.getBytes(StandardCharsets.US_ASCII));
+            while (bytes.hasRemaining()) {
+                canal.write(bytes);
+            }
+            canal.force(true);
+        }
+    }
+
+    // Último segmento, ou o próximo se o blob não couber mais nele (um blob maior que o limite ocupa um segmento sozinho)
+    private Path segmentoParaAcrescimo(long tamanhoBlob) throws IOException {
+        List<Path> segmentos = listar(EXTENSAO_SEGMENTO);
+        if (segmentos.isEmpty()) {
+            return segmento(1);
+        }
+        Path ultimo = segmentos.get(segmentos.size() - 1);
+        long ocupado = Files.size(ultimo);
+        if (ocupado > 0 && ocupado + tamanhoBlob > tamanhoMaximoSegmento) {
+            return segmento(numeroDo(ultimo) + 1);
+        }
+        return ultimo;
+    }
+
+    private List<Path> listar(String extensao) throws IOException {
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            return arquivos
+                    .filter(p -> p.getFileName().toString().startsWith(PREFIXO) && p.getFileName().toString().endsWith(extensao))
+                    .sorted() // Número com zeros à esquerda: ordem de nome = ordem de criação
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private Path segmento(int numero) {
+        return diretorio.resolve(String.format("%s%06d%s", PREFIXO, numero, EXTENSAO_SEGMENTO));
+    }
+
+    private static int numeroDo(Path segmento) {
+        String nome = segmento.getFileName().toString();
+        return Integer.parseInt(nome.substring(PREFIXO.length(), nome.length() - EXTENSAO_SEGMENTO.length()));
+    }
+
+    private static Path indiceDo(Path segmento) {
+        String nome = segmento.getFileName().toString();
+        return segmento.resolveSibling(nome.substring(0, nome.length() - EXTENSAO_SEGMENTO.length()) + EXTENSAO_INDICE);
+    }
+
+    private static Path segmentoDo(Path arquivoIndice) {
+        String nome = arquivoIndice.getFileName().toString();
+        return arquivoIndice.resolveSibling(nome.substring(0, nome.length() - EXTENSAO_INDICE.length()) + EXTENSAO_SEGMENTO);
+    }
+
+    /**
+     * Posição de um blob num segmento: bytes como estavam gravados na camada quente (com o codec).
+     */
+    static final class Entrada {
+
+        private final Path segmento;
+        private final CodecArmazenamento codec;
+        private final long posicao;
+        private final long tamanho;
+
+        Entrada(Path segmento, CodecArmazenamento codec, long posicao, long tamanho) {
+            this.segmento = segmento;
+            this.codec = codec;
+            this.posicao = posicao;
+            this.tamanho = tamanho;
+        }
+
+        Path getSegmento() {
+            return segmento;
+        }
+
+        CodecArmazenamento getCodec() {
+            return codec;
+        }
+
+        long getPosicao() {
+            return posicao;
+        }
+
+        long getTamanho() {
+            return tamanho;
+        }
+    }
+
+    // Lê só o trecho [posição, posição + tamanho) do segmento, com leituras posicionais
+    private static final class TrechoSegmento extends InputStream {
+
+        private final FileChannel canal;
+        private final long fim;
+        private long posicao;
+
+        TrechoSegmento(Entrada entrada) throws IOException {
+            this.canal = FileChannel.open(entrada.getSegmento(), StandardOpenOption.READ);
+            this.posicao = entrada.getPosicao();
+            this.fim = entrada.getPosicao() + entrada.getTamanho();
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] um = new byte[1];
+            return read(um, 0, 1) == -1 ? -1 : um[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (posicao >= fim) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            int lidos = canal.read(ByteBuffer.wrap(b, off, (int) Math.min(len, fim - posicao)), posicao);
+            if (lidos == -1) {
+                throw new EOFException("Segmento " + canal + " truncado.");
+            }
+            posicao += lidos;
+            return lidos;
+        }
+
+        @Override
+        public void close() throws IOException {
+            canal.close();
+        }
+    }
+}
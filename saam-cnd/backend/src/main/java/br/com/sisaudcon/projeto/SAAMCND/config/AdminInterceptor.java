@@ -0,0 +1,55 @@
+package br.com.sisaudcon.projeto.SAAMCND.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Protege as rotas /api/admin/**. Elas não pertencem a um cliente (o X-ID-CLIENTE de qualquer tenant
+ * autorizado não vale aqui): exigem o header X-ADMIN-TOKEN igual a saam.admin.token. Sem token
+ * configurado as rotas administrativas ficam fechadas.
+ */
+@Component
+public class AdminInterceptor implements HandlerInterceptor {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdminInterceptor.class);
+
+    static final String HEADER_TOKEN = "X-ADMIN-TOKEN";
+
+    private final byte[] tokenAdmin;
+
+    public AdminInterceptor(@Value("${saam.admin.token:}") String tokenAdmin) {
+        this.tokenAdmin = tokenAdmin == null ? new byte[0] : tokenAdmin.trim().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        String token = request.getHeader(HEADER_TOKEN);
+
+        if (tokenAdmin.length == 0) {
+            logger.warn("Acesso administrativo recusado para {}: saam.admin.token não configurado", request.getRequestURI());
+            return negar(response, "Endpoints administrativos desabilitados.");
+        }
+        // Comparação em tempo constante: o tempo de resposta não revela quantos caracteres conferem
+        if (token == null || !MessageDigest.isEqual(tokenAdmin, token.trim().getBytes(StandardCharsets.UTF_8))) {
+            logger.warn("Token administrativo ausente ou inválido para URI: {}", request.getRequestURI());
+            return negar(response, "Token administrativo inválido ou não informado. Header '" + HEADER_TOKEN + "' ausente ou incorreto.");
+        }
+        return true;
+    }
+
+    private static boolean negar(HttpServletResponse response, String mensagem) throws Exception {
+        response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write("{\"error\": \"" + mensagem + "\"}");
+        return false;
+    }
+}
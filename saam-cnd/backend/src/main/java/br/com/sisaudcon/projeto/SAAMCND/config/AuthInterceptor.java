@@ -1,7 +1,7 @@
 package br.com.sisaudcon.projeto.SAAMCND.config;
 
 import br.com.sisaudcon.projeto.SAAMCND.exception.ClienteNaoAutorizadoException;
-import br.com.sisaudcon.projeto.SAAMCND.service.SaamCrValidationService;
+import br.com.sisaudcon.projeto.SAAMCND.service.AutorizacaoClienteService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -17,7 +17,7 @@ public class AuthInterceptor implements HandlerInterceptor {
     private static final Logger logger = LoggerFactory.getLogger(AuthInterceptor.class);
 
     @Autowired
-    private SaamCrValidationService saamCrValidationService;
+    private AutorizacaoClienteService autorizacaoClienteService; // Validação SAAM-CR com cache de vereditos
 
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
@@ -55,8 +55,8 @@ public class AuthInterceptor implements HandlerInterceptor {
 
         try {
             // A validação já lança ClienteNaoAutorizadoException ou ServicoExternoException
-            // que são tratadas pelo GlobalExceptionHandler.
-            boolean autorizado = saamCrValidationService.isClienteAutorizado(idCliente);
+            // que são tratadas pelo GlobalExceptionHandler. Vereditos recentes são servidos do cache.
+            boolean autorizado = autorizacaoClienteService.verificarAutorizacao(idCliente);
 
             if (autorizado) {
                 logger.info("Cliente {} autorizado para acessar {}", idCliente, requestUri);
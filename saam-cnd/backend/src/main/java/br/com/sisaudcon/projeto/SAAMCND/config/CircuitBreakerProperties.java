@@ -0,0 +1,26 @@
+package br.com.sisaudcon.projeto.SAAMCND.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Configuração do circuit breaker que protege as validações no SAAM-CR, ex:
+ * saam.cr.circuit-breaker.limiar-taxa-falhas=50
+ */
+@Data
+@ConfigurationProperties(prefix = "saam.cr.circuit-breaker")
+public class CircuitBreakerProperties {
+
+    private boolean enabled = true;
+
+    private int janela = 20;                                 // Últimas N chamadas usadas no cálculo das taxas
+    private int minimoChamadas = 10;                         // Chamadas na janela antes de avaliar as taxas
+    private int limiarTaxaFalhas = 50;                       // % de falhas que abre o circuito
+    private Duration limiarChamadaLenta = Duration.ofSeconds(2); // Acima disso a chamada conta como lenta
+    private int limiarTaxaLentas = 80;                       // % de chamadas lentas que abre o circuito
+    private Duration esperaAberto = Duration.ofSeconds(30);  // Tempo aberto antes de permitir chamadas de teste
+    private int chamadasMeiaAbertura = 3;                    // Chamadas de teste no estado meio-aberto
+    private Duration periodoGraca = Duration.ofMinutes(15);  // Idade máxima do último veredito servido com o circuito aberto
+}
@@ -0,0 +1,24 @@
+package br.com.sisaudcon.projeto.SAAMCND.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Mapeamento de órgão emissor / tipo de certidão para o extrator de dados do PDF (PEC-4963), ex:
+ * cnd.extracao.extratores.orgaos.sefaz-mg=SEFAZ-MG,Secretaria de Estado de Fazenda de Minas Gerais
+ * A chave é o id do extrator; os valores são comparados sem diferenciar maiúsculas nem acentos.
+ */
+@Data
+@ConfigurationProperties(prefix = "cnd.extracao.extratores")
+public class ExtratoresProperties {
+
+    private String padrao = "rfb";                           // Extrator usado quando nenhum mapeamento se aplica
+    private Map<String, List<String>> orgaos = new LinkedHashMap<>(); // id do extrator -> órgãos emissores
+    private Map<String, List<String>> tipos = new LinkedHashMap<>();  // id do extrator -> tipos de certidão
+    private int paginasPadrao = 2;                            // Páginas lidas do PDF (os dados ficam nas páginas 1–2)
+    private Map<String, Integer> paginas = new LinkedHashMap<>();     // id do extrator -> páginas lidas, se diferente do padrão
+}
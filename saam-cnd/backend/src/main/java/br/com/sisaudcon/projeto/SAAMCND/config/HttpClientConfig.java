@@ -0,0 +1,16 @@
+package br.com.sisaudcon.projeto.SAAMCND.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(HttpClientProperties.class)
+public class HttpClientConfig {
+
+    @Bean
+    public HttpClientPools httpClientPools(HttpClientProperties properties, MeterRegistry meterRegistry) {
+        return new HttpClientPools(properties, meterRegistry);
+    }
+}
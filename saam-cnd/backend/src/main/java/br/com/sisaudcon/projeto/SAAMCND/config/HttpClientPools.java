@@ -0,0 +1,284 @@
+package br.com.sisaudcon.projeto.SAAMCND.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Subsistema compartilhado de HTTP de saída. Cada destino (ex: "saam-cr", "saam", "receita-federal",
+ * "sefaz-mg") tem o seu próprio pool de conexões com keep-alive, timeouts de conexão/leitura/pool
+ * e um prazo total por requisição, para que um serviço externo lento não segure indefinidamente
+ * uma thread do Tomcat. O estado de cada pool é exposto como métricas (leased, pending, available, max).
+ */
+public class HttpClientPools {
+
+    private static final Logger logger = LoggerFactory.getLogger(HttpClientPools.class);
+
+    private final HttpClientProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, PoolDestino> pools = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor abortador;
+
+    public HttpClientPools(HttpClientProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.abortador = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "http-client-prazo");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Prazo cancelado (requisição concluída) sai da fila na hora, sem segurar a requisição até o prazo
+        this.abortador.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Retorna o RestTemplate do destino informado, criando o pool na primeira utilização.
+     */
+    public RestTemplate restTemplate(String destino) {
+        return pools.computeIfAbsent(destino, this::criarPool).restTemplate;
+    }
+
+    /**
+     * Estatísticas atuais do pool de um destino (ou null se o destino ainda não foi utilizado).
+     */
+    public PoolStats estatisticas(String destino) {
+        PoolDestino pool = pools.get(destino);
+        return pool != null ? pool.connectionManager.getTotalStats() : null;
+    }
+
+    private PoolDestino criarPool(String destino) {
+        HttpClientProperties.Destino config = properties.resolver(destino);
+
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+                config.getKeepAlive().toMillis(), TimeUnit.MILLISECONDS);
+        connectionManager.setMaxTotal(config.getMaxConexoes());
+        connectionManager.setDefaultMaxPerRoute(config.getMaxConexoes());
+        connectionManager.setValidateAfterInactivity(2_000);
+
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout((int) config.getConnectTimeout().toMillis())
+                .setSocketTimeout((int) config.getReadTimeout().toMillis())
+                .setConnectionRequestTimeout((int) config.getPoolTimeout().toMillis())
+                .build();
+
+        long keepAliveMillis = config.getKeepAlive().toMillis();
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                // Respeita o Keep-Alive informado pelo servidor, limitado ao configurado para o destino
+                .setKeepAliveStrategy((response, context) -> {
+                    long sugerido = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return sugerido > 0 ? Math.min(sugerido, keepAliveMillis) : keepAliveMillis;
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(keepAliveMillis, TimeUnit.MILLISECONDS)
+                .build();
+
+        RestTemplate restTemplate = new RestTemplate(new RequestFactoryComPrazo(httpClient, config.getPrazoTotal()));
+
+        registrarMetricas(destino, connectionManager);
+        logger.info("Pool HTTP '{}' criado (maxConexoes={}, connectTimeout={}, readTimeout={}, poolTimeout={}, prazoTotal={}, keepAlive={})",
+                destino, config.getMaxConexoes(), config.getConnectTimeout(), config.getReadTimeout(),
+                config.getPoolTimeout(), config.getPrazoTotal(), config.getKeepAlive());
+        return new PoolDestino(connectionManager, httpClient, restTemplate);
+    }
+
+    private void registrarMetricas(String destino, PoolingHttpClientConnectionManager connectionManager) {
+        registrarGauge("http.client.pool.leased", "Conexões em uso", destino, connectionManager, s -> s.getLeased());
+        registrarGauge("http.client.pool.pending", "Requisições aguardando conexão livre", destino, connectionManager, s -> s.getPending());
+        registrarGauge("http.client.pool.available", "Conexões ociosas disponíveis", destino, connectionManager, s -> s.getAvailable());
+        registrarGauge("http.client.pool.max", "Máximo de conexões do pool", destino, connectionManager, s -> s.getMax());
+    }
+
+    private void registrarGauge(String nome, String descricao, String destino,
+                                PoolingHttpClientConnectionManager connectionManager, ToDoubleFunction<PoolStats> valor) {
+        Gauge.builder(nome, connectionManager, cm -> valor.applyAsDouble(cm.getTotalStats()))
+                .description(descricao)
+                .tag("destino", destino)
+                .register(meterRegistry);
+    }
+
+    // Abortos agendados de requisições ainda em andamento
+    int prazosPendentes() {
+        return abortador.getQueue().size();
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        abortador.shutdownNow();
+        pools.forEach((destino, pool) -> {
+            try {
+                pool.httpClient.close();
+            } catch (IOException e) {
+                logger.warn("Erro ao encerrar pool HTTP '{}': {}", destino, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Aborta a requisição quando o prazo total estoura. O abort agendado é cancelado quando a resposta é
+     * fechada (o RestTemplate sempre fecha) ou quando a execução falha.
+     */
+    private class RequestFactoryComPrazo extends HttpComponentsClientHttpRequestFactory {
+
+        private final Duration prazoTotal;
+        // Abort agendado em createHttpUriRequest, entregue a createRequest na mesma thread
+        private final ThreadLocal<ScheduledFuture<?>> prazoAgendado = new ThreadLocal<>();
+
+        RequestFactoryComPrazo(CloseableHttpClient httpClient, Duration prazoTotal) {
+            super(httpClient);
+            this.prazoTotal = prazoTotal;
+        }
+
+        @Override
+        public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+            try {
+                ClientHttpRequest request = super.createRequest(uri, httpMethod);
+                ScheduledFuture<?> prazo = prazoAgendado.get();
+                return prazo != null ? new RequestComPrazo(request, prazo) : request;
+            } catch (IOException | RuntimeException e) {
+                ScheduledFuture<?> prazo = prazoAgendado.get();
+                if (prazo != null) {
+                    prazo.cancel(false);
+                }
+                throw e;
+            } finally {
+                prazoAgendado.remove();
+            }
+        }
+
+        @Override
+        protected HttpUriRequest createHttpUriRequest(HttpMethod httpMethod, URI uri) {
+            HttpUriRequest request = super.createHttpUriRequest(httpMethod, uri);
+            if (request instanceof HttpRequestBase && !prazoTotal.isZero()) {
+                prazoAgendado.set(abortador.schedule(((HttpRequestBase) request)::abort, prazoTotal.toMillis(), TimeUnit.MILLISECONDS));
+            }
+            return request;
+        }
+    }
+
+    // Cancela o abort agendado ao fim da requisição: falha na execução ou resposta fechada
+    private static final class RequestComPrazo implements ClientHttpRequest {
+
+        private final ClientHttpRequest delegate;
+        private final ScheduledFuture<?> prazo;
+
+        private RequestComPrazo(ClientHttpRequest delegate, ScheduledFuture<?> prazo) {
+            this.delegate = delegate;
+            this.prazo = prazo;
+        }
+
+        @Override
+        public ClientHttpResponse execute() throws IOException {
+            try {
+                return new RespostaComPrazo(delegate.execute(), prazo);
+            } catch (IOException | RuntimeException e) {
+                prazo.cancel(false);
+                throw e;
+            }
+        }
+
+        @Override
+        public OutputStream getBody() throws IOException {
+            return delegate.getBody();
+        }
+
+        @Override
+        public String getMethodValue() {
+            return delegate.getMethodValue();
+        }
+
+        @Override
+        public URI getURI() {
+            return delegate.getURI();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+    }
+
+    private static final class RespostaComPrazo implements ClientHttpResponse {
+
+        private final ClientHttpResponse delegate;
+        private final ScheduledFuture<?> prazo;
+
+        private RespostaComPrazo(ClientHttpResponse delegate, ScheduledFuture<?> prazo) {
+            this.delegate = delegate;
+            this.prazo = prazo;
+        }
+
+        @Override
+        public void close() {
+            prazo.cancel(false);
+            delegate.close();
+        }
+
+        @Override
+        public HttpStatus getStatusCode() throws IOException {
+            return delegate.getStatusCode();
+        }
+
+        @Override
+        public int getRawStatusCode() throws IOException {
+            return delegate.getRawStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return delegate.getStatusText();
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            return delegate.getBody();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return delegate.getHeaders();
+        }
+    }
+
+    private static final class PoolDestino {
+        private final PoolingHttpClientConnectionManager connectionManager;
+        private final CloseableHttpClient httpClient;
+        private final RestTemplate restTemplate;
+
+        private PoolDestino(PoolingHttpClientConnectionManager connectionManager, CloseableHttpClient httpClient, RestTemplate restTemplate) {
+            this.connectionManager = connectionManager;
+            this.httpClient = httpClient;
+            this.restTemplate = restTemplate;
+        }
+    }
+}
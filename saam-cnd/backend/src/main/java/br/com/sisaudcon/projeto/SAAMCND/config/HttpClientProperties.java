@@ -0,0 +1,58 @@
+package br.com.sisaudcon.projeto.SAAMCND.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Configuração dos pools HTTP de saída (SAAM-CR, SAAM, Receita Federal, SEFAZ-MG...).
+ * Cada destino herda os valores de "padrao" e pode sobrescrever qualquer um deles, ex:
+ * saam.http-client.destinos.saam-cr.read-timeout=PT3S
+ */
+@Data
+@ConfigurationProperties(prefix = "saam.http-client")
+public class HttpClientProperties {
+
+    private Destino padrao = Destino.padrao();
+
+    private Map<String, Destino> destinos = new HashMap<>();
+
+    /**
+     * Configuração efetiva de um destino: valores próprios, completados pelos de "padrao".
+     */
+    public Destino resolver(String nomeDestino) {
+        Destino especifico = destinos.getOrDefault(nomeDestino, new Destino());
+        Destino efetivo = new Destino();
+        efetivo.setMaxConexoes(especifico.getMaxConexoes() != null ? especifico.getMaxConexoes() : padrao.getMaxConexoes());
+        efetivo.setConnectTimeout(especifico.getConnectTimeout() != null ? especifico.getConnectTimeout() : padrao.getConnectTimeout());
+        efetivo.setReadTimeout(especifico.getReadTimeout() != null ? especifico.getReadTimeout() : padrao.getReadTimeout());
+        efetivo.setPoolTimeout(especifico.getPoolTimeout() != null ? especifico.getPoolTimeout() : padrao.getPoolTimeout());
+        efetivo.setPrazoTotal(especifico.getPrazoTotal() != null ? especifico.getPrazoTotal() : padrao.getPrazoTotal());
+        efetivo.setKeepAlive(especifico.getKeepAlive() != null ? especifico.getKeepAlive() : padrao.getKeepAlive());
+        return efetivo;
+    }
+
+    @Data
+    public static class Destino {
+        private Integer maxConexoes;         // Conexões simultâneas no pool do destino
+        private Duration connectTimeout;     // Estabelecimento da conexão TCP/TLS
+        private Duration readTimeout;        // Inatividade máxima entre pacotes (SO_TIMEOUT)
+        private Duration poolTimeout;        // Espera máxima por uma conexão livre no pool
+        private Duration prazoTotal;         // Prazo total da requisição; ao estourar, a requisição é abortada
+        private Duration keepAlive;          // Tempo máximo de reutilização de uma conexão ociosa
+
+        static Destino padrao() {
+            Destino destino = new Destino();
+            destino.setMaxConexoes(20);
+            destino.setConnectTimeout(Duration.ofSeconds(2));
+            destino.setReadTimeout(Duration.ofSeconds(5));
+            destino.setPoolTimeout(Duration.ofSeconds(1));
+            destino.setPrazoTotal(Duration.ofSeconds(10));
+            destino.setKeepAlive(Duration.ofSeconds(30));
+            return destino;
+        }
+    }
+}
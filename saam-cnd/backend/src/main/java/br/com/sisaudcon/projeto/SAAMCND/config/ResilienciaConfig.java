@@ -0,0 +1,9 @@
+package br.com.sisaudcon.projeto.SAAMCND.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(CircuitBreakerProperties.class)
+public class ResilienciaConfig {
+}
@@ -12,12 +12,17 @@ public class WebMvcConfig implements WebMvcConfigurer {
     @Autowired
     private AuthInterceptor authInterceptor;
 
+    @Autowired
+    private AdminInterceptor adminInterceptor;
+
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
         registry.addInterceptor(authInterceptor)
                 .addPathPatterns("/api/**") // Aplica a todas as rotas sob /api
-                .excludePathPatterns("/api/public/**"); // Exclui rotas públicas, se houver
+                .excludePathPatterns("/api/public/**", "/api/admin/**"); // Exclui rotas públicas e administrativas
                 // Adicionar outras exclusões se necessário (ex: /api/auth/login)
+        registry.addInterceptor(adminInterceptor)
+                .addPathPatterns("/api/admin/**"); // Rotas administrativas exigem o token de administração, não um cliente
     }
 
     @Override
@@ -0,0 +1,43 @@
+package br.com.sisaudcon.projeto.SAAMCND.controller;
+
+import br.com.sisaudcon.projeto.SAAMCND.service.AutorizacaoClienteService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/admin/autorizacao-cache")
+@Tag(name = "Administração - Cache de Autorização", description = "API para inspeção e invalidação do cache de vereditos do SAAM-CR")
+public class AutorizacaoCacheController {
+
+    private final AutorizacaoClienteService autorizacaoClienteService;
+
+    @Autowired
+    public AutorizacaoCacheController(AutorizacaoClienteService autorizacaoClienteService) {
+        this.autorizacaoClienteService = autorizacaoClienteService;
+    }
+
+    @GetMapping
+    @Operation(summary = "Retorna as estatísticas do cache de autorização (hits, misses, evictions)")
+    public ResponseEntity<Map<String, Object>> estatisticas() {
+        return ResponseEntity.ok(autorizacaoClienteService.estatisticas());
+    }
+
+    @DeleteMapping("/{idCliente}")
+    @Operation(summary = "Remove do cache o veredito de autorização de um cliente")
+    public ResponseEntity<Void> invalidar(@PathVariable String idCliente) {
+        autorizacaoClienteService.invalidar(idCliente);
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping
+    @Operation(summary = "Esvazia o cache de autorização")
+    public ResponseEntity<Void> invalidarTodos() {
+        autorizacaoClienteService.invalidarTodos();
+        return ResponseEntity.noContent().build();
+    }
+}
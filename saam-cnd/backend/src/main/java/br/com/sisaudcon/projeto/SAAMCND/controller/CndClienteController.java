@@ -37,9 +37,13 @@ public class CndClienteController {
     }
 
     @GetMapping
-    @Operation(summary = "Lista todos os clientes")
-    public ResponseEntity<List<CndClienteResponseDTO>> listarClientes() {
-        List<CndClienteResponseDTO> clientes = cndClienteService.listarClientes();
+    @Operation(summary = "Lista todos os clientes. Com 'nome' e/ou 'nomeEmpresa', busca por trecho do nome sem diferenciar "
+            + "maiúsculas nem acentos (até " + CndClienteService.LIMITE_BUSCA + " clientes, em ordem de nome)")
+    public ResponseEntity<List<CndClienteResponseDTO>> listarClientes(@RequestParam(required = false) String nome,
+                                                                      @RequestParam(required = false) String nomeEmpresa) {
+        List<CndClienteResponseDTO> clientes = nome != null || nomeEmpresa != null
+                ? cndClienteService.buscarClientesPorNome(nome, nomeEmpresa)
+                : cndClienteService.listarClientes();
         return ResponseEntity.ok(clientes);
     }
 
@@ -1,22 +1,35 @@
 package br.com.sisaudcon.projeto.SAAMCND.controller;
 
+import br.com.sisaudcon.projeto.SAAMCND.armazenamento.BlobArmazenado;
 import br.com.sisaudcon.projeto.SAAMCND.dto.CndResultadoDTO;
+import br.com.sisaudcon.projeto.SAAMCND.dto.PaginaCndResultados;
 import br.com.sisaudcon.projeto.SAAMCND.model.CndResultado;
+import br.com.sisaudcon.projeto.SAAMCND.service.ArquivoCndDownload;
 import br.com.sisaudcon.projeto.SAAMCND.service.CndFederalService;
 import br.com.sisaudcon.projeto.SAAMCND.service.CndResultadoService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
-import java.util.List;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Collections;
 import java.util.Map;
 
 @RestController
@@ -50,16 +63,68 @@ public class CndResultadoController {
     }
 
     @GetMapping
-    @Operation(summary = "Lista todos os resultados de CND, com filtros opcionais")
-    public ResponseEntity<List<CndResultadoDTO>> listarCndResultados(@RequestParam(required = false) Map<String, String> filters) {
-        List<CndResultadoDTO> resultados = cndResultadoService.listarCndResultados(filters);
-        return ResponseEntity.ok(resultados);
+    @Operation(summary = "Lista os resultados de CND em páginas (mais recentes primeiro), com filtros opcionais. "
+            + "'limite' itens por página (máx. " + CndResultadoService.LIMITE_MAXIMO_PAGINA + "); a página seguinte "
+            + "vem com cursor=proximoCursor. Representação resumida; 'campos' (ex: campos=situacao,dataEmissao) "
+            + "escolhe os campos de cada item")
+    public ResponseEntity<PaginaCndResultados> listarCndResultados(@RequestParam(required = false) Map<String, String> filters) {
+        PaginaCndResultados pagina = cndResultadoService.listarCndResultados(filters != null ? filters : Collections.emptyMap());
+        return ResponseEntity.ok(pagina);
+    }
+
+    @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Cria um resultado de CND com o PDF enviado como arquivo (multipart: parte 'dados' em JSON e parte 'arquivo')")
+    public ResponseEntity<CndResultadoDTO> criarCndResultadoComPdf(@Valid @RequestPart("dados") CndResultadoDTO dto,
+                                                                   @RequestPart("arquivo") MultipartFile arquivo) throws IOException {
+        BlobArmazenado pdf;
+        try (InputStream conteudo = arquivo.getInputStream()) {
+            pdf = cndResultadoService.receberPdf(conteudo);
+        }
+        CndResultadoDTO novoResultado = cndResultadoService.criarCndResultado(dto, pdf);
+        URI location = ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}")
+                .buildAndExpand(novoResultado.getId()).toUri();
+        return ResponseEntity.created(location).body(novoResultado);
+    }
+
+    @PutMapping(path = "/{id}/arquivo", consumes = MediaType.APPLICATION_PDF_VALUE)
+    @Operation(summary = "Envia (ou substitui) o PDF de um resultado de CND, com o PDF como corpo da requisição")
+    public ResponseEntity<CndResultadoDTO> enviarPdf(@PathVariable Long id, InputStream corpo) {
+        BlobArmazenado pdf = cndResultadoService.receberPdf(corpo);
+        return ResponseEntity.ok(cndResultadoService.substituirArquivo(id, pdf));
+    }
+
+    @PutMapping(path = "/{id}/arquivo", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Envia (ou substitui) o PDF de um resultado de CND, como parte 'arquivo' de um multipart")
+    public ResponseEntity<CndResultadoDTO> enviarPdfMultipart(@PathVariable Long id,
+                                                              @RequestPart("arquivo") MultipartFile arquivo) throws IOException {
+        BlobArmazenado pdf;
+        try (InputStream conteudo = arquivo.getInputStream()) {
+            pdf = cndResultadoService.receberPdf(conteudo);
+        }
+        return ResponseEntity.ok(cndResultadoService.substituirArquivo(id, pdf));
+    }
+
+    @GetMapping("/exportar-zip")
+    @Operation(summary = "Exporta num ZIP os PDFs dos resultados que atendem aos filtros da listagem (e fkEmpresa), montado em stream")
+    public ResponseEntity<StreamingResponseBody> exportarZip(@RequestParam(required = false) Map<String, String> filters) {
+        // Filtros validados já na requisição: depois que o ZIP começa a ser enviado não há como responder 400
+        Specification<CndResultado> filtros = cndResultadoService.filtros(filters != null ? filters : Collections.emptyMap());
+        String nomeArquivo = "CNDs_" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss")) + ".zip";
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/zip"));
+        headers.setContentDisposition(ContentDisposition.attachment().filename(nomeArquivo).build());
+        StreamingResponseBody corpo = saida -> cndResultadoService.exportarZip(filtros, saida);
+        return new ResponseEntity<>(corpo, headers, HttpStatus.OK);
     }
 
     @GetMapping("/{id}")
-    @Operation(summary = "Busca um resultado de CND por ID")
-    public ResponseEntity<CndResultadoDTO> buscarCndResultadoPorId(@PathVariable Long id) {
-        CndResultadoDTO resultado = cndResultadoService.buscarCndResultadoPorId(id);
+    @Operation(summary = "Busca um resultado de CND por ID (sem o PDF; incluirArquivo=true traz o PDF em Base64)")
+    public ResponseEntity<CndResultadoDTO> buscarCndResultadoPorId(@PathVariable Long id,
+                                                                   @RequestParam(defaultValue = "false") boolean incluirArquivo) {
+        CndResultadoDTO resultado = incluirArquivo
+                ? cndResultadoService.buscarCndResultadoComArquivo(id)
+                : cndResultadoService.buscarCndResultadoPorId(id);
         return ResponseEntity.ok(resultado);
     }
 
@@ -78,16 +143,19 @@ public class CndResultadoController {
     }
 
     @GetMapping("/{id}/download")
-    @Operation(summary = "Realiza o download do arquivo PDF de uma CND (PEC-4981)")
-    public ResponseEntity<byte[]> downloadCndPdf(@PathVariable Long id) {
-        byte[] pdfBytes = cndResultadoService.downloadPdf(id);
-        String filename = cndResultadoService.gerarNomeArquivoPadronizado(cndResultadoService.getCndResultadoEntityById(id));
+    @Operation(summary = "Realiza o download do arquivo PDF de uma CND (PEC-4981). Suporta Range (206) e If-None-Match (304)")
+    public ResponseEntity<Resource> downloadCndPdf(@PathVariable Long id) {
+        ArquivoCndDownload arquivo = cndResultadoService.prepararDownload(id);
 
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_PDF);
-        headers.setContentDispositionFormData("attachment", filename); // Força o download
-        headers.setContentLength(pdfBytes.length);
-
-        return new ResponseEntity<>(pdfBytes, headers, HttpStatus.OK);
+        headers.setContentDispositionFormData("attachment", arquivo.getFilename()); // Força o download
+        // O navegador guarda o PDF e revalida pelo ETag: um novo download do mesmo arquivo volta 304, sem corpo.
+        // If-None-Match (304) e Range (206, lendo só as faixas pedidas) são tratados pelo Spring MVC.
+        headers.setCacheControl(CacheControl.noCache().cachePrivate());
+        if (arquivo.getEtag() != null) {
+            headers.setETag(arquivo.getEtag());
+        }
+        return new ResponseEntity<>(arquivo, headers, HttpStatus.OK);
     }
 }
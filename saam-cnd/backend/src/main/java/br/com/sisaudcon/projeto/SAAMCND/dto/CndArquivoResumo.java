@@ -0,0 +1,35 @@
+package br.com.sisaudcon.projeto.SAAMCND.dto;
+
+import br.com.sisaudcon.projeto.SAAMCND.model.CndCliente;
+import br.com.sisaudcon.projeto.SAAMCND.model.CndResultado;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDate;
+
+// Só o necessário para localizar e nomear o PDF de um resultado (exportação em lote), sem a entidade gerenciada
+@Getter
+@AllArgsConstructor
+public class CndArquivoResumo {
+
+    private final Long id;
+    private final String arquivoRef;
+    private final Boolean arquivoInline;
+    private final String tipoCertidao;
+    private final String orgaoEmissor;
+    private final LocalDate dataEmissao;
+    private final String cnpjCliente;
+
+    // Resultado "de fachada" com os campos usados por CndResultadoService.gerarNomeArquivoPadronizado
+    public CndResultado paraNomeArquivo() {
+        CndCliente cliente = new CndCliente();
+        cliente.setCnpj(cnpjCliente);
+        CndResultado resultado = new CndResultado();
+        resultado.setId(id);
+        resultado.setTipoCertidao(tipoCertidao);
+        resultado.setOrgaoEmissor(orgaoEmissor);
+        resultado.setDataEmissao(dataEmissao);
+        resultado.setCliente(cliente);
+        return resultado;
+    }
+}
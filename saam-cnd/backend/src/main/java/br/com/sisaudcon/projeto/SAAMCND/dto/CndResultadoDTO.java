@@ -8,7 +8,6 @@ import lombok.AllArgsConstructor;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.util.Base64; // Importar Base64
 
 @Data
 @NoArgsConstructor
@@ -18,7 +17,7 @@ public class CndResultadoDTO {
 
     private Long id;
     private LocalDateTime dataProcessamento;
-    private String arquivo; // Manter como String (Base64) no DTO para tráfego JSON
+    private String arquivo; // Base64: entrada na criação/edição; na saída, só em GET /{id}?incluirArquivo=true
     private String situacao;
     private LocalDate dataEmissao;
     private LocalDate dataValidade;
@@ -33,16 +32,16 @@ public class CndResultadoDTO {
     private String linha;
     private LocalDateTime dataCadastro;
     private LocalDateTime dataAtualizacao;
+    private Boolean possuiArquivo; // Há PDF para download (GET /{id}/download), sem trafegar o conteúdo
+    private Long arquivoTamanho;
 
     // Construtor para mapear da Entidade para DTO
     public CndResultadoDTO(CndResultado resultado) {
         this.id = resultado.getId();
         this.dataProcessamento = resultado.getDataProcessamento();
-        if (resultado.getArquivo() != null && resultado.getArquivo().length > 0) {
-            this.arquivo = Base64.getEncoder().encodeToString(resultado.getArquivo());
-        } else {
-            this.arquivo = null; // Ou String vazia, dependendo da preferência
-        }
+        // O conteúdo do PDF não é incluído: ver CndResultadoService.buscarCndResultadoComArquivo
+        this.possuiArquivo = resultado.possuiArquivo();
+        this.arquivoTamanho = resultado.getArquivoTamanho();
         this.situacao = resultado.getSituacao();
         this.dataEmissao = resultado.getDataEmissao();
         this.dataValidade = resultado.getDataValidade();
@@ -0,0 +1,15 @@
+package br.com.sisaudcon.projeto.SAAMCND.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+// Página da listagem de resultados: proximoCursor (opaco) pede a página seguinte; null = última página
+@Getter
+@AllArgsConstructor
+public class PaginaCndResultados {
+
+    private final List<CndResultadoDTO> itens;
+    private final String proximoCursor;
+}
@@ -0,0 +1,12 @@
+package br.com.sisaudcon.projeto.SAAMCND.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// Falha ao gravar ou ler o arquivo (PDF) de uma CND no BlobStore (disco indisponível, blob corrompido, etc.)
+@ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
+public class ArmazenamentoArquivoException extends RuntimeException {
+    public ArmazenamentoArquivoException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
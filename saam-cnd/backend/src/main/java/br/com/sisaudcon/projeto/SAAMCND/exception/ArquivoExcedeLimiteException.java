@@ -0,0 +1,12 @@
+package br.com.sisaudcon.projeto.SAAMCND.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// Arquivo enviado maior que o limite de ingestão (cnd.ingestao.tamanho-maximo)
+@ResponseStatus(HttpStatus.PAYLOAD_TOO_LARGE)
+public class ArquivoExcedeLimiteException extends RuntimeException {
+    public ArquivoExcedeLimiteException(String message) {
+        super(message);
+    }
+}
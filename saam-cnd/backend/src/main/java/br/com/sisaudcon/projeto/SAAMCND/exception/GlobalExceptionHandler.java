@@ -9,6 +9,7 @@ import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
 import java.time.LocalDateTime;
@@ -74,6 +75,19 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
         return buildErrorResponse(ex, HttpStatus.SERVICE_UNAVAILABLE, request);
     }
 
+    @ExceptionHandler(ArquivoExcedeLimiteException.class)
+    public ResponseEntity<Object> handleArquivoExcedeLimiteException(
+            ArquivoExcedeLimiteException ex, WebRequest request) {
+        return buildErrorResponse(ex, HttpStatus.PAYLOAD_TOO_LARGE, request);
+    }
+
+    // Upload multipart acima de spring.servlet.multipart.max-file-size / max-request-size
+    @ExceptionHandler(MaxUploadSizeExceededException.class)
+    public ResponseEntity<Object> handleMaxUploadSizeExceededException(
+            MaxUploadSizeExceededException ex, WebRequest request) {
+        return buildErrorResponse(ex, "Arquivo excede o tamanho máximo permitido para upload.", HttpStatus.PAYLOAD_TOO_LARGE, request);
+    }
+
     @ExceptionHandler(DataIntegrityViolationException.class)
     public ResponseEntity<Object> handleDataIntegrityViolationException(
             DataIntegrityViolationException ex, WebRequest request) {
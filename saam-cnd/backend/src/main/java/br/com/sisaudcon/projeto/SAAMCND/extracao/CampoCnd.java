@@ -0,0 +1,11 @@
+package br.com.sisaudcon.projeto.SAAMCND.extracao;
+
+/**
+ * Campos do CndResultado preenchidos a partir do texto do PDF.
+ */
+public enum CampoCnd {
+    SITUACAO,
+    DATA_EMISSAO,
+    DATA_VALIDADE,
+    CODIGO_CONTROLE
+}
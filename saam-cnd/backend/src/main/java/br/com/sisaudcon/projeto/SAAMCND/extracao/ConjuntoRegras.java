@@ -0,0 +1,131 @@
+package br.com.sisaudcon.projeto.SAAMCND.extracao;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Regras de um extrator compiladas uma única vez em um só Pattern (alternativas, um grupo externo por regra).
+ * Cada documento custa uma dobra do texto e uma varredura com esse Pattern, qualquer que seja o número de regras.
+ */
+final class ConjuntoRegras {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConjuntoRegras.class);
+    private static final DateTimeFormatter DATE_FORMATTER_BR = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final DateTimeFormatter DATE_FORMATTER_ISO = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+
+    private final List<RegraExtracao> regras;
+    private final int[] grupoDaRegra; // Índice do grupo externo de cada regra no Pattern combinado
+    private final Pattern padrao;
+    private final String impressao;
+
+    ConjuntoRegras(List<RegraExtracao> regras) {
+        if (regras.isEmpty()) {
+            throw new IllegalArgumentException("Conjunto de regras de extração vazio.");
+        }
+        this.regras = new ArrayList<>(regras);
+        this.grupoDaRegra = new int[regras.size()];
+        StringBuilder combinado = new StringBuilder();
+        StringBuilder definicao = new StringBuilder();
+        int grupo = 1;
+        for (int i = 0; i < regras.size(); i++) {
+            RegraExtracao regra = regras.get(i);
+            int gruposInternos = Pattern.compile(regra.getRegex()).matcher("").groupCount();
+            if (regra.getValorFixo() == null && gruposInternos != 1) {
+                throw new IllegalArgumentException("Regra de captura deve ter exatamente um grupo: " + regra.getRegex());
+            }
+            grupoDaRegra[i] = grupo;
+            combinado.append(i == 0 ? "" : "|").append('(').append(regra.getRegex()).append(')');
+            grupo += 1 + gruposInternos;
+            definicao.append(regra.getCampo()).append('\u0000').append(regra.getRegex()).append('\u0000')
+                    .append(regra.getValorFixo()).append('\u0000').append(regra.getPrioridade()).append('\n');
+        }
+        this.padrao = Pattern.compile(combinado.toString());
+        // String.hashCode é definido pela especificação: a mesma definição gera a mesma impressão em qualquer nó
+        this.impressao = String.format("%08x", definicao.toString().hashCode());
+    }
+
+    String getImpressao() {
+        return impressao;
+    }
+
+    DadosExtraidos aplicar(String texto) {
+        DadosExtraidos dados = new DadosExtraidos();
+        Map<CampoCnd, Integer> prioridadeAtual = new EnumMap<>(CampoCnd.class);
+        Matcher matcher = padrao.matcher(TextoDobrado.dobrar(texto));
+        int definitivos = 0;
+        while (definitivos < CampoCnd.values().length && matcher.find()) {
+            int indice = regraCasada(matcher);
+            RegraExtracao regra = regras.get(indice);
+            Integer atual = prioridadeAtual.get(regra.getCampo());
+            if (atual != null && atual <= regra.getPrioridade()) {
+                continue;
+            }
+            // O texto dobrado tem as mesmas posições do original: o valor é recortado do original (preserva maiúsculas)
+            String valor = regra.getValorFixo() != null
+                    ? regra.getValorFixo()
+                    : texto.substring(matcher.start(grupoDaRegra[indice] + 1), matcher.end(grupoDaRegra[indice] + 1)).trim();
+            if (preencher(dados, regra.getCampo(), valor)) {
+                prioridadeAtual.put(regra.getCampo(), regra.getPrioridade());
+                if (regra.getPrioridade() == 0) {
+                    definitivos++;
+                }
+            }
+        }
+        return dados;
+    }
+
+    private int regraCasada(Matcher matcher) {
+        for (int i = 0; i < grupoDaRegra.length; i++) {
+            if (matcher.start(grupoDaRegra[i]) != -1) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Nenhuma regra corresponde ao trecho encontrado.");
+    }
+
+    private boolean preencher(DadosExtraidos dados, CampoCnd campo, String valor) {
+        switch (campo) {
+            case SITUACAO:
+                dados.setSituacao(valor);
+                return true;
+            case CODIGO_CONTROLE:
+                dados.setCodigoControle(valor);
+                return true;
+            case DATA_EMISSAO:
+            case DATA_VALIDADE:
+                LocalDate data;
+                try {
+                    data = parseDate(valor);
+                } catch (DateTimeParseException e) {
+                    logger.warn("Formato de data inválido no PDF para o campo {}: {}", campo, valor);
+                    return false;
+                }
+                if (campo == CampoCnd.DATA_EMISSAO) {
+                    dados.setDataEmissao(data);
+                } else {
+                    dados.setDataValidade(data);
+                }
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private LocalDate parseDate(String dateString) {
+        try {
+            return LocalDate.parse(dateString, DATE_FORMATTER_ISO);
+        } catch (DateTimeParseException e) {
+            return LocalDate.parse(dateString, DATE_FORMATTER_BR);
+        }
+    }
+}
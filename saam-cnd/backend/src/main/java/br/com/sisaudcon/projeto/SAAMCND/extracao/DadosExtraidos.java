@@ -0,0 +1,21 @@
+package br.com.sisaudcon.projeto.SAAMCND.extracao;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * Dados localizados no texto do PDF; campos não encontrados ficam nulos.
+ */
+@Data
+public class DadosExtraidos {
+
+    private String situacao;
+    private LocalDate dataEmissao;
+    private LocalDate dataValidade;
+    private String codigoControle;
+
+    public boolean isCompleto() {
+        return situacao != null && dataEmissao != null && dataValidade != null && codigoControle != null;
+    }
+}
@@ -0,0 +1,27 @@
+package br.com.sisaudcon.projeto.SAAMCND.extracao;
+
+import java.io.IOException;
+
+/**
+ * Falha de leitura do PDF com statusProcessamento próprio (ex: limite de tamanho ou de tempo excedido).
+ * Estende IOException para poder ser lançada de dentro dos callbacks do PDFBox.
+ */
+public class ExtracaoPdfException extends IOException {
+
+    private final String statusProcessamento;
+    private final String linha;
+
+    public ExtracaoPdfException(String statusProcessamento, String linha, String message) {
+        super(message);
+        this.statusProcessamento = statusProcessamento;
+        this.linha = linha;
+    }
+
+    public String getStatusProcessamento() {
+        return statusProcessamento;
+    }
+
+    public String getLinha() {
+        return linha;
+    }
+}
@@ -0,0 +1,21 @@
+package br.com.sisaudcon.projeto.SAAMCND.extracao;
+
+/**
+ * Extrai os dados de uma CND a partir do texto do PDF, com as regras de um órgão emissor.
+ * Implementações são componentes Spring; o {@link ExtratorCndRegistry} escolhe qual usar a partir do
+ * tipoCertidao/orgaoEmissor do resultado, conforme cnd.extracao.extratores.* em application.properties.
+ */
+public interface ExtratorCnd {
+
+    /**
+     * Identificador usado no mapeamento de configuração (ex: "rfb", "sefaz-mg").
+     */
+    String getId();
+
+    /**
+     * Versão das regras: muda quando as regras mudam, invalidando os resultados em cache da versão anterior.
+     */
+    String getVersao();
+
+    DadosExtraidos extrair(String textoPdf);
+}
@@ -0,0 +1,91 @@
+package br.com.sisaudcon.projeto.SAAMCND.extracao;
+
+import br.com.sisaudcon.projeto.SAAMCND.config.ExtratoresProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Escolhe o extrator de cada CndResultado: primeiro pelo orgaoEmissor, depois pelo tipoCertidao e, sem
+ * mapeamento, o extrator padrão. Também informa quantas páginas do PDF cada extrator lê. Os mapeamentos
+ * vêm de cnd.extracao.extratores.* e são validados na subida: id de extrator desconhecido ou repetido
+ * impede a aplicação de iniciar.
+ */
+@Component
+public class ExtratorCndRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExtratorCndRegistry.class);
+
+    private final Map<String, ExtratorCnd> porOrgao = new HashMap<>();
+    private final Map<String, ExtratorCnd> porTipo = new HashMap<>();
+    private final Map<String, Integer> paginasPorExtrator = new HashMap<>();
+    private final ExtratorCnd padrao;
+    private final int paginasPadrao;
+
+    @Autowired
+    public ExtratorCndRegistry(List<ExtratorCnd> extratores, ExtratoresProperties properties) {
+        Map<String, ExtratorCnd> porId = new HashMap<>();
+        for (ExtratorCnd extrator : extratores) {
+            if (porId.put(extrator.getId(), extrator) != null) {
+                throw new IllegalStateException("Extrator de CND com id repetido: " + extrator.getId());
+            }
+        }
+        this.padrao = extratorPorId(porId, properties.getPadrao());
+        mapear(porId, properties.getOrgaos(), porOrgao);
+        mapear(porId, properties.getTipos(), porTipo);
+        this.paginasPadrao = validarPaginas("padrão", properties.getPaginasPadrao());
+        properties.getPaginas().forEach((id, paginas) ->
+                paginasPorExtrator.put(extratorPorId(porId, id).getId(), validarPaginas(id, paginas)));
+        logger.info("Extratores de CND registrados: {} (padrão: {}).", porId.keySet(), padrao.getId());
+    }
+
+    public ExtratorCnd resolver(String tipoCertidao, String orgaoEmissor) {
+        ExtratorCnd extrator = orgaoEmissor != null ? porOrgao.get(chave(orgaoEmissor)) : null;
+        if (extrator == null && tipoCertidao != null) {
+            extrator = porTipo.get(chave(tipoCertidao));
+        }
+        return extrator != null ? extrator : padrao;
+    }
+
+    // Quantas páginas do PDF são lidas para o extrator (a partir da primeira)
+    public int paginasMaximas(ExtratorCnd extrator) {
+        return paginasPorExtrator.getOrDefault(extrator.getId(), paginasPadrao);
+    }
+
+    // Chave da versão para o cache de extração: regras do extrator + páginas lidas (ex: rfb:3f2a9c01:p2)
+    public String versao(ExtratorCnd extrator) {
+        return extrator.getId() + ":" + extrator.getVersao() + ":p" + paginasMaximas(extrator);
+    }
+
+    private static int validarPaginas(String id, Integer paginas) {
+        if (paginas == null || paginas < 1) {
+            throw new IllegalStateException("Quantidade de páginas inválida para o extrator " + id + ": " + paginas);
+        }
+        return paginas;
+    }
+
+    private static void mapear(Map<String, ExtratorCnd> porId, Map<String, List<String>> mapeamento, Map<String, ExtratorCnd> destino) {
+        mapeamento.forEach((id, valores) -> {
+            ExtratorCnd extrator = extratorPorId(porId, id);
+            valores.forEach(valor -> destino.put(chave(valor), extrator));
+        });
+    }
+
+    private static ExtratorCnd extratorPorId(Map<String, ExtratorCnd> porId, String id) {
+        ExtratorCnd extrator = porId.get(id);
+        if (extrator == null) {
+            throw new IllegalStateException("Extrator de CND não encontrado para o id configurado: " + id);
+        }
+        return extrator;
+    }
+
+    // "SEFAZ-MG", "sefaz-mg " e "Sefaz-MG" são o mesmo órgão
+    private static String chave(String valor) {
+        return TextoDobrado.dobrar(valor.trim()).replaceAll("\\s+", " ");
+    }
+}
@@ -0,0 +1,35 @@
+package br.com.sisaudcon.projeto.SAAMCND.extracao;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+
+import static br.com.sisaudcon.projeto.SAAMCND.extracao.RegraExtracao.captura;
+import static br.com.sisaudcon.projeto.SAAMCND.extracao.RegraExtracao.literal;
+
+/**
+ * Certidões municipais: os layouts variam por prefeitura, então as regras aceitam os rótulos mais comuns
+ * (expedida/emitida, autenticação/verificação). Uma prefeitura com layout próprio ganha a sua subclasse.
+ */
+@Component
+public class ExtratorMunicipal extends ExtratorPorRegras {
+
+    public static final String ID = "municipal";
+
+    public ExtratorMunicipal() {
+        super(Arrays.asList(
+                literal(CampoCnd.SITUACAO, "positiva com efeitos de negativa", "Positiva com Efeitos de Negativa", 0),
+                literal(CampoCnd.SITUACAO, "negativa de debitos", "Negativa de Débitos", 0),
+                literal(CampoCnd.SITUACAO, "positiva", "Positiva", 1),
+                captura(CampoCnd.DATA_EMISSAO, "(?:data de emissao|emitida em|expedida em|data de expedicao)" + SEPARADOR + DATA),
+                captura(CampoCnd.DATA_VALIDADE, "(?:valida ate|validade|data de validade)" + SEPARADOR + DATA),
+                captura(CampoCnd.CODIGO_CONTROLE,
+                        "(?:codigo de (?:controle|autenticacao|autenticidade|verificacao)|chave de autenticacao)" + SEPARADOR + CODIGO)
+        ));
+    }
+
+    @Override
+    public String getId() {
+        return ID;
+    }
+}
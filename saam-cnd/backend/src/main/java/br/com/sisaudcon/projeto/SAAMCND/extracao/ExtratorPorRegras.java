@@ -0,0 +1,34 @@
+package br.com.sisaudcon.projeto.SAAMCND.extracao;
+
+import java.util.List;
+
+/**
+ * Base dos extratores baseados em expressões regulares: as regras são compiladas no construtor (uma vez,
+ * na subida da aplicação) e aplicadas numa única varredura do texto. Um novo órgão emissor precisa apenas
+ * de uma subclasse com as suas regras e do mapeamento em cnd.extracao.extratores.*.
+ * As expressões são escritas sobre o texto dobrado: minúsculas e sem acentos (ex: "data de emissao").
+ */
+public abstract class ExtratorPorRegras implements ExtratorCnd {
+
+    // dd/MM/yyyy ou yyyy-MM-dd
+    protected static final String DATA = "(\\d{2}/\\d{2}/\\d{4}|\\d{4}-\\d{2}-\\d{2})";
+    protected static final String SEPARADOR = "[:\\s]*";
+    protected static final String CODIGO = "([a-z0-9.-]+)";
+
+    private final ConjuntoRegras regras;
+
+    protected ExtratorPorRegras(List<RegraExtracao> regras) {
+        this.regras = new ConjuntoRegras(regras);
+    }
+
+    // Impressão digital das regras: alterar qualquer regra gera uma nova versão, sem controle manual
+    @Override
+    public String getVersao() {
+        return regras.getImpressao();
+    }
+
+    @Override
+    public DadosExtraidos extrair(String textoPdf) {
+        return regras.aplicar(textoPdf);
+    }
+}
@@ -0,0 +1,34 @@
+package br.com.sisaudcon.projeto.SAAMCND.extracao;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+
+import static br.com.sisaudcon.projeto.SAAMCND.extracao.RegraExtracao.captura;
+import static br.com.sisaudcon.projeto.SAAMCND.extracao.RegraExtracao.literal;
+
+/**
+ * Certidão conjunta de débitos relativos a tributos federais e à dívida ativa da União (RFB/PGFN).
+ */
+@Component
+public class ExtratorReceitaFederal extends ExtratorPorRegras {
+
+    public static final String ID = "rfb";
+
+    public ExtratorReceitaFederal() {
+        super(Arrays.asList(
+                literal(CampoCnd.SITUACAO, "positiva com efeitos de negativa", "Positiva com Efeitos de Negativa", 0),
+                literal(CampoCnd.SITUACAO, "negativa de debitos", "Negativa de Débitos", 0),
+                literal(CampoCnd.SITUACAO, "positiva", "Positiva", 1),
+                captura(CampoCnd.DATA_EMISSAO, "(?:data de emissao|emitida em)" + SEPARADOR + DATA),
+                captura(CampoCnd.DATA_EMISSAO, "emitida as \\d{2}:\\d{2}:\\d{2} do dia " + DATA),
+                captura(CampoCnd.DATA_VALIDADE, "(?:valida ate|validade)" + SEPARADOR + DATA),
+                captura(CampoCnd.CODIGO_CONTROLE, "(?:codigo de controle(?: da certidao)?|controle)" + SEPARADOR + CODIGO)
+        ));
+    }
+
+    @Override
+    public String getId() {
+        return ID;
+    }
+}
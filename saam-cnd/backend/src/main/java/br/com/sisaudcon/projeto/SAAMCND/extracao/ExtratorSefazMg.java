@@ -0,0 +1,33 @@
+package br.com.sisaudcon.projeto.SAAMCND.extracao;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+
+import static br.com.sisaudcon.projeto.SAAMCND.extracao.RegraExtracao.captura;
+import static br.com.sisaudcon.projeto.SAAMCND.extracao.RegraExtracao.literal;
+
+/**
+ * Certidão de débitos tributários (CDT) da SEFAZ-MG.
+ */
+@Component
+public class ExtratorSefazMg extends ExtratorPorRegras {
+
+    public static final String ID = "sefaz-mg";
+
+    public ExtratorSefazMg() {
+        super(Arrays.asList(
+                literal(CampoCnd.SITUACAO, "positiva com efeitos de negativa", "Positiva com Efeitos de Negativa", 0),
+                literal(CampoCnd.SITUACAO, "(?:certidao de debitos tributarios\\s+)?negativa(?: de debitos)?", "Negativa de Débitos", 1),
+                literal(CampoCnd.SITUACAO, "positiva", "Positiva", 2),
+                captura(CampoCnd.DATA_EMISSAO, "(?:data de emissao|data da emissao|emitida em)" + SEPARADOR + DATA),
+                captura(CampoCnd.DATA_VALIDADE, "(?:valida ate|data de validade|validade)" + SEPARADOR + DATA),
+                captura(CampoCnd.CODIGO_CONTROLE, "(?:codigo de autenticidade|codigo de controle|numero da certidao)" + SEPARADOR + CODIGO)
+        ));
+    }
+
+    @Override
+    public String getId() {
+        return ID;
+    }
+}
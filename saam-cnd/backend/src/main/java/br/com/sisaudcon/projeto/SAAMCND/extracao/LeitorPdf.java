@@ -0,0 +1,151 @@
+package br.com.sisaudcon.projeto.SAAMCND.extracao;
+
+import org.apache.pdfbox.contentstream.operator.Operator;
+import org.apache.pdfbox.cos.COSBase;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Leitura do texto dos PDFs com custo limitado por documento (PEC-4963):
+ * <ul>
+ *   <li>tamanho máximo do arquivo, verificado antes de qualquer parsing;</li>
+ *   <li>memória principal limitada para os buffers do PDFBox, com o excedente em arquivo temporário
+ *       (também limitado);</li>
+ *   <li>só as primeiras páginas (os dados da certidão ficam nas páginas 1–2; o limite é por órgão emissor);</li>
+ *   <li>prazo máximo de processamento, verificado durante o parsing do conteúdo das páginas.</li>
+ * </ul>
+ * Estourar um limite falha imediatamente com {@link ExtracaoPdfException} e o statusProcessamento correspondente.
+ */
+@Component
+public class LeitorPdf {
+
+    private static final Logger logger = LoggerFactory.getLogger(LeitorPdf.class);
+
+    public static final String STATUS_EXCEDE_TAMANHO = "ERRO_EXTRACAO_PDF_EXCEDE_TAMANHO";
+    public static final String STATUS_TEMPO_EXCEDIDO = "ERRO_EXTRACAO_TEMPO_EXCEDIDO";
+    public static final String STATUS_CRIPTOGRAFADO = "ERRO_EXTRACAO_PDF_CRIPTOGRAFADO";
+
+    // O prazo é verificado a cada N operadores do conteúdo da página (e no início de cada página)
+    private static final int OPERADORES_ENTRE_VERIFICACOES = 256;
+
+    private final long tamanhoMaximo;
+    private final long memoriaPrincipal;
+    private final long armazenamentoTemporario;
+    private final Duration tempoMaximo;
+    private final LongSupplier relogioNanos;
+
+    @Autowired
+    public LeitorPdf(@Value("${cnd.extracao.limite.tamanho-maximo:10MB}") DataSize tamanhoMaximo,
+                     @Value("${cnd.extracao.limite.memoria-principal:4MB}") DataSize memoriaPrincipal,
+                     @Value("${cnd.extracao.limite.armazenamento-temporario:64MB}") DataSize armazenamentoTemporario,
+                     @Value("${cnd.extracao.limite.tempo-maximo:PT20S}") Duration tempoMaximo) {
+        this(tamanhoMaximo, memoriaPrincipal, armazenamentoTemporario, tempoMaximo, System::nanoTime);
+    }
+
+    LeitorPdf(DataSize tamanhoMaximo, DataSize memoriaPrincipal, DataSize armazenamentoTemporario,
+              Duration tempoMaximo, LongSupplier relogioNanos) {
+        this.tamanhoMaximo = tamanhoMaximo.toBytes();
+        this.memoriaPrincipal = memoriaPrincipal.toBytes();
+        this.armazenamentoTemporario = armazenamentoTemporario.toBytes();
+        this.tempoMaximo = tempoMaximo;
+        this.relogioNanos = relogioNanos;
+    }
+
+    /**
+     * Extrai o texto das páginas 1 a {@code paginaFinal} do PDF.
+     *
+     * @throws ExtracaoPdfException se o PDF exceder o tamanho ou o prazo, ou estiver criptografado.
+     * @throws IOException se o PDF não puder ser lido (ex: arquivo corrompido).
+     */
+    public String extrairTexto(byte[] pdf, int paginaFinal) throws IOException {
+        if (pdf.length > tamanhoMaximo) {
+            throw new ExtracaoPdfException(STATUS_EXCEDE_TAMANHO, "UPDATE-PEC-4963-ERRO_PDF_EXCEDE_TAMANHO",
+                    String.format("PDF com %d bytes excede o limite de %d bytes.", pdf.length, tamanhoMaximo));
+        }
+        long prazo = relogioNanos.getAsLong() + tempoMaximo.toNanos();
+        MemoryUsageSetting memoria = MemoryUsageSetting.setupMixed(memoriaPrincipal, Math.max(memoriaPrincipal, armazenamentoTemporario));
+        try (PDDocument document = PDDocument.load(new ByteArrayInputStream(pdf), memoria)) {
+            verificarPrazo(prazo);
+            if (document.isEncrypted()) {
+                throw new ExtracaoPdfException(STATUS_CRIPTOGRAFADO, "UPDATE-PEC-4963-ERRO_PDF_CRIPTOGRAFADO",
+                        "PDF está criptografado.");
+            }
+            PDFTextStripper stripper = new StripperComPrazo(prazo);
+            stripper.setStartPage(1);
+            stripper.setEndPage(paginaFinal);
+            if (document.getNumberOfPages() > paginaFinal) {
+                logger.debug("PDF com {} páginas; extraindo apenas as {} primeiras.", document.getNumberOfPages(), paginaFinal);
+            }
+            try {
+                return stripper.getText(document);
+            } catch (PrazoEsgotado e) {
+                throw tempoExcedido();
+            }
+        }
+    }
+
+    private void verificarPrazo(long prazo) throws ExtracaoPdfException {
+        if (relogioNanos.getAsLong() - prazo > 0) {
+            throw tempoExcedido();
+        }
+    }
+
+    private ExtracaoPdfException tempoExcedido() {
+        return new ExtracaoPdfException(STATUS_TEMPO_EXCEDIDO, "UPDATE-PEC-4963-ERRO_TEMPO_EXCEDIDO",
+                "Extração do texto do PDF excedeu o tempo máximo de " + tempoMaximo + ".");
+    }
+
+    // Prazo esgotado durante o conteúdo das páginas. Não é IOException: o PDFBox descarta as IOException lançadas
+    // dentro de um Form XObject (operador Do) e seguiria com o resto do documento.
+    private static final class PrazoEsgotado extends RuntimeException {
+
+        PrazoEsgotado() {
+            super(null, null, false, false);
+        }
+    }
+
+    // Interrompe a extração do texto no meio de uma página, sem esperar o fim do documento
+    private final class StripperComPrazo extends PDFTextStripper {
+
+        private final long prazo;
+        private int operadores;
+
+        StripperComPrazo(long prazo) throws IOException {
+            this.prazo = prazo;
+        }
+
+        @Override
+        protected void startPage(PDPage page) throws IOException {
+            verificarPrazo();
+            super.startPage(page);
+        }
+
+        @Override
+        protected void processOperator(Operator operator, List<COSBase> operands) throws IOException {
+            if (++operadores % OPERADORES_ENTRE_VERIFICACOES == 0) {
+                verificarPrazo();
+            }
+            super.processOperator(operator, operands);
+        }
+
+        private void verificarPrazo() {
+            if (relogioNanos.getAsLong() - prazo > 0) {
+                throw new PrazoEsgotado();
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package br.com.sisaudcon.projeto.SAAMCND.extracao;
+
+/**
+ * Regra de extração de um campo: expressão regular aplicada sobre o texto dobrado (minúsculo e sem acentos).
+ * Regras de captura têm exatamente um grupo de captura com o valor; regras literais atribuem um valor fixo
+ * (ex: situação "Negativa de Débitos") quando a expressão aparece no texto.
+ * Entre regras do mesmo campo vence a de menor prioridade; no empate, a primeira ocorrência no texto.
+ */
+public final class RegraExtracao {
+
+    private final CampoCnd campo;
+    private final String regex;
+    private final String valorFixo;
+    private final int prioridade;
+
+    private RegraExtracao(CampoCnd campo, String regex, String valorFixo, int prioridade) {
+        this.campo = campo;
+        this.regex = regex;
+        this.valorFixo = valorFixo;
+        this.prioridade = prioridade;
+    }
+
+    public static RegraExtracao captura(CampoCnd campo, String regex) {
+        return new RegraExtracao(campo, regex, null, 0);
+    }
+
+    public static RegraExtracao literal(CampoCnd campo, String regex, String valor, int prioridade) {
+        return new RegraExtracao(campo, regex, valor, prioridade);
+    }
+
+    public CampoCnd getCampo() {
+        return campo;
+    }
+
+    public String getRegex() {
+        return regex;
+    }
+
+    public String getValorFixo() {
+        return valorFixo;
+    }
+
+    public int getPrioridade() {
+        return prioridade;
+    }
+}
@@ -0,0 +1,33 @@
+package br.com.sisaudcon.projeto.SAAMCND.extracao;
+
+import java.text.Normalizer;
+
+/**
+ * "Dobra" o texto para comparação: minúsculas, sem acentos e com espaços especiais (ex: NBSP) como espaço simples.
+ * A conversão é caractere a caractere, então as posições no texto dobrado valem para o texto original
+ * (permite buscar no texto dobrado e recortar o valor, ex: código de controle, do original).
+ */
+final class TextoDobrado {
+
+    // Tabela pré-calculada para Latin-1 e Latin Extended-A/B, que cobre os acentos do português
+    private static final char[] TABELA = new char[0x250];
+
+    static {
+        for (char c = 0; c < TABELA.length; c++) {
+            char base = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD).charAt(0);
+            TABELA[c] = Character.isSpaceChar(c) ? ' ' : Character.toLowerCase(base);
+        }
+    }
+
+    private TextoDobrado() {
+    }
+
+    static String dobrar(CharSequence texto) {
+        char[] dobrado = new char[texto.length()];
+        for (int i = 0; i < dobrado.length; i++) {
+            char c = texto.charAt(i);
+            dobrado[i] = c < TABELA.length ? TABELA[c] : Character.toLowerCase(c);
+        }
+        return new String(dobrado);
+    }
+}
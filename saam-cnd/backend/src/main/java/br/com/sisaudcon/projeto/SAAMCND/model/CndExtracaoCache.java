@@ -0,0 +1,53 @@
+package br.com.sisaudcon.projeto.SAAMCND.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Dados extraídos de um PDF, por conteúdo (SHA-256) e versão do extrator: um PDF idêntico a outro já
+ * processado reaproveita a extração sem passar pelo PDFBox. Mudar as regras ou as páginas lidas de um
+ * extrator muda a versão, e as entradas antigas deixam de ser usadas.
+ */
+@Entity
+@Table(name = "cnd_extracao_cache", uniqueConstraints = @UniqueConstraint(
+        name = "uk_cnd_extracao_cache_digest_versao", columnNames = {"arquivo_sha256", "versao_extrator"}))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CndExtracaoCache {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "arquivo_sha256", nullable = false, length = 64)
+    private String arquivoSha256;
+
+    @Column(name = "versao_extrator", nullable = false, length = 100) // Ex: rfb:3f2a9c01:p2
+    private String versaoExtrator;
+
+    @Column(length = 100)
+    private String situacao;
+
+    @Column(name = "data_emissao")
+    private LocalDate dataEmissao;
+
+    @Column(name = "data_validade")
+    private LocalDate dataValidade;
+
+    @Column(name = "codigo_controle", length = 100)
+    private String codigoControle;
+
+    @Column(name = "data_cadastro", updatable = false)
+    private LocalDateTime dataCadastro;
+
+    @PrePersist
+    protected void onCreate() {
+        dataCadastro = LocalDateTime.now();
+    }
+}
@@ -3,6 +3,9 @@ package br.com.sisaudcon.projeto.SAAMCND.model;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
+import lombok.AccessLevel;
+import lombok.Setter;
+import org.hibernate.annotations.Formula;
 
 import javax.persistence.*;
 import java.time.LocalDate; // Para data_emissao e data_validade
@@ -22,9 +25,37 @@ public class CndResultado {
     @Column(name = "data_processamento")
     private LocalDateTime dataProcessamento;
 
-    @Lob
-    @Column(name = "arquivo")
-    private byte[] arquivo; // Conteúdo binário do PDF
+    // Conteúdo recebido e ainda não gravado no BlobStore (ex: consulta recém-feita); gravado ao salvar.
+    // A coluna 'arquivo' (legado, PDFs anteriores ao BlobStore) é mapeada à parte em CndResultadoArquivo,
+    // para que listagens e detalhes nunca a carreguem.
+    @Transient
+    private byte[] arquivo;
+
+    // A coluna legada está preenchida? Só o teste de nulidade, sem ler o conteúdo
+    @Formula("(case when arquivo is null then false else true end)")
+    @Setter(AccessLevel.NONE)
+    private Boolean arquivoInline;
+
+    // Arquivo no BlobStore: referência (endereçada pelo conteúdo) e tamanho em bytes
+    @Column(name = "arquivo_ref", length = 100)
+    private String arquivoRef;
+
+    @Column(name = "arquivo_tamanho")
+    private Long arquivoTamanho;
+
+    // SHA-256 (hex) do arquivo, calculado na gravação: PDFs idênticos reaproveitam a extração já feita
+    @Column(name = "arquivo_sha256", length = 64)
+    private String arquivoSha256;
+
+    // Codec com que o blob está gravado (CodecArmazenamento: none, deflate); null = compressão ainda não
+    // avaliada (blob gravado antes da compressão ou com ela desligada), pendente para a recompressão em lote
+    @Column(name = "arquivo_codec", length = 20)
+    private String arquivoCodec;
+
+    // Blob movido para o arquivo morto (CND vencida há mais de cnd.armazenamento.arquivamento.dias-apos-validade);
+    // null = na camada quente. A leitura é a mesma nos dois casos.
+    @Column(name = "arquivo_arquivado")
+    private Boolean arquivoArquivado;
 
     @Column(length = 100) // Aumentado para acomodar descrições mais longas
     private String situacao; // Ex: "Positiva com efeitos de negativa", "Negativa de Débitos"
@@ -61,12 +92,25 @@ public class CndResultado {
     @Column(name = "linha", length = 255)
     private String linha;
 
+    // Lease da extração de PDF (PEC-4963): nó que reivindicou o registro e até quando a reivindicação vale.
+    // Lease vencido (ex: nó caiu no meio do processamento) pode ser reivindicado por outro nó.
+    @Column(name = "lease_dono", length = 100)
+    private String leaseDono;
+
+    @Column(name = "lease_expira_em")
+    private LocalDateTime leaseExpiraEm;
+
     @Column(name = "data_cadastro", updatable = false)
     private LocalDateTime dataCadastro;
 
     @Column(name = "data_atualizacao")
     private LocalDateTime dataAtualizacao;
 
+    // Há arquivo: no BlobStore, na coluna legada ou recebido e ainda não gravado
+    public boolean possuiArquivo() {
+        return arquivoRef != null || Boolean.TRUE.equals(arquivoInline) || (arquivo != null && arquivo.length > 0);
+    }
+
     @PrePersist
     protected void onCreate() {
         dataCadastro = LocalDateTime.now();
@@ -0,0 +1,28 @@
+package br.com.sisaudcon.projeto.SAAMCND.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.*;
+
+/**
+ * Conteúdo do PDF gravado na própria tabela cnd_resultado (coluna 'arquivo', @Lob), anterior ao BlobStore.
+ * Mapeado separadamente de {@link CndResultado} para que nenhuma consulta de metadados (listagem, detalhe,
+ * coleção de resultados do cliente) carregue o binário: o conteúdo só é lido por uma chamada explícita
+ * (CndResultadoArquivoRepository). Não é inserido por aqui, apenas lido e limpo pela migração para o BlobStore.
+ */
+@Entity
+@Table(name = "cnd_resultado")
+@Data
+@NoArgsConstructor
+public class CndResultadoArquivo {
+
+    // Mesma definição do id de CndResultado: as duas entidades geram a mesma tabela no ddl-auto
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Lob
+    @Column(name = "arquivo")
+    private byte[] arquivo;
+}
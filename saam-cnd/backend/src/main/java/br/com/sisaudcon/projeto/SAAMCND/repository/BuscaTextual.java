@@ -0,0 +1,56 @@
+package br.com.sisaudcon.projeto.SAAMCND.repository;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Predicate;
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Busca por trecho de texto sem diferenciar maiúsculas nem acentos ('certidao' encontra 'Certidão Negativa').
+ * O banco compara a coluna normalizada pela função cnd_normalizar_busca com o termo normalizado aqui:
+ * no PostgreSQL, lower(unaccent(...)) com índices GIN de trigramas (pg_trgm) sobre a mesma expressão
+ * (db/migration/postgresql/V4, V5); no H2 dos testes, um alias para {@link #normalizar(String)}.
+ * Termos com menos de 3 caracteres não formam trigramas e percorrem o índice inteiro.
+ */
+public final class BuscaTextual {
+
+    private static final String FUNCAO_NORMALIZAR = "cnd_normalizar_busca";
+
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+    private static final char ESCAPE = '\\';
+
+    private BuscaTextual() {
+    }
+
+    /**
+     * Texto sem acentos e em minúsculas; null continua null. Também é a função cnd_normalizar_busca do H2.
+     */
+    public static String normalizar(String texto) {
+        if (texto == null) {
+            return null;
+        }
+        String decomposto = Normalizer.normalize(texto, Normalizer.Form.NFD);
+        return MARCAS_DIACRITICAS.matcher(decomposto).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Predicado "campo contém termo", sem diferenciar maiúsculas nem acentos. '%' e '_' do termo são literais.
+     */
+    public static Predicate contem(CriteriaBuilder cb, Expression<String> campo, String termo) {
+        String padrao = "%" + escaparCuringas(normalizar(termo.trim())) + "%";
+        return cb.like(normalizado(cb, campo), padrao, ESCAPE);
+    }
+
+    /**
+     * Campo normalizado pelo banco: ordenação alfabética sem diferenciar maiúsculas nem acentos.
+     */
+    public static Expression<String> normalizado(CriteriaBuilder cb, Expression<String> campo) {
+        return cb.function(FUNCAO_NORMALIZAR, String.class, campo);
+    }
+
+    private static String escaparCuringas(String termo) {
+        return termo.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -0,0 +1,104 @@
+package br.com.sisaudcon.projeto.SAAMCND.repository;
+
+import br.com.sisaudcon.projeto.SAAMCND.dto.CndResultadoDTO;
+import br.com.sisaudcon.projeto.SAAMCND.model.CndCliente;
+import br.com.sisaudcon.projeto.SAAMCND.model.CndResultado;
+
+import javax.persistence.Tuple;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Campos de CndResultadoDTO que a listagem pode selecionar ('campos=situacao,dataEmissao'): cada um sabe as
+ * colunas que precisa e como preenchê-las no DTO. A consulta seleciona só as colunas dos campos pedidos (a
+ * entidade não é carregada) e o cliente só entra na junção se o CNPJ for pedido.
+ */
+public enum CampoCndResultado {
+
+    ID("id", (dto, valor) -> dto.setId((Long) valor)),
+    DATA_PROCESSAMENTO("dataProcessamento", (dto, valor) -> dto.setDataProcessamento((LocalDateTime) valor)),
+    SITUACAO("situacao", (dto, valor) -> dto.setSituacao((String) valor)),
+    DATA_EMISSAO("dataEmissao", (dto, valor) -> dto.setDataEmissao((LocalDate) valor)),
+    DATA_VALIDADE("dataValidade", (dto, valor) -> dto.setDataValidade((LocalDate) valor)),
+    CODIGO_CONTROLE("codigoControle", (dto, valor) -> dto.setCodigoControle((String) valor)),
+    STATUS_PROCESSAMENTO("statusProcessamento", (dto, valor) -> dto.setStatusProcessamento((String) valor)),
+    MENSAGEM_ERRO_PROCESSAMENTO("mensagemErroProcessamento", (dto, valor) -> dto.setMensagemErroProcessamento((String) valor)),
+    TIPO_CERTIDAO("tipoCertidao", (dto, valor) -> dto.setTipoCertidao((String) valor)),
+    ORGAO_EMISSOR("orgaoEmissor", (dto, valor) -> dto.setOrgaoEmissor((String) valor)),
+    OBSERVACOES("observacoes", (dto, valor) -> dto.setObservacoes((String) valor)),
+    LINHA("linha", (dto, valor) -> dto.setLinha((String) valor)),
+    DATA_CADASTRO("dataCadastro", (dto, valor) -> dto.setDataCadastro((LocalDateTime) valor)),
+    DATA_ATUALIZACAO("dataAtualizacao", (dto, valor) -> dto.setDataAtualizacao((LocalDateTime) valor)),
+    ARQUIVO_TAMANHO("arquivoTamanho", (dto, valor) -> dto.setArquivoTamanho((Long) valor)),
+    // FK da própria tabela de resultados: sem junção
+    FK_CLIENTE("fkCliente", (dto, valor) -> dto.setFkCliente((Long) valor)) {
+        @Override
+        List<Selection<?>> selecoes(Root<CndResultado> root, Join<CndResultado, CndCliente> cliente) {
+            return List.of(root.get("cliente").get("id").alias(getNome()));
+        }
+    },
+    CNPJ_CLIENTE("cnpjCliente", (dto, valor) -> dto.setCnpjCliente((String) valor)) {
+        @Override
+        List<Selection<?>> selecoes(Root<CndResultado> root, Join<CndResultado, CndCliente> cliente) {
+            return List.of(cliente.get("cnpj").alias(getNome()));
+        }
+    },
+    // Só o teste de presença: a referência do blob e o indicador da coluna legada, nunca o conteúdo
+    POSSUI_ARQUIVO("possuiArquivo", null) {
+        @Override
+        List<Selection<?>> selecoes(Root<CndResultado> root, Join<CndResultado, CndCliente> cliente) {
+            return List.of(root.get("arquivoRef").alias("arquivoRef"), root.get("arquivoInline").alias("arquivoInline"));
+        }
+
+        @Override
+        public void aplicar(CndResultadoDTO dto, Tuple tupla) {
+            dto.setPossuiArquivo(tupla.get("arquivoRef") != null || Boolean.TRUE.equals(tupla.get("arquivoInline")));
+        }
+    };
+
+    /**
+     * Representação resumida da listagem, sem 'campos': o que a tela de resultados mostra.
+     */
+    public static final Set<CampoCndResultado> RESUMO = Collections.unmodifiableSet(EnumSet.of(
+            ID, DATA_PROCESSAMENTO, SITUACAO, DATA_EMISSAO, DATA_VALIDADE, STATUS_PROCESSAMENTO, TIPO_CERTIDAO,
+            ORGAO_EMISSOR, FK_CLIENTE, CNPJ_CLIENTE, POSSUI_ARQUIVO));
+
+    private final String nome;
+    private final BiConsumer<CndResultadoDTO, Object> atribuir;
+
+    CampoCndResultado(String nome, BiConsumer<CndResultadoDTO, Object> atribuir) {
+        this.nome = nome;
+        this.atribuir = atribuir;
+    }
+
+    // Nome do campo no JSON (e no parâmetro 'campos')
+    public String getNome() {
+        return nome;
+    }
+
+    /**
+     * Campo pelo nome no JSON, ou null se não for um campo selecionável.
+     */
+    public static CampoCndResultado porNome(String nome) {
+        return Arrays.stream(values()).filter(c -> c.nome.equals(nome)).findFirst().orElse(null);
+    }
+
+    // Colunas do campo na consulta, com alias ('cliente' = junção com o cliente, só presente se CNPJ_CLIENTE foi pedido)
+    List<Selection<?>> selecoes(Root<CndResultado> root, Join<CndResultado, CndCliente> cliente) {
+        return List.of(root.get(nome).alias(nome));
+    }
+
+    // Preenche o campo no DTO a partir da linha selecionada
+    public void aplicar(CndResultadoDTO dto, Tuple tupla) {
+        atribuir.accept(dto, tupla.get(nome));
+    }
+}
@@ -10,10 +10,17 @@ import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface CndClienteRepository extends JpaRepository<CndCliente, Long> {
+public interface CndClienteRepository extends JpaRepository<CndCliente, Long>, CndClienteRepositoryCustom {
     Optional<CndCliente> findByCnpjAndEmpresaId(String cnpj, Long empresaId);
     List<CndCliente> findByEmpresaId(Long empresaId);
 
+    // Listagem, detalhe e edição com a empresa na mesma consulta (o DTO usa o nome da empresa)
+    @Query("SELECT c FROM CndCliente c JOIN FETCH c.empresa")
+    List<CndCliente> findAllComEmpresa();
+
+    @Query("SELECT c FROM CndCliente c JOIN FETCH c.empresa WHERE c.id = :id")
+    Optional<CndCliente> findComEmpresaById(@Param("id") Long id);
+
     // Para verificar se existem resultados vinculados antes de excluir um cliente
     @Query("SELECT COUNT(cr) > 0 FROM CndResultado cr WHERE cr.cliente.id = :clienteId")
     boolean existsCndResultadoByClienteId(@Param("clienteId") Long clienteId);
@@ -0,0 +1,15 @@
+package br.com.sisaudcon.projeto.SAAMCND.repository;
+
+import br.com.sisaudcon.projeto.SAAMCND.model.CndCliente;
+
+import java.util.List;
+
+public interface CndClienteRepositoryCustom {
+
+    /**
+     * Clientes (com a empresa) cujo nome contém {@code nome} e cujo nome da empresa contém {@code nomeEmpresa},
+     * sem diferenciar maiúsculas nem acentos (BuscaTextual); termo nulo = sem esse filtro. Em ordem de nome,
+     * até {@code limite} clientes: busca enquanto o usuário digita.
+     */
+    List<CndCliente> buscarPorNome(String nome, String nomeEmpresa, int limite);
+}
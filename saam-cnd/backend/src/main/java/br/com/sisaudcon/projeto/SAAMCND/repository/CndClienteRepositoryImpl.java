@@ -0,0 +1,46 @@
+package br.com.sisaudcon.projeto.SAAMCND.repository;
+
+import br.com.sisaudcon.projeto.SAAMCND.model.CndCliente;
+import br.com.sisaudcon.projeto.SAAMCND.model.CndEmpresa;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.List;
+
+// Implementação das consultas de CndClienteRepositoryCustom (combinada ao repositório pelo Spring Data)
+class CndClienteRepositoryImpl implements CndClienteRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<CndCliente> buscarPorNome(String nome, String nomeEmpresa, int limite) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<CndCliente> query = cb.createQuery(CndCliente.class);
+        Root<CndCliente> root = query.from(CndCliente.class);
+        // Empresa na mesma consulta (o DTO usa o nome) e também alvo do filtro por nome da empresa
+        Join<CndCliente, CndEmpresa> empresa = (Join<CndCliente, CndEmpresa>) root.<CndCliente, CndEmpresa>fetch("empresa");
+
+        List<Predicate> predicados = new ArrayList<>();
+        if (nome != null) {
+            predicados.add(BuscaTextual.contem(cb, root.get("nome"), nome));
+        }
+        if (nomeEmpresa != null) {
+            predicados.add(BuscaTextual.contem(cb, empresa.get("nomeEmpresa"), nomeEmpresa));
+        }
+        query.select(root)
+                .where(predicados.toArray(new Predicate[0]))
+                .orderBy(cb.asc(BuscaTextual.normalizado(cb, root.get("nome"))), cb.asc(root.get("id")));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limite)
+                .getResultList();
+    }
+}
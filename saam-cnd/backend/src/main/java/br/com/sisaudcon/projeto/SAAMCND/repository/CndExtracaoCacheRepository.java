@@ -0,0 +1,12 @@
+package br.com.sisaudcon.projeto.SAAMCND.repository;
+
+import br.com.sisaudcon.projeto.SAAMCND.model.CndExtracaoCache;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface CndExtracaoCacheRepository extends JpaRepository<CndExtracaoCache, Long> {
+    Optional<CndExtracaoCache> findByArquivoSha256AndVersaoExtrator(String arquivoSha256, String versaoExtrator);
+}
@@ -0,0 +1,32 @@
+package br.com.sisaudcon.projeto.SAAMCND.repository;
+
+import br.com.sisaudcon.projeto.SAAMCND.model.CndResultadoArquivo;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+// PDFs legados gravados inline na cnd_resultado: só leitura explícita do conteúdo e limpeza após a migração
+@Repository
+public interface CndResultadoArquivoRepository extends JpaRepository<CndResultadoArquivo, Long> {
+
+    @Query("SELECT a.arquivo FROM CndResultadoArquivo a WHERE a.id = :id AND a.arquivo IS NOT NULL")
+    Optional<byte[]> findArquivoInline(@Param("id") Long id);
+
+    // Migração para o BlobStore: IDs pendentes em ordem, a partir do último já visto.
+    // Registros migrados saem do critério, então uma migração interrompida recomeça de onde parou.
+    @Query("SELECT a.id FROM CndResultadoArquivo a WHERE a.arquivo IS NOT NULL AND a.id > :aposId ORDER BY a.id")
+    List<Long> findIdsComArquivoInline(@Param("aposId") Long aposId, Pageable pageable);
+
+    @Query("SELECT COUNT(a) FROM CndResultadoArquivo a WHERE a.arquivo IS NOT NULL")
+    long countComArquivoInline();
+
+    @Modifying
+    @Query("UPDATE CndResultadoArquivo a SET a.arquivo = NULL WHERE a.id = :id")
+    int limparArquivoInline(@Param("id") Long id);
+}
@@ -1,19 +1,129 @@
 package br.com.sisaudcon.projeto.SAAMCND.repository;
 
 import br.com.sisaudcon.projeto.SAAMCND.model.CndResultado;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface CndResultadoRepository extends JpaRepository<CndResultado, Long>, JpaSpecificationExecutor<CndResultado> {
+public interface CndResultadoRepository extends JpaRepository<CndResultado, Long>, JpaSpecificationExecutor<CndResultado>,
+        CndResultadoRepositoryCustom {
     List<CndResultado> findByClienteId(Long clienteId);
 
+    // Resultado com o cliente numa única consulta: detalhe, edição e download (o DTO e o nome do arquivo usam o CNPJ)
+    @Query("SELECT r FROM CndResultado r JOIN FETCH r.cliente WHERE r.id = :id")
+    Optional<CndResultado> findComClienteById(@Param("id") Long id);
+
     // Para PEC-4963: buscar registros com status = 'concluido' e situacao IS NULL
     // O status 'concluido' aqui refere-se ao status do processamento da consulta da CND, não à situação da CND (negativa/positiva).
     // Vamos usar o campo 'statusProcessamento' para isso.
-    List<CndResultado> findByStatusProcessamentoAndSituacaoIsNull(String statusProcessamento);
+    long countByStatusProcessamentoAndSituacaoIsNull(String statusProcessamento);
+
+    // Reivindicação de lote do backlog de extração entre vários nós: trava as linhas livres (sem lease ou
+    // com lease vencido) pulando as já travadas por outro nó, que fica com o lote seguinte. Só IDs: cada item
+    // é carregado quando processado, e o PDF (arquivo é @Transient) só é lido então, por
+    // CndResultadoService.lerArquivo: do BlobStore pelo arquivoRef ou, se ainda não migrado, da coluna legada.
+    // Timeout -2 = LockOptions.SKIP_LOCKED: "FOR UPDATE SKIP LOCKED" no PostgreSQL (PostgreSQL95Dialect);
+    // no H2 dos testes vira um "FOR UPDATE" simples.
+    // Deve ser chamado dentro de uma transação, junto com atribuirLease.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "javax.persistence.lock.timeout", value = "-2"))
+    @Query("SELECT r.id FROM CndResultado r WHERE r.statusProcessamento = :statusProcessamento AND r.situacao IS NULL " +
+           "AND (r.leaseExpiraEm IS NULL OR r.leaseExpiraEm < :agora) ORDER BY r.id")
+    List<Long> travarIdsLivresParaExtracao(@Param("statusProcessamento") String statusProcessamento,
+                                           @Param("agora") LocalDateTime agora,
+                                           Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE CndResultado r SET r.leaseDono = :dono, r.leaseExpiraEm = :expiraEm WHERE r.id IN :ids")
+    int atribuirLease(@Param("ids") List<Long> ids,
+                      @Param("dono") String dono,
+                      @Param("expiraEm") LocalDateTime expiraEm);
+
+    // Reivindicação de um único item (extração disparada por evento): só atribui o lease se o item
+    // continua pendente e livre. Retorna 0 se outro nó já o reivindicou.
+    @Modifying
+    @Query("UPDATE CndResultado r SET r.leaseDono = :dono, r.leaseExpiraEm = :expiraEm " +
+           "WHERE r.id = :id AND r.statusProcessamento = :statusProcessamento AND r.situacao IS NULL " +
+           "AND (r.leaseExpiraEm IS NULL OR r.leaseExpiraEm < :agora)")
+    int atribuirLeaseSeLivre(@Param("id") Long id,
+                             @Param("statusProcessamento") String statusProcessamento,
+                             @Param("dono") String dono,
+                             @Param("agora") LocalDateTime agora,
+                             @Param("expiraEm") LocalDateTime expiraEm);
+
+    // Confirma, antes de processar o item, que o lease ainda é de 'dono' e não venceu. O UPDATE trava a linha até o
+    // fim da transação: outro nó não reivindica o item (SKIP LOCKED / atribuirLeaseSeLivre) enquanto este o processa.
+    // Retorna 0 se o lease venceu ou passou a outro nó.
+    @Modifying
+    @Query("UPDATE CndResultado r SET r.leaseExpiraEm = r.leaseExpiraEm " +
+           "WHERE r.id = :id AND r.leaseDono = :dono AND r.leaseExpiraEm > :agora")
+    int confirmarLease(@Param("id") Long id, @Param("dono") String dono, @Param("agora") LocalDateTime agora);
+
+    // Migração de um PDF legado para o BlobStore: grava a referência sem carregar a entidade nem alterar
+    // dataAtualizacao. Não sobrescreve um arquivo já gravado no BlobStore (o inline, nesse caso, é obsoleto).
+    @Modifying
+    @Query("UPDATE CndResultado r SET r.arquivoRef = :ref, r.arquivoTamanho = :tamanho, r.arquivoSha256 = :sha256, " +
+           "r.arquivoCodec = :codec WHERE r.id = :id AND r.arquivoRef IS NULL")
+    int atribuirArquivoSeAusente(@Param("id") Long id,
+                                 @Param("ref") String ref,
+                                 @Param("tamanho") Long tamanho,
+                                 @Param("sha256") String sha256,
+                                 @Param("codec") String codec);
+
+    // Recompressão em lote: IDs em ordem, após aposId, com blob cuja compressão ainda não foi avaliada
+    @Query("SELECT r.id FROM CndResultado r WHERE r.arquivoRef IS NOT NULL AND r.arquivoCodec IS NULL " +
+           "AND r.id > :aposId ORDER BY r.id")
+    List<Long> findIdsComArquivoSemCodec(@Param("aposId") Long aposId, Pageable pageable);
+
+    long countByArquivoRefIsNotNullAndArquivoCodecIsNull();
+
+    @Query("SELECT r.arquivoRef FROM CndResultado r WHERE r.id = :id AND r.arquivoRef IS NOT NULL AND r.arquivoCodec IS NULL")
+    Optional<String> findArquivoRefSemCodec(@Param("id") Long id);
+
+    // Arquivamento: IDs em ordem, após aposId, de resultados vencidos antes do limite com blob na camada quente
+    @Query("SELECT r.id FROM CndResultado r WHERE r.arquivoRef IS NOT NULL AND r.arquivoArquivado IS NULL " +
+           "AND r.dataValidade < :limite AND r.id > :aposId ORDER BY r.id")
+    List<Long> findIdsParaArquivamento(@Param("limite") LocalDate limite, @Param("aposId") Long aposId, Pageable pageable);
+
+    @Query("SELECT COUNT(r) FROM CndResultado r WHERE r.arquivoRef IS NOT NULL AND r.arquivoArquivado IS NULL " +
+           "AND r.dataValidade < :limite")
+    long countParaArquivamento(@Param("limite") LocalDate limite);
+
+    @Query("SELECT r.arquivoRef FROM CndResultado r WHERE r.id = :id AND r.arquivoRef IS NOT NULL AND r.arquivoArquivado IS NULL")
+    Optional<String> findArquivoRefNaoArquivado(@Param("id") Long id);
+
+    // O mesmo PDF (blob) pode ser também de um resultado ainda válido ou vencido há pouco: aí fica na camada quente
+    @Query("SELECT CASE WHEN COUNT(r) > 0 THEN true ELSE false END FROM CndResultado r WHERE r.arquivoRef = :ref " +
+           "AND (r.dataValidade IS NULL OR r.dataValidade >= :limite)")
+    boolean existsEmUsoComArquivoRef(@Param("ref") String ref, @Param("limite") LocalDate limite);
+
+    @Modifying
+    @Query("UPDATE CndResultado r SET r.arquivoArquivado = true WHERE r.arquivoRef = :ref")
+    int marcarArquivado(@Param("ref") String ref);
+
+    // O codec é do blob, não do registro: vale para todos os resultados que compartilham a referência
+    @Modifying
+    @Query("UPDATE CndResultado r SET r.arquivoCodec = :codec WHERE r.arquivoRef = :ref")
+    int atribuirCodec(@Param("ref") String ref, @Param("codec") String codec);
+
+    // Limpeza de blobs órfãos: quais das referências ainda pertencem a algum resultado
+    @Query("SELECT DISTINCT r.arquivoRef FROM CndResultado r WHERE r.arquivoRef IN :refs")
+    List<String> findArquivoRefsEmUso(@Param("refs") Collection<String> refs);
 
     // Se 'status' na PEC-4963 se refere a um campo genérico de status da entidade CndResultado,
     // e não ao 'statusProcessamento' que adicionei, precisaria de um campo 'status' na entidade.
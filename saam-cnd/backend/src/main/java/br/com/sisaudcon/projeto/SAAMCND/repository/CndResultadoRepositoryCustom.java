@@ -0,0 +1,33 @@
+package br.com.sisaudcon.projeto.SAAMCND.repository;
+
+import br.com.sisaudcon.projeto.SAAMCND.dto.CndArquivoResumo;
+import br.com.sisaudcon.projeto.SAAMCND.model.CndResultado;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.Tuple;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+public interface CndResultadoRepositoryCustom {
+
+    /**
+     * Resultados com arquivo que atendem aos filtros, em ordem de ID, lidos por cursor do banco em blocos
+     * de {@code tamanhoFetch} linhas e sem entidades gerenciadas: a memória não cresce com o número de itens.
+     * Deve ser consumido dentro de uma transação e fechado ao final (try-with-resources).
+     */
+    Stream<CndArquivoResumo> streamArquivos(Specification<CndResultado> filtros, int tamanhoFetch);
+
+    /**
+     * Página da listagem de resultados que atendem aos filtros, do processamento mais recente para o mais antigo
+     * ({@code dataProcessamento} e ID decrescentes). Cada linha traz só as colunas dos {@code campos} pedidos
+     * (aliases = nomes dos campos), mais 'id' e 'dataProcessamento', sempre presentes para a posição da página.
+     * A página começa logo após a posição ({@code aposData}, {@code aposId}) por comparação de chave, sem OFFSET:
+     * páginas profundas custam o mesmo que a primeira. Sem posição = primeira página. Resultados sem
+     * dataProcessamento (legados) vêm por último, em ordem de ID decrescente; {@code aposData} nulo com
+     * {@code aposId} informado = posição entre eles.
+     */
+    List<Tuple> buscarPagina(Specification<CndResultado> filtros, Set<CampoCndResultado> campos,
+                             LocalDateTime aposData, Long aposId, int quantidade);
+}
@@ -0,0 +1,112 @@
+package br.com.sisaudcon.projeto.SAAMCND.repository;
+
+import br.com.sisaudcon.projeto.SAAMCND.dto.CndArquivoResumo;
+import br.com.sisaudcon.projeto.SAAMCND.model.CndCliente;
+import br.com.sisaudcon.projeto.SAAMCND.model.CndResultado;
+import org.hibernate.jpa.QueryHints;
+import org.springframework.data.jpa.domain.Specification;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Join;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import javax.persistence.criteria.Selection;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+// Implementação das consultas de CndResultadoRepositoryCustom (combinada ao repositório pelo Spring Data)
+class CndResultadoRepositoryImpl implements CndResultadoRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Stream<CndArquivoResumo> streamArquivos(Specification<CndResultado> filtros, int tamanhoFetch) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<CndArquivoResumo> query = cb.createQuery(CndArquivoResumo.class);
+        Root<CndResultado> root = query.from(CndResultado.class);
+        Join<CndResultado, CndCliente> cliente = root.join("cliente");
+
+        Predicate comArquivo = cb.or(cb.isNotNull(root.get("arquivoRef")), cb.isTrue(root.get("arquivoInline")));
+        Predicate filtro = filtros.toPredicate(root, query, cb);
+        query.select(cb.construct(CndArquivoResumo.class,
+                        root.get("id"), root.get("arquivoRef"), root.get("arquivoInline"), root.get("tipoCertidao"),
+                        root.get("orgaoEmissor"), root.get("dataEmissao"), cliente.get("cnpj")))
+                .where(filtro != null ? cb.and(filtro, comArquivo) : comArquivo)
+                .orderBy(cb.asc(root.get("id")));
+
+        // Fetch size + transação: no PostgreSQL vira um cursor no servidor, lido em blocos
+        return entityManager.createQuery(query)
+                .setHint(QueryHints.HINT_FETCH_SIZE, tamanhoFetch)
+                .setHint(QueryHints.HINT_READONLY, true)
+                .getResultStream();
+    }
+
+    @Override
+    public List<Tuple> buscarPagina(Specification<CndResultado> filtros, Set<CampoCndResultado> campos,
+                                    LocalDateTime aposData, Long aposId, int quantidade) {
+        List<Tuple> pagina = new ArrayList<>();
+        boolean entreSemData = aposId != null && aposData == null;
+        if (!entreSemData) {
+            pagina.addAll(consultarPagina(filtros, campos, true, aposData, aposId, quantidade));
+        }
+        if (pagina.size() < quantidade) {
+            // Acabaram os com data: a página continua pelos legados sem dataProcessamento
+            pagina.addAll(consultarPagina(filtros, campos, false, null, entreSemData ? aposId : null, quantidade - pagina.size()));
+        }
+        return pagina;
+    }
+
+    private List<Tuple> consultarPagina(Specification<CndResultado> filtros, Set<CampoCndResultado> campos, boolean comData,
+                                        LocalDateTime aposData, Long aposId, int quantidade) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<CndResultado> root = query.from(CndResultado.class);
+
+        // Posição da página sempre selecionada; o cliente só entra na junção se algum campo pedir
+        Set<CampoCndResultado> selecionados = EnumSet.of(CampoCndResultado.ID, CampoCndResultado.DATA_PROCESSAMENTO);
+        selecionados.addAll(campos);
+        Join<CndResultado, CndCliente> cliente = selecionados.contains(CampoCndResultado.CNPJ_CLIENTE) ? root.join("cliente") : null;
+        List<Selection<?>> selecoes = new ArrayList<>();
+        for (CampoCndResultado campo : selecionados) {
+            selecoes.addAll(campo.selecoes(root, cliente));
+        }
+
+        List<Predicate> predicados = new ArrayList<>();
+        Predicate filtro = filtros.toPredicate(root, query, cb);
+        if (filtro != null) {
+            predicados.add(filtro);
+        }
+        if (comData) {
+            predicados.add(cb.isNotNull(root.get("dataProcessamento")));
+            if (aposId != null) {
+                // (dataProcessamento, id) < (:aposData, :aposId). O "<=" redundante à frente dá ao banco o limite
+                // da faixa no índice (data_processamento, id); só o OR obrigaria a filtrar desde o início do índice
+                predicados.add(cb.lessThanOrEqualTo(root.get("dataProcessamento"), aposData));
+                predicados.add(cb.or(
+                        cb.lessThan(root.get("dataProcessamento"), aposData),
+                        cb.and(cb.equal(root.get("dataProcessamento"), aposData), cb.lessThan(root.get("id"), aposId))));
+            }
+            query.orderBy(cb.desc(root.get("dataProcessamento")), cb.desc(root.get("id")));
+        } else {
+            predicados.add(cb.isNull(root.get("dataProcessamento")));
+            if (aposId != null) {
+                predicados.add(cb.lessThan(root.get("id"), aposId));
+            }
+            query.orderBy(cb.desc(root.get("id")));
+        }
+        query.multiselect(selecoes).where(predicados.toArray(new Predicate[0]));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(quantidade)
+                .getResultList();
+    }
+}
@@ -0,0 +1,79 @@
+package br.com.sisaudcon.projeto.SAAMCND.repository;
+
+import org.hibernate.Session;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Consultas nativas sobre os large objects do PostgreSQL (pg_largeobject) usados pela coluna legada
+ * cnd_resultado.arquivo: no PostgreSQL95Dialect um {@code @Lob byte[]} vira uma coluna {@code oid} que aponta
+ * para um large object, e limpar ou excluir a linha não remove o large object. Só faz sentido no PostgreSQL:
+ * quem chama confere {@link #postgresql()} antes.
+ */
+@Repository
+public class LargeObjectRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public boolean postgresql() {
+        return entityManager.unwrap(Session.class)
+                .doReturningWork(conexao -> "PostgreSQL".equalsIgnoreCase(conexao.getMetaData().getDatabaseProductName()));
+    }
+
+    // Tipo atual da coluna legada: 'oid' (large objects) ou 'bytea' (depois da conversão); null se não existir
+    public String tipoColunaArquivo() {
+        List<?> tipo = entityManager.createNativeQuery(
+                        "SELECT data_type FROM information_schema.columns " +
+                        "WHERE table_schema = current_schema() AND table_name = 'cnd_resultado' AND column_name = 'arquivo'")
+                .getResultList();
+        return tipo.isEmpty() ? null : (String) tipo.get(0);
+    }
+
+    /**
+     * Large objects sem nenhuma linha de cnd_resultado apontando para eles, em ordem de oid, após aposOid.
+     * Com a coluna já convertida para bytea, nenhum large object é referenciado. Só entram os large objects
+     * do papel (role) com que a aplicação se conecta: os de outros sistemas ou usuários no mesmo banco nunca
+     * são considerados órfãos, mesmo sem referência em cnd_resultado.
+     */
+    @SuppressWarnings("unchecked")
+    public List<Long> findOrfaos(long aposOid, int limite, boolean colunaOid) {
+        String referenciado = colunaOid
+                ? " AND NOT EXISTS (SELECT 1 FROM cnd_resultado r WHERE r.arquivo = m.oid)"
+                : "";
+        List<Number> oids = entityManager.createNativeQuery(
+                        "SELECT CAST(m.oid AS bigint) FROM pg_largeobject_metadata m WHERE m.oid > CAST(:aposOid AS oid)" +
+                        " AND m.lomowner = (SELECT u.oid FROM pg_roles u WHERE u.rolname = current_user)" +
+                        referenciado + " ORDER BY m.oid")
+                .setParameter("aposOid", aposOid)
+                .setMaxResults(limite)
+                .getResultList();
+        return oids.stream().map(Number::longValue).collect(Collectors.toList());
+    }
+
+    // Tamanho do conteúdo de um large object, calculado no servidor (o conteúdo não trafega)
+    public long tamanho(long oid) {
+        Number tamanho = (Number) entityManager.createNativeQuery(
+                        "SELECT COALESCE(octet_length(lo_get(CAST(:oid AS oid))), 0)")
+                .setParameter("oid", oid)
+                .getSingleResult();
+        return tamanho.longValue();
+    }
+
+    public void unlink(long oid) {
+        entityManager.createNativeQuery("SELECT lo_unlink(CAST(:oid AS oid))")
+                .setParameter("oid", oid)
+                .getSingleResult();
+    }
+
+    // Troca o tipo da coluna por bytea (armazenada com compressão TOAST), copiando o conteúdo dos large objects
+    public void converterColunaArquivoParaBytea() {
+        entityManager.createNativeQuery(
+                        "ALTER TABLE cnd_resultado ALTER COLUMN arquivo TYPE bytea USING lo_get(arquivo)")
+                .executeUpdate();
+    }
+}
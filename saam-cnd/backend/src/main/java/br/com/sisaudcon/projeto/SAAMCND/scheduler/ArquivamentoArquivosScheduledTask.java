@@ -0,0 +1,94 @@
+package br.com.sisaudcon.projeto.SAAMCND.scheduler;
+
+import br.com.sisaudcon.projeto.SAAMCND.service.CndResultadoService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Arquivamento em segundo plano dos PDFs de CNDs vencidas há mais de N dias: passada a validade, a certidão
+ * quase não é mais baixada, e o blob sai da camada quente (um arquivo por PDF) para os segmentos do arquivo
+ * morto. Mesmo esquema da {@link MigracaoArquivosScheduledTask}: lotes de IDs em ordem crescente, um item por
+ * transação, falhas contadas e deixadas para a próxima execução.
+ */
+@Component
+public class ArquivamentoArquivosScheduledTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(ArquivamentoArquivosScheduledTask.class);
+
+    private final CndResultadoService cndResultadoService;
+    private final int diasAposValidade;
+    private final int tamanhoLote;
+    private final boolean habilitado;
+    private final Counter arquivosArquivados;
+    private final Counter falhas;
+    private final AtomicLong pendentes = new AtomicLong();
+
+    @Autowired
+    public ArquivamentoArquivosScheduledTask(CndResultadoService cndResultadoService,
+                                             MeterRegistry meterRegistry,
+                                             @Value("${cnd.armazenamento.arquivamento.dias-apos-validade:90}") int diasAposValidade,
+                                             @Value("${cnd.armazenamento.arquivamento.lote.tamanho:100}") int tamanhoLote,
+                                             @Value("${cnd.armazenamento.arquivamento.habilitado:true}") boolean habilitado) {
+        this.cndResultadoService = cndResultadoService;
+        this.diasAposValidade = diasAposValidade;
+        this.tamanhoLote = tamanhoLote;
+        this.habilitado = habilitado;
+        this.arquivosArquivados = Counter.builder("cnd.armazenamento.arquivamento.arquivos")
+                .description("Blobs de CNDs vencidas movidos para o arquivo morto")
+                .register(meterRegistry);
+        this.falhas = Counter.builder("cnd.armazenamento.arquivamento.falhas")
+                .description("Registros cujo arquivamento falhou (ficam para a próxima execução)")
+                .register(meterRegistry);
+        Gauge.builder("cnd.armazenamento.arquivamento.pendentes", pendentes, AtomicLong::get)
+                .description("Resultados vencidos com blob ainda na camada quente ao final da última execução")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${cnd.armazenamento.arquivamento.intervalo:PT1H}")
+    public void arquivarVencidos() {
+        if (!habilitado) {
+            return;
+        }
+        long arquivados = arquivar(LocalDate.now().minusDays(diasAposValidade));
+        if (arquivados > 0) {
+            logger.info("Arquivamento de PDFs de CNDs vencidas: {} blobs arquivados, {} pendentes.", arquivados, pendentes.get());
+        }
+    }
+
+    // Uma passada completa pelos resultados vencidos antes de vencidosAntesDe; retorna quantos blobs foram arquivados
+    long arquivar(LocalDate vencidosAntesDe) {
+        long arquivados = 0;
+        Long ultimoId = 0L;
+        List<Long> lote = cndResultadoService.idsParaArquivamento(vencidosAntesDe, ultimoId, tamanhoLote);
+        while (!lote.isEmpty()) {
+            for (Long id : lote) {
+                try {
+                    if (cndResultadoService.arquivarArquivo(id, vencidosAntesDe)) {
+                        arquivados++;
+                        arquivosArquivados.increment();
+                    }
+                } catch (RuntimeException e) {
+                    falhas.increment();
+                    logger.error("Falha ao arquivar o PDF da CND Resultado ID: {}: {}", id, e.getMessage(), e);
+                }
+                ultimoId = id;
+            }
+            lote = lote.size() < tamanhoLote
+                    ? List.of()
+                    : cndResultadoService.idsParaArquivamento(vencidosAntesDe, ultimoId, tamanhoLote);
+        }
+        pendentes.set(cndResultadoService.contarParaArquivamento(vencidosAntesDe));
+        return arquivados;
+    }
+}
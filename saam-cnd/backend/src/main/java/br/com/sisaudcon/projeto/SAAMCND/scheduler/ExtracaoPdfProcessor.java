@@ -0,0 +1,231 @@
+package br.com.sisaudcon.projeto.SAAMCND.scheduler;
+
+import br.com.sisaudcon.projeto.SAAMCND.armazenamento.DigestArquivo;
+import br.com.sisaudcon.projeto.SAAMCND.exception.ArmazenamentoArquivoException;
+import br.com.sisaudcon.projeto.SAAMCND.extracao.DadosExtraidos;
+import br.com.sisaudcon.projeto.SAAMCND.extracao.ExtracaoPdfException;
+import br.com.sisaudcon.projeto.SAAMCND.extracao.ExtratorCnd;
+import br.com.sisaudcon.projeto.SAAMCND.extracao.ExtratorCndRegistry;
+import br.com.sisaudcon.projeto.SAAMCND.extracao.LeitorPdf;
+import br.com.sisaudcon.projeto.SAAMCND.model.CndResultado;
+import br.com.sisaudcon.projeto.SAAMCND.service.CndResultadoService;
+import br.com.sisaudcon.projeto.SAAMCND.service.ExtracaoCacheService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Extração de dados do PDF de um único CndResultado (PEC-4963), em transação própria:
+ * um PDF problemático não desfaz nem atrasa o processamento dos demais.
+ */
+@Component
+public class ExtracaoPdfProcessor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExtracaoPdfProcessor.class);
+
+    // Item removido, já processado ou com lease vencido e reivindicado por outro nó
+    static final String STATUS_IGNORADO = "IGNORADO";
+
+    // Como o item chegou ao worker: evento pós-commit ou varredura agendada do backlog
+    static final String ORIGEM_EVENTO = "evento";
+    static final String ORIGEM_VARREDURA = "varredura";
+
+    private final CndResultadoService cndResultadoService;
+    private final ExtratorCndRegistry extratorCndRegistry;
+    private final LeitorPdf leitorPdf;
+    private final ExtracaoCacheService extracaoCacheService;
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public ExtracaoPdfProcessor(CndResultadoService cndResultadoService, ExtratorCndRegistry extratorCndRegistry,
+                                LeitorPdf leitorPdf, ExtracaoCacheService extracaoCacheService, MeterRegistry meterRegistry) {
+        this.cndResultadoService = cndResultadoService;
+        this.extratorCndRegistry = extratorCndRegistry;
+        this.leitorPdf = leitorPdf;
+        this.extracaoCacheService = extracaoCacheService;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Carrega o resultado (com o PDF), extrai os dados e salva com o status de processamento correspondente.
+     *
+     * O lease do nó é liberado junto com a gravação do resultado.
+     *
+     * @param idResultado ID de um CndResultado reivindicado por este nó.
+     * @param dono Identificador do nó que reivindicou o registro.
+     * @param origem {@link #ORIGEM_EVENTO} ou {@link #ORIGEM_VARREDURA}; usado como tag da latência.
+     * @return O statusProcessamento gravado (ex: EXTRACAO_CONCLUIDA, ERRO_EXTRACAO_IO), ou
+     *         {@link #STATUS_IGNORADO} se o item foi removido, já processado ou o lease passou a outro nó;
+     *         e se os dados vieram do cache de extração.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public Desfecho processar(Long idResultado, String dono, String origem) {
+        // Só com o lease ainda válido (e a linha travada até o commit): um nó cujo lease venceu e foi
+        // reivindicado por outro não processa nem grava o item
+        Optional<CndResultado> resultado = cndResultadoService.findResultadoParaExtracao(idResultado, dono)
+                .filter(r -> CndResultadoService.STATUS_CONSULTA_REALIZADA.equals(r.getStatusProcessamento()) && r.getSituacao() == null)
+                .filter(r -> dono.equals(r.getLeaseDono()));
+        if (!resultado.isPresent()) {
+            logger.info("CND Resultado ID: {} não está mais pendente de extração por este nó. Ignorando.", idResultado);
+            return new Desfecho(STATUS_IGNORADO, false);
+        }
+        // Última gravação antes da extração: a que colocou o item no backlog (o lease é um UPDATE em lote, sem @PreUpdate)
+        LocalDateTime gravadoEm = resultado.get().getDataAtualizacao();
+        Desfecho desfecho = extrair(resultado.get());
+        registrarLatencia(gravadoEm, origem);
+        return desfecho;
+    }
+
+    // Tempo entre a gravação do resultado e o fim da extração, com histograma para acompanhar os percentis
+    private void registrarLatencia(LocalDateTime gravadoEm, String origem) {
+        if (gravadoEm == null) {
+            return;
+        }
+        Duration latencia = Duration.between(gravadoEm, LocalDateTime.now());
+        Timer.builder("cnd.extracao.latencia")
+                .description("Tempo entre a gravação do resultado pendente e a conclusão da extração do PDF")
+                .tag("origem", origem)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(10))
+                .maximumExpectedValue(Duration.ofHours(2))
+                .register(meterRegistry)
+                .record(latencia.isNegative() ? Duration.ZERO : latencia);
+    }
+
+    private Desfecho extrair(CndResultado resultado) {
+        logger.info("Processando extração para CND Resultado ID: {}", resultado.getId());
+        if (!resultado.possuiArquivo()) {
+            logger.warn("Arquivo PDF não encontrado para CND Resultado ID: {}. Pulando.", resultado.getId());
+            return new Desfecho(salvarErro(resultado, "ERRO_EXTRACAO_PDF_AUSENTE",
+                    "Arquivo PDF (conteúdo binário) está vazio ou nulo.", "UPDATE-PEC-4963-ERRO_PDF_AUSENTE"), false);
+        }
+
+        try {
+            ExtratorCnd extrator = extratorCndRegistry.resolver(resultado.getTipoCertidao(), resultado.getOrgaoEmissor());
+            String versaoExtrator = extratorCndRegistry.versao(extrator);
+            byte[] pdf = null;
+            if (resultado.getArquivoSha256() == null) { // Registro gravado antes do digest na ingestão
+                pdf = cndResultadoService.lerArquivo(resultado);
+                resultado.setArquivoSha256(DigestArquivo.sha256Hex(pdf));
+            }
+
+            // PDF idêntico já extraído com a mesma versão do extrator: reaproveita os dados sem abrir o PDF
+            Optional<DadosExtraidos> emCache = extracaoCacheService.buscar(resultado.getArquivoSha256(), versaoExtrator);
+            meterRegistry.counter("cnd.extracao.cache", "resultado", emCache.isPresent() ? "acerto" : "falta").increment();
+            DadosExtraidos dados;
+            if (emCache.isPresent()) {
+                dados = emCache.get();
+                logger.debug("CND Resultado ID: {} reaproveita a extração do PDF {} (cache).", resultado.getId(), resultado.getArquivoSha256());
+            } else {
+                // Leitura com limites de tamanho, memória e tempo, só das primeiras páginas (conforme o órgão emissor)
+                // O PDF só é lido do armazenamento aqui, quando não há extração em cache
+                if (pdf == null) {
+                    pdf = cndResultadoService.lerArquivo(resultado);
+                }
+                String textoDoPdf = leitorPdf.extrairTexto(pdf, extratorCndRegistry.paginasMaximas(extrator));
+                // Regras do órgão emissor (compiladas na subida), aplicadas numa única varredura do texto
+                dados = extrator.extrair(textoDoPdf);
+                guardarEmCache(resultado, versaoExtrator, dados);
+            }
+            preencher(resultado, dados);
+
+            if (dados.isCompleto()) {
+                resultado.setStatusProcessamento("EXTRACAO_CONCLUIDA");
+                resultado.setLinha("UPDATE-PEC-4963-SUCESSO");
+                logger.info("Extração de dados do PDF para CND Resultado ID: {} concluída com sucesso.", resultado.getId());
+            } else {
+                // Faltou algum campo: as regras do órgão não encontraram todos os padrões esperados.
+                resultado.setStatusProcessamento("ERRO_EXTRACAO_DADOS_NAO_ENCONTRADOS");
+                resultado.setMensagemErroProcessamento("Não foi possível localizar todos os dados esperados no texto do PDF.");
+                resultado.setLinha("UPDATE-PEC-4963-ERRO_DADOS_NAO_ENCONTRADOS");
+                logger.warn("Não foi possível extrair todos os dados do PDF para CND Resultado ID: {} (extrator {}): {}",
+                        resultado.getId(), extrator.getId(), dados);
+            }
+            salvarLiberandoLease(resultado);
+            return new Desfecho(resultado.getStatusProcessamento(), emCache.isPresent());
+
+        } catch (ExtracaoPdfException e) {
+            logger.warn("PDF da CND Resultado ID: {} não processado: {}", resultado.getId(), e.getMessage());
+            return new Desfecho(salvarErro(resultado, e.getStatusProcessamento(), e.getMessage(), e.getLinha()), false);
+        } catch (IOException e) {
+            logger.error("Erro de IO ao ler PDF da CND Resultado ID: {}: {}", resultado.getId(), e.getMessage());
+            return new Desfecho(salvarErro(resultado, "ERRO_EXTRACAO_IO",
+                    "Erro ao ler o conteúdo do PDF: " + e.getMessage(), "UPDATE-PEC-4963-ERRO_IO"), false);
+        } catch (ArmazenamentoArquivoException e) {
+            logger.error("Erro ao ler o PDF da CND Resultado ID: {} do armazenamento: {}", resultado.getId(), e.getMessage());
+            return new Desfecho(salvarErro(resultado, "ERRO_EXTRACAO_IO",
+                    "Erro ao ler o conteúdo do PDF: " + e.getMessage(), "UPDATE-PEC-4963-ERRO_IO"), false);
+        } catch (IllegalArgumentException e) {
+            logger.error("Erro ao decodificar Base64 do PDF para CND Resultado ID: {}: {}", resultado.getId(), e.getMessage());
+            return new Desfecho(salvarErro(resultado, "ERRO_EXTRACAO_BASE64",
+                    "Arquivo PDF (Base64) inválido: " + e.getMessage(), "UPDATE-PEC-4963-ERRO_BASE64"), false);
+        } catch (Exception e) { // Pega qualquer outra exceção inesperada
+            logger.error("Erro inesperado ao processar PDF da CND Resultado ID: {}: {}", resultado.getId(), e.getMessage(), e);
+            return new Desfecho(salvarErro(resultado, "ERRO_EXTRACAO_INESPERADO",
+                    "Erro inesperado durante a extração: " + e.getMessage(), "UPDATE-PEC-4963-ERRO_INESPERADO"), false);
+        }
+    }
+
+    // O cache é só otimização: falhar ao gravá-lo (ex: outro worker gravou o mesmo PDF) não afeta o item
+    private void guardarEmCache(CndResultado resultado, String versaoExtrator, DadosExtraidos dados) {
+        try {
+            extracaoCacheService.guardar(resultado.getArquivoSha256(), versaoExtrator, dados);
+        } catch (RuntimeException e) {
+            logger.debug("Extração do PDF {} não gravada no cache: {}", resultado.getArquivoSha256(), e.getMessage());
+        }
+    }
+
+    private String salvarErro(CndResultado resultado, String status, String mensagem, String linha) {
+        resultado.setStatusProcessamento(status);
+        resultado.setMensagemErroProcessamento(mensagem);
+        resultado.setLinha(linha);
+        salvarLiberandoLease(resultado);
+        return status;
+    }
+
+    private void salvarLiberandoLease(CndResultado resultado) {
+        resultado.setLeaseDono(null);
+        resultado.setLeaseExpiraEm(null);
+        cndResultadoService.salvarResultado(resultado);
+    }
+
+    // Preenche o que foi encontrado, mesmo com extração parcial (o status indica se faltou algum campo)
+    private void preencher(CndResultado resultado, DadosExtraidos dados) {
+        if (dados.getSituacao() != null) resultado.setSituacao(dados.getSituacao());
+        if (dados.getDataEmissao() != null) resultado.setDataEmissao(dados.getDataEmissao());
+        if (dados.getDataValidade() != null) resultado.setDataValidade(dados.getDataValidade());
+        if (dados.getCodigoControle() != null) resultado.setCodigoControle(dados.getCodigoControle());
+    }
+
+    /**
+     * Status gravado para o item e se os dados vieram do cache de extração (PDF idêntico já processado).
+     */
+    public static final class Desfecho {
+
+        private final String status;
+        private final boolean deCache;
+
+        Desfecho(String status, boolean deCache) {
+            this.status = status;
+            this.deCache = deCache;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+
+        public boolean isDeCache() {
+            return deCache;
+        }
+    }
+}
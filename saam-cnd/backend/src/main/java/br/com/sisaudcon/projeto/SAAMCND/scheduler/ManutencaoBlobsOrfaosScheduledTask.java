@@ -0,0 +1,129 @@
+package br.com.sisaudcon.projeto.SAAMCND.scheduler;
+
+import br.com.sisaudcon.projeto.SAAMCND.service.ManutencaoBlobsOrfaosService;
+import br.com.sisaudcon.projeto.SAAMCND.service.ManutencaoBlobsOrfaosService.LoteBlobs;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Limpeza periódica dos blobs órfãos (ver {@link ManutencaoBlobsOrfaosService}). Percorre a camada quente em
+ * lotes de referências, cada lote conferido de uma vez contra cnd_resultado, e conta os órfãos do arquivo morto.
+ * Em modo simulação (o padrão) só informa quantos são e quanto seria recuperado; a remoção exige
+ * cnd.armazenamento.orfaos.simulacao=false explícito. Réplicas limpando ao mesmo tempo não se atrapalham.
+ */
+@Component
+public class ManutencaoBlobsOrfaosScheduledTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(ManutencaoBlobsOrfaosScheduledTask.class);
+
+    private final ManutencaoBlobsOrfaosService manutencaoBlobsOrfaosService;
+    private final int tamanhoLote;
+    private final boolean habilitada;
+    private final boolean simulacao;
+    private final Duration carencia;
+    private final Counter removidos;
+    private final Counter bytesRecuperados;
+    private final AtomicLong orfaosEncontrados = new AtomicLong();
+    private final AtomicLong bytesOrfaos = new AtomicLong();
+    private final AtomicLong orfaosArquivoMorto = new AtomicLong();
+    private final AtomicLong bytesOrfaosArquivoMorto = new AtomicLong();
+
+    @Autowired
+    public ManutencaoBlobsOrfaosScheduledTask(ManutencaoBlobsOrfaosService manutencaoBlobsOrfaosService,
+                                              MeterRegistry meterRegistry,
+                                              @Value("${cnd.armazenamento.orfaos.lote.tamanho:500}") int tamanhoLote,
+                                              @Value("${cnd.armazenamento.orfaos.habilitada:true}") boolean habilitada,
+                                              @Value("${cnd.armazenamento.orfaos.simulacao:true}") boolean simulacao,
+                                              @Value("${cnd.armazenamento.orfaos.carencia:PT24H}") Duration carencia) {
+        this.manutencaoBlobsOrfaosService = manutencaoBlobsOrfaosService;
+        this.tamanhoLote = tamanhoLote;
+        this.habilitada = habilitada;
+        this.simulacao = simulacao;
+        this.carencia = carencia;
+        this.removidos = Counter.builder("cnd.armazenamento.orfaos.removidos")
+                .description("Blobs órfãos removidos da camada quente")
+                .register(meterRegistry);
+        this.bytesRecuperados = Counter.builder("cnd.armazenamento.orfaos.bytes-recuperados")
+                .description("Soma do tamanho em disco dos blobs órfãos removidos")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("cnd.armazenamento.orfaos.encontrados", orfaosEncontrados, AtomicLong::get)
+                .description("Blobs órfãos encontrados na camada quente na última execução (também em simulação)")
+                .register(meterRegistry);
+        Gauge.builder("cnd.armazenamento.orfaos.bytes", bytesOrfaos, AtomicLong::get)
+                .description("Tamanho dos blobs órfãos encontrados na camada quente na última execução")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("cnd.armazenamento.orfaos.arquivo-morto", orfaosArquivoMorto, AtomicLong::get)
+                .description("Blobs do arquivo morto sem resultado que os referencie (não removíveis dos segmentos)")
+                .register(meterRegistry);
+        Gauge.builder("cnd.armazenamento.orfaos.arquivo-morto.bytes", bytesOrfaosArquivoMorto, AtomicLong::get)
+                .description("Espaço ocupado nos segmentos pelos blobs órfãos do arquivo morto")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        if (habilitada && !simulacao) {
+            logger.warn("Limpeza de blobs órfãos fora do modo simulação: blobs sem referência há mais de {} serão removidos.", carencia);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cnd.armazenamento.orfaos.intervalo:PT6H}")
+    public void limparBlobsOrfaos() {
+        if (!habilitada) {
+            return;
+        }
+        long encontrados = limpar(Instant.now().minus(carencia));
+        LoteBlobs arquivoMorto = manutencaoBlobsOrfaosService.contarOrfaosArquivoMorto(tamanhoLote);
+        orfaosArquivoMorto.set(arquivoMorto.getQuantidade());
+        bytesOrfaosArquivoMorto.set(arquivoMorto.getBytes());
+        if (encontrados > 0) {
+            logger.info(simulacao
+                            ? "Blobs órfãos (simulação, nada removido): {} encontrados, {} bytes."
+                            : "Blobs órfãos: {} removidos, {} bytes recuperados.",
+                    encontrados, bytesOrfaos.get());
+        }
+        if (arquivoMorto.getQuantidade() > 0) {
+            logger.info("Arquivo morto: {} blobs sem referência ocupando {} bytes nos segmentos.",
+                    arquivoMorto.getQuantidade(), arquivoMorto.getBytes());
+        }
+    }
+
+    // Uma passada completa pela camada quente; retorna quantos órfãos foram encontrados
+    long limpar(Instant modificadosAntesDe) {
+        long encontrados = 0;
+        long bytes = 0;
+        try (Stream<String> candidatos = manutencaoBlobsOrfaosService.candidatosCamadaQuente(modificadosAntesDe)) {
+            Iterator<String> it = candidatos.iterator();
+            while (it.hasNext()) {
+                List<String> lote = new ArrayList<>(tamanhoLote);
+                while (it.hasNext() && lote.size() < tamanhoLote) {
+                    lote.add(it.next());
+                }
+                LoteBlobs resultado = manutencaoBlobsOrfaosService.limparOrfaosCamadaQuente(lote, modificadosAntesDe, simulacao);
+                encontrados += resultado.getQuantidade();
+                bytes += resultado.getBytes();
+                if (!simulacao) {
+                    removidos.increment(resultado.getQuantidade());
+                    bytesRecuperados.increment(resultado.getBytes());
+                }
+            }
+        }
+        orfaosEncontrados.set(encontrados);
+        bytesOrfaos.set(bytes);
+        return encontrados;
+    }
+}
@@ -0,0 +1,106 @@
+package br.com.sisaudcon.projeto.SAAMCND.scheduler;
+
+import br.com.sisaudcon.projeto.SAAMCND.service.ManutencaoLargeObjectsService;
+import br.com.sisaudcon.projeto.SAAMCND.service.ManutencaoLargeObjectsService.LoteLargeObjects;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limpeza periódica dos large objects órfãos do PostgreSQL (ver {@link ManutencaoLargeObjectsService}).
+ * Percorre pg_largeobject em lotes de oids em ordem crescente. Em modo simulação (o padrão) só conta e informa
+ * quanto seria recuperado, sem remover nada: a remoção exige cnd.lob.manutencao.simulacao=false explícito, depois
+ * de conferir o relatório da simulação. Opcionalmente converte a coluna legada para bytea quando ela já estiver vazia.
+ */
+@Component
+public class ManutencaoLargeObjectsScheduledTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(ManutencaoLargeObjectsScheduledTask.class);
+
+    private final ManutencaoLargeObjectsService manutencaoLargeObjectsService;
+    private final int tamanhoLote;
+    private final boolean habilitada;
+    private final boolean simulacao;
+    private final boolean converterParaBytea;
+    private final Counter removidos;
+    private final Counter bytesRecuperados;
+    private final AtomicLong orfaosEncontrados = new AtomicLong();
+    private final AtomicLong bytesOrfaos = new AtomicLong();
+
+    @Autowired
+    public ManutencaoLargeObjectsScheduledTask(ManutencaoLargeObjectsService manutencaoLargeObjectsService,
+                                               MeterRegistry meterRegistry,
+                                               @Value("${cnd.lob.manutencao.lote.tamanho:500}") int tamanhoLote,
+                                               @Value("${cnd.lob.manutencao.habilitada:true}") boolean habilitada,
+                                               @Value("${cnd.lob.manutencao.simulacao:true}") boolean simulacao,
+                                               @Value("${cnd.lob.manutencao.converter-para-bytea:false}") boolean converterParaBytea) {
+        this.manutencaoLargeObjectsService = manutencaoLargeObjectsService;
+        this.tamanhoLote = tamanhoLote;
+        this.habilitada = habilitada;
+        this.simulacao = simulacao;
+        this.converterParaBytea = converterParaBytea;
+        this.removidos = Counter.builder("cnd.lob.orfaos.removidos")
+                .description("Large objects órfãos removidos de pg_largeobject")
+                .register(meterRegistry);
+        this.bytesRecuperados = Counter.builder("cnd.lob.orfaos.bytes-recuperados")
+                .description("Soma do tamanho dos large objects órfãos removidos")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("cnd.lob.orfaos.encontrados", orfaosEncontrados, AtomicLong::get)
+                .description("Large objects órfãos encontrados na última execução (também em simulação)")
+                .register(meterRegistry);
+        Gauge.builder("cnd.lob.orfaos.bytes", bytesOrfaos, AtomicLong::get)
+                .description("Tamanho dos large objects órfãos encontrados na última execução")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        if (habilitada && !simulacao) {
+            logger.warn("Limpeza de large objects fora do modo simulação: órfãos de pg_largeobject serão removidos (lo_unlink).");
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cnd.lob.manutencao.intervalo:PT6H}")
+    public void limparLargeObjectsOrfaos() {
+        if (!habilitada || !manutencaoLargeObjectsService.disponivel()) {
+            return;
+        }
+        if (converterParaBytea && !simulacao) {
+            manutencaoLargeObjectsService.converterColunaParaBytea();
+        }
+        long encontrados = limpar();
+        if (encontrados > 0) {
+            logger.info(simulacao
+                            ? "Large objects órfãos (simulação, nada removido): {} encontrados, {} bytes."
+                            : "Large objects órfãos: {} removidos, {} bytes recuperados.",
+                    encontrados, bytesOrfaos.get());
+        }
+    }
+
+    // Uma passada completa por pg_largeobject; retorna quantos órfãos foram encontrados
+    long limpar() {
+        long encontrados = 0;
+        long bytes = 0;
+        long ultimoOid = 0;
+        LoteLargeObjects lote;
+        do {
+            lote = manutencaoLargeObjectsService.limparOrfaos(ultimoOid, tamanhoLote, simulacao);
+            encontrados += lote.getQuantidade();
+            bytes += lote.getBytes();
+            if (!simulacao) {
+                removidos.increment(lote.getQuantidade());
+                bytesRecuperados.increment(lote.getBytes());
+            }
+            ultimoOid = lote.getUltimoOid();
+        } while (lote.getQuantidade() == tamanhoLote);
+        orfaosEncontrados.set(encontrados);
+        bytesOrfaos.set(bytes);
+        return encontrados;
+    }
+}
@@ -0,0 +1,100 @@
+package br.com.sisaudcon.projeto.SAAMCND.scheduler;
+
+import br.com.sisaudcon.projeto.SAAMCND.service.CndResultadoService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Migração em segundo plano dos PDFs ainda gravados inline (coluna 'arquivo', @Lob) para o BlobStore.
+ * Percorre os registros pendentes em lotes de IDs em ordem crescente, migrando cada um na sua própria
+ * transação; uma falha num item é contada e o item fica para a próxima execução. Como os registros migrados
+ * saem do critério de busca, uma execução interrompida (ou um nó reiniciado) recomeça de onde parou, e
+ * duas réplicas migrando ao mesmo tempo não corrompem nada: a troca inline → referência é condicional.
+ * Desligada por padrão: cada item migrado perde a cópia inline do banco, então ela só deve ser ligada com o
+ * diretório do BlobStore num volume persistente e compartilhado por todas as réplicas.
+ */
+@Component
+public class MigracaoArquivosScheduledTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(MigracaoArquivosScheduledTask.class);
+
+    private final CndResultadoService cndResultadoService;
+    private final int tamanhoLote;
+    private final boolean habilitada;
+    private final Counter arquivosMigrados;
+    private final Counter bytesMigrados;
+    private final Counter falhas;
+    private final AtomicLong pendentes = new AtomicLong();
+
+    @Autowired
+    public MigracaoArquivosScheduledTask(CndResultadoService cndResultadoService,
+                                         MeterRegistry meterRegistry,
+                                         @Value("${cnd.armazenamento.migracao.lote.tamanho:50}") int tamanhoLote,
+                                         @Value("${cnd.armazenamento.migracao.habilitada:false}") boolean habilitada) {
+        this.cndResultadoService = cndResultadoService;
+        this.tamanhoLote = tamanhoLote;
+        this.habilitada = habilitada;
+        this.arquivosMigrados = Counter.builder("cnd.armazenamento.migracao.arquivos")
+                .description("PDFs movidos da coluna inline para o BlobStore")
+                .register(meterRegistry);
+        this.bytesMigrados = Counter.builder("cnd.armazenamento.migracao.bytes")
+                .description("Bytes de PDF movidos da coluna inline para o BlobStore")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.falhas = Counter.builder("cnd.armazenamento.migracao.falhas")
+                .description("Registros cuja migração falhou (ficam para a próxima execução)")
+                .register(meterRegistry);
+        Gauge.builder("cnd.armazenamento.migracao.pendentes", pendentes, AtomicLong::get)
+                .description("PDFs ainda inline ao final da última execução da migração")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${cnd.armazenamento.migracao.intervalo:PT5M}")
+    public void migrarArquivosInline() {
+        if (!habilitada) {
+            return;
+        }
+        long migrados = migrar();
+        if (migrados > 0) {
+            logger.info("Migração de PDFs para o BlobStore: {} arquivos migrados, {} pendentes.", migrados, pendentes.get());
+        }
+    }
+
+    // Uma passada completa pelos pendentes; retorna quantos registros foram migrados
+    long migrar() {
+        long migrados = 0;
+        Long ultimoId = 0L;
+        List<Long> lote = cndResultadoService.idsComArquivoInline(ultimoId, tamanhoLote);
+        while (!lote.isEmpty()) {
+            for (Long id : lote) {
+                try {
+                    long tamanho = cndResultadoService.migrarArquivoInline(id);
+                    if (tamanho > 0) {
+                        migrados++;
+                        arquivosMigrados.increment();
+                        bytesMigrados.increment(tamanho);
+                    }
+                } catch (RuntimeException e) {
+                    falhas.increment();
+                    logger.error("Falha ao migrar o PDF da CND Resultado ID: {} para o BlobStore: {}", id, e.getMessage(), e);
+                }
+                ultimoId = id;
+            }
+            lote = lote.size() < tamanhoLote
+                    ? List.of()
+                    : cndResultadoService.idsComArquivoInline(ultimoId, tamanhoLote);
+        }
+        pendentes.set(cndResultadoService.contarArquivosInline());
+        return migrados;
+    }
+}
@@ -1,206 +1,274 @@
 package br.com.sisaudcon.projeto.SAAMCND.scheduler;
 
-import br.com.sisaudcon.projeto.SAAMCND.model.CndResultado;
 import br.com.sisaudcon.projeto.SAAMCND.service.CndResultadoService;
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.text.PDFTextStripper;
+import br.com.sisaudcon.projeto.SAAMCND.service.ResultadoPendenteExtracaoEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
 import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
-
-import java.io.ByteArrayInputStream;
-import java.io.IOException;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
-import java.util.Base64;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
 
+/**
+ * Extração dos dados dos PDFs pendentes (PEC-4963) usando um pool limitado de workers. Resultados novos
+ * chegam aos workers por evento, logo após o commit que os gravou
+ * ({@link ResultadoPendenteExtracaoEvent}); a tarefa agendada é só uma varredura de baixa frequência para
+ * o que escapou do evento (fila cheia, rollback, nó reiniciado, lease vencido). O backlog é consumido em
+ * lotes de IDs reivindicados com lease (FOR UPDATE SKIP LOCKED), de modo que várias réplicas da API dividem
+ * o trabalho sem processar o mesmo PDF duas vezes; se um nó cair, os registros voltam ao backlog quando o
+ * lease vence. Cada worker carrega o PDF do seu item e o processa em transação própria pelo
+ * {@link ExtracaoPdfProcessor}: o heap ocupado depende do tamanho do lote e do número de workers, não do
+ * tamanho do backlog. Com a fila de workers cheia, a própria thread do agendador processa o item
+ * (backpressure em vez de descarte); já o evento é descartado, para não prender a thread da requisição que
+ * gravou o resultado, e o item fica para a varredura.
+ */
 @Component
 public class PdfExtractionScheduledTask {
 
     private static final Logger logger = LoggerFactory.getLogger(PdfExtractionScheduledTask.class);
-    // Formatador para datas como dd/MM/yyyy ou yyyy-MM-dd
-    private static final DateTimeFormatter DATE_FORMATTER_BR = DateTimeFormatter.ofPattern("dd/MM/yyyy");
-    private static final DateTimeFormatter DATE_FORMATTER_ISO = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
+    // Item cuja transação falhou (ex: erro ao gravar); permanece pendente para a próxima execução
+    static final String STATUS_FALHA_TRANSACAO = "FALHA_TRANSACAO";
 
     private final CndResultadoService cndResultadoService;
+    private final ExtracaoPdfProcessor extracaoPdfProcessor;
+    private final MeterRegistry meterRegistry;
+    private final ThreadPoolTaskExecutor workers;
+    private final int tamanhoLote;
+    private final String idNo;
+    private final Duration duracaoLease;
+    private final boolean extracaoPorEvento;
+    private final Timer duracaoExecucao;
+    private final Counter eventosDescartados;
+    private final AtomicLong backlog = new AtomicLong();
+    private volatile RelatorioExtracao ultimaExecucao;
 
     @Autowired
-    public PdfExtractionScheduledTask(CndResultadoService cndResultadoService) {
+    public PdfExtractionScheduledTask(CndResultadoService cndResultadoService,
+                                      ExtracaoPdfProcessor extracaoPdfProcessor,
+                                      MeterRegistry meterRegistry,
+                                      @Value("${cnd.extracao.workers:4}") int quantidadeWorkers,
+                                      @Value("${cnd.extracao.fila.capacidade:100}") int capacidadeFila,
+                                      @Value("${cnd.extracao.lote.tamanho:100}") int tamanhoLote,
+                                      @Value("${cnd.extracao.lease.dono:}") String idNo,
+                                      @Value("${cnd.extracao.lease.duracao:PT10M}") Duration duracaoLease,
+                                      @Value("${cnd.extracao.evento.habilitado:true}") boolean extracaoPorEvento) {
         this.cndResultadoService = cndResultadoService;
+        this.extracaoPdfProcessor = extracaoPdfProcessor;
+        this.meterRegistry = meterRegistry;
+        this.tamanhoLote = tamanhoLote;
+        this.idNo = idNo == null || idNo.trim().isEmpty() ? gerarIdNo() : idNo.trim();
+        this.duracaoLease = duracaoLease;
+        this.extracaoPorEvento = extracaoPorEvento;
+
+        this.workers = new ThreadPoolTaskExecutor();
+        this.workers.setCorePoolSize(quantidadeWorkers);
+        this.workers.setMaxPoolSize(quantidadeWorkers);
+        this.workers.setQueueCapacity(capacidadeFila);
+        this.workers.setThreadNamePrefix("extracao-pdf-");
+        // Rejeição tratada por quem submete: a varredura executa o item na própria thread, o evento é descartado
+        this.workers.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        this.workers.setWaitForTasksToCompleteOnShutdown(true);
+        this.workers.setAwaitTerminationSeconds(30);
+        this.workers.initialize();
+
+        this.duracaoExecucao = Timer.builder("cnd.extracao.execucao")
+                .description("Duração de cada execução da extração de PDFs")
+                .register(meterRegistry);
+        Gauge.builder("cnd.extracao.backlog", backlog, AtomicLong::get)
+                .description("Resultados pendentes de extração ao final da última execução")
+                .register(meterRegistry);
+        Gauge.builder("cnd.extracao.vazao", this, t -> t.ultimaExecucao != null ? t.ultimaExecucao.getVazao() : 0.0)
+                .description("Itens extraídos por segundo na última execução")
+                .register(meterRegistry);
+        Gauge.builder("cnd.extracao.workers.ativos", workers, ThreadPoolTaskExecutor::getActiveCount)
+                .description("Workers de extração ocupados")
+                .register(meterRegistry);
+        this.eventosDescartados = Counter.builder("cnd.extracao.eventos.descartados")
+                .description("Eventos de extração descartados com a fila de workers cheia (ficam para a varredura)")
+                .register(meterRegistry);
+        logger.info("Extração de PDFs no nó '{}' com {} workers, fila de {} itens, lotes de {} IDs e lease de {}.",
+                this.idNo, quantidadeWorkers, capacidadeFila, tamanhoLote, duracaoLease);
+    }
+
+    /**
+     * Extração disparada pela gravação de um resultado pendente, após o commit (o worker precisa enxergar
+     * a linha gravada). O item é reivindicado individualmente, com o mesmo lease da varredura, e processado
+     * por um worker; a thread que publicou o evento não espera a extração.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void aoGravarResultadoPendente(ResultadoPendenteExtracaoEvent evento) {
+        if (!extracaoPorEvento || evento.getIdResultado() == null) {
+            return;
+        }
+        try {
+            workers.execute(() -> processarEvento(evento.getIdResultado()));
+        } catch (TaskRejectedException e) {
+            eventosDescartados.increment();
+            logger.info("Fila de extração cheia; CND Resultado ID: {} fica para a próxima varredura.", evento.getIdResultado());
+        }
     }
 
-    // Cron configurado em application.properties: cnd.resultado.scheduled.cron=0 */15 * * * *
+    private void processarEvento(Long idResultado) {
+        try {
+            if (!cndResultadoService.reivindicarResultadoParaExtracao(idResultado, idNo, duracaoLease)) {
+                logger.debug("CND Resultado ID: {} já reivindicado ou processado; evento ignorado.", idResultado);
+                return;
+            }
+        } catch (RuntimeException e) {
+            logger.error("Falha ao reivindicar a CND Resultado ID: {} para extração. O item fica para a varredura: {}",
+                    idResultado, e.getMessage(), e);
+            return;
+        }
+        processarItem(idResultado, ExtracaoPdfProcessor.ORIGEM_EVENTO, null, null);
+    }
+
+    // Varredura de baixa frequência (cnd.resultado.scheduled.cron em application.properties): os itens
+    // novos já são extraídos por evento, aqui só entra o que ficou para trás.
     @Scheduled(cron = "${cnd.resultado.scheduled.cron}")
-    @Transactional // Importante para operações de atualização no banco dentro do scheduled task
     public void processarResultadosParaExtracaoDePdf() {
-        logger.info("Iniciando tarefa agendada de extração de dados de PDF...");
-        // PEC-4963: status = 'concluido' e situacao IS NULL.
-        // No CndResultadoService, findResultadosParaExtracao busca por statusProcessamento = "CONSULTA_REALIZADA" e situacao IS NULL.
-        List<CndResultado> resultadosParaProcessar = cndResultadoService.findResultadosParaExtracao();
+        logger.info("Iniciando varredura agendada de extração de dados de PDF...");
+        // PEC-4963: status = 'concluido' e situacao IS NULL (statusProcessamento = "CONSULTA_REALIZADA").
+        long backlogInicial = cndResultadoService.contarResultadosParaExtracao();
 
-        if (resultadosParaProcessar.isEmpty()) {
+        if (backlogInicial == 0) {
             logger.info("Nenhum resultado de CND pendente de extração de PDF encontrado.");
+            backlog.set(0);
             return;
         }
 
-        logger.info("{} resultados de CND encontrados para extração de dados do PDF.", resultadosParaProcessar.size());
-
-        for (CndResultado resultado : resultadosParaProcessar) {
-            logger.info("Processando extração para CND Resultado ID: {}", resultado.getId());
-            if (resultado.getArquivo() == null || resultado.getArquivo().length == 0) {
-                logger.warn("Arquivo PDF não encontrado para CND Resultado ID: {}. Pulando.", resultado.getId());
-                resultado.setStatusProcessamento("ERRO_EXTRACAO_PDF_AUSENTE");
-                resultado.setMensagemErroProcessamento("Arquivo PDF (conteúdo binário) está vazio ou nulo.");
-                resultado.setLinha("UPDATE-PEC-4963-ERRO_PDF_AUSENTE");
-                cndResultadoService.salvarResultado(resultado);
-                continue;
-            }
+        logger.info("{} resultados de CND encontrados para extração de dados do PDF.", backlogInicial);
+        RelatorioExtracao relatorio = processarBacklog(backlogInicial);
+        logger.info("Tarefa agendada de extração de dados de PDF finalizada: {}", relatorio);
+    }
 
-            try {
-                byte[] pdfBytes = resultado.getArquivo(); // Arquivo já é byte[]
-                String textoDoPdf;
-                try (PDDocument document = PDDocument.load(new ByteArrayInputStream(pdfBytes))) {
-                    if (document.isEncrypted()) {
-                        logger.warn("PDF da CND Resultado ID: {} está criptografado. Não é possível extrair texto.", resultado.getId());
-                        resultado.setStatusProcessamento("ERRO_EXTRACAO_PDF_CRIPTOGRAFADO");
-                        resultado.setMensagemErroProcessamento("PDF está criptografado.");
-                        resultado.setLinha("UPDATE-PEC-4963-ERRO_PDF_CRIPTOGRAFADO");
-                        cndResultadoService.salvarResultado(resultado);
-                        continue;
-                    }
-                    PDFTextStripper stripper = new PDFTextStripper();
-                    textoDoPdf = stripper.getText(document);
-                }
-
-                // Simulação da extração de dados do textoDoPdf
-                // Em um cenário real, seriam usadas Regex mais robustas ou análise posicional.
-                boolean dadosExtraidos = extrairEPreencherDados(resultado, textoDoPdf);
-
-                if (dadosExtraidos) {
-                    resultado.setStatusProcessamento("EXTRACAO_CONCLUIDA");
-                    resultado.setLinha("UPDATE-PEC-4963-SUCESSO");
-                    logger.info("Extração de dados do PDF para CND Resultado ID: {} concluída com sucesso.", resultado.getId());
-                } else {
-                    // Se extrairEPreencherDados retornar false, significa que não encontrou os padrões esperados.
-                    resultado.setStatusProcessamento("ERRO_EXTRACAO_DADOS_NAO_ENCONTRADOS");
-                    resultado.setMensagemErroProcessamento("Não foi possível localizar todos os dados esperados no texto do PDF.");
-                    resultado.setLinha("UPDATE-PEC-4963-ERRO_DADOS_NAO_ENCONTRADOS");
-                    logger.warn("Não foi possível extrair todos os dados do PDF para CND Resultado ID: {}.", resultado.getId());
-                }
-                cndResultadoService.salvarResultado(resultado);
-
-            } catch (IOException e) {
-                logger.error("Erro de IO ao ler PDF da CND Resultado ID: {}: {}", resultado.getId(), e.getMessage());
-                resultado.setStatusProcessamento("ERRO_EXTRACAO_IO");
-                resultado.setMensagemErroProcessamento("Erro ao ler o conteúdo do PDF: " + e.getMessage());
-                resultado.setLinha("UPDATE-PEC-4963-ERRO_IO");
-                cndResultadoService.salvarResultado(resultado);
-            } catch (IllegalArgumentException e) {
-                logger.error("Erro ao decodificar Base64 do PDF para CND Resultado ID: {}: {}", resultado.getId(), e.getMessage());
-                resultado.setStatusProcessamento("ERRO_EXTRACAO_BASE64");
-                resultado.setMensagemErroProcessamento("Arquivo PDF (Base64) inválido: " + e.getMessage());
-                resultado.setLinha("UPDATE-PEC-4963-ERRO_BASE64");
-                cndResultadoService.salvarResultado(resultado);
-            } catch (Exception e) { // Pega qualquer outra exceção inesperada
-                 logger.error("Erro inesperado ao processar PDF da CND Resultado ID: {}: {}", resultado.getId(), e.getMessage(), e);
-                resultado.setStatusProcessamento("ERRO_EXTRACAO_INESPERADO");
-                resultado.setMensagemErroProcessamento("Erro inesperado durante a extração: " + e.getMessage());
-                resultado.setLinha("UPDATE-PEC-4963-ERRO_INESPERADO");
-                cndResultadoService.salvarResultado(resultado);
+    RelatorioExtracao processarBacklog(long backlogInicial) {
+        long inicio = System.nanoTime();
+        Map<String, LongAdder> itensPorStatus = new ConcurrentHashMap<>();
+        LongAdder acertosCache = new LongAdder();
+
+        // Itens com falha de transação mantêm o lease deste nó e só voltam ao backlog quando ele vence
+        List<Long> lote = cndResultadoService.reivindicarParaExtracao(idNo, tamanhoLote, duracaoLease);
+        while (!lote.isEmpty()) {
+            List<Future<?>> pendentes = new ArrayList<>(lote.size());
+            for (Long idResultado : lote) {
+                pendentes.add(submeterOuExecutar(() -> processarItem(idResultado, ExtracaoPdfProcessor.ORIGEM_VARREDURA, itensPorStatus, acertosCache)));
             }
+            if (!aguardar(pendentes)) {
+                break;
+            }
+            lote = lote.size() < tamanhoLote
+                    ? Collections.emptyList()
+                    : cndResultadoService.reivindicarParaExtracao(idNo, tamanhoLote, duracaoLease);
         }
-        logger.info("Tarefa agendada de extração de dados de PDF finalizada.");
+
+        Duration duracao = Duration.ofNanos(System.nanoTime() - inicio);
+        duracaoExecucao.record(duracao);
+        long backlogRestante = cndResultadoService.contarResultadosParaExtracao();
+        backlog.set(backlogRestante);
+
+        RelatorioExtracao relatorio = new RelatorioExtracao(backlogInicial, backlogRestante,
+                itensPorStatus.entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey, e -> e.getValue().sum())),
+                acertosCache.sum(), duracao);
+        ultimaExecucao = relatorio;
+        return relatorio;
     }
 
-    private boolean extrairEPreencherDados(CndResultado resultado, String textoPdf) {
-        // Mock de extração - Em um cenário real, estas regex seriam muito mais complexas e testadas.
-        // O texto do PDF simulado pelo CndFederalService é:
-        // "Este é um PDF mockado para CND Federal Negativa do CNPJ: ..."
-        // "Situação da Certidão: Negativa de Débitos"
-        // "Data de Emissão: DD/MM/YYYY"
-        // "Data de Validade: DD/MM/YYYY"
-        // "Código de Controle: XXXXXX"
-
-        boolean situacaoOk = false;
-        boolean dataEmissaoOk = false;
-        boolean dataValidadeOk = false;
-        boolean codigoControleOk = false;
-
-        // Situação
-        if (textoPdf.contains("Negativa de Débitos") || textoPdf.toLowerCase().contains("negativa de débitos")) {
-            resultado.setSituacao("Negativa de Débitos");
-            situacaoOk = true;
-        } else if (textoPdf.contains("Positiva com Efeitos de Negativa") || textoPdf.toLowerCase().contains("positiva com efeitos de negativa")) {
-            resultado.setSituacao("Positiva com Efeitos de Negativa");
-            situacaoOk = true;
-        } else if (textoPdf.contains("Positiva") || textoPdf.toLowerCase().contains("positiva")) { // Genérico
-            resultado.setSituacao("Positiva");
-            situacaoOk = true;
+    // Fila cheia: a thread da varredura processa o item (backpressure)
+    private Future<?> submeterOuExecutar(Runnable tarefa) {
+        try {
+            return workers.submit(tarefa);
+        } catch (TaskRejectedException e) {
+            tarefa.run();
+            return CompletableFuture.completedFuture(null);
         }
-        // Se o CndFederalService já preencheu a situação, podemos usar isso.
-        // Mas a PEC-4963 sugere que a extração preenche. Se o CndFederalService já preencheu, este passo pode ser redundante ou apenas confirmatório.
-        // Para o mock, vamos permitir que a extração sobrescreva se encontrar algo.
-
+    }
 
-        // Data de Emissão (Ex: "Data de Emissão: 25/12/2023" ou "Emitida em 2023-12-25")
-        Pattern pDataEmissao = Pattern.compile("(?:Data de Emissão|Emitida em)[:\\s]*(\\d{2}/\\d{2}/\\d{4}|\\d{4}-\\d{2}-\\d{2})", Pattern.CASE_INSENSITIVE);
-        Matcher mDataEmissao = pDataEmissao.matcher(textoPdf);
-        if (mDataEmissao.find()) {
-            try {
-                resultado.setDataEmissao(parseDate(mDataEmissao.group(1)));
-                dataEmissaoOk = true;
-            } catch (DateTimeParseException e) {
-                logger.warn("Formato de data de emissão inválido no PDF (ID {}): {}", resultado.getId(), mDataEmissao.group(1));
+    // itensPorStatus e acertosCache são nulos na extração por evento, que não tem relatório de execução
+    private void processarItem(Long idResultado, String origem, Map<String, LongAdder> itensPorStatus, LongAdder acertosCache) {
+        String status;
+        try {
+            ExtracaoPdfProcessor.Desfecho desfecho = extracaoPdfProcessor.processar(idResultado, idNo, origem);
+            status = desfecho.getStatus();
+            if (desfecho.isDeCache() && acertosCache != null) {
+                acertosCache.increment();
             }
+        } catch (RuntimeException e) {
+            logger.error("Falha ao gravar a extração da CND Resultado ID: {}. O item permanece pendente: {}",
+                    idResultado, e.getMessage(), e);
+            status = STATUS_FALHA_TRANSACAO;
+        }
+        if (itensPorStatus != null) {
+            itensPorStatus.computeIfAbsent(status, s -> new LongAdder()).increment();
         }
+        meterRegistry.counter("cnd.extracao.itens", "status", status).increment();
+    }
 
-        // Data de Validade (Ex: "Válida até: 25/06/2024" ou "Validade: 2024-06-25")
-        Pattern pDataValidade = Pattern.compile("(?:Válida até|Validade)[:\\s]*(\\d{2}/\\d{2}/\\d{4}|\\d{4}-\\d{2}-\\d{2})", Pattern.CASE_INSENSITIVE);
-        Matcher mDataValidade = pDataValidade.matcher(textoPdf);
-        if (mDataValidade.find()) {
-             try {
-                resultado.setDataValidade(parseDate(mDataValidade.group(1)));
-                dataValidadeOk = true;
-            } catch (DateTimeParseException e) {
-                logger.warn("Formato de data de validade inválido no PDF (ID {}): {}", resultado.getId(), mDataValidade.group(1));
+    // Retorna false se a execução foi interrompida
+    private boolean aguardar(List<Future<?>> pendentes) {
+        for (Future<?> pendente : pendentes) {
+            try {
+                pendente.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warn("Extração interrompida; itens ainda na fila serão retomados na próxima execução.");
+                pendentes.forEach(p -> p.cancel(false));
+                return false;
+            } catch (ExecutionException e) {
+                // processarItem já trata as falhas de cada item
+                logger.error("Erro inesperado em worker de extração: {}", e.getMessage(), e);
             }
         }
+        return true;
+    }
 
-        // Código de Controle (Ex: "Código de Controle: ABC123XYZ")
-        Pattern pCodigoControle = Pattern.compile("(?:Código de Controle|Controle)[:\\s]*([A-Za-z0-9.-]+)", Pattern.CASE_INSENSITIVE);
-        Matcher mCodigoControle = pCodigoControle.matcher(textoPdf);
-        if (mCodigoControle.find()) {
-            resultado.setCodigoControle(mCodigoControle.group(1).trim());
-            codigoControleOk = true;
+    // hostname + sufixo aleatório: único mesmo com várias instâncias no mesmo host
+    private static String gerarIdNo() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "no";
         }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
 
-        // Se o CndFederalService já preencheu com dados mockados, e o PDF simulado pelo CndFederalService
-        // não tiver esses padrões exatos, a extração pode falhar.
-        // Para o propósito deste mock, vamos assumir que o PDF gerado pelo CndFederalService
-        // contém texto que pode ser minimamente parseado por estas regex simples.
-        // Se o CndFederalService já tiver preenchido esses campos, esta etapa de extração pode ser opcional
-        // ou apenas para confirmar/complementar.
-        // Pela PEC-4963, a extração é quem preenche esses campos.
-
-        // Para o mock, vamos considerar sucesso se pelo menos a situação foi identificada.
-        // Em um caso real, todos os campos seriam importantes.
-        return situacaoOk && dataEmissaoOk && dataValidadeOk && codigoControleOk;
+    public String getIdNo() {
+        return idNo;
     }
 
-    private LocalDate parseDate(String dateString) throws DateTimeParseException {
-        if (dateString == null) return null;
-        try {
-            return LocalDate.parse(dateString, DATE_FORMATTER_ISO);
-        } catch (DateTimeParseException e) {
-            return LocalDate.parse(dateString, DATE_FORMATTER_BR);
-        }
+    public RelatorioExtracao getUltimaExecucao() {
+        return ultimaExecucao;
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        workers.shutdown();
     }
 }
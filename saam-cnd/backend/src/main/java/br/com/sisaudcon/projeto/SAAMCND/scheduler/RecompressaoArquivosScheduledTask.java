@@ -0,0 +1,108 @@
+package br.com.sisaudcon.projeto.SAAMCND.scheduler;
+
+import br.com.sisaudcon.projeto.SAAMCND.armazenamento.BlobArmazenado;
+import br.com.sisaudcon.projeto.SAAMCND.armazenamento.CodecArmazenamento;
+import br.com.sisaudcon.projeto.SAAMCND.service.CndResultadoService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Recompressão em segundo plano dos blobs gravados sem compressão avaliada (anteriores à compressão ou
+ * gravados com ela desligada), com o codec de cnd.armazenamento.compressao.codec. Mesmo esquema da
+ * {@link MigracaoArquivosScheduledTask}: lotes de IDs em ordem crescente, um item por transação, falhas
+ * contadas e deixadas para a próxima execução. Blobs que não diminuem ficam como estão, com codec 'none',
+ * e não voltam a ser avaliados.
+ */
+@Component
+public class RecompressaoArquivosScheduledTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecompressaoArquivosScheduledTask.class);
+
+    private final CndResultadoService cndResultadoService;
+    private final int tamanhoLote;
+    private final boolean habilitada;
+    private final Counter arquivosComprimidos;
+    private final Counter arquivosMantidos;
+    private final Counter bytesEconomizados;
+    private final Counter falhas;
+    private final AtomicLong pendentes = new AtomicLong();
+
+    @Autowired
+    public RecompressaoArquivosScheduledTask(CndResultadoService cndResultadoService,
+                                             MeterRegistry meterRegistry,
+                                             @Value("${cnd.armazenamento.compressao.codec:none}") String codec,
+                                             @Value("${cnd.armazenamento.compressao.recompressao.lote.tamanho:50}") int tamanhoLote,
+                                             @Value("${cnd.armazenamento.compressao.recompressao.habilitada:true}") boolean habilitada) {
+        this.cndResultadoService = cndResultadoService;
+        this.tamanhoLote = tamanhoLote;
+        // Sem codec configurado não há o que recomprimir
+        this.habilitada = habilitada && CodecArmazenamento.porId(codec) != CodecArmazenamento.NENHUM;
+        this.arquivosComprimidos = Counter.builder("cnd.armazenamento.compressao.arquivos")
+                .description("Blobs existentes recomprimidos com o codec configurado")
+                .register(meterRegistry);
+        this.arquivosMantidos = Counter.builder("cnd.armazenamento.compressao.mantidos")
+                .description("Blobs avaliados que não diminuíam com a compressão e ficaram como estavam")
+                .register(meterRegistry);
+        this.bytesEconomizados = Counter.builder("cnd.armazenamento.compressao.bytes-economizados")
+                .description("Diferença entre o tamanho original e o gravado dos blobs recomprimidos")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.falhas = Counter.builder("cnd.armazenamento.compressao.falhas")
+                .description("Registros cuja recompressão falhou (ficam para a próxima execução)")
+                .register(meterRegistry);
+        Gauge.builder("cnd.armazenamento.compressao.pendentes", pendentes, AtomicLong::get)
+                .description("Resultados com blob ainda sem compressão avaliada ao final da última execução")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${cnd.armazenamento.compressao.recompressao.intervalo:PT15M}")
+    public void recomprimirArquivos() {
+        if (!habilitada) {
+            return;
+        }
+        long comprimidos = recomprimir();
+        if (comprimidos > 0) {
+            logger.info("Recompressão de PDFs: {} blobs comprimidos, {} pendentes.", comprimidos, pendentes.get());
+        }
+    }
+
+    // Uma passada completa pelos pendentes; retorna quantos blobs foram comprimidos
+    long recomprimir() {
+        long comprimidos = 0;
+        Long ultimoId = 0L;
+        List<Long> lote = cndResultadoService.idsComArquivoSemCodec(ultimoId, tamanhoLote);
+        while (!lote.isEmpty()) {
+            for (Long id : lote) {
+                try {
+                    BlobArmazenado blob = cndResultadoService.recomprimirArquivo(id);
+                    if (blob != null && blob.getCodec() == CodecArmazenamento.NENHUM) {
+                        arquivosMantidos.increment();
+                    } else if (blob != null && blob.getCodec() != null) {
+                        comprimidos++;
+                        arquivosComprimidos.increment();
+                        bytesEconomizados.increment(Math.max(0, blob.getTamanho() - blob.getTamanhoArmazenado()));
+                    }
+                } catch (RuntimeException e) {
+                    falhas.increment();
+                    logger.error("Falha ao recomprimir o PDF da CND Resultado ID: {}: {}", id, e.getMessage(), e);
+                }
+                ultimoId = id;
+            }
+            lote = lote.size() < tamanhoLote
+                    ? List.of()
+                    : cndResultadoService.idsComArquivoSemCodec(ultimoId, tamanhoLote);
+        }
+        pendentes.set(cndResultadoService.contarArquivosSemCodec());
+        return comprimidos;
+    }
+}
@@ -0,0 +1,65 @@
+package br.com.sisaudcon.projeto.SAAMCND.scheduler;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Resumo de uma execução da extração de PDFs: itens por status, itens reaproveitados do cache de extração,
+ * vazão e tamanho do backlog.
+ */
+public class RelatorioExtracao {
+
+    private final long backlogInicial;
+    private final long backlogRestante;
+    private final Map<String, Long> itensPorStatus;
+    private final long acertosCache;
+    private final Duration duracao;
+
+    public RelatorioExtracao(long backlogInicial, long backlogRestante, Map<String, Long> itensPorStatus,
+                             long acertosCache, Duration duracao) {
+        this.backlogInicial = backlogInicial;
+        this.backlogRestante = backlogRestante;
+        this.itensPorStatus = Collections.unmodifiableMap(new TreeMap<>(itensPorStatus));
+        this.acertosCache = acertosCache;
+        this.duracao = duracao;
+    }
+
+    public long getBacklogInicial() {
+        return backlogInicial;
+    }
+
+    public long getBacklogRestante() {
+        return backlogRestante;
+    }
+
+    public Map<String, Long> getItensPorStatus() {
+        return itensPorStatus;
+    }
+
+    /** Itens cujos dados vieram do cache de extração (PDF idêntico a outro já processado), sem PDFBox. */
+    public long getAcertosCache() {
+        return acertosCache;
+    }
+
+    public Duration getDuracao() {
+        return duracao;
+    }
+
+    public long getItensProcessados() {
+        return itensPorStatus.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    /** Itens processados por segundo na execução. */
+    public double getVazao() {
+        long millis = Math.max(1, duracao.toMillis());
+        return getItensProcessados() * 1000.0 / millis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d itens em %d ms (%.1f itens/s), %d do cache de extração, backlog %d -> %d, por status: %s",
+                getItensProcessados(), duracao.toMillis(), getVazao(), acertosCache, backlogInicial, backlogRestante, itensPorStatus);
+    }
+}
@@ -0,0 +1,66 @@
+package br.com.sisaudcon.projeto.SAAMCND.service;
+
+import org.springframework.core.io.AbstractResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * PDF de uma CND pronto para download: metadados (nome, tamanho, SHA-256) já resolvidos e conteúdo aberto
+ * só na escrita da resposta, sem carregar o arquivo inteiro em memória. Como {@code Resource} com tamanho
+ * conhecido, o Spring MVC atende requisições com {@code Range} (206) lendo apenas as faixas pedidas.
+ */
+public class ArquivoCndDownload extends AbstractResource {
+
+    // Abre o conteúdo a cada leitura (cada faixa de um Range é uma nova leitura)
+    @FunctionalInterface
+    public interface Conteudo {
+        InputStream abrir() throws IOException;
+    }
+
+    private final String nomeArquivo;
+    private final long tamanho;
+    private final String sha256;
+    private final Conteudo conteudo;
+
+    public ArquivoCndDownload(String nomeArquivo, long tamanho, String sha256, Conteudo conteudo) {
+        this.nomeArquivo = nomeArquivo;
+        this.tamanho = tamanho;
+        this.sha256 = sha256;
+        this.conteudo = conteudo;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return conteudo.abrir();
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public long contentLength() {
+        return tamanho;
+    }
+
+    @Override
+    public String getFilename() {
+        return nomeArquivo;
+    }
+
+    @Override
+    public String getDescription() {
+        return "PDF da CND [" + nomeArquivo + "]";
+    }
+
+    public String getSha256() {
+        return sha256;
+    }
+
+    // ETag forte: o conteúdo é identificado pelo SHA-256, então a mesma tag garante os mesmos bytes
+    public String getEtag() {
+        return sha256 != null ? "\"" + sha256 + "\"" : null;
+    }
+}
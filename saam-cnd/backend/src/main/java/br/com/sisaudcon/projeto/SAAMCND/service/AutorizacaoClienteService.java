@@ -0,0 +1,311 @@
+package br.com.sisaudcon.projeto.SAAMCND.service;
+
+import br.com.sisaudcon.projeto.SAAMCND.config.CircuitBreakerProperties;
+import br.com.sisaudcon.projeto.SAAMCND.exception.ClienteNaoAutorizadoException;
+import br.com.sisaudcon.projeto.SAAMCND.exception.ServicoExternoException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Camada de autorização usada pelo AuthInterceptor. Mantém um cache limitado, por X-ID-CLIENTE,
+ * dos vereditos do SAAM-CR para evitar uma chamada de rede a cada requisição em /api/**.
+ * Vereditos "autorizado", "negado" e "erro" possuem TTLs independentes.
+ * Validações concorrentes do mesmo cliente compartilham uma única chamada ao SAAM-CR.
+ * As chamadas passam por um circuit breaker: com o SAAM-CR fora do ar ou lento, a falha é
+ * imediata e, durante o período de graça, o último veredito conhecido do cliente continua sendo servido.
+ */
+@Service
+public class AutorizacaoClienteService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AutorizacaoClienteService.class);
+
+    static final String NOME_CACHE = "saamCrAutorizacao";
+
+    private final SaamCrValidationService saamCrValidationService;
+    private final boolean cacheHabilitado;
+    private final Duration ttlAutorizado;
+    private final Duration ttlNegado;
+    private final Duration ttlErro;
+    private final Cache<String, VereditoAutorizacao> cache;
+    private final Counter invalidacoesManuais;
+    private final SingleFlight<String, VereditoAutorizacao> validacoesEmAndamento = new SingleFlight<>();
+    private final MeterRegistry meterRegistry;
+    private final Ticker ticker;
+    private final CircuitBreaker circuitBreaker;
+    private final Cache<String, VereditoAutorizacao> ultimosVereditos;
+    private final Counter vereditosObsoletosServidos;
+
+    @Autowired
+    public AutorizacaoClienteService(SaamCrValidationService saamCrValidationService,
+                                     MeterRegistry meterRegistry,
+                                     CircuitBreakerProperties circuitBreakerProperties,
+                                     @Value("${saam.cr.auth.cache.enabled:true}") boolean cacheHabilitado,
+                                     @Value("${saam.cr.auth.cache.max-entries:10000}") long maxEntradas,
+                                     @Value("${saam.cr.auth.cache.ttl-autorizado:PT5M}") Duration ttlAutorizado,
+                                     @Value("${saam.cr.auth.cache.ttl-negado:PT1M}") Duration ttlNegado,
+                                     @Value("${saam.cr.auth.cache.ttl-erro:PT5S}") Duration ttlErro) {
+        this(saamCrValidationService, meterRegistry, circuitBreakerProperties, cacheHabilitado, maxEntradas, ttlAutorizado, ttlNegado, ttlErro, Ticker.systemTicker());
+    }
+
+    // Construtor com Ticker configurável, usado nos testes para controlar a expiração.
+    AutorizacaoClienteService(SaamCrValidationService saamCrValidationService,
+                              MeterRegistry meterRegistry,
+                              CircuitBreakerProperties circuitBreakerProperties,
+                              boolean cacheHabilitado,
+                              long maxEntradas,
+                              Duration ttlAutorizado,
+                              Duration ttlNegado,
+                              Duration ttlErro,
+                              Ticker ticker) {
+        this.saamCrValidationService = saamCrValidationService;
+        this.meterRegistry = meterRegistry;
+        this.ticker = ticker;
+        this.cacheHabilitado = cacheHabilitado;
+        this.ttlAutorizado = ttlAutorizado;
+        this.ttlNegado = ttlNegado;
+        this.ttlErro = ttlErro;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntradas)
+                .expireAfter(new ExpiracaoPorVeredito())
+                .ticker(ticker)
+                .executor(Runnable::run) // Manutenção síncrona: evita depender do ForkJoinPool comum
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, NOME_CACHE);
+        this.invalidacoesManuais = Counter.builder("saam.cr.autorizacao.cache.invalidacoes")
+                .description("Invalidações manuais do cache de autorização (endpoint administrativo)")
+                .register(meterRegistry);
+        FunctionCounter.builder("saam.cr.validacao.coalescidas", validacoesEmAndamento, SingleFlight::getChamadasCoalescidas)
+                .description("Validações SAAM-CR que reaproveitaram uma chamada concorrente já em andamento")
+                .register(meterRegistry);
+        this.circuitBreaker = new CircuitBreaker(SaamCrValidationService.DESTINO_HTTP, circuitBreakerProperties, ticker::read, meterRegistry);
+        // Último veredito definitivo (autorizado/negado) de cada cliente, servido enquanto o SAAM-CR estiver indisponível
+        this.ultimosVereditos = Caffeine.newBuilder()
+                .maximumSize(maxEntradas)
+                .expireAfterWrite(circuitBreakerProperties.getPeriodoGraca())
+                .ticker(ticker)
+                .executor(Runnable::run)
+                .build();
+        this.vereditosObsoletosServidos = Counter.builder("saam.cr.autorizacao.vereditos.obsoletos")
+                .description("Vereditos anteriores servidos durante indisponibilidade do SAAM-CR")
+                .register(meterRegistry);
+        logger.info("Cache de autorização SAAM-CR {} (max={}, ttlAutorizado={}, ttlNegado={}, ttlErro={})",
+                cacheHabilitado ? "habilitado" : "desabilitado", maxEntradas, ttlAutorizado, ttlNegado, ttlErro);
+    }
+
+    /**
+     * Verifica se o cliente está autorizado, usando o veredito em cache quando disponível.
+     * Mantém o mesmo contrato de {@link SaamCrValidationService#isClienteAutorizado(String)}.
+     *
+     * @param idCliente O ID do cliente (header X-ID-CLIENTE).
+     * @return true se autorizado.
+     * @throws ClienteNaoAutorizadoException se o cliente não está autorizado.
+     * @throws ServicoExternoException se houver falha na comunicação com o SAAM-CR.
+     */
+    public boolean verificarAutorizacao(String idCliente) {
+        if (!cacheHabilitado) {
+            return validacoesEmAndamento.executar(idCliente, () -> consultarSaamCr(idCliente)).aplicar();
+        }
+
+        VereditoAutorizacao veredito = cache.getIfPresent(idCliente);
+        if (veredito != null) {
+            logger.debug("Veredito de autorização do cliente {} obtido do cache: {}", idCliente, veredito.getTipo());
+            return veredito.aplicar();
+        }
+
+        return validacoesEmAndamento.executar(idCliente, () -> consultarECachear(idCliente)).aplicar();
+    }
+
+    private VereditoAutorizacao consultarECachear(String idCliente) {
+        // Outra chamada pode ter acabado de popular o cache entre o miss e a obtenção da vez de consultar.
+        // asMap().get não contabiliza hit/miss, mantendo as estatísticas fiéis às requisições.
+        VereditoAutorizacao recente = cache.asMap().get(idCliente);
+        if (recente != null) {
+            return recente;
+        }
+        VereditoAutorizacao veredito = consultarSaamCr(idCliente);
+        if (!ttlPara(veredito).isZero()) {
+            cache.put(idCliente, veredito);
+        }
+        return veredito;
+    }
+
+    private VereditoAutorizacao consultarSaamCr(String idCliente) {
+        CircuitBreaker.Permissao permissao = circuitBreaker.permitirChamada();
+        if (!permissao.isPermitida()) {
+            logger.debug("Circuito SAAM-CR aberto; validação do cliente {} não realizada.", idCliente);
+            return ultimoVeredito(idCliente, VereditoAutorizacao.erro(
+                    "Serviço de validação SAAM-CR temporariamente indisponível. Tente novamente em instantes."));
+        }
+
+        VereditoAutorizacao veredito = null;
+        long inicio = ticker.read();
+        try {
+            veredito = saamCrValidationService.isClienteAutorizado(idCliente)
+                    ? VereditoAutorizacao.autorizado()
+                    : VereditoAutorizacao.negado("Acesso negado. Cliente sem autorização ativa.");
+        } catch (ClienteNaoAutorizadoException e) {
+            veredito = VereditoAutorizacao.negado(e.getMessage());
+        } catch (ServicoExternoException e) {
+            veredito = VereditoAutorizacao.erro(e.getMessage());
+        } finally {
+            // Negação é resposta válida do SAAM-CR; só erro de comunicação (ou exceção inesperada) conta como falha
+            boolean falha = veredito == null || veredito.getTipo() == VereditoAutorizacao.Tipo.ERRO;
+            circuitBreaker.registrar(permissao, falha, ticker.read() - inicio);
+        }
+        meterRegistry.counter("saam.cr.autorizacao.consultas", "veredito", veredito.getTipo().name()).increment();
+
+        if (veredito.getTipo() == VereditoAutorizacao.Tipo.ERRO) {
+            return ultimoVeredito(idCliente, veredito);
+        }
+        ultimosVereditos.put(idCliente, veredito);
+        return veredito;
+    }
+
+    // Serve o último veredito definitivo do cliente, se ainda dentro do período de graça; senão, o erro.
+    private VereditoAutorizacao ultimoVeredito(String idCliente, VereditoAutorizacao erro) {
+        VereditoAutorizacao anterior = ultimosVereditos.getIfPresent(idCliente);
+        if (anterior == null) {
+            return erro;
+        }
+        vereditosObsoletosServidos.increment();
+        logger.info("SAAM-CR indisponível; servindo o último veredito conhecido do cliente {}: {}", idCliente, anterior.getTipo());
+        return anterior.comoObsoleto();
+    }
+
+    public void invalidar(String idCliente) {
+        cache.invalidate(idCliente);
+        ultimosVereditos.invalidate(idCliente);
+        invalidacoesManuais.increment();
+        logger.info("Veredito de autorização do cliente {} removido do cache.", idCliente);
+    }
+
+    public void invalidarTodos() {
+        long removidos = cache.estimatedSize();
+        cache.invalidateAll();
+        ultimosVereditos.invalidateAll();
+        invalidacoesManuais.increment();
+        logger.info("Cache de autorização SAAM-CR esvaziado ({} entradas).", removidos);
+    }
+
+    public Map<String, Object> estatisticas() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("habilitado", cacheHabilitado);
+        body.put("entradas", cache.estimatedSize());
+        body.put("hits", stats.hitCount());
+        body.put("misses", stats.missCount());
+        body.put("hitRatio", stats.hitRate());
+        body.put("evictions", stats.evictionCount());
+        body.put("invalidacoesManuais", (long) invalidacoesManuais.count());
+        body.put("validacoesCoalescidas", validacoesEmAndamento.getChamadasCoalescidas());
+        body.put("circuito", circuitBreaker.getEstado().name());
+        body.put("circuitoTaxaFalhas", circuitBreaker.getTaxaFalhas());
+        body.put("circuitoTaxaLentas", circuitBreaker.getTaxaLentas());
+        body.put("circuitoChamadasRejeitadas", circuitBreaker.getChamadasRejeitadas());
+        body.put("vereditosObsoletosServidos", (long) vereditosObsoletosServidos.count());
+        return body;
+    }
+
+    private Duration ttlPara(VereditoAutorizacao veredito) {
+        if (veredito.isObsoleto()) {
+            return ttlErro; // Revalida logo que o SAAM-CR voltar
+        }
+        switch (veredito.getTipo()) {
+            case AUTORIZADO:
+                return ttlAutorizado;
+            case NEGADO:
+                return ttlNegado;
+            default:
+                return ttlErro;
+        }
+    }
+
+    private class ExpiracaoPorVeredito implements Expiry<String, VereditoAutorizacao> {
+        @Override
+        public long expireAfterCreate(String idCliente, VereditoAutorizacao veredito, long currentTime) {
+            return ttlPara(veredito).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String idCliente, VereditoAutorizacao veredito, long currentTime, long currentDuration) {
+            return ttlPara(veredito).toNanos();
+        }
+
+        @Override
+        public long expireAfterRead(String idCliente, VereditoAutorizacao veredito, long currentTime, long currentDuration) {
+            return currentDuration; // Leitura não renova o TTL
+        }
+    }
+
+    /**
+     * Resultado de uma validação no SAAM-CR. Negações e erros guardam a mensagem original
+     * para que a resposta servida do cache seja idêntica à da chamada real.
+     */
+    static final class VereditoAutorizacao {
+
+        enum Tipo { AUTORIZADO, NEGADO, ERRO }
+
+        private final Tipo tipo;
+        private final String mensagem;
+        private final boolean obsoleto;
+
+        private VereditoAutorizacao(Tipo tipo, String mensagem, boolean obsoleto) {
+            this.tipo = tipo;
+            this.mensagem = mensagem;
+            this.obsoleto = obsoleto;
+        }
+
+        static VereditoAutorizacao autorizado() {
+            return new VereditoAutorizacao(Tipo.AUTORIZADO, null, false);
+        }
+
+        static VereditoAutorizacao negado(String mensagem) {
+            return new VereditoAutorizacao(Tipo.NEGADO, mensagem, false);
+        }
+
+        static VereditoAutorizacao erro(String mensagem) {
+            return new VereditoAutorizacao(Tipo.ERRO, mensagem, false);
+        }
+
+        Tipo getTipo() {
+            return tipo;
+        }
+
+        boolean isObsoleto() {
+            return obsoleto;
+        }
+
+        // Cópia marcada como servida fora do fluxo normal (SAAM-CR indisponível)
+        VereditoAutorizacao comoObsoleto() {
+            return new VereditoAutorizacao(tipo, mensagem, true);
+        }
+
+        boolean aplicar() {
+            switch (tipo) {
+                case AUTORIZADO:
+                    return true;
+                case NEGADO:
+                    throw new ClienteNaoAutorizadoException(mensagem);
+                default:
+                    throw new ServicoExternoException(mensagem);
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package br.com.sisaudcon.projeto.SAAMCND.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache dos PDFs baixados recentemente, por ID do resultado: as mesmas certidões recentes são baixadas
+ * várias vezes (auditores, página de detalhe). Um acerto serve o download inteiro (nome, ETag, conteúdo) sem
+ * consultar o banco nem ler o BlobStore.
+ * <ul>
+ *   <li>Limitado em bytes (cnd.download.cache.tamanho-maximo), não em entradas; PDFs acima de
+ *       tamanho-maximo-arquivo não entram, para um arquivo grande não expulsar dezenas de pequenos;</li>
+ *   <li>conteúdo fora do heap, em ByteBuffers diretos: o cache não pesa nas coletas do GC. A memória de uma
+ *       entrada removida é liberada quando o buffer é coletado (downloads em andamento continuam válidos);
+ *       -XX:MaxDirectMemorySize precisa comportar o tamanho máximo;</li>
+ *   <li>invalidado por ID na atualização, troca de arquivo, extração e exclusão do resultado, e também após
+ *       o commit: um download concorrente não devolve ao cache o conteúdo anterior à alteração.</li>
+ * </ul>
+ */
+@Service
+public class CacheDownloadPdfService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CacheDownloadPdfService.class);
+
+    static final String NOME_CACHE = "cndDownloadPdf";
+
+    private final boolean habilitado;
+    private final long tamanhoMaximoArquivo;
+    private final Cache<Long, PdfEmCache> cache;
+    // Incrementada a cada invalidação: um conteúdo lido antes dela não é guardado
+    private final AtomicLong geracao = new AtomicLong();
+
+    @Autowired
+    public CacheDownloadPdfService(MeterRegistry meterRegistry,
+                                   @Value("${cnd.download.cache.habilitado:true}") boolean habilitado,
+                                   @Value("${cnd.download.cache.tamanho-maximo:64MB}") DataSize tamanhoMaximo,
+                                   @Value("${cnd.download.cache.tamanho-maximo-arquivo:2MB}") DataSize tamanhoMaximoArquivo) {
+        this.habilitado = habilitado;
+        this.tamanhoMaximoArquivo = Math.min(tamanhoMaximoArquivo.toBytes(), Integer.MAX_VALUE);
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(tamanhoMaximo.toBytes())
+                .weigher((Long id, PdfEmCache pdf) -> pdf.conteudo.capacity())
+                .executor(Runnable::run) // Manutenção síncrona: evita depender do ForkJoinPool comum
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, NOME_CACHE);
+        Gauge.builder("cnd.download.cache.bytes", this, CacheDownloadPdfService::bytesResidentes)
+                .description("Bytes de PDF residentes no cache de downloads (fora do heap)")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("cnd.download.cache.taxa-acerto", cache, c -> c.stats().hitRate())
+                .description("Fração dos downloads servidos pelo cache")
+                .register(meterRegistry);
+        logger.info("Cache de downloads de PDF {} (max={}, maxPorArquivo={})",
+                habilitado ? "habilitado" : "desabilitado", tamanhoMaximo, tamanhoMaximoArquivo);
+    }
+
+    /**
+     * Download do resultado servido pelo cache, ou null se não estiver em cache.
+     */
+    public ArquivoCndDownload buscar(Long id) {
+        if (!habilitado) {
+            return null;
+        }
+        PdfEmCache pdf = cache.getIfPresent(id);
+        return pdf != null ? pdf.paraDownload() : null;
+    }
+
+    // Geração atual, lida antes de consultar o banco e informada em guardar
+    public long geracao() {
+        return geracao.get();
+    }
+
+    /**
+     * Lê o conteúdo do download para fora do heap e o guarda no cache, se couber e se nenhuma invalidação
+     * aconteceu desde {@code geracaoLida}. Retorna o download servido pelo buffer, ou o original se o PDF não
+     * for para o cache (desabilitado, grande demais ou falha de leitura, que o download original vai reportar).
+     */
+    public ArquivoCndDownload guardar(Long id, long geracaoLida, ArquivoCndDownload download) {
+        if (!habilitado || download.contentLength() > tamanhoMaximoArquivo) {
+            return download;
+        }
+        ByteBuffer conteudo = ByteBuffer.allocateDirect((int) download.contentLength());
+        try (InputStream in = download.getInputStream()) {
+            byte[] bloco = new byte[8192];
+            int lidos;
+            while ((lidos = in.read(bloco)) != -1) {
+                if (lidos > conteudo.remaining()) {
+                    return download; // Tamanho registrado diferente do conteúdo: não arrisca servir um PDF truncado
+                }
+                conteudo.put(bloco, 0, lidos);
+            }
+        } catch (IOException e) {
+            logger.debug("PDF do resultado {} não foi para o cache de downloads: {}", id, e.getMessage());
+            return download;
+        }
+        if (conteudo.hasRemaining()) {
+            return download;
+        }
+        conteudo.flip();
+        PdfEmCache pdf = new PdfEmCache(download.getFilename(), download.getSha256(), conteudo.asReadOnlyBuffer());
+        if (geracao.get() == geracaoLida) {
+            cache.put(id, pdf);
+        }
+        return pdf.paraDownload();
+    }
+
+    /**
+     * Remove o PDF do resultado do cache agora e, dentro de uma transação, de novo após o commit.
+     */
+    public void invalidar(Long id) {
+        invalidarAgora(id);
+        aposCommit(() -> invalidarAgora(id));
+    }
+
+    /**
+     * Esvazia o cache agora e, dentro de uma transação, de novo após o commit: um download que leu o banco antes do
+     * commit (ex: o CNPJ antigo no nome do arquivo) não fica guardado.
+     * Ex: CNPJ do cliente alterado, que entra no nome dos arquivos de todos os seus resultados.
+     */
+    public void invalidarTodos() {
+        invalidarTodosAgora();
+        aposCommit(this::invalidarTodosAgora);
+    }
+
+    private static void aposCommit(Runnable acao) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    acao.run();
+                }
+            });
+        }
+    }
+
+    long bytesResidentes() {
+        return cache.policy().eviction().map(e -> e.weightedSize().orElse(0L)).orElse(0L);
+    }
+
+    private void invalidarAgora(Long id) {
+        geracao.incrementAndGet();
+        cache.invalidate(id);
+    }
+
+    private void invalidarTodosAgora() {
+        geracao.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    private static final class PdfEmCache {
+
+        private final String nomeArquivo;
+        private final String sha256;
+        private final ByteBuffer conteudo;
+
+        PdfEmCache(String nomeArquivo, String sha256, ByteBuffer conteudo) {
+            this.nomeArquivo = nomeArquivo;
+            this.sha256 = sha256;
+            this.conteudo = conteudo;
+        }
+
+        ArquivoCndDownload paraDownload() {
+            // Cada leitura (cada faixa de um Range) com a sua própria posição sobre o mesmo buffer
+            return new ArquivoCndDownload(nomeArquivo, conteudo.capacity(), sha256,
+                    () -> new LeituraBuffer(conteudo.duplicate()));
+        }
+    }
+
+    private static final class LeituraBuffer extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        LeituraBuffer(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int lidos = Math.min(len, buffer.remaining());
+            buffer.get(b, off, lidos);
+            return lidos;
+        }
+
+        @Override
+        public long skip(long n) {
+            int pulados = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + pulados);
+            return pulados;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
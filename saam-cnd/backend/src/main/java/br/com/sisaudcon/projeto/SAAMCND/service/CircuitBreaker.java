@@ -0,0 +1,219 @@
+package br.com.sisaudcon.projeto.SAAMCND.service;
+
+import br.com.sisaudcon.projeto.SAAMCND.config.CircuitBreakerProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker com janela deslizante por contagem. Abre quando a taxa de falhas ou de chamadas
+ * lentas nas últimas N chamadas ultrapassa o limiar configurado; aberto, rejeita chamadas
+ * imediatamente (sem esperar timeout). Após o tempo de espera passa a meio-aberto e libera algumas
+ * chamadas de teste: qualquer falha reabre o circuito, e se todas passarem (sem excesso de lentidão) ele fecha.
+ *
+ * Uso: {@link #permitirChamada()} antes da chamada e, se permitida, {@link #registrar(Permissao, boolean, long)}
+ * ao final com a permissão recebida. Cada transição de estado inicia uma nova geração: o resultado de uma chamada
+ * liberada numa geração anterior (ex: iniciada com o circuito fechado e concluída já no meio-aberto) é descartado.
+ */
+public class CircuitBreaker {
+
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum Estado { FECHADO, ABERTO, MEIO_ABERTO }
+
+    private static final byte SUCESSO = 0;
+    private static final byte FALHA = 1;
+    private static final byte LENTA = 2;
+
+    private final String nome;
+    private final CircuitBreakerProperties config;
+    private final LongSupplier relogioNanos;
+    private final MeterRegistry meterRegistry;
+    private final Counter chamadasRejeitadas;
+
+    // Janela circular com o resultado das últimas chamadas (bits FALHA | LENTA)
+    private final byte[] janela;
+    private int posicao;
+    private int registradas;
+    private int falhasNaJanela;
+    private int lentasNaJanela;
+
+    private Estado estado = Estado.FECHADO;
+    private long geracao;
+    private long abertoDesdeNanos;
+    private int testesLiberados;
+    private int testesConcluidos;
+    private int testesLentos;
+
+    public CircuitBreaker(String nome, CircuitBreakerProperties config, LongSupplier relogioNanos, MeterRegistry meterRegistry) {
+        this.nome = nome;
+        this.config = config;
+        this.relogioNanos = relogioNanos;
+        this.meterRegistry = meterRegistry;
+        this.janela = new byte[Math.max(1, config.getJanela())];
+        this.chamadasRejeitadas = Counter.builder("circuito.chamadas.rejeitadas")
+                .description("Chamadas rejeitadas imediatamente com o circuito aberto")
+                .tag("circuito", nome)
+                .register(meterRegistry);
+        Gauge.builder("circuito.estado", this, cb -> cb.getEstado().ordinal())
+                .description("Estado do circuito (0=fechado, 1=aberto, 2=meio-aberto)")
+                .tag("circuito", nome)
+                .register(meterRegistry);
+        Gauge.builder("circuito.taxa.falhas", this, CircuitBreaker::getTaxaFalhas)
+                .description("Percentual de falhas na janela deslizante")
+                .tag("circuito", nome)
+                .register(meterRegistry);
+        Gauge.builder("circuito.taxa.lentas", this, CircuitBreaker::getTaxaLentas)
+                .description("Percentual de chamadas lentas na janela deslizante")
+                .tag("circuito", nome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Indica se a chamada pode ser feita. Com o circuito aberto a permissão é negada imediatamente;
+     * decorrido o tempo de espera, libera as chamadas de teste do estado meio-aberto.
+     */
+    public synchronized Permissao permitirChamada() {
+        if (!config.isEnabled()) {
+            return new Permissao(true, geracao);
+        }
+        if (estado == Estado.ABERTO) {
+            if (relogioNanos.getAsLong() - abertoDesdeNanos < config.getEsperaAberto().toNanos()) {
+                chamadasRejeitadas.increment();
+                return Permissao.NEGADA;
+            }
+            transicionar(Estado.MEIO_ABERTO);
+        }
+        if (estado == Estado.MEIO_ABERTO) {
+            if (testesLiberados >= config.getChamadasMeiaAbertura()) {
+                chamadasRejeitadas.increment();
+                return Permissao.NEGADA;
+            }
+            testesLiberados++;
+        }
+        return new Permissao(true, geracao);
+    }
+
+    /**
+     * Registra o resultado de uma chamada liberada por {@link #permitirChamada()}. Se o circuito mudou de estado
+     * desde a permissão, o resultado não diz nada sobre o estado atual e é ignorado.
+     *
+     * @param permissao     Permissão recebida antes da chamada.
+     * @param falha         true se a chamada falhou (ex: timeout, erro de comunicação).
+     * @param duracaoNanos  Duração da chamada, comparada ao limiar de chamada lenta.
+     */
+    public synchronized void registrar(Permissao permissao, boolean falha, long duracaoNanos) {
+        if (!config.isEnabled() || !permissao.isPermitida() || permissao.geracao != geracao) {
+            return;
+        }
+        boolean lenta = duracaoNanos > config.getLimiarChamadaLenta().toNanos();
+        switch (estado) {
+            case FECHADO:
+                adicionarNaJanela(falha, lenta);
+                if (registradas >= config.getMinimoChamadas()
+                        && (getTaxaFalhas() >= config.getLimiarTaxaFalhas() || getTaxaLentas() >= config.getLimiarTaxaLentas())) {
+                    logger.warn("Circuito '{}' abrindo: taxaFalhas={}%, taxaLentas={}% nas últimas {} chamadas.",
+                            nome, getTaxaFalhas(), getTaxaLentas(), registradas);
+                    transicionar(Estado.ABERTO);
+                }
+                break;
+            case MEIO_ABERTO:
+                if (falha) {
+                    transicionar(Estado.ABERTO);
+                    break;
+                }
+                testesConcluidos++;
+                if (lenta) {
+                    testesLentos++;
+                }
+                if (testesConcluidos >= config.getChamadasMeiaAbertura()) {
+                    double taxaLentas = testesLentos * 100.0 / testesConcluidos;
+                    transicionar(taxaLentas >= config.getLimiarTaxaLentas() ? Estado.ABERTO : Estado.FECHADO);
+                }
+                break;
+            default:
+                // Aberto: toda chamada em andamento foi liberada numa geração anterior (descartada acima)
+                break;
+        }
+    }
+
+    private void adicionarNaJanela(boolean falha, boolean lenta) {
+        if (registradas == janela.length) {
+            byte antigo = janela[posicao];
+            if ((antigo & FALHA) != 0) falhasNaJanela--;
+            if ((antigo & LENTA) != 0) lentasNaJanela--;
+        } else {
+            registradas++;
+        }
+        byte resultado = (byte) (SUCESSO | (falha ? FALHA : 0) | (lenta ? LENTA : 0));
+        janela[posicao] = resultado;
+        if (falha) falhasNaJanela++;
+        if (lenta) lentasNaJanela++;
+        posicao = (posicao + 1) % janela.length;
+    }
+
+    private void transicionar(Estado novo) {
+        Estado anterior = estado;
+        estado = novo;
+        geracao++;
+        switch (novo) {
+            case ABERTO:
+                abertoDesdeNanos = relogioNanos.getAsLong();
+                break;
+            case MEIO_ABERTO:
+                testesLiberados = 0;
+                testesConcluidos = 0;
+                testesLentos = 0;
+                break;
+            default:
+                posicao = 0;
+                registradas = 0;
+                falhasNaJanela = 0;
+                lentasNaJanela = 0;
+                break;
+        }
+        meterRegistry.counter("circuito.transicoes", "circuito", nome, "de", anterior.name(), "para", novo.name()).increment();
+        logger.warn("Circuito '{}': {} -> {}", nome, anterior, novo);
+    }
+
+    public synchronized Estado getEstado() {
+        return estado;
+    }
+
+    public synchronized double getTaxaFalhas() {
+        return registradas == 0 ? 0.0 : falhasNaJanela * 100.0 / registradas;
+    }
+
+    public synchronized double getTaxaLentas() {
+        return registradas == 0 ? 0.0 : lentasNaJanela * 100.0 / registradas;
+    }
+
+    public long getChamadasRejeitadas() {
+        return (long) chamadasRejeitadas.count();
+    }
+
+    /**
+     * Resposta de {@link #permitirChamada()}: se a chamada pode ser feita e a geração do estado do circuito
+     * em que foi liberada.
+     */
+    public static final class Permissao {
+
+        static final Permissao NEGADA = new Permissao(false, -1);
+
+        private final boolean permitida;
+        private final long geracao;
+
+        private Permissao(boolean permitida, long geracao) {
+            this.permitida = permitida;
+            this.geracao = geracao;
+        }
+
+        public boolean isPermitida() {
+            return permitida;
+        }
+    }
+}
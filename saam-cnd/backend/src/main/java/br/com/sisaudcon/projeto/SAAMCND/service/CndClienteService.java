@@ -14,6 +14,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Service
@@ -21,13 +22,19 @@ public class CndClienteService {
 
     private static final Logger logger = LoggerFactory.getLogger(CndClienteService.class);
 
+    // Clientes devolvidos pela busca por nome (sugestões enquanto o usuário digita)
+    public static final int LIMITE_BUSCA = 20;
+
     private final CndClienteRepository cndClienteRepository;
     private final CndEmpresaService cndEmpresaService; // Para buscar/criar empresa
+    private final CacheDownloadPdfService cacheDownloadPdf;
 
     @Autowired
-    public CndClienteService(CndClienteRepository cndClienteRepository, CndEmpresaService cndEmpresaService) {
+    public CndClienteService(CndClienteRepository cndClienteRepository, CndEmpresaService cndEmpresaService,
+                             CacheDownloadPdfService cacheDownloadPdf) {
         this.cndClienteRepository = cndClienteRepository;
         this.cndEmpresaService = cndEmpresaService;
+        this.cacheDownloadPdf = cacheDownloadPdf;
     }
 
     @Transactional
@@ -70,14 +77,34 @@ public class CndClienteService {
 
     @Transactional(readOnly = true)
     public List<CndClienteResponseDTO> listarClientes() {
-        return cndClienteRepository.findAll().stream()
+        return cndClienteRepository.findAllComEmpresa().stream()
                 .map(CndClienteResponseDTO::new)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Busca por trecho do nome do cliente e/ou da empresa, sem diferenciar maiúsculas nem acentos, em ordem de
+     * nome e limitada a {@link #LIMITE_BUSCA} clientes. Termos vazios são ignorados; sem nenhum, nada é buscado.
+     */
+    @Transactional(readOnly = true)
+    public List<CndClienteResponseDTO> buscarClientesPorNome(String nome, String nomeEmpresa) {
+        String termoNome = termoBusca(nome);
+        String termoEmpresa = termoBusca(nomeEmpresa);
+        if (termoNome == null && termoEmpresa == null) {
+            return List.of();
+        }
+        return cndClienteRepository.buscarPorNome(termoNome, termoEmpresa, LIMITE_BUSCA).stream()
+                .map(CndClienteResponseDTO::new)
+                .collect(Collectors.toList());
+    }
+
+    private static String termoBusca(String termo) {
+        return termo != null && !termo.isBlank() ? termo.trim() : null;
+    }
+
     @Transactional(readOnly = true)
     public CndClienteResponseDTO buscarClientePorId(Long id) {
-        CndCliente cliente = cndClienteRepository.findById(id)
+        CndCliente cliente = cndClienteRepository.findComEmpresaById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Cliente não encontrado para o ID informado: " + id));
         return new CndClienteResponseDTO(cliente);
     }
@@ -91,7 +118,7 @@ public class CndClienteService {
 
     @Transactional
     public CndClienteResponseDTO atualizarCliente(Long id, CndClienteRequestDTO requestDTO) {
-        CndCliente clienteExistente = cndClienteRepository.findById(id)
+        CndCliente clienteExistente = cndClienteRepository.findComEmpresaById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Cliente não encontrado para o ID informado: " + id));
 
         if (requestDTO.getFkEmpresa() == null) {
@@ -112,6 +139,7 @@ public class CndClienteService {
         }
 
         clienteExistente.setNome(requestDTO.getNome()); // Adicionado
+        boolean cnpjAlterado = !Objects.equals(clienteExistente.getCnpj(), requestDTO.getCnpj());
         clienteExistente.setCnpj(requestDTO.getCnpj());
         clienteExistente.setPeriodicidade(requestDTO.getPeriodicidade());
         clienteExistente.setStatusCliente(requestDTO.getStatusCliente());
@@ -121,6 +149,9 @@ public class CndClienteService {
         clienteExistente.setLinha("UPDATE-PEC-4924"); // Auditoria
 
         CndCliente clienteAtualizado = cndClienteRepository.save(clienteExistente);
+        if (cnpjAlterado) {
+            cacheDownloadPdf.invalidarTodos(); // O CNPJ faz parte do nome dos PDFs baixados
+        }
         logger.info("Cliente com ID {} atualizado.", clienteAtualizado.getId());
         return new CndClienteResponseDTO(clienteAtualizado);
     }
@@ -1,45 +1,114 @@
 package br.com.sisaudcon.projeto.SAAMCND.service;
 
+import br.com.sisaudcon.projeto.SAAMCND.armazenamento.BlobArmazenado;
+import br.com.sisaudcon.projeto.SAAMCND.armazenamento.BlobCorrompidoException;
+import br.com.sisaudcon.projeto.SAAMCND.armazenamento.BlobStore;
+import br.com.sisaudcon.projeto.SAAMCND.armazenamento.DigestArquivo;
 import br.com.sisaudcon.projeto.SAAMCND.model.CndCliente;
 import br.com.sisaudcon.projeto.SAAMCND.model.CndResultado;
+import br.com.sisaudcon.projeto.SAAMCND.repository.BuscaTextual;
+import br.com.sisaudcon.projeto.SAAMCND.repository.CampoCndResultado;
+import br.com.sisaudcon.projeto.SAAMCND.repository.CndResultadoArquivoRepository;
 import br.com.sisaudcon.projeto.SAAMCND.repository.CndResultadoRepository;
+import br.com.sisaudcon.projeto.SAAMCND.dto.CndArquivoResumo;
 import br.com.sisaudcon.projeto.SAAMCND.dto.CndResultadoDTO;
+import br.com.sisaudcon.projeto.SAAMCND.dto.PaginaCndResultados;
 import br.com.sisaudcon.projeto.SAAMCND.exception.ResourceNotFoundException;
 import br.com.sisaudcon.projeto.SAAMCND.exception.BadRequestException;
+import br.com.sisaudcon.projeto.SAAMCND.exception.ArmazenamentoArquivoException;
+import br.com.sisaudcon.projeto.SAAMCND.exception.ArquivoExcedeLimiteException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.util.unit.DataSize;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.persistence.Tuple;
 import javax.persistence.criteria.Predicate;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Base64;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 @Service
 public class CndResultadoService {
 
     private static final Logger logger = LoggerFactory.getLogger(CndResultadoService.class);
 
+    // Consulta da CND concluída, aguardando a extração dos dados do PDF (PEC-4963)
+    public static final String STATUS_CONSULTA_REALIZADA = "CONSULTA_REALIZADA";
+
+    // Relatório dos PDFs que não puderam ser incluídos numa exportação em ZIP
+    public static final String ENTRADA_ERROS_EXPORTACAO = "ERROS.txt";
+    private static final int TAMANHO_FETCH_EXPORTACAO = 100;
+    // PDFs até este tamanho são lidos por inteiro (com o SHA-256 conferido) antes de entrar no ZIP
+    private static final int TAMANHO_MAXIMO_VERIFICADO_EXPORTACAO = 2 * 1024 * 1024;
+
+    // Listagem paginada: itens por página sem o parâmetro 'limite' e teto para ele
+    public static final int LIMITE_PADRAO_PAGINA = 50;
+    public static final int LIMITE_MAXIMO_PAGINA = 200;
+
     private final CndResultadoRepository cndResultadoRepository;
+    private final CndResultadoArquivoRepository cndResultadoArquivoRepository;
     private final CndClienteService cndClienteService; // Para buscar cliente ao criar/atualizar resultado
+    private final ApplicationEventPublisher eventPublisher;
+    private final BlobStore blobStore;
+    private final long tamanhoMaximoIngestao;
+    private final CacheDownloadPdfService cacheDownloadPdf;
 
     @Autowired
-    public CndResultadoService(CndResultadoRepository cndResultadoRepository, CndClienteService cndClienteService) {
+    public CndResultadoService(CndResultadoRepository cndResultadoRepository,
+                               CndResultadoArquivoRepository cndResultadoArquivoRepository,
+                               CndClienteService cndClienteService,
+                               ApplicationEventPublisher eventPublisher, BlobStore blobStore,
+                               @Value("${cnd.ingestao.tamanho-maximo:10MB}") DataSize tamanhoMaximoIngestao,
+                               CacheDownloadPdfService cacheDownloadPdf) {
         this.cndResultadoRepository = cndResultadoRepository;
+        this.cndResultadoArquivoRepository = cndResultadoArquivoRepository;
         this.cndClienteService = cndClienteService;
+        this.eventPublisher = eventPublisher;
+        this.blobStore = blobStore;
+        this.tamanhoMaximoIngestao = tamanhoMaximoIngestao.toBytes();
+        this.cacheDownloadPdf = cacheDownloadPdf;
     }
 
     @Transactional
     public CndResultadoDTO criarCndResultado(CndResultadoDTO dto) {
+        return criarCndResultado(dto, null);
+    }
+
+    /**
+     * Cria o resultado com um PDF já recebido em stream por {@link #receberPdf} (upload multipart), em vez
+     * do Base64 em {@code dto.arquivo}. Com {@code arquivo} nulo, vale o Base64 do DTO, se houver.
+     */
+    @Transactional
+    public CndResultadoDTO criarCndResultado(CndResultadoDTO dto, BlobArmazenado arquivo) {
         if (dto.getFkCliente() == null) {
             throw new BadRequestException("ID do Cliente (fkCliente) é obrigatório para criar um resultado de CND.");
         }
@@ -51,9 +120,11 @@ public class CndResultadoService {
 
         // Mapear DTO para Entidade, incluindo decodificação Base64 para byte[]
         if (dto.getDataProcessamento() != null) cndResultado.setDataProcessamento(dto.getDataProcessamento());
-        if (dto.getArquivo() != null && !dto.getArquivo().isEmpty()) {
+        if (arquivo != null) {
+            atribuirBlob(cndResultado, arquivo);
+        } else if (dto.getArquivo() != null && !dto.getArquivo().isEmpty()) {
             try {
-                cndResultado.setArquivo(Base64.getDecoder().decode(dto.getArquivo()));
+                definirArquivo(cndResultado, Base64.getDecoder().decode(dto.getArquivo()));
             } catch (IllegalArgumentException e) {
                 logger.error("Erro ao decodificar Base64 do arquivo para nova CND do cliente {}: {}", cliente.getId(), e.getMessage());
                 throw new BadRequestException("Arquivo PDF (Base64) inválido.");
@@ -80,54 +151,379 @@ public class CndResultadoService {
 
         CndResultado salvo = cndResultadoRepository.save(cndResultado);
         logger.info("Resultado CND criado com ID {} para o cliente ID {}", salvo.getId(), cliente.getId());
-        return new CndResultadoDTO(salvo); // DTO construtor agora precisa lidar com byte[] para String Base64
+        publicarSePendenteDeExtracao(salvo);
+        return new CndResultadoDTO(salvo);
     }
 
     @Transactional
     public CndResultado salvarResultado(CndResultado cndResultado) {
         // Usado internamente por outros serviços como o de consulta automática ou extração de PDF
-        return cndResultadoRepository.save(cndResultado);
+        // Arquivo recebido (ex: definido pelos serviços de consulta): vai para o BlobStore
+        if (cndResultado.getArquivo() != null) {
+            definirArquivo(cndResultado, cndResultado.getArquivo());
+        }
+        if (cndResultado.getId() != null) {
+            cacheDownloadPdf.invalidar(cndResultado.getId()); // Extração muda a data de emissão (nome do arquivo)
+        }
+        CndResultado salvo = cndResultadoRepository.save(cndResultado);
+        publicarSePendenteDeExtracao(salvo);
+        return salvo;
+    }
+
+    // Grava o arquivo no BlobStore (PDFs idênticos ocupam um único blob) e guarda na entidade só a referência,
+    // o tamanho e o SHA-256 (chave do cache de extração). Se a transação for desfeita, o blob fica sem
+    // referência (sem afetar os demais registros) até a limpeza de órfãos (ManutencaoBlobsOrfaosService).
+    // Um PDF legado na coluna inline fica obsoleto e é limpo.
+    private void definirArquivo(CndResultado resultado, byte[] arquivo) {
+        if (arquivo == null) {
+            descartarArquivoAnterior(resultado);
+            resultado.setArquivoRef(null);
+            resultado.setArquivoTamanho(null);
+            resultado.setArquivoSha256(null);
+            resultado.setArquivoCodec(null);
+            resultado.setArquivoArquivado(null);
+            return;
+        }
+        try {
+            atribuirBlob(resultado, blobStore.gravar(arquivo));
+        } catch (IOException e) {
+            throw new ArmazenamentoArquivoException("Falha ao gravar o arquivo PDF da CND: " + e.getMessage(), e);
+        }
+    }
+
+    private void atribuirBlob(CndResultado resultado, BlobArmazenado blob) {
+        descartarArquivoAnterior(resultado);
+        resultado.setArquivoRef(blob.getRef());
+        resultado.setArquivoTamanho(blob.getTamanho());
+        resultado.setArquivoSha256(blob.getSha256());
+        resultado.setArquivoCodec(blob.getCodecId());
+        resultado.setArquivoArquivado(null); // Blob recém-gravado: está na camada quente
+    }
+
+    private void descartarArquivoAnterior(CndResultado resultado) {
+        resultado.setArquivo(null);
+        if (resultado.getId() != null && Boolean.TRUE.equals(resultado.getArquivoInline())) {
+            cndResultadoArquivoRepository.limparArquivoInline(resultado.getId());
+        }
+    }
+
+    /**
+     * Grava no BlobStore um PDF recebido em stream (corpo application/pdf ou parte de um multipart), fora de
+     * transação: o upload não segura conexão do banco. O conteúdo passa direto, em blocos, pela validação
+     * (cabeçalho %PDF- e tamanho máximo) e pelo SHA-256 até o arquivo do blob, sem cópia em memória.
+     *
+     * @throws BadRequestException se o conteúdo não for um PDF.
+     * @throws ArquivoExcedeLimiteException se passar de cnd.ingestao.tamanho-maximo (a leitura para ali).
+     */
+    public BlobArmazenado receberPdf(InputStream conteudo) {
+        try {
+            BlobArmazenado blob = blobStore.gravar(new EntradaPdfLimitada(conteudo, tamanhoMaximoIngestao));
+            logger.info("PDF recebido: {} bytes, blob {} ({}).", blob.getTamanho(), blob.getRef(), blob.isNovo() ? "novo" : "já existente");
+            return blob;
+        } catch (IOException e) {
+            throw new ArmazenamentoArquivoException("Falha ao gravar o arquivo PDF recebido: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Troca o PDF de um resultado por um recebido em stream por {@link #receberPdf}.
+     */
+    @Transactional
+    public CndResultadoDTO substituirArquivo(Long id, BlobArmazenado arquivo) {
+        CndResultado resultado = cndResultadoRepository.findComClienteById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Resultado CND não encontrado para o ID: " + id));
+        atribuirBlob(resultado, arquivo);
+        if (resultado.getLinha() == null || !resultado.getLinha().startsWith("UPDATE-PEC-")) {
+            resultado.setLinha("UPDATE-PEC-4537"); // PEC de edição
+        }
+        CndResultado atualizado = cndResultadoRepository.save(resultado);
+        cacheDownloadPdf.invalidar(id);
+        logger.info("Arquivo PDF do resultado CND com ID {} substituído (blob {}).", id, arquivo.getRef());
+        publicarSePendenteDeExtracao(atualizado);
+        return new CndResultadoDTO(atualizado);
     }
 
+    /**
+     * Conteúdo do arquivo (PDF) do resultado: do BlobStore ou, para registros ainda não migrados, da coluna
+     * legada. É o único caminho de leitura do binário: listagens e detalhes só carregam os metadados.
+     *
+     * @return O conteúdo, ou null se o resultado não tem arquivo.
+     * @throws ArmazenamentoArquivoException se o blob não puder ser lido ou estiver corrompido.
+     */
+    public byte[] lerArquivo(CndResultado resultado) {
+        if (resultado.getArquivo() != null) {
+            return resultado.getArquivo();
+        }
+        if (resultado.getArquivoRef() == null) {
+            return Boolean.TRUE.equals(resultado.getArquivoInline()) && resultado.getId() != null
+                    ? cndResultadoArquivoRepository.findArquivoInline(resultado.getId()).orElse(null)
+                    : null;
+        }
+        try {
+            return blobStore.ler(resultado.getArquivoRef());
+        } catch (IOException e) {
+            throw new ArmazenamentoArquivoException("Falha ao ler o arquivo PDF da CND ID " + resultado.getId() + ": " + e.getMessage(), e);
+        }
+    }
 
+    // Avisa a extração de PDF (PEC-4963) de que há um item novo no backlog. O listener só age após o
+    // commit; se o evento se perder (rollback, fila cheia, queda do nó), a varredura agendada pega o item.
+    private void publicarSePendenteDeExtracao(CndResultado resultado) {
+        if (STATUS_CONSULTA_REALIZADA.equals(resultado.getStatusProcessamento()) && resultado.getSituacao() == null) {
+            eventPublisher.publishEvent(new ResultadoPendenteExtracaoEvent(resultado.getId()));
+        }
+    }
+
+
+    /**
+     * Uma página da listagem, dos resultados processados mais recentemente para os mais antigos. Além dos
+     * filtros, 'limite' (padrão {@value #LIMITE_PADRAO_PAGINA}, no máximo {@value #LIMITE_MAXIMO_PAGINA}),
+     * 'cursor' (o proximoCursor da página anterior) e 'campos' (ex: campos=situacao,dataEmissao; sem ele, o
+     * {@link CampoCndResultado#RESUMO}). A página é buscada a partir da posição do cursor, sem OFFSET, e só com
+     * as colunas dos campos pedidos; o 'id' vem sempre.
+     *
+     * @throws BadRequestException se o limite, o cursor ou algum campo forem inválidos.
+     */
     @Transactional(readOnly = true)
-    public List<CndResultadoDTO> listarCndResultados(Map<String, String> filters) {
-        Specification<CndResultado> spec = (root, query, criteriaBuilder) -> {
+    public PaginaCndResultados listarCndResultados(Map<String, String> filters) {
+        int limite = filters.containsKey("limite") ? parseLimite(filters.get("limite")) : LIMITE_PADRAO_PAGINA;
+        Set<CampoCndResultado> campos = filters.containsKey("campos") ? parseCampos(filters.get("campos")) : CampoCndResultado.RESUMO;
+        LocalDateTime aposData = null;
+        Long aposId = null;
+        if (filters.containsKey("cursor")) {
+            String cursor = filters.get("cursor");
+            try {
+                String[] posicao = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|", -1);
+                if (posicao.length != 2) {
+                    throw new IllegalArgumentException(cursor);
+                }
+                aposData = posicao[0].isEmpty() ? null : LocalDateTime.parse(posicao[0]);
+                aposId = Long.parseLong(posicao[1]);
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                throw new BadRequestException("Parâmetro 'cursor' inválido: " + cursor);
+            }
+        }
+
+        // Um item a mais só para saber se há página seguinte
+        List<Tuple> encontrados = cndResultadoRepository.buscarPagina(filtros(filters), campos, aposData, aposId, limite + 1);
+        List<Tuple> pagina = encontrados.size() > limite ? encontrados.subList(0, limite) : encontrados;
+        String proximoCursor = encontrados.size() > limite ? codificarCursor(pagina.get(pagina.size() - 1)) : null;
+        List<CndResultadoDTO> itens = new ArrayList<>(pagina.size());
+        for (Tuple linha : pagina) {
+            CndResultadoDTO dto = new CndResultadoDTO();
+            dto.setId(linha.get("id", Long.class));
+            campos.forEach(campo -> campo.aplicar(dto, linha));
+            itens.add(dto);
+        }
+        return new PaginaCndResultados(itens, proximoCursor);
+    }
+
+    private static Set<CampoCndResultado> parseCampos(String valor) {
+        Set<CampoCndResultado> campos = EnumSet.noneOf(CampoCndResultado.class);
+        for (String nome : valor.split(",")) {
+            CampoCndResultado campo = CampoCndResultado.porNome(nome.trim());
+            if (campo == null) {
+                throw new BadRequestException("Campo '" + nome.trim() + "' inválido em 'campos'. Campos disponíveis: "
+                        + Arrays.stream(CampoCndResultado.values()).map(CampoCndResultado::getNome).collect(Collectors.joining(", ")));
+            }
+            campos.add(campo);
+        }
+        return campos;
+    }
+
+    private static int parseLimite(String valor) {
+        try {
+            int limite = Integer.parseInt(valor);
+            if (limite < 1) {
+                throw new BadRequestException("Parâmetro 'limite' deve ser maior que zero: " + valor);
+            }
+            return Math.min(limite, LIMITE_MAXIMO_PAGINA);
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Parâmetro 'limite' inválido: " + valor);
+        }
+    }
+
+    // Cursor = posição do último item da página (dataProcessamento e ID), em Base64 para o cliente não depender do formato
+    private static String codificarCursor(Tuple ultimo) {
+        LocalDateTime dataProcessamento = ultimo.get("dataProcessamento", LocalDateTime.class);
+        String data = dataProcessamento != null ? dataProcessamento.toString() : "";
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((data + "|" + ultimo.get("id", Long.class)).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Filtros da listagem de resultados (também usados na exportação em ZIP). Valores inválidos são
+     * rejeitados aqui, antes de qualquer consulta ou resposta começar a ser escrita.
+     *
+     * @throws BadRequestException se um ID ou data do filtro for inválido.
+     */
+    public Specification<CndResultado> filtros(Map<String, String> filters) {
+        Long fkCliente = filters.containsKey("fkCliente") ? parseId(filters, "fkCliente") : null;
+        Long fkEmpresa = filters.containsKey("fkEmpresa") ? parseId(filters, "fkEmpresa") : null;
+        LocalDate dataEmissaoApos = filters.containsKey("dataEmissaoApos") ? parseData(filters, "dataEmissaoApos") : null;
+        LocalDate dataEmissaoAntes = filters.containsKey("dataEmissaoAntes") ? parseData(filters, "dataEmissaoAntes") : null;
+        return (root, query, criteriaBuilder) -> {
             List<Predicate> predicates = new ArrayList<>();
-            if (filters.containsKey("fkCliente")) {
-                predicates.add(criteriaBuilder.equal(root.get("cliente").get("id"), Long.parseLong(filters.get("fkCliente"))));
+            if (fkCliente != null) {
+                predicates.add(criteriaBuilder.equal(root.get("cliente").get("id"), fkCliente));
+            }
+            if (fkEmpresa != null) {
+                predicates.add(criteriaBuilder.equal(root.get("cliente").get("empresa").get("id"), fkEmpresa));
             }
             if (filters.containsKey("cnpjCliente")) {
                  predicates.add(criteriaBuilder.equal(root.get("cliente").get("cnpj"), filters.get("cnpjCliente")));
             }
+            // Por trecho, sem diferenciar maiúsculas nem acentos (índices de trigramas no PostgreSQL)
             if (filters.containsKey("situacao")) {
-                predicates.add(criteriaBuilder.like(criteriaBuilder.lower(root.get("situacao")), "%" + filters.get("situacao").toLowerCase() + "%"));
+                predicates.add(BuscaTextual.contem(criteriaBuilder, root.get("situacao"), filters.get("situacao")));
+            }
+            if (filters.containsKey("nomeCliente")) {
+                predicates.add(BuscaTextual.contem(criteriaBuilder, root.get("cliente").get("nome"), filters.get("nomeCliente")));
+            }
+            if (filters.containsKey("nomeEmpresa")) {
+                predicates.add(BuscaTextual.contem(criteriaBuilder,
+                        root.get("cliente").get("empresa").get("nomeEmpresa"), filters.get("nomeEmpresa")));
             }
             if (filters.containsKey("statusProcessamento")) {
                 predicates.add(criteriaBuilder.equal(root.get("statusProcessamento"), filters.get("statusProcessamento")));
             }
-            if (filters.containsKey("dataEmissaoApos")) {
-                predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("dataEmissao"), LocalDate.parse(filters.get("dataEmissaoApos"))));
+            if (dataEmissaoApos != null) {
+                predicates.add(criteriaBuilder.greaterThanOrEqualTo(root.get("dataEmissao"), dataEmissaoApos));
             }
-            if (filters.containsKey("dataEmissaoAntes")) {
-                predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get("dataEmissao"), LocalDate.parse(filters.get("dataEmissaoAntes"))));
+            if (dataEmissaoAntes != null) {
+                predicates.add(criteriaBuilder.lessThanOrEqualTo(root.get("dataEmissao"), dataEmissaoAntes));
             }
-            // Adicionar mais filtros conforme PEC-4961 (nome cliente - precisa de join, etc)
             return criteriaBuilder.and(predicates.toArray(new Predicate[0]));
         };
+    }
 
-        return cndResultadoRepository.findAll(spec).stream()
-                .map(CndResultadoDTO::new)
-                .collect(Collectors.toList());
+    private static Long parseId(Map<String, String> filters, String filtro) {
+        try {
+            return Long.parseLong(filters.get(filtro));
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Filtro '" + filtro + "' inválido: " + filters.get(filtro));
+        }
+    }
+
+    private static LocalDate parseData(Map<String, String> filters, String filtro) {
+        try {
+            return LocalDate.parse(filters.get(filtro));
+        } catch (DateTimeParseException e) {
+            throw new BadRequestException("Filtro '" + filtro + "' inválido (formato esperado: AAAA-MM-DD): " + filters.get(filtro));
+        }
+    }
+
+    /**
+     * Escreve em {@code saida} um ZIP com os PDFs dos resultados que atendem aos filtros, montado enquanto é
+     * enviado: os resultados vêm de um cursor do banco e cada PDF é copiado do armazenamento direto para o
+     * ZIP, um de cada vez, então a memória usada não depende do tamanho do pacote. Entradas nomeadas por
+     * {@link #gerarNomeArquivoPadronizado}; nomes repetidos recebem o ID do resultado. PDFs que não puderem
+     * ser lidos são listados em {@value #ENTRADA_ERROS_EXPORTACAO} ao final, sem interromper o pacote.
+     *
+     * @return Quantidade de PDFs incluídos.
+     */
+    @Transactional(readOnly = true)
+    public int exportarZip(Specification<CndResultado> filtros, OutputStream saida) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(saida);
+        zip.setLevel(Deflater.BEST_SPEED); // PDFs já são quase todos comprimidos: prioriza a vazão
+        Set<String> nomesUsados = new HashSet<>();
+        List<String> erros = new ArrayList<>();
+        int incluidos = 0;
+        try (Stream<CndArquivoResumo> arquivos = cndResultadoRepository.streamArquivos(filtros, TAMANHO_FETCH_EXPORTACAO)) {
+            Iterator<CndArquivoResumo> cursor = arquivos.iterator();
+            while (cursor.hasNext()) {
+                CndArquivoResumo arquivo = cursor.next();
+                if (incluirNoZip(zip, arquivo, nomesUsados, erros)) {
+                    incluidos++;
+                }
+            }
+        }
+        if (!erros.isEmpty()) {
+            zip.putNextEntry(new ZipEntry(ENTRADA_ERROS_EXPORTACAO));
+            zip.write(String.join("\n", erros).getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        zip.finish();
+        logger.info("Exportação em ZIP concluída: {} PDFs incluídos, {} com erro.", incluidos, erros.size());
+        return incluidos;
+    }
+
+    private boolean incluirNoZip(ZipOutputStream zip, CndArquivoResumo arquivo, Set<String> nomesUsados, List<String> erros) throws IOException {
+        String nome = gerarNomeArquivoPadronizado(arquivo.paraNomeArquivo());
+        if (!nomesUsados.add(nome)) {
+            nome = nome.replaceFirst("\\.pdf$", "") + "_" + arquivo.getId() + ".pdf";
+            nomesUsados.add(nome);
+        }
+        InputStream conteudo;
+        try {
+            conteudo = abrirArquivo(arquivo);
+        } catch (IOException | RuntimeException e) {
+            erros.add("CND ID " + arquivo.getId() + " (" + nome + "): " + e.getMessage());
+            logger.warn("PDF da CND ID {} não incluído na exportação: {}", arquivo.getId(), e.getMessage());
+            return false;
+        }
+        try (InputStream in = conteudo) {
+            // O blob corrompido só é detectado ao fim da leitura. Os PDFs comuns são lidos por inteiro antes de
+            // abrir a entrada: corrompido, fica fora do ZIP. Acima do limite, o restante vai em stream após o início
+            // já escrito: corrompido, a entrada fica incompleta, é listada nos erros e não conta como incluída.
+            byte[] inicio;
+            try {
+                inicio = in.readNBytes(TAMANHO_MAXIMO_VERIFICADO_EXPORTACAO + 1);
+            } catch (BlobCorrompidoException e) {
+                registrarCorrompido(arquivo, nome, e, erros, "não incluído");
+                return false;
+            }
+            zip.putNextEntry(new ZipEntry(nome));
+            try {
+                zip.write(inicio);
+                if (inicio.length > TAMANHO_MAXIMO_VERIFICADO_EXPORTACAO) {
+                    in.transferTo(zip);
+                }
+            } catch (BlobCorrompidoException e) {
+                registrarCorrompido(arquivo, nome, e, erros, "entrada incompleta no ZIP");
+                return false;
+            } finally {
+                zip.closeEntry();
+            }
+        }
+        return true;
+    }
+
+    private static void registrarCorrompido(CndArquivoResumo arquivo, String nome, BlobCorrompidoException e,
+                                            List<String> erros, String desfecho) {
+        erros.add("CND ID " + arquivo.getId() + " (" + nome + "): " + desfecho + ": " + e.getMessage());
+        logger.error("PDF da CND ID {} corrompido no armazenamento ({}): {}", arquivo.getId(), desfecho, e.getMessage());
+    }
+
+    private InputStream abrirArquivo(CndArquivoResumo arquivo) throws IOException {
+        if (arquivo.getArquivoRef() != null) {
+            return blobStore.abrir(arquivo.getArquivoRef());
+        }
+        byte[] inline = cndResultadoArquivoRepository.findArquivoInline(arquivo.getId())
+                .orElseThrow(() -> new ResourceNotFoundException("Arquivo PDF não disponível"));
+        return new ByteArrayInputStream(inline);
     }
 
     @Transactional(readOnly = true)
     public CndResultadoDTO buscarCndResultadoPorId(Long id) {
-        CndResultado resultado = cndResultadoRepository.findById(id)
+        CndResultado resultado = cndResultadoRepository.findComClienteById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Resultado CND não encontrado para o ID: " + id));
         return new CndResultadoDTO(resultado);
     }
 
+    // Detalhe com o conteúdo do PDF em Base64: só quando pedido explicitamente (o download é a via preferida)
+    @Transactional(readOnly = true)
+    public CndResultadoDTO buscarCndResultadoComArquivo(Long id) {
+        CndResultado resultado = cndResultadoRepository.findComClienteById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Resultado CND não encontrado para o ID: " + id));
+        CndResultadoDTO dto = new CndResultadoDTO(resultado);
+        byte[] arquivo = lerArquivo(resultado);
+        if (arquivo != null && arquivo.length > 0) {
+            dto.setArquivo(Base64.getEncoder().encodeToString(arquivo));
+        }
+        return dto;
+    }
+
     @Transactional(readOnly = true)
     public CndResultado getCndResultadoEntityById(Long id) {
         return cndResultadoRepository.findById(id)
@@ -137,20 +533,20 @@ public class CndResultadoService {
 
     @Transactional
     public CndResultadoDTO atualizarCndResultado(Long id, CndResultadoDTO dto) {
-        CndResultado cndResultadoExistente = cndResultadoRepository.findById(id)
+        CndResultado cndResultadoExistente = cndResultadoRepository.findComClienteById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Resultado CND não encontrado para o ID: " + id));
 
         // Mapear DTO para Entidade, incluindo decodificação Base64 para byte[]
         if (dto.getDataProcessamento() != null) cndResultadoExistente.setDataProcessamento(dto.getDataProcessamento());
         if (dto.getArquivo() != null && !dto.getArquivo().isEmpty()) {
              try {
-                cndResultadoExistente.setArquivo(Base64.getDecoder().decode(dto.getArquivo()));
+                definirArquivo(cndResultadoExistente, Base64.getDecoder().decode(dto.getArquivo()));
             } catch (IllegalArgumentException e) {
                 logger.error("Erro ao decodificar Base64 do arquivo para CND ID {}: {}", id, e.getMessage());
                 throw new BadRequestException("Arquivo PDF (Base64) inválido.");
             }
         } else if (dto.getArquivo() != null && dto.getArquivo().isEmpty()) { // Permitir limpar o arquivo
-            cndResultadoExistente.setArquivo(null);
+            definirArquivo(cndResultadoExistente, null);
         }
 
         if (dto.getSituacao() != null) cndResultadoExistente.setSituacao(dto.getSituacao());
@@ -178,8 +574,10 @@ public class CndResultadoService {
         }
 
         CndResultado atualizado = cndResultadoRepository.save(cndResultadoExistente);
+        cacheDownloadPdf.invalidar(id);
         logger.info("Resultado CND com ID {} atualizado.", atualizado.getId());
-        return new CndResultadoDTO(atualizado); // DTO construtor agora precisa lidar com byte[] para String Base64
+        publicarSePendenteDeExtracao(atualizado);
+        return new CndResultadoDTO(atualizado);
     }
 
     @Transactional
@@ -188,20 +586,50 @@ public class CndResultadoService {
             throw new ResourceNotFoundException("Resultado CND não encontrado para o ID: " + id);
         }
         cndResultadoRepository.deleteById(id);
+        cacheDownloadPdf.invalidar(id);
         logger.info("Resultado CND com ID {} deletado.", id);
     }
 
-    @Transactional
-    public byte[] downloadPdf(Long id) {
-        CndResultado resultado = getCndResultadoEntityById(id);
-        if (resultado.getArquivo() == null || resultado.getArquivo().length == 0) {
+    /**
+     * Prepara o download do PDF de um resultado. PDFs baixados recentemente vêm do cache de downloads, sem
+     * consultar o banco (por isso o método não abre transação). Fora do cache, uma única consulta (resultado +
+     * cliente, para o nome padronizado); o conteúdo do BlobStore é lido quando a resposta é escrita, em stream,
+     * ou já aqui se o PDF for para o cache.
+     *
+     * @throws ResourceNotFoundException se o resultado não existir ou não tiver arquivo.
+     */
+    public ArquivoCndDownload prepararDownload(Long id) {
+        ArquivoCndDownload emCache = cacheDownloadPdf.buscar(id);
+        if (emCache != null) {
+            return emCache;
+        }
+        long geracaoCache = cacheDownloadPdf.geracao();
+        return cacheDownloadPdf.guardar(id, geracaoCache, carregarDownload(id));
+    }
+
+    private ArquivoCndDownload carregarDownload(Long id) {
+        CndResultado resultado = cndResultadoRepository.findComClienteById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Resultado CND não encontrado para o ID: " + id));
+        if (!resultado.possuiArquivo()) {
             throw new ResourceNotFoundException("Arquivo PDF não disponível para o resultado CND ID: " + id);
         }
+        String nomeArquivo = gerarNomeArquivoPadronizado(resultado);
         // Log de download (simples, pode ser mais elaborado)
         logger.info("Download solicitado para CND ID: {}, Cliente CNPJ: {}, Arquivo: {}",
-            id, resultado.getCliente().getCnpj(), gerarNomeArquivoPadronizado(resultado));
+            id, resultado.getCliente().getCnpj(), nomeArquivo);
 
-        return resultado.getArquivo(); // Retorna diretamente o byte[]
+        if (resultado.getArquivoRef() != null && resultado.getArquivoTamanho() != null) {
+            String ref = resultado.getArquivoRef();
+            return new ArquivoCndDownload(nomeArquivo, resultado.getArquivoTamanho(), resultado.getArquivoSha256(),
+                    () -> blobStore.abrir(ref));
+        }
+        // PDF legado, ainda na coluna inline: já vem inteiro do banco
+        byte[] arquivo = lerArquivo(resultado);
+        if (arquivo == null || arquivo.length == 0) {
+            throw new ResourceNotFoundException("Arquivo PDF não disponível para o resultado CND ID: " + id);
+        }
+        String sha256 = resultado.getArquivoSha256() != null ? resultado.getArquivoSha256() : DigestArquivo.sha256Hex(arquivo);
+        return new ArquivoCndDownload(nomeArquivo, arquivo.length, sha256, () -> new ByteArrayInputStream(arquivo));
     }
 
     public String gerarNomeArquivoPadronizado(CndResultado resultado) {
@@ -229,7 +657,7 @@ public class CndResultadoService {
                 default:
                     // Tenta extrair do orgaoEmissor se tipoCertidao não for padrão
                     if (resultado.getOrgaoEmissor() != null && !resultado.getOrgaoEmissor().isEmpty()) {
-                        siglaOrgao = resultado.getOrgaoEmissor().replaceAll("[^a-zA-Z0-9]", "").substring(0, Math.min(resultado.getOrgaoEmissor().length(), 10));
+                        siglaOrgao = siglaDoOrgaoEmissor(resultado.getOrgaoEmissor());
                     } else {
                         siglaOrgao = "OUTRO";
                     }
@@ -237,7 +665,7 @@ public class CndResultadoService {
             }
         } else if (resultado.getOrgaoEmissor() != null && !resultado.getOrgaoEmissor().isEmpty()) {
              // Se tipoCertidao for nulo, tenta usar orgaoEmissor
-            siglaOrgao = resultado.getOrgaoEmissor().replaceAll("[^a-zA-Z0-9]", "").substring(0, Math.min(resultado.getOrgaoEmissor().length(), 10));
+            siglaOrgao = siglaDoOrgaoEmissor(resultado.getOrgaoEmissor());
         } else {
             siglaOrgao = "IND"; // Indefinido
         }
@@ -251,6 +679,13 @@ public class CndResultadoService {
         return String.format("CND_%s_%s_%s.pdf", cnpj, siglaOrgao.toUpperCase(), dataEmissaoStr);
     }
 
+    private String siglaDoOrgaoEmissor(String orgaoEmissor) {
+        // Mantém apenas caracteres seguros para nome de arquivo (o hífen é preservado, ex: SEFAZ-RJ) e limita a 10 caracteres.
+        // O limite é aplicado sobre o texto já filtrado, evitando StringIndexOutOfBoundsException.
+        String sigla = orgaoEmissor.replaceAll("[^a-zA-Z0-9-]", "");
+        return sigla.substring(0, Math.min(sigla.length(), 10));
+    }
+
 
     // private void mapDtoToEntity(CndResultadoDTO dto, CndResultado entity) { // Removido pois o mapeamento agora é inline
     // // Não mapear ID aqui, pois ele já existe ou será gerado
@@ -267,18 +702,159 @@ public class CndResultadoService {
     // }
 
     // Para PEC-4963
+    /**
+     * Reivindica para o nó {@code dono} um lote do backlog de extração (statusProcessamento = CONSULTA_REALIZADA
+     * e situacao nula), incluindo registros cujo lease venceu. Linhas travadas por outro nó são puladas
+     * (FOR UPDATE SKIP LOCKED), então nós concorrentes nunca recebem o mesmo registro.
+     *
+     * @param dono Identificador do nó.
+     * @param limite Tamanho máximo do lote.
+     * @param duracaoLease Validade da reivindicação; vencida, o registro volta a ficar disponível.
+     * @return IDs reivindicados, em ordem crescente.
+     */
+    @Transactional
+    public List<Long> reivindicarParaExtracao(String dono, int limite, Duration duracaoLease) {
+        LocalDateTime agora = LocalDateTime.now();
+        List<Long> ids = cndResultadoRepository.travarIdsLivresParaExtracao(STATUS_CONSULTA_REALIZADA, agora, PageRequest.of(0, limite));
+        if (!ids.isEmpty()) {
+            cndResultadoRepository.atribuirLease(ids, dono, agora.plus(duracaoLease));
+            logger.debug("{} resultados reivindicados para extração pelo nó {}.", ids.size(), dono);
+        }
+        return ids;
+    }
+
+    /**
+     * Reivindica um único resultado do backlog de extração, usado pela extração disparada por evento.
+     * O UPDATE condicional é atômico: se outro nó (ou a varredura) já tem um lease válido sobre o item,
+     * ou se ele já foi processado, nada é alterado.
+     *
+     * @return true se o lease foi atribuído a {@code dono}.
+     */
+    @Transactional
+    public boolean reivindicarResultadoParaExtracao(Long id, String dono, Duration duracaoLease) {
+        LocalDateTime agora = LocalDateTime.now();
+        return cndResultadoRepository.atribuirLeaseSeLivre(id, STATUS_CONSULTA_REALIZADA, dono, agora, agora.plus(duracaoLease)) > 0;
+    }
+
+    /**
+     * Carrega um item do backlog reivindicado por {@code dono} para processá-lo na transação corrente. Vazio se foi
+     * removido ou se o lease venceu ou passou a outro nó nesse meio tempo. Com o lease confirmado, a linha fica
+     * travada até o fim da transação: nenhum outro nó processa o mesmo item em paralelo.
+     */
+    @Transactional
+    public Optional<CndResultado> findResultadoParaExtracao(Long id, String dono) {
+        if (cndResultadoRepository.confirmarLease(id, dono, LocalDateTime.now()) == 0) {
+            return Optional.empty();
+        }
+        return cndResultadoRepository.findById(id);
+    }
+
+    // Tamanho do backlog de extração (mesmo critério de findResultadosParaExtracao)
     @Transactional(readOnly = true)
-    public List<CndResultado> findResultadosParaExtracao() {
-        // "concluido" aqui se refere ao status da consulta inicial da CND, antes da extração.
-        // Usaremos o campo 'statusProcessamento' que criei.
-        // Se a consulta inicial já preenche alguns dados e marca como "CONCLUIDO_CONSULTA",
-        // e a extração é uma etapa posterior, o status inicial poderia ser algo como "PENDENTE_EXTRACAO_DADOS".
-        // Vamos assumir que PEC-4869 (consulta) salva com statusProcessamento "CONSULTA_CONCLUIDA" ou similar
-        // e PEC-4963 busca por esse status e situacao IS NULL.
-        // Por enquanto, vou usar um status genérico "PENDENTE_EXTRACAO" como exemplo.
-        // A lógica exata do fluxo de status precisa ser refinada.
-        // A PEC-4963 diz "status = 'concluido' e situacao IS NULL"
-        // Vamos assumir que "concluido" se refere a um statusProcessamento específico.
-        return cndResultadoRepository.findByStatusProcessamentoAndSituacaoIsNull("CONSULTA_REALIZADA");
+    public long contarResultadosParaExtracao() {
+        return cndResultadoRepository.countByStatusProcessamentoAndSituacaoIsNull(STATUS_CONSULTA_REALIZADA);
+    }
+
+    // IDs com PDF ainda na coluna legada, em ordem, após aposId: lotes da migração para o BlobStore
+    @Transactional(readOnly = true)
+    public List<Long> idsComArquivoInline(Long aposId, int limite) {
+        return cndResultadoArquivoRepository.findIdsComArquivoInline(aposId, PageRequest.of(0, limite));
+    }
+
+    @Transactional(readOnly = true)
+    public long contarArquivosInline() {
+        return cndResultadoArquivoRepository.countComArquivoInline();
+    }
+
+    /**
+     * Move o PDF da coluna legada de um resultado para o BlobStore, na transação de um único item.
+     * Se o resultado já tiver recebido um arquivo novo no BlobStore, o conteúdo legado só é descartado.
+     *
+     * @return Tamanho do arquivo migrado em bytes, ou 0 se o resultado não tinha mais arquivo inline.
+     */
+    @Transactional
+    public long migrarArquivoInline(Long id) {
+        Optional<byte[]> arquivo = cndResultadoArquivoRepository.findArquivoInline(id);
+        if (!arquivo.isPresent()) {
+            return 0; // Migrado por outro nó nesse meio tempo
+        }
+        try {
+            BlobArmazenado blob = blobStore.gravar(arquivo.get());
+            cndResultadoRepository.atribuirArquivoSeAusente(id, blob.getRef(), blob.getTamanho(), blob.getSha256(), blob.getCodecId());
+            cndResultadoArquivoRepository.limparArquivoInline(id);
+            return blob.getTamanho();
+        } catch (IOException e) {
+            throw new ArmazenamentoArquivoException("Falha ao migrar o arquivo PDF da CND ID " + id + ": " + e.getMessage(), e);
+        }
+    }
+
+    // IDs com blob cuja compressão ainda não foi avaliada, em ordem, após aposId: lotes da recompressão
+    @Transactional(readOnly = true)
+    public List<Long> idsComArquivoSemCodec(Long aposId, int limite) {
+        return cndResultadoRepository.findIdsComArquivoSemCodec(aposId, PageRequest.of(0, limite));
+    }
+
+    @Transactional(readOnly = true)
+    public long contarArquivosSemCodec() {
+        return cndResultadoRepository.countByArquivoRefIsNotNullAndArquivoCodecIsNull();
+    }
+
+    /**
+     * Aplica ao blob de um resultado o codec de compressão configurado (ver {@link BlobStore#recomprimir}) e
+     * registra como ele ficou gravado em todos os resultados que o compartilham. O conteúdo lido depois
+     * (download, extração, exportação) é byte a byte o mesmo.
+     *
+     * @return O blob como ficou gravado, ou null se o resultado não tinha mais blob pendente.
+     */
+    @Transactional
+    public BlobArmazenado recomprimirArquivo(Long id) {
+        Optional<String> ref = cndResultadoRepository.findArquivoRefSemCodec(id);
+        if (!ref.isPresent()) {
+            return null; // Avaliado por outro nó (ou por outro resultado com o mesmo blob) nesse meio tempo
+        }
+        try {
+            BlobArmazenado blob = blobStore.recomprimir(ref.get());
+            if (blob != null && blob.getCodec() != null) {
+                cndResultadoRepository.atribuirCodec(ref.get(), blob.getCodecId());
+            }
+            return blob;
+        } catch (IOException e) {
+            throw new ArmazenamentoArquivoException("Falha ao recomprimir o arquivo PDF da CND ID " + id + ": " + e.getMessage(), e);
+        }
+    }
+
+    // IDs de resultados vencidos antes de vencidosAntesDe com blob na camada quente, em ordem, após aposId
+    @Transactional(readOnly = true)
+    public List<Long> idsParaArquivamento(LocalDate vencidosAntesDe, Long aposId, int limite) {
+        return cndResultadoRepository.findIdsParaArquivamento(vencidosAntesDe, aposId, PageRequest.of(0, limite));
+    }
+
+    @Transactional(readOnly = true)
+    public long contarParaArquivamento(LocalDate vencidosAntesDe) {
+        return cndResultadoRepository.countParaArquivamento(vencidosAntesDe);
+    }
+
+    /**
+     * Move para o arquivo morto o blob de um resultado vencido, se nenhum outro resultado ainda em uso
+     * (válido ou vencido depois de vencidosAntesDe) tiver o mesmo PDF, e marca todos os resultados que o
+     * compartilham. O download continua igual: o BlobStore procura o blob nas duas camadas.
+     *
+     * @return true se o blob foi arquivado.
+     */
+    @Transactional
+    public boolean arquivarArquivo(Long id, LocalDate vencidosAntesDe) {
+        Optional<String> ref = cndResultadoRepository.findArquivoRefNaoArquivado(id);
+        if (!ref.isPresent() || cndResultadoRepository.existsEmUsoComArquivoRef(ref.get(), vencidosAntesDe)) {
+            return false;
+        }
+        try {
+            if (!blobStore.arquivar(ref.get())) {
+                return false;
+            }
+        } catch (IOException e) {
+            throw new ArmazenamentoArquivoException("Falha ao arquivar o arquivo PDF da CND ID " + id + ": " + e.getMessage(), e);
+        }
+        cndResultadoRepository.marcarArquivado(ref.get());
+        return true;
     }
 }
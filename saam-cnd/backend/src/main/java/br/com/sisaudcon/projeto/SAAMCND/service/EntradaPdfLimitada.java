@@ -0,0 +1,78 @@
+package br.com.sisaudcon.projeto.SAAMCND.service;
+
+import br.com.sisaudcon.projeto.SAAMCND.exception.ArquivoExcedeLimiteException;
+import br.com.sisaudcon.projeto.SAAMCND.exception.BadRequestException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Validação do PDF enviado enquanto ele é lido (a caminho do BlobStore), sem acumular o conteúdo:
+ * o arquivo precisa começar com o cabeçalho "%PDF-" e não pode passar do tamanho máximo. A leitura é
+ * interrompida no primeiro byte além do limite.
+ */
+class EntradaPdfLimitada extends FilterInputStream {
+
+    private static final byte[] CABECALHO_PDF = "%PDF-".getBytes(StandardCharsets.US_ASCII);
+
+    private final long tamanhoMaximo;
+    private long lidos;
+
+    EntradaPdfLimitada(InputStream in, long tamanhoMaximo) {
+        super(in);
+        this.tamanhoMaximo = tamanhoMaximo;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            conferir(new byte[]{(byte) b}, 0, 1);
+        } else {
+            conferirFim();
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            conferir(b, off, n);
+        } else if (n == -1) {
+            conferirFim();
+        }
+        return n;
+    }
+
+    // skip passaria por fora das conferências; o conteúdo é sempre lido por inteiro
+    @Override
+    public long skip(long n) {
+        return 0;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void conferir(byte[] b, int off, int n) {
+        for (int i = 0; i < n && lidos + i < CABECALHO_PDF.length; i++) {
+            if (b[off + i] != CABECALHO_PDF[(int) lidos + i]) {
+                throw new BadRequestException("O arquivo enviado não é um PDF.");
+            }
+        }
+        lidos += n;
+        if (lidos > tamanhoMaximo) {
+            throw new ArquivoExcedeLimiteException("Arquivo PDF excede o tamanho máximo de " + tamanhoMaximo + " bytes.");
+        }
+    }
+
+    private void conferirFim() {
+        if (lidos < CABECALHO_PDF.length) {
+            throw new BadRequestException("O arquivo enviado não é um PDF.");
+        }
+    }
+}
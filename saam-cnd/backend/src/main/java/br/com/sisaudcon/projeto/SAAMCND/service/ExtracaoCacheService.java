@@ -0,0 +1,59 @@
+package br.com.sisaudcon.projeto.SAAMCND.service;
+
+import br.com.sisaudcon.projeto.SAAMCND.extracao.DadosExtraidos;
+import br.com.sisaudcon.projeto.SAAMCND.model.CndExtracaoCache;
+import br.com.sisaudcon.projeto.SAAMCND.repository.CndExtracaoCacheRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
+
+/**
+ * Cache persistente dos dados extraídos dos PDFs, por SHA-256 do arquivo + versão do extrator.
+ * Compartilhado entre os nós e preservado entre reinícios: as consultas periódicas do mesmo CNPJ
+ * costumam devolver PDFs idênticos.
+ */
+@Service
+public class ExtracaoCacheService {
+
+    private final CndExtracaoCacheRepository cndExtracaoCacheRepository;
+
+    @Autowired
+    public ExtracaoCacheService(CndExtracaoCacheRepository cndExtracaoCacheRepository) {
+        this.cndExtracaoCacheRepository = cndExtracaoCacheRepository;
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<DadosExtraidos> buscar(String arquivoSha256, String versaoExtrator) {
+        return cndExtracaoCacheRepository.findByArquivoSha256AndVersaoExtrator(arquivoSha256, versaoExtrator)
+                .map(entrada -> {
+                    DadosExtraidos dados = new DadosExtraidos();
+                    dados.setSituacao(entrada.getSituacao());
+                    dados.setDataEmissao(entrada.getDataEmissao());
+                    dados.setDataValidade(entrada.getDataValidade());
+                    dados.setCodigoControle(entrada.getCodigoControle());
+                    return dados;
+                });
+    }
+
+    /**
+     * Grava a extração em transação própria: se outro worker gravou o mesmo PDF ao mesmo tempo, a violação
+     * da chave única desfaz só esta gravação (quem chama trata a exceção), não a extração do item.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void guardar(String arquivoSha256, String versaoExtrator, DadosExtraidos dados) {
+        if (cndExtracaoCacheRepository.findByArquivoSha256AndVersaoExtrator(arquivoSha256, versaoExtrator).isPresent()) {
+            return;
+        }
+        CndExtracaoCache entrada = new CndExtracaoCache();
+        entrada.setArquivoSha256(arquivoSha256);
+        entrada.setVersaoExtrator(versaoExtrator);
+        entrada.setSituacao(dados.getSituacao());
+        entrada.setDataEmissao(dados.getDataEmissao());
+        entrada.setDataValidade(dados.getDataValidade());
+        entrada.setCodigoControle(dados.getCodigoControle());
+        cndExtracaoCacheRepository.save(entrada);
+    }
+}
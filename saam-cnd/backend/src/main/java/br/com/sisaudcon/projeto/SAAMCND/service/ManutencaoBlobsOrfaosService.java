@@ -0,0 +1,134 @@
+package br.com.sisaudcon.projeto.SAAMCND.service;
+
+import br.com.sisaudcon.projeto.SAAMCND.armazenamento.FileSystemBlobStore;
+import br.com.sisaudcon.projeto.SAAMCND.armazenamento.SegmentosArquivoMorto;
+import br.com.sisaudcon.projeto.SAAMCND.repository.CndResultadoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Limpeza dos blobs órfãos: os blobs são endereçados pelo conteúdo e nada conta as referências, então excluir um
+ * resultado, trocar o seu arquivo, um rollback depois da gravação ou um upload recusado deixam para trás blobs que
+ * nenhum cnd_resultado.arquivo_ref aponta. Na camada quente, um blob sem referência e sem modificação há mais
+ * que a carência é removido (a carência cobre as gravações cuja transação ainda não terminou). No arquivo morto
+ * os órfãos só são contados: os segmentos só recebem acréscimos e não há como tirar um blob deles.
+ */
+@Service
+public class ManutencaoBlobsOrfaosService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ManutencaoBlobsOrfaosService.class);
+
+    private final FileSystemBlobStore camadaQuente;
+    private final SegmentosArquivoMorto arquivoMorto;
+    private final CndResultadoRepository cndResultadoRepository;
+
+    @Autowired
+    public ManutencaoBlobsOrfaosService(FileSystemBlobStore camadaQuente,
+                                        SegmentosArquivoMorto arquivoMorto,
+                                        CndResultadoRepository cndResultadoRepository) {
+        this.camadaQuente = camadaQuente;
+        this.arquivoMorto = arquivoMorto;
+        this.cndResultadoRepository = cndResultadoRepository;
+    }
+
+    // Candidatos da camada quente: blobs não modificados desde o limite (o stream precisa ser fechado)
+    public Stream<String> candidatosCamadaQuente(Instant limite) {
+        try {
+            return camadaQuente.refsModificadasAntesDe(limite);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível percorrer os blobs da camada quente.", e);
+        }
+    }
+
+    /**
+     * Um lote de candidatos da camada quente: os que não pertencem a nenhum resultado e continuam sem
+     * modificação desde o limite têm o tamanho somado e, fora do modo simulação, são removidos. Uma falha
+     * num blob é registrada e ele fica para a próxima execução.
+     */
+    public LoteBlobs limparOrfaosCamadaQuente(Collection<String> candidatos, Instant limite, boolean simulacao) {
+        Set<String> refs = new LinkedHashSet<>(candidatos);
+        if (refs.isEmpty()) {
+            return new LoteBlobs(0, 0);
+        }
+        Set<String> emUso = new HashSet<>(cndResultadoRepository.findArquivoRefsEmUso(refs));
+        int quantidade = 0;
+        long bytes = 0;
+        for (String ref : refs) {
+            if (emUso.contains(ref)) {
+                continue;
+            }
+            try {
+                long tamanho = simulacao
+                        ? camadaQuente.tamanhoSeModificadoAntesDe(ref, limite)
+                        : camadaQuente.removerSeModificadoAntesDe(ref, limite);
+                if (tamanho >= 0) {
+                    quantidade++;
+                    bytes += tamanho;
+                }
+            } catch (IOException e) {
+                logger.warn("Falha ao remover o blob órfão {}: {}", ref, e.getMessage());
+            }
+        }
+        return new LoteBlobs(quantidade, bytes);
+    }
+
+    // Blobs do arquivo morto que nenhum resultado referencia mais (só contados), consultados em lotes
+    public LoteBlobs contarOrfaosArquivoMorto(int tamanhoLote) {
+        Map<String, Long> arquivadas;
+        try {
+            arquivadas = arquivoMorto.refsArquivadas();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Não foi possível ler os índices do arquivo morto.", e);
+        }
+        int quantidade = 0;
+        long bytes = 0;
+        List<String> refs = new ArrayList<>(arquivadas.keySet());
+        for (int inicio = 0; inicio < refs.size(); inicio += tamanhoLote) {
+            List<String> lote = refs.subList(inicio, Math.min(inicio + tamanhoLote, refs.size()));
+            Set<String> emUso = new HashSet<>(cndResultadoRepository.findArquivoRefsEmUso(lote));
+            for (String ref : lote) {
+                if (!emUso.contains(ref)) {
+                    quantidade++;
+                    bytes += arquivadas.get(ref);
+                }
+            }
+        }
+        return new LoteBlobs(quantidade, bytes);
+    }
+
+    /**
+     * Resultado de um lote da limpeza: quantidade de blobs órfãos e a soma dos seus tamanhos em disco.
+     */
+    public static final class LoteBlobs {
+
+        private final int quantidade;
+        private final long bytes;
+
+        public LoteBlobs(int quantidade, long bytes) {
+            this.quantidade = quantidade;
+            this.bytes = bytes;
+        }
+
+        public int getQuantidade() {
+            return quantidade;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+    }
+}
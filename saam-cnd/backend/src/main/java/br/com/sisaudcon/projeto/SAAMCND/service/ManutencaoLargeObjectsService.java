@@ -0,0 +1,114 @@
+package br.com.sisaudcon.projeto.SAAMCND.service;
+
+import br.com.sisaudcon.projeto.SAAMCND.repository.CndResultadoArquivoRepository;
+import br.com.sisaudcon.projeto.SAAMCND.repository.LargeObjectRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Manutenção dos large objects da coluna legada cnd_resultado.arquivo (PostgreSQL). Limpar o PDF inline
+ * (migração para o BlobStore, troca do arquivo) ou excluir o resultado deixa o large object em pg_largeobject,
+ * que cresceria sem limite. Os órfãos são encontrados e removidos (lo_unlink) em lotes, cada lote na sua
+ * transação; o espaço volta a ser reutilizável no próximo VACUUM (autovacuum) de pg_largeobject.
+ * Como nada mais grava large objects na coluna, um órfão nunca volta a ser referenciado.
+ */
+@Service
+public class ManutencaoLargeObjectsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ManutencaoLargeObjectsService.class);
+
+    private final LargeObjectRepository largeObjectRepository;
+    private final CndResultadoArquivoRepository cndResultadoArquivoRepository;
+    private volatile Boolean postgresql;
+
+    @Autowired
+    public ManutencaoLargeObjectsService(LargeObjectRepository largeObjectRepository,
+                                         CndResultadoArquivoRepository cndResultadoArquivoRepository) {
+        this.largeObjectRepository = largeObjectRepository;
+        this.cndResultadoArquivoRepository = cndResultadoArquivoRepository;
+    }
+
+    // Large objects só existem no PostgreSQL (no H2 dos testes a manutenção não faz nada)
+    public boolean disponivel() {
+        if (postgresql == null) {
+            postgresql = largeObjectRepository.postgresql();
+        }
+        return postgresql;
+    }
+
+    /**
+     * Um lote de large objects órfãos após aposOid: soma o tamanho de cada um e, fora do modo simulação,
+     * remove-os.
+     */
+    @Transactional
+    public LoteLargeObjects limparOrfaos(long aposOid, int limite, boolean simulacao) {
+        boolean colunaOid = "oid".equalsIgnoreCase(largeObjectRepository.tipoColunaArquivo());
+        List<Long> orfaos = largeObjectRepository.findOrfaos(aposOid, limite, colunaOid);
+        long bytes = 0;
+        for (Long oid : orfaos) {
+            bytes += largeObjectRepository.tamanho(oid);
+            if (!simulacao) {
+                largeObjectRepository.unlink(oid);
+            }
+        }
+        long ultimoOid = orfaos.isEmpty() ? aposOid : orfaos.get(orfaos.size() - 1);
+        return new LoteLargeObjects(ultimoOid, orfaos.size(), bytes);
+    }
+
+    /**
+     * Converte a coluna legada de oid (large objects) para bytea, para que ela nunca mais crie large objects.
+     * Só é feita com a coluna já esvaziada pela migração para o BlobStore: o mapeamento @Lob de
+     * CndResultadoArquivo lê oid, e com a coluna vazia ele só encontra nulos. Os large objects que a coluna
+     * referenciava viram órfãos e saem na limpeza seguinte.
+     *
+     * @return true se a coluna foi convertida agora.
+     */
+    @Transactional
+    public boolean converterColunaParaBytea() {
+        if (!"oid".equalsIgnoreCase(largeObjectRepository.tipoColunaArquivo())) {
+            return false;
+        }
+        long pendentes = cndResultadoArquivoRepository.countComArquivoInline();
+        if (pendentes > 0) {
+            logger.info("Conversão da coluna cnd_resultado.arquivo para bytea adiada: {} PDFs ainda aguardam a migração para o BlobStore.", pendentes);
+            return false;
+        }
+        largeObjectRepository.converterColunaArquivoParaBytea();
+        logger.info("Coluna cnd_resultado.arquivo convertida de oid (large objects) para bytea.");
+        return true;
+    }
+
+    /**
+     * Resultado de um lote da limpeza: último oid visto (continuação da varredura), quantidade de órfãos
+     * e a soma dos seus tamanhos.
+     */
+    public static final class LoteLargeObjects {
+
+        private final long ultimoOid;
+        private final int quantidade;
+        private final long bytes;
+
+        public LoteLargeObjects(long ultimoOid, int quantidade, long bytes) {
+            this.ultimoOid = ultimoOid;
+            this.quantidade = quantidade;
+            this.bytes = bytes;
+        }
+
+        public long getUltimoOid() {
+            return ultimoOid;
+        }
+
+        public int getQuantidade() {
+            return quantidade;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package br.com.sisaudcon.projeto.SAAMCND.service;
+
+/**
+ * Publicado quando um CndResultado é gravado aguardando a extração do PDF (CONSULTA_REALIZADA e
+ * situação nula). Consumido após o commit pela extração (PEC-4963), que coloca o item direto na fila
+ * de workers em vez de esperar a próxima varredura agendada.
+ */
+public class ResultadoPendenteExtracaoEvent {
+
+    private final Long idResultado;
+
+    public ResultadoPendenteExtracaoEvent(Long idResultado) {
+        this.idResultado = idResultado;
+    }
+
+    public Long getIdResultado() {
+        return idResultado;
+    }
+}
@@ -1,5 +1,6 @@
 package br.com.sisaudcon.projeto.SAAMCND.service;
 
+import br.com.sisaudcon.projeto.SAAMCND.config.HttpClientPools;
 import br.com.sisaudcon.projeto.SAAMCND.exception.ClienteNaoAutorizadoException;
 import br.com.sisaudcon.projeto.SAAMCND.exception.ServicoExternoException;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -7,7 +8,6 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
@@ -25,15 +25,17 @@ public class SaamCrValidationService {
 
     private static final Logger logger = LoggerFactory.getLogger(SaamCrValidationService.class);
 
+    static final String DESTINO_HTTP = "saam-cr"; // Pool HTTP dedicado (saam.http-client.destinos.saam-cr.*)
+
     private final RestTemplate restTemplate;
     private final String saamCrValidationBaseUrl; // Renomeado para indicar que é a base
     private final ObjectMapper objectMapper;
     private final boolean mockSaamCrValidation; // Para controle do mock
 
-    public SaamCrValidationService(RestTemplateBuilder restTemplateBuilder,
+    public SaamCrValidationService(HttpClientPools httpClientPools,
                                    @Value("${saam.cr.validation.url}") String saamCrUrl,
                                    @Value("${saam.cr.validation.mock:false}") boolean mockValidation) { // Novo valor para mock
-        this.restTemplate = restTemplateBuilder.build();
+        this.restTemplate = httpClientPools.restTemplate(DESTINO_HTTP); // Pool com keep-alive e timeouts de conexão/leitura
         this.saamCrValidationBaseUrl = saamCrUrl; // URL base da propriedade
         this.objectMapper = new ObjectMapper();
         this.mockSaamCrValidation = mockValidation;
@@ -105,7 +107,7 @@ public class SaamCrValidationService {
                 logger.error("Erro ao validar cliente {} no SAAM-CR. Status: {}, Body: {}", idCliente, response.getStatusCode(), response.getBody());
                 throw new ServicoExternoException("Serviço de validação SAAM-CR retornou status inesperado: " + response.getStatusCode());
             }
-        } catch (ClienteNaoAutorizadoException e) { // Deixar ClienteNaoAutorizadoException propagar
+        } catch (ClienteNaoAutorizadoException | ServicoExternoException e) { // Deixar exceções já tratadas propagarem sem re-embrulhar
             throw e;
         } catch (HttpClientErrorException | HttpServerErrorException e) {
             logger.error("Erro HTTP ao conectar com SAAM-CR para cliente {}: {} - {}", idCliente, e.getStatusCode(), e.getResponseBodyAsString(), e);
@@ -0,0 +1,67 @@
+package br.com.sisaudcon.projeto.SAAMCND.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Coalesce chamadas concorrentes com a mesma chave: enquanto uma chamada está em andamento,
+ * as demais threads aguardam e recebem o mesmo resultado (inclusive a mesma exceção),
+ * em vez de disparar uma nova chamada externa.
+ *
+ * @param <K> Tipo da chave (ex: X-ID-CLIENTE).
+ * @param <V> Tipo do resultado compartilhado.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> emAndamento = new ConcurrentHashMap<>();
+    private final LongAdder chamadasCoalescidas = new LongAdder();
+
+    public V executar(K chave, Supplier<V> chamada) {
+        CompletableFuture<V> nova = new CompletableFuture<>();
+        CompletableFuture<V> existente = emAndamento.putIfAbsent(chave, nova);
+        if (existente != null) {
+            chamadasCoalescidas.increment();
+            return aguardar(existente);
+        }
+
+        try {
+            V valor = chamada.get();
+            nova.complete(valor);
+            return valor;
+        } catch (RuntimeException | Error e) {
+            nova.completeExceptionally(e);
+            throw e;
+        } finally {
+            emAndamento.remove(chave, nova);
+        }
+    }
+
+    private V aguardar(CompletableFuture<V> futuro) {
+        try {
+            return futuro.join();
+        } catch (CompletionException e) {
+            Throwable causa = e.getCause();
+            if (causa instanceof RuntimeException) {
+                throw (RuntimeException) causa;
+            }
+            if (causa instanceof Error) {
+                throw (Error) causa;
+            }
+            throw e;
+        }
+    }
+
+    /** Total de chamadas que aguardaram uma chamada já em andamento em vez de executar a sua própria. */
+    public long getChamadasCoalescidas() {
+        return chamadasCoalescidas.sum();
+    }
+
+    /** Número de chaves com chamada em andamento neste momento. */
+    public int getChamadasEmAndamento() {
+        return emAndamento.size();
+    }
+}
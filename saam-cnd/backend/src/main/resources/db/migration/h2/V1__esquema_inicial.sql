@@ -0,0 +1,51 @@
+-- Esquema inicial para o H2 dos testes; mesmas tabelas de db/migration/postgresql/V1__esquema_inicial.sql
+
+CREATE TABLE cnd_empresa (
+    id bigint NOT NULL,
+    cnpj varchar(18) NOT NULL,
+    data_atualizacao timestamp,
+    data_cadastro timestamp,
+    linha varchar(255),
+    nome_empresa varchar(255),
+    status_empresa varchar(50),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_cnd_empresa_cnpj UNIQUE (cnpj)
+);
+
+CREATE TABLE cnd_cliente (
+    id bigint GENERATED BY DEFAULT AS IDENTITY,
+    cnpj varchar(18) NOT NULL,
+    data_atualizacao timestamp,
+    data_cadastro timestamp,
+    estadual boolean NOT NULL,
+    linha varchar(255),
+    municipal boolean NOT NULL,
+    nacional boolean NOT NULL,
+    nome varchar(255) NOT NULL,
+    periodicidade integer NOT NULL,
+    status_cliente varchar(50) NOT NULL,
+    fk_empresa bigint NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_cnd_cliente_empresa FOREIGN KEY (fk_empresa) REFERENCES cnd_empresa
+);
+
+CREATE TABLE cnd_resultado (
+    id bigint GENERATED BY DEFAULT AS IDENTITY,
+    codigo_controle varchar(100),
+    data_atualizacao timestamp,
+    data_cadastro timestamp,
+    data_emissao date,
+    data_processamento timestamp,
+    data_validade date,
+    linha varchar(255),
+    mensagem_erro_processamento varchar(500),
+    observacoes varchar(1000),
+    orgao_emissor varchar(100),
+    situacao varchar(100),
+    status_processamento varchar(50),
+    tipo_certidao varchar(50),
+    arquivo blob,
+    fk_cliente bigint NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT fk_cnd_resultado_cliente FOREIGN KEY (fk_cliente) REFERENCES cnd_cliente
+);
@@ -0,0 +1,22 @@
+-- Colunas e tabela de db/migration/postgresql/V2__armazenamento_e_extracao.sql para o H2 dos testes.
+
+ALTER TABLE cnd_resultado ADD COLUMN IF NOT EXISTS arquivo_ref varchar(100);
+ALTER TABLE cnd_resultado ADD COLUMN IF NOT EXISTS arquivo_tamanho bigint;
+ALTER TABLE cnd_resultado ADD COLUMN IF NOT EXISTS arquivo_sha256 varchar(64);
+ALTER TABLE cnd_resultado ADD COLUMN IF NOT EXISTS arquivo_codec varchar(20);
+ALTER TABLE cnd_resultado ADD COLUMN IF NOT EXISTS arquivo_arquivado boolean;
+ALTER TABLE cnd_resultado ADD COLUMN IF NOT EXISTS lease_dono varchar(100);
+ALTER TABLE cnd_resultado ADD COLUMN IF NOT EXISTS lease_expira_em timestamp;
+
+CREATE TABLE IF NOT EXISTS cnd_extracao_cache (
+    id bigint GENERATED BY DEFAULT AS IDENTITY,
+    arquivo_sha256 varchar(64) NOT NULL,
+    codigo_controle varchar(100),
+    data_cadastro timestamp,
+    data_emissao date,
+    data_validade date,
+    situacao varchar(100),
+    versao_extrator varchar(100) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_cnd_extracao_cache_digest_versao UNIQUE (arquivo_sha256, versao_extrator)
+);
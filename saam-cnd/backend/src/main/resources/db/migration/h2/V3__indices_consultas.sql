@@ -0,0 +1,13 @@
+-- Índices de db/migration/postgresql/V3__indices_consultas.sql para o H2 dos testes. O H2 não tem índice
+-- parcial: os parciais viram índices compostos com as colunas da condição à frente.
+
+CREATE INDEX idx_cnd_resultado_processamento ON cnd_resultado (data_processamento DESC, id DESC);
+CREATE INDEX idx_cnd_resultado_cliente_processamento ON cnd_resultado (fk_cliente, data_processamento DESC, id DESC);
+CREATE INDEX idx_cnd_resultado_status_processamento ON cnd_resultado (status_processamento, data_processamento DESC, id DESC);
+CREATE INDEX idx_cnd_resultado_data_emissao ON cnd_resultado (data_emissao);
+CREATE INDEX idx_cnd_resultado_pendentes_extracao ON cnd_resultado (status_processamento, situacao, id);
+CREATE INDEX idx_cnd_resultado_arquivo_ref ON cnd_resultado (arquivo_ref);
+CREATE INDEX idx_cnd_resultado_sem_codec ON cnd_resultado (arquivo_codec, arquivo_ref, id);
+CREATE INDEX idx_cnd_resultado_para_arquivamento ON cnd_resultado (arquivo_arquivado, data_validade, id);
+CREATE INDEX idx_cnd_cliente_empresa ON cnd_cliente (fk_empresa);
+CREATE INDEX idx_cnd_cliente_cnpj ON cnd_cliente (cnpj, fk_empresa);
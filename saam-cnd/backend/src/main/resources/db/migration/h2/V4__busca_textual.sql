@@ -0,0 +1,3 @@
+-- cnd_normalizar_busca do PostgreSQL (db/migration/postgresql/V4__busca_textual.sql) em Java. O H2 não tem
+-- índice de trigramas (V5 não existe aqui): a busca por trecho percorre a tabela, o que basta nos testes.
+CREATE ALIAS cnd_normalizar_busca DETERMINISTIC FOR 'br.com.sisaudcon.projeto.SAAMCND.repository.BuscaTextual.normalizar';
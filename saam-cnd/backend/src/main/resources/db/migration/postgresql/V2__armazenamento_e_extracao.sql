@@ -0,0 +1,25 @@
+-- Colunas e tabela que vieram depois do esquema inicial: referência ao blob do PDF (BlobStore), codec e
+-- arquivamento, lease da extração e o cache de extração por conteúdo. Um banco marcado em V1 não as tem; um que
+-- o Hibernate (ddl-auto=update) atualizou nesse meio tempo já pode ter parte delas. IF NOT EXISTS: vale para os dois.
+
+ALTER TABLE cnd_resultado
+    ADD COLUMN IF NOT EXISTS arquivo_ref varchar(100),
+    ADD COLUMN IF NOT EXISTS arquivo_tamanho int8,
+    ADD COLUMN IF NOT EXISTS arquivo_sha256 varchar(64),
+    ADD COLUMN IF NOT EXISTS arquivo_codec varchar(20),
+    ADD COLUMN IF NOT EXISTS arquivo_arquivado boolean,
+    ADD COLUMN IF NOT EXISTS lease_dono varchar(100),
+    ADD COLUMN IF NOT EXISTS lease_expira_em timestamp;
+
+CREATE TABLE IF NOT EXISTS cnd_extracao_cache (
+    id bigserial NOT NULL,
+    arquivo_sha256 varchar(64) NOT NULL,
+    codigo_controle varchar(100),
+    data_cadastro timestamp,
+    data_emissao date,
+    data_validade date,
+    situacao varchar(100),
+    versao_extrator varchar(100) NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_cnd_extracao_cache_digest_versao UNIQUE (arquivo_sha256, versao_extrator)
+);
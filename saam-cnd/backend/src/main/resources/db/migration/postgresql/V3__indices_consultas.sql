@@ -0,0 +1,39 @@
+-- Índices das consultas frequentes (até aqui só havia as chaves primárias e únicas).
+-- CONCURRENTLY: criados sem bloquear escrita nas tabelas já em produção; o Flyway executa esta migração fora
+-- de transação. IF NOT EXISTS: uma execução interrompida pode ser repetida.
+
+-- Listagem paginada (ORDER BY data_processamento DESC, id DESC, por comparação de chave), sem filtro,
+-- por cliente e por status do processamento. O índice por cliente também atende a FK (exclusão de cliente).
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_cnd_resultado_processamento
+    ON cnd_resultado (data_processamento DESC, id DESC);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_cnd_resultado_cliente_processamento
+    ON cnd_resultado (fk_cliente, data_processamento DESC, id DESC);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_cnd_resultado_status_processamento
+    ON cnd_resultado (status_processamento, data_processamento DESC, id DESC);
+
+-- Filtros de período da listagem e da exportação
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_cnd_resultado_data_emissao
+    ON cnd_resultado (data_emissao);
+
+-- Backlog da extração (status = ? AND situacao IS NULL ... ORDER BY id): só os pendentes entram no índice,
+-- que fica pequeno mesmo com a tabela grande
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_cnd_resultado_pendentes_extracao
+    ON cnd_resultado (status_processamento, id) WHERE situacao IS NULL;
+
+-- Resultados por blob: arquivamento (ainda em uso?), marcação de arquivado e codec por referência
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_cnd_resultado_arquivo_ref
+    ON cnd_resultado (arquivo_ref) WHERE arquivo_ref IS NOT NULL;
+
+-- Recompressão em lote: blobs com compressão ainda não avaliada, em ordem de ID
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_cnd_resultado_sem_codec
+    ON cnd_resultado (id) WHERE arquivo_ref IS NOT NULL AND arquivo_codec IS NULL;
+
+-- Arquivamento: vencidos com o blob ainda na camada quente
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_cnd_resultado_para_arquivamento
+    ON cnd_resultado (data_validade, id) WHERE arquivo_ref IS NOT NULL AND arquivo_arquivado IS NULL;
+
+-- Clientes por empresa (filtro fkEmpresa, FK) e por CNPJ (filtro cnpjCliente, busca por CNPJ e empresa)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_cnd_cliente_empresa
+    ON cnd_cliente (fk_empresa);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_cnd_cliente_cnpj
+    ON cnd_cliente (cnpj, fk_empresa);
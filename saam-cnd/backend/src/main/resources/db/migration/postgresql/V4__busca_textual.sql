@@ -0,0 +1,10 @@
+-- Busca por trecho de texto sem diferenciar maiúsculas nem acentos (BuscaTextual): trigramas (pg_trgm) sobre o
+-- texto normalizado. Extensões no schema public, referenciadas com o schema, para não depender do search_path.
+CREATE EXTENSION IF NOT EXISTS pg_trgm WITH SCHEMA public;
+CREATE EXTENSION IF NOT EXISTS unaccent WITH SCHEMA public;
+
+-- unaccent() é STABLE (o dicionário pode mudar) e não pode entrar num índice; com o dicionário fixo, o resultado
+-- só depende do texto. Mesma função usada nas consultas e nos índices de V5.
+CREATE OR REPLACE FUNCTION cnd_normalizar_busca(texto text) RETURNS text
+    LANGUAGE sql IMMUTABLE STRICT
+AS $$ SELECT lower(public.unaccent('public.unaccent'::regdictionary, texto)) $$;
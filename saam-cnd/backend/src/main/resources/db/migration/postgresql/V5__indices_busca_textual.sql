@@ -0,0 +1,8 @@
+-- Índices GIN de trigramas para "contém" (LIKE '%termo%') sobre o texto normalizado: situação da certidão,
+-- nome do cliente e nome da empresa. CONCURRENTLY (fora de transação), como em V3.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_cnd_resultado_situacao_trgm
+    ON cnd_resultado USING gin (cnd_normalizar_busca(situacao) public.gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_cnd_cliente_nome_trgm
+    ON cnd_cliente USING gin (cnd_normalizar_busca(nome) public.gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_cnd_empresa_nome_trgm
+    ON cnd_empresa USING gin (cnd_normalizar_busca(nome_empresa) public.gin_trgm_ops);
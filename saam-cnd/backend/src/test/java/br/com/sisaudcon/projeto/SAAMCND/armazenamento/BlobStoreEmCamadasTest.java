@@ -0,0 +1,132 @@
+package br.com.sisaudcon.projeto.SAAMCND.armazenamento;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlobStoreEmCamadasTest {
+
+    @TempDir
+    Path raiz;
+
+    private FileSystemBlobStore quente;
+    private BlobStoreEmCamadas blobStore;
+
+    @BeforeEach
+    void setUp() {
+        quente = new FileSystemBlobStore(raiz.resolve("blobs").toString(), "deflate", 6);
+        blobStore = new BlobStoreEmCamadas(quente, arquivoMorto(DataSize.ofMegabytes(1)));
+    }
+
+    private SegmentosArquivoMorto arquivoMorto(DataSize tamanhoMaximoSegmento) {
+        return new SegmentosArquivoMorto(raiz.resolve("arquivo-morto").toString(), tamanhoMaximoSegmento);
+    }
+
+    private static byte[] pdf(String texto) {
+        return ("%PDF-1.4 " + texto + " ").repeat(50).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private List<String> arquivosDoArquivoMorto() throws Exception {
+        try (Stream<Path> arquivos = Files.list(raiz.resolve("arquivo-morto"))) {
+            return arquivos.map(p -> p.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    void arquivar_moveOBlobParaOSegmentoELeituraContinuaTransparente() throws Exception {
+        byte[] conteudo = pdf("vencida");
+        String ref = blobStore.gravar(conteudo).getRef();
+
+        assertTrue(blobStore.arquivar(ref));
+
+        assertNull(quente.codecGravado(ref));
+        assertTrue(blobStore.existe(ref));
+        assertArrayEquals(conteudo, blobStore.ler(ref));
+        assertEquals(List.of("segmento-000001.idx", "segmento-000001.seg"), arquivosDoArquivoMorto());
+        // Repetir (ex: após uma queda antes de marcar o resultado) não copia de novo
+        long tamanhoSegmento = Files.size(raiz.resolve("arquivo-morto/segmento-000001.seg"));
+        assertTrue(blobStore.arquivar(ref));
+        assertEquals(tamanhoSegmento, Files.size(raiz.resolve("arquivo-morto/segmento-000001.seg")));
+    }
+
+    @Test
+    void arquivar_blobsUmAposOOutro_compartilhamOSegmentoEUmaNovaInstanciaLeOIndice() throws Exception {
+        byte[] primeiro = pdf("primeira");
+        byte[] segundo = "sem compressao".getBytes(StandardCharsets.UTF_8);
+        String refPrimeiro = blobStore.gravar(primeiro).getRef();
+        String refSegundo = blobStore.gravar(segundo).getRef();
+        blobStore.arquivar(refPrimeiro);
+        blobStore.arquivar(refSegundo);
+
+        // Outra réplica (ou o nó reiniciado) lê o índice do disco
+        BlobStoreEmCamadas outro = new BlobStoreEmCamadas(quente, arquivoMorto(DataSize.ofMegabytes(1)));
+
+        assertArrayEquals(primeiro, outro.ler(refPrimeiro));
+        assertArrayEquals(segundo, outro.ler(refSegundo));
+        assertEquals(2, arquivosDoArquivoMorto().size());
+    }
+
+    @Test
+    void arquivar_segmentoCheio_abreOProximo() throws Exception {
+        blobStore = new BlobStoreEmCamadas(quente, arquivoMorto(DataSize.ofBytes(20)));
+        String ref1 = blobStore.gravar(pdf("um")).getRef();
+        String ref2 = blobStore.gravar(pdf("dois")).getRef();
+
+        blobStore.arquivar(ref1);
+        blobStore.arquivar(ref2);
+
+        assertEquals(List.of("segmento-000001.idx", "segmento-000001.seg", "segmento-000002.idx", "segmento-000002.seg"),
+                arquivosDoArquivoMorto());
+        assertArrayEquals(pdf("dois"), blobStore.ler(ref2));
+    }
+
+    @Test
+    void indice_linhaIncompletaNoFim_eIgnoradaAteSerTerminada() throws Exception {
+        String ref = blobStore.gravar(pdf("indice")).getRef();
+        blobStore.arquivar(ref);
+        Files.write(raiz.resolve("arquivo-morto/segmento-000001.idx"), "abc deflate 0".getBytes(), StandardOpenOption.APPEND);
+
+        SegmentosArquivoMorto relido = arquivoMorto(DataSize.ofMegabytes(1));
+
+        assertTrue(relido.contem(ref));
+        assertFalse(relido.contem("abc"));
+    }
+
+    @Test
+    void abrir_trechoDoSegmentoAlterado_lancaBlobCorrompido() throws Exception {
+        byte[] conteudo = "conteudo sem compressao".getBytes(StandardCharsets.UTF_8);
+        String ref = blobStore.gravar(conteudo).getRef();
+        blobStore.arquivar(ref);
+        Path segmento = raiz.resolve("arquivo-morto/segmento-000001.seg");
+        byte[] gravado = Files.readAllBytes(segmento);
+        gravado[0] ^= 0x01;
+        Files.write(segmento, gravado);
+
+        assertThrows(BlobCorrompidoException.class, () -> blobStore.ler(ref));
+    }
+
+    @Test
+    void abrir_blobInexistenteNasDuasCamadas_lancaNoSuchFile() {
+        String ref = DigestArquivo.sha256Hex("nunca gravado".getBytes());
+
+        assertFalse(blobStore.existe(ref));
+        assertThrows(NoSuchFileException.class, () -> {
+            try (InputStream ignorado = blobStore.abrir(ref)) {
+                fail("Não deveria abrir");
+            }
+        });
+    }
+}
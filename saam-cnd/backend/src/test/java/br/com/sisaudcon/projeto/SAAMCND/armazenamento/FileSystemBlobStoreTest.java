@@ -0,0 +1,172 @@
+package br.com.sisaudcon.projeto.SAAMCND.armazenamento;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileSystemBlobStoreTest {
+
+    @TempDir
+    Path raiz;
+
+    private FileSystemBlobStore blobStore;
+
+    @BeforeEach
+    void setUp() {
+        blobStore = new FileSystemBlobStore(raiz.toString());
+    }
+
+    @Test
+    void gravar_retornaReferenciaPeloSha256_eLerDevolveOMesmoConteudo() throws Exception {
+        byte[] conteudo = "%PDF-1.4 conteudo".getBytes(StandardCharsets.UTF_8);
+
+        BlobArmazenado blob = blobStore.gravar(new ByteArrayInputStream(conteudo));
+
+        assertEquals(DigestArquivo.sha256Hex(conteudo), blob.getRef());
+        assertEquals(blob.getRef(), blob.getSha256());
+        assertEquals(conteudo.length, blob.getTamanho());
+        assertTrue(blob.isNovo());
+        assertTrue(blobStore.existe(blob.getRef()));
+        assertArrayEquals(conteudo, blobStore.ler(blob.getRef()));
+    }
+
+    @Test
+    void gravar_conteudoRepetido_deduplicaSemNovoArquivo() throws Exception {
+        BlobArmazenado primeiro = blobStore.gravar("mesmo pdf".getBytes());
+        BlobArmazenado segundo = blobStore.gravar("mesmo pdf".getBytes());
+
+        assertEquals(primeiro.getRef(), segundo.getRef());
+        assertFalse(segundo.isNovo());
+        try (Stream<Path> arquivos = Files.walk(raiz)) {
+            assertEquals(1, arquivos.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    void gravar_particionaPelosPrimeirosCaracteresENaoDeixaTemporarios() throws Exception {
+        String ref = blobStore.gravar("particionado".getBytes()).getRef();
+
+        Path esperado = raiz.resolve(ref.substring(0, 2)).resolve(ref.substring(2, 4)).resolve(ref);
+        assertTrue(Files.isRegularFile(esperado));
+        try (Stream<Path> temporarios = Files.list(raiz.resolve("tmp"))) {
+            assertEquals(0, temporarios.count());
+        }
+    }
+
+    @Test
+    void abrir_conteudoAlteradoNoDisco_lancaBlobCorrompido() throws Exception {
+        String ref = blobStore.gravar("original".getBytes()).getRef();
+        Files.write(blobStore.caminho(ref), "adulterado".getBytes());
+
+        assertThrows(BlobCorrompidoException.class, () -> blobStore.ler(ref));
+    }
+
+    @Test
+    void abrir_leituraParcial_naoAcusaCorrupcao() throws Exception {
+        String ref = blobStore.gravar("conteudo longo o bastante".getBytes()).getRef();
+
+        try (InputStream in = blobStore.abrir(ref)) {
+            assertEquals('c', in.read());
+        }
+    }
+
+    @Test
+    void abrir_referenciaInexistente_lancaNoSuchFile() {
+        String ref = DigestArquivo.sha256Hex("nunca gravado".getBytes());
+
+        assertFalse(blobStore.existe(ref));
+        assertThrows(NoSuchFileException.class, () -> blobStore.abrir(ref));
+    }
+
+    @Test
+    void caminho_referenciaInvalida_eRecusada() {
+        assertThrows(IllegalArgumentException.class, () -> blobStore.caminho("../../etc/passwd"));
+        assertThrows(IllegalArgumentException.class, () -> blobStore.caminho("ABC"));
+        assertThrows(IllegalArgumentException.class, () -> blobStore.caminho(null));
+    }
+
+    @Test
+    void gravar_comDeflate_gravaComprimidoELeOConteudoOriginal() throws Exception {
+        FileSystemBlobStore comprimindo = new FileSystemBlobStore(raiz.toString(), "deflate", 6);
+        byte[] conteudo = "%PDF-1.4 texto repetido ".repeat(200).getBytes(StandardCharsets.UTF_8);
+
+        BlobArmazenado blob = comprimindo.gravar(conteudo);
+
+        assertEquals(CodecArmazenamento.DEFLATE, blob.getCodec());
+        assertEquals(conteudo.length, blob.getTamanho());
+        assertTrue(blob.getTamanhoArmazenado() < conteudo.length);
+        assertFalse(Files.exists(comprimindo.caminho(blob.getRef())));
+        assertEquals(blob.getTamanhoArmazenado(), Files.size(comprimindo.caminho(blob.getRef(), CodecArmazenamento.DEFLATE)));
+        assertArrayEquals(conteudo, comprimindo.ler(blob.getRef()));
+        // Quem lê sem compressão configurada também encontra o blob comprimido
+        assertArrayEquals(conteudo, blobStore.ler(blob.getRef()));
+        assertFalse(blobStore.gravar(conteudo).isNovo());
+    }
+
+    @Test
+    void gravar_conteudoQueNaoDiminui_ficaSemCompressao() throws Exception {
+        FileSystemBlobStore comprimindo = new FileSystemBlobStore(raiz.toString(), "deflate", 9);
+        byte[] aleatorio = new byte[4096];
+        new Random(42).nextBytes(aleatorio);
+
+        BlobArmazenado blob = comprimindo.gravar(aleatorio);
+
+        assertEquals(CodecArmazenamento.NENHUM, blob.getCodec());
+        assertEquals(aleatorio.length, blob.getTamanhoArmazenado());
+        assertTrue(Files.isRegularFile(comprimindo.caminho(blob.getRef())));
+        try (Stream<Path> temporarios = Files.list(raiz.resolve("tmp"))) {
+            assertEquals(0, temporarios.count());
+        }
+    }
+
+    @Test
+    void recomprimir_blobGravadoSemCompressao_trocaPeloComprimidoSemMudarOConteudo() throws Exception {
+        byte[] conteudo = "conteudo antigo ".repeat(300).getBytes(StandardCharsets.UTF_8);
+        String ref = blobStore.gravar(conteudo).getRef();
+        FileSystemBlobStore comprimindo = new FileSystemBlobStore(raiz.toString(), "deflate", 6);
+
+        BlobArmazenado blob = comprimindo.recomprimir(ref);
+
+        assertEquals(CodecArmazenamento.DEFLATE, blob.getCodec());
+        assertEquals(conteudo.length, blob.getTamanho());
+        assertFalse(Files.exists(comprimindo.caminho(ref)));
+        assertArrayEquals(conteudo, comprimindo.ler(ref));
+        // Já comprimido: só descreve
+        assertEquals(CodecArmazenamento.DEFLATE, comprimindo.recomprimir(ref).getCodec());
+        assertEquals(conteudo.length, comprimindo.recomprimir(ref).getTamanho());
+    }
+
+    @Test
+    void abrir_blobComprimidoAlteradoNoDisco_naoDevolveConteudoErrado() throws Exception {
+        FileSystemBlobStore comprimindo = new FileSystemBlobStore(raiz.toString(), "deflate", 6);
+        String ref = comprimindo.gravar("original ".repeat(100).getBytes()).getRef();
+        Path arquivo = comprimindo.caminho(ref, CodecArmazenamento.DEFLATE);
+        byte[] gravado = Files.readAllBytes(arquivo);
+        gravado[gravado.length / 2] ^= 0x5A;
+        Files.write(arquivo, gravado);
+
+        assertThrows(IOException.class, () -> comprimindo.ler(ref));
+    }
+
+    @Test
+    void construtor_codecOuNivelInvalido_eRecusado() {
+        assertThrows(IllegalArgumentException.class, () -> new FileSystemBlobStore(raiz.toString(), "zstd", 3));
+        assertThrows(IllegalArgumentException.class, () -> new FileSystemBlobStore(raiz.toString(), "deflate", 12));
+        // Deflater aceitaria -1 (padrão) e 0 (sem compressão), que não são níveis válidos na configuração
+        assertThrows(IllegalArgumentException.class, () -> new FileSystemBlobStore(raiz.toString(), "deflate", -1));
+        assertThrows(IllegalArgumentException.class, () -> new FileSystemBlobStore(raiz.toString(), "deflate", 0));
+        assertThrows(IllegalArgumentException.class, () -> new FileSystemBlobStore(raiz.toString(), "none", 0));
+    }
+}
@@ -0,0 +1,120 @@
+package br.com.sisaudcon.projeto.SAAMCND.config;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpClientPoolsTest {
+
+    private HttpServer servidor;
+    private HttpClientProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private HttpClientPools httpClientPools;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        servidor = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        servidor.createContext("/rapido", troca -> {
+            byte[] corpo = "{\"situacao\":\"1\"}".getBytes(StandardCharsets.UTF_8);
+            troca.sendResponseHeaders(200, corpo.length);
+            try (OutputStream out = troca.getResponseBody()) {
+                out.write(corpo);
+            }
+        });
+        servidor.createContext("/lento", troca -> {
+            // Envia um byte a cada 200ms: o read-timeout nunca estoura, apenas o prazo total
+            troca.sendResponseHeaders(200, 50);
+            try (OutputStream out = troca.getResponseBody()) {
+                for (int i = 0; i < 50; i++) {
+                    out.write('x');
+                    out.flush();
+                    Thread.sleep(200);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception ignorada) {
+                // Cliente abortou a conexão
+            }
+        });
+        servidor.start();
+
+        properties = new HttpClientProperties();
+        HttpClientProperties.Destino lento = new HttpClientProperties.Destino();
+        lento.setPrazoTotal(Duration.ofMillis(500));
+        lento.setMaxConexoes(3);
+        properties.getDestinos().put("externo-lento", lento);
+        meterRegistry = new SimpleMeterRegistry();
+        httpClientPools = new HttpClientPools(properties, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        httpClientPools.encerrar();
+        servidor.stop(0);
+    }
+
+    private String url(String caminho) {
+        return "http://127.0.0.1:" + servidor.getAddress().getPort() + caminho;
+    }
+
+    @Test
+    void resolver_destinoHerdaValoresPadraoNaoSobrescritos() {
+        HttpClientProperties.Destino efetivo = properties.resolver("externo-lento");
+
+        assertEquals(3, efetivo.getMaxConexoes());
+        assertEquals(Duration.ofMillis(500), efetivo.getPrazoTotal());
+        assertEquals(properties.getPadrao().getReadTimeout(), efetivo.getReadTimeout());
+        assertEquals(properties.getPadrao().getKeepAlive(), efetivo.getKeepAlive());
+    }
+
+    @Test
+    void restTemplate_reutilizaPoolEConexaoDoDestinoEExpoeMetricas() {
+        RestTemplate restTemplate = httpClientPools.restTemplate("saam-cr");
+        assertSame(restTemplate, httpClientPools.restTemplate("saam-cr"));
+
+        assertEquals("{\"situacao\":\"1\"}", restTemplate.getForObject(url("/rapido"), String.class));
+        assertEquals("{\"situacao\":\"1\"}", restTemplate.getForObject(url("/rapido"), String.class));
+
+        // Conexão devolvida ao pool com keep-alive, pronta para reutilização
+        assertEquals(0, httpClientPools.estatisticas("saam-cr").getLeased());
+        assertEquals(1, httpClientPools.estatisticas("saam-cr").getAvailable());
+        assertEquals(20.0, meterRegistry.get("http.client.pool.max").tag("destino", "saam-cr").gauge().value());
+        assertEquals(1.0, meterRegistry.get("http.client.pool.available").tag("destino", "saam-cr").gauge().value());
+    }
+
+    @Test
+    void restTemplate_requisicaoConcluida_cancelaOAbortAgendado() {
+        RestTemplate restTemplate = httpClientPools.restTemplate("saam-cr");
+
+        for (int i = 0; i < 5; i++) {
+            restTemplate.getForObject(url("/rapido"), String.class);
+        }
+        assertThrows(RestClientException.class, () -> restTemplate.getForObject(url("/inexistente"), String.class));
+
+        // Sem o cancelamento, cada requisição ficaria na fila do agendador até o prazo total
+        assertEquals(0, httpClientPools.prazosPendentes());
+    }
+
+    @Test
+    void restTemplate_quandoPrazoTotalEstoura_abortaARequisicao() {
+        RestTemplate restTemplate = httpClientPools.restTemplate("externo-lento");
+
+        long inicio = System.nanoTime();
+        assertThrows(RestClientException.class, () -> restTemplate.getForObject(url("/lento"), String.class));
+        long decorridoMs = Duration.ofNanos(System.nanoTime() - inicio).toMillis();
+
+        assertTrue(decorridoMs < 5_000, "Requisição deveria ser abortada perto do prazo total, levou " + decorridoMs + "ms");
+        assertEquals(0, httpClientPools.estatisticas("externo-lento").getLeased());
+    }
+}
@@ -0,0 +1,72 @@
+package br.com.sisaudcon.projeto.SAAMCND.controller;
+
+import br.com.sisaudcon.projeto.SAAMCND.service.AutorizacaoClienteService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Collections;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@SpringBootTest(properties = "saam.admin.token=token-admin-teste")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class AutorizacaoCacheControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean // Também usado pelo AuthInterceptor: um cliente autorizado não pode chegar às rotas administrativas
+    private AutorizacaoClienteService autorizacaoClienteService;
+
+    @Test
+    void rotasAdministrativas_comApenasXIdCliente_saoRecusadas() throws Exception {
+        when(autorizacaoClienteService.verificarAutorizacao("CLIENTE_VALIDO_XYZ")).thenReturn(true);
+
+        mockMvc.perform(get("/api/admin/autorizacao-cache").header("X-ID-CLIENTE", "CLIENTE_VALIDO_XYZ"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(delete("/api/admin/autorizacao-cache").header("X-ID-CLIENTE", "CLIENTE_VALIDO_XYZ"))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(delete("/api/admin/autorizacao-cache/OUTRO_CLIENTE").header("X-ID-CLIENTE", "CLIENTE_VALIDO_XYZ"))
+                .andExpect(status().isForbidden());
+
+        verify(autorizacaoClienteService, never()).estatisticas();
+        verify(autorizacaoClienteService, never()).invalidarTodos();
+        verify(autorizacaoClienteService, never()).invalidar(anyString());
+    }
+
+    @Test
+    void rotasAdministrativas_comTokenIncorreto_saoRecusadas() throws Exception {
+        mockMvc.perform(delete("/api/admin/autorizacao-cache").header("X-ADMIN-TOKEN", "token-errado"))
+                .andExpect(status().isForbidden())
+                .andExpect(jsonPath("$.error").exists());
+
+        verify(autorizacaoClienteService, never()).invalidarTodos();
+    }
+
+    @Test
+    void rotasAdministrativas_comTokenDeAdministracao_saoAtendidas() throws Exception {
+        when(autorizacaoClienteService.estatisticas()).thenReturn(Collections.singletonMap("entradas", 3));
+
+        mockMvc.perform(get("/api/admin/autorizacao-cache").header("X-ADMIN-TOKEN", "token-admin-teste"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.entradas").value(3));
+        mockMvc.perform(delete("/api/admin/autorizacao-cache/CLIENTE_1").header("X-ADMIN-TOKEN", "token-admin-teste"))
+                .andExpect(status().isNoContent());
+        mockMvc.perform(delete("/api/admin/autorizacao-cache").header("X-ADMIN-TOKEN", "token-admin-teste"))
+                .andExpect(status().isNoContent());
+
+        verify(autorizacaoClienteService).invalidar("CLIENTE_1");
+        verify(autorizacaoClienteService).invalidarTodos();
+        // O token de administração não passa pela validação de cliente no SAAM-CR
+        verify(autorizacaoClienteService, never()).verificarAutorizacao(anyString());
+    }
+}
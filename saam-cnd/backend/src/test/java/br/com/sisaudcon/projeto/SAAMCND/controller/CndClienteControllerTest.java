@@ -61,6 +61,7 @@ class CndClienteControllerTest {
 
         clienteRequestDTO = new CndClienteRequestDTO(
                 "12.345.678/0001-99",
+                "Cliente Teste",
                 30,
                 "ATIVO",
                 true,
@@ -71,6 +72,7 @@ class CndClienteControllerTest {
 
         clienteResponseDTO = new CndClienteResponseDTO(
                 1L,
+                "Cliente Teste",
                 "12.345.678/0001-99",
                 30,
                 "ATIVO",
@@ -129,6 +131,18 @@ class CndClienteControllerTest {
     }
 
 
+    @Test
+    void listarClientes_comNome_buscaPorTrechoDoNome() throws Exception {
+        when(cndClienteService.buscarClientesPorNome("joao", null)).thenReturn(List.of(clienteResponseDTO));
+
+        mockMvc.perform(get("/api/clientes?nome=joao")
+                .header("X-ID-CLIENTE", VALID_ID_CLIENTE_HEADER))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)));
+
+        verify(cndClienteService, never()).listarClientes();
+    }
+
     @Test
     void listarClientes_retornaListaDeClientes() throws Exception {
         List<CndClienteResponseDTO> lista = Arrays.asList(clienteResponseDTO);
@@ -1,10 +1,16 @@
 package br.com.sisaudcon.projeto.SAAMCND.controller;
 
+import br.com.sisaudcon.projeto.SAAMCND.armazenamento.BlobArmazenado;
+import br.com.sisaudcon.projeto.SAAMCND.armazenamento.DigestArquivo;
 import br.com.sisaudcon.projeto.SAAMCND.dto.CndResultadoDTO;
+import br.com.sisaudcon.projeto.SAAMCND.dto.PaginaCndResultados;
 import br.com.sisaudcon.projeto.SAAMCND.model.CndCliente;
 import br.com.sisaudcon.projeto.SAAMCND.model.CndResultado;
+import br.com.sisaudcon.projeto.SAAMCND.service.ArquivoCndDownload;
 import br.com.sisaudcon.projeto.SAAMCND.service.CndResultadoService;
 import br.com.sisaudcon.projeto.SAAMCND.service.SaamCrValidationService;
+import br.com.sisaudcon.projeto.SAAMCND.exception.ArquivoExcedeLimiteException;
+import br.com.sisaudcon.projeto.SAAMCND.exception.BadRequestException;
 import br.com.sisaudcon.projeto.SAAMCND.exception.ResourceNotFoundException;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -18,20 +24,27 @@ import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.http.HttpHeaders; // Import adicionado
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -82,7 +95,8 @@ class CndResultadoControllerTest {
             null, // mensagemErroProcessamento
             "Federal", "Receita Federal Teste", "Observacao teste DTO", // tipoCertidao, orgaoEmissor, observacoes
             1L, "12.345.678/0001-99", "INSERT-PEC-XXXX",
-            LocalDateTime.now(), LocalDateTime.now()
+            LocalDateTime.now(), LocalDateTime.now(),
+            true, 15L // possuiArquivo, arquivoTamanho
         );
 
         cndResultadoEntity = new CndResultado();
@@ -114,24 +128,26 @@ class CndResultadoControllerTest {
     @Test
     void listarCndResultados_retornaListaDeResultados() throws Exception {
         List<CndResultadoDTO> lista = Arrays.asList(resultadoResponseDTO);
-        when(cndResultadoService.listarCndResultados(anyMap())).thenReturn(lista);
+        when(cndResultadoService.listarCndResultados(anyMap())).thenReturn(new PaginaCndResultados(lista, "MXwy"));
 
         mockMvc.perform(get("/api/cnd-resultados")
                 .header("X-ID-CLIENTE", VALID_ID_CLIENTE_HEADER))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$", hasSize(1)))
-                .andExpect(jsonPath("$[0].id", is(1)));
+                .andExpect(jsonPath("$.itens", hasSize(1)))
+                .andExpect(jsonPath("$.itens[0].id", is(1)))
+                .andExpect(jsonPath("$.proximoCursor", is("MXwy")));
     }
 
     @Test
     void listarCndResultados_comFiltro_chamaServicoComFiltros() throws Exception {
         List<CndResultadoDTO> lista = Arrays.asList(resultadoResponseDTO);
-        when(cndResultadoService.listarCndResultados(Collections.singletonMap("fkCliente", "1"))).thenReturn(lista);
+        when(cndResultadoService.listarCndResultados(Collections.singletonMap("fkCliente", "1")))
+                .thenReturn(new PaginaCndResultados(lista, null));
 
         mockMvc.perform(get("/api/cnd-resultados?fkCliente=1")
                 .header("X-ID-CLIENTE", VALID_ID_CLIENTE_HEADER))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$", hasSize(1)));
+                .andExpect(jsonPath("$.itens", hasSize(1)));
 
         verify(cndResultadoService).listarCndResultados(Collections.singletonMap("fkCliente", "1"));
     }
@@ -177,14 +193,19 @@ class CndResultadoControllerTest {
                 .andExpect(status().isNoContent());
     }
 
+    // Download com o conteúdo da entidade, como o BlobStore entregaria (SHA-256 como ETag)
+    private ArquivoCndDownload download(String filename) {
+        byte[] pdfBytes = cndResultadoEntity.getArquivo();
+        return new ArquivoCndDownload(filename, pdfBytes.length, DigestArquivo.sha256Hex(pdfBytes),
+                () -> new ByteArrayInputStream(pdfBytes));
+    }
+
     @Test
     void downloadCndPdf_quandoValido_retornaPdf() throws Exception {
         byte[] pdfBytes = cndResultadoEntity.getArquivo(); // Corrected: getArquivo() already returns byte[]
         String filename = "CND_12345678000199_GERAL_" + cndResultadoEntity.getDataEmissao().toString() + ".pdf";
 
-        when(cndResultadoService.downloadPdf(1L)).thenReturn(pdfBytes);
-        when(cndResultadoService.getCndResultadoEntityById(1L)).thenReturn(cndResultadoEntity); // Para gerar o nome do arquivo
-        when(cndResultadoService.gerarNomeArquivoPadronizado(cndResultadoEntity)).thenReturn(filename);
+        when(cndResultadoService.prepararDownload(1L)).thenReturn(download(filename));
 
 
         mockMvc.perform(get("/api/cnd-resultados/1/download")
@@ -193,15 +214,122 @@ class CndResultadoControllerTest {
                 .andExpect(header().string(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_PDF_VALUE))
                 // Adjusted to match the actual output reported by the test
                 .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "form-data; name=\"attachment\"; filename=\"" + filename + "\""))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + DigestArquivo.sha256Hex(pdfBytes) + "\""))
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, pdfBytes.length))
                 .andExpect(content().bytes(pdfBytes));
     }
 
+    @Test
+    void downloadCndPdf_comIfNoneMatchDoMesmoArquivo_retornaNotModifiedSemCorpo() throws Exception {
+        byte[] pdfBytes = cndResultadoEntity.getArquivo();
+        when(cndResultadoService.prepararDownload(1L)).thenReturn(download("CND.pdf"));
+
+        mockMvc.perform(get("/api/cnd-resultados/1/download")
+                .header("X-ID-CLIENTE", VALID_ID_CLIENTE_HEADER)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"" + DigestArquivo.sha256Hex(pdfBytes) + "\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void downloadCndPdf_comRange_retornaSoAFaixaPedida() throws Exception {
+        byte[] pdfBytes = cndResultadoEntity.getArquivo();
+        when(cndResultadoService.prepararDownload(1L)).thenReturn(download("CND.pdf"));
+
+        mockMvc.perform(get("/api/cnd-resultados/1/download")
+                .header("X-ID-CLIENTE", VALID_ID_CLIENTE_HEADER)
+                .header(HttpHeaders.RANGE, "bytes=1-3"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 1-3/" + pdfBytes.length))
+                .andExpect(content().bytes(Arrays.copyOfRange(pdfBytes, 1, 4)));
+    }
+
     @Test
     void downloadCndPdf_quandoNaoEncontrado_retornaNotFound() throws Exception {
-        when(cndResultadoService.downloadPdf(1L)).thenThrow(new ResourceNotFoundException("Arquivo PDF não disponível"));
+        when(cndResultadoService.prepararDownload(1L)).thenThrow(new ResourceNotFoundException("Arquivo PDF não disponível"));
 
         mockMvc.perform(get("/api/cnd-resultados/1/download")
                 .header("X-ID-CLIENTE", VALID_ID_CLIENTE_HEADER))
                 .andExpect(status().isNotFound());
     }
+
+    @Test
+    void exportarZip_validaOsFiltrosEEnviaOZipEmStream() throws Exception {
+        Map<String, String> filtros = Map.of("fkEmpresa", "7");
+        when(cndResultadoService.filtros(filtros)).thenReturn((root, query, cb) -> null);
+        when(cndResultadoService.exportarZip(any(), any())).thenAnswer(invocation -> {
+            invocation.<java.io.OutputStream>getArgument(1).write("PK".getBytes());
+            return 0;
+        });
+
+        MvcResult resultado = mockMvc.perform(get("/api/cnd-resultados/exportar-zip")
+                .param("fkEmpresa", "7")
+                .header("X-ID-CLIENTE", VALID_ID_CLIENTE_HEADER))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(resultado))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "application/zip"))
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, org.hamcrest.Matchers.startsWith("attachment; filename=\"CNDs_")))
+                .andExpect(content().bytes("PK".getBytes()));
+    }
+
+    @Test
+    void exportarZip_comFiltroInvalido_retornaBadRequestAntesDoStream() throws Exception {
+        when(cndResultadoService.filtros(anyMap())).thenThrow(new BadRequestException("Filtro 'dataEmissaoApos' inválido"));
+
+        mockMvc.perform(get("/api/cnd-resultados/exportar-zip")
+                .param("dataEmissaoApos", "ontem")
+                .header("X-ID-CLIENTE", VALID_ID_CLIENTE_HEADER))
+                .andExpect(status().isBadRequest());
+        verify(cndResultadoService, never()).exportarZip(any(), any());
+    }
+
+    @Test
+    void enviarPdf_comCorpoApplicationPdf_gravaEmStreamESubstituiOArquivo() throws Exception {
+        byte[] pdf = "%PDF-1.4 corpo".getBytes();
+        BlobArmazenado blob = new BlobArmazenado(DigestArquivo.sha256Hex(pdf), pdf.length, DigestArquivo.sha256Hex(pdf), true);
+        when(cndResultadoService.receberPdf(any(InputStream.class))).thenAnswer(invocation -> {
+            assertArrayEquals(pdf, invocation.<InputStream>getArgument(0).readAllBytes());
+            return blob;
+        });
+        when(cndResultadoService.substituirArquivo(1L, blob)).thenReturn(resultadoResponseDTO);
+
+        mockMvc.perform(put("/api/cnd-resultados/1/arquivo")
+                .header("X-ID-CLIENTE", VALID_ID_CLIENTE_HEADER)
+                .contentType(MediaType.APPLICATION_PDF)
+                .content(pdf))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is(1)));
+    }
+
+    @Test
+    void criarCndResultadoComPdf_multipart_recebeDadosEArquivo() throws Exception {
+        byte[] pdf = "%PDF-1.4 multipart".getBytes();
+        BlobArmazenado blob = new BlobArmazenado(DigestArquivo.sha256Hex(pdf), pdf.length, DigestArquivo.sha256Hex(pdf), true);
+        when(cndResultadoService.receberPdf(any(InputStream.class))).thenReturn(blob);
+        when(cndResultadoService.criarCndResultado(any(CndResultadoDTO.class), eq(blob))).thenReturn(resultadoResponseDTO);
+        resultadoRequestDTO.setArquivo(null);
+
+        mockMvc.perform(multipart("/api/cnd-resultados")
+                .file(new MockMultipartFile("arquivo", "cnd.pdf", MediaType.APPLICATION_PDF_VALUE, pdf))
+                .file(new MockMultipartFile("dados", "", MediaType.APPLICATION_JSON_VALUE, objectMapper.writeValueAsBytes(resultadoRequestDTO)))
+                .header("X-ID-CLIENTE", VALID_ID_CLIENTE_HEADER))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id", is(1)));
+    }
+
+    @Test
+    void enviarPdf_acimaDoLimite_retornaPayloadTooLarge() throws Exception {
+        when(cndResultadoService.receberPdf(any(InputStream.class))).thenThrow(new ArquivoExcedeLimiteException("Arquivo PDF excede o tamanho máximo"));
+
+        mockMvc.perform(put("/api/cnd-resultados/1/arquivo")
+                .header("X-ID-CLIENTE", VALID_ID_CLIENTE_HEADER)
+                .contentType(MediaType.APPLICATION_PDF)
+                .content("%PDF-grande".getBytes()))
+                .andExpect(status().isPayloadTooLarge());
+        verify(cndResultadoService, never()).substituirArquivo(anyLong(), any());
+    }
 }
@@ -0,0 +1,188 @@
+package br.com.sisaudcon.projeto.SAAMCND.controller;
+
+import br.com.sisaudcon.projeto.SAAMCND.armazenamento.BlobArmazenado;
+import br.com.sisaudcon.projeto.SAAMCND.armazenamento.BlobStore;
+import br.com.sisaudcon.projeto.SAAMCND.dto.CndClienteRequestDTO;
+import br.com.sisaudcon.projeto.SAAMCND.model.CndCliente;
+import br.com.sisaudcon.projeto.SAAMCND.model.CndEmpresa;
+import br.com.sisaudcon.projeto.SAAMCND.model.CndResultado;
+import br.com.sisaudcon.projeto.SAAMCND.repository.CndClienteRepository;
+import br.com.sisaudcon.projeto.SAAMCND.repository.CndEmpresaRepository;
+import br.com.sisaudcon.projeto.SAAMCND.repository.CndResultadoRepository;
+import br.com.sisaudcon.projeto.SAAMCND.service.CacheDownloadPdfService;
+import br.com.sisaudcon.projeto.SAAMCND.service.SaamCrValidationService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Comandos SQL por requisição, com os serviços e o banco reais: listagens e detalhes carregam as associações
+ * que o DTO usa na mesma consulta, então a quantidade de comandos não cresce com o número de linhas (sem N+1).
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ComandosSqlPorEndpointTest {
+
+    private static final String ID_CLIENTE_HEADER = "CLIENTE_VALIDO_XYZ";
+    private static final int CLIENTES = 5;
+    private static final int RESULTADOS_POR_CLIENTE = 4;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CndEmpresaRepository cndEmpresaRepository;
+
+    @Autowired
+    private CndClienteRepository cndClienteRepository;
+
+    @Autowired
+    private CndResultadoRepository cndResultadoRepository;
+
+    @Autowired
+    private BlobStore blobStore;
+
+    @Autowired
+    private CacheDownloadPdfService cacheDownloadPdf;
+
+    @MockBean
+    private SaamCrValidationService saamCrValidationService;
+
+    private Statistics estatisticas;
+    private CndCliente cliente;
+    private CndResultado resultado;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(saamCrValidationService.isClienteAutorizado(ID_CLIENTE_HEADER)).thenReturn(true);
+        estatisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        cacheDownloadPdf.invalidarTodos();
+
+        CndEmpresa empresa = new CndEmpresa();
+        empresa.setId(900L);
+        empresa.setCnpj("90.000.000/0001-00");
+        empresa.setNomeEmpresa("Empresa Consultas");
+        empresa.setStatusEmpresa("ATIVA");
+        cndEmpresaRepository.save(empresa);
+
+        BlobArmazenado pdf = blobStore.gravar("%PDF-1.4 consultas".getBytes());
+        for (int i = 0; i < CLIENTES; i++) {
+            CndCliente novo = new CndCliente();
+            novo.setCnpj(String.format("11.111.111/%04d-00", i));
+            novo.setNome("Cliente " + i);
+            novo.setPeriodicidade(30);
+            novo.setStatusCliente("ATIVO");
+            novo.setNacional(true);
+            novo.setMunicipal(false);
+            novo.setEstadual(false);
+            novo.setEmpresa(empresa);
+            cliente = cndClienteRepository.save(novo);
+            for (int j = 0; j < RESULTADOS_POR_CLIENTE; j++) {
+                CndResultado novoResultado = new CndResultado();
+                novoResultado.setCliente(cliente);
+                novoResultado.setSituacao("Negativa");
+                novoResultado.setStatusProcessamento("EXTRACAO_CONCLUIDA");
+                novoResultado.setDataEmissao(LocalDate.of(2024, 1, 1 + j));
+                novoResultado.setArquivoRef(pdf.getRef());
+                novoResultado.setArquivoTamanho(pdf.getTamanho());
+                novoResultado.setArquivoSha256(pdf.getSha256());
+                resultado = cndResultadoRepository.save(novoResultado);
+            }
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        cndResultadoRepository.deleteAll();
+        cndClienteRepository.deleteAll();
+        cndEmpresaRepository.deleteAll();
+    }
+
+    // Comandos SQL preparados durante a requisição
+    private long comandos(RequestBuilder requisicao) throws Exception {
+        estatisticas.clear();
+        mockMvc.perform(requisicao).andExpect(status().is2xxSuccessful());
+        return estatisticas.getPrepareStatementCount();
+    }
+
+    @Test
+    void listagemDeResultados_consultasNaoDependemDoNumeroDeLinhas() throws Exception {
+        mockMvc.perform(get("/api/cnd-resultados").header("X-ID-CLIENTE", ID_CLIENTE_HEADER))
+                .andExpect(jsonPath("$.itens", hasSize(CLIENTES * RESULTADOS_POR_CLIENTE)))
+                .andExpect(jsonPath("$.itens[0].cnpjCliente").exists());
+
+        // Página cheia: uma consulta. Última página: mais uma, pelos legados sem dataProcessamento
+        assertEquals(1, comandos(get("/api/cnd-resultados?limite=5").header("X-ID-CLIENTE", ID_CLIENTE_HEADER)));
+        assertEquals(2, comandos(get("/api/cnd-resultados").header("X-ID-CLIENTE", ID_CLIENTE_HEADER)));
+        assertEquals(1, comandos(get("/api/cnd-resultados?limite=5&campos=situacao,cnpjCliente,fkCliente")
+                .header("X-ID-CLIENTE", ID_CLIENTE_HEADER)));
+    }
+
+    @Test
+    void detalheDownloadEEdicaoDeResultado_semConsultaExtraParaOCliente() throws Exception {
+        assertEquals(1, comandos(get("/api/cnd-resultados/" + resultado.getId()).header("X-ID-CLIENTE", ID_CLIENTE_HEADER)));
+        assertEquals(1, comandos(get("/api/cnd-resultados/" + resultado.getId() + "?incluirArquivo=true")
+                .header("X-ID-CLIENTE", ID_CLIENTE_HEADER)));
+        assertEquals(1, comandos(get("/api/cnd-resultados/" + resultado.getId() + "/download")
+                .header("X-ID-CLIENTE", ID_CLIENTE_HEADER)));
+        // Busca com o cliente + UPDATE
+        assertEquals(2, comandos(put("/api/cnd-resultados/" + resultado.getId())
+                .header("X-ID-CLIENTE", ID_CLIENTE_HEADER)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"observacoes\": \"revisada\"}")));
+    }
+
+    @Test
+    void listagemDetalheEEdicaoDeCliente_comAEmpresaNaMesmaConsulta() throws Exception {
+        mockMvc.perform(get("/api/clientes").header("X-ID-CLIENTE", ID_CLIENTE_HEADER))
+                .andExpect(jsonPath("$", hasSize(CLIENTES)))
+                .andExpect(jsonPath("$[0].nomeEmpresa").value("Empresa Consultas"));
+
+        assertEquals(1, comandos(get("/api/clientes").header("X-ID-CLIENTE", ID_CLIENTE_HEADER)));
+        assertEquals(1, comandos(get("/api/clientes/" + cliente.getId()).header("X-ID-CLIENTE", ID_CLIENTE_HEADER)));
+
+        CndClienteRequestDTO alteracao = new CndClienteRequestDTO();
+        alteracao.setCnpj(cliente.getCnpj());
+        alteracao.setNome("Cliente renomeado");
+        alteracao.setPeriodicidade(15);
+        alteracao.setStatusCliente("ATIVO");
+        alteracao.setNacional(true);
+        alteracao.setMunicipal(false);
+        alteracao.setEstadual(false);
+        alteracao.setFkEmpresa(900L);
+        // Busca com a empresa + UPDATE
+        assertEquals(2, comandos(put("/api/clientes/" + cliente.getId())
+                .header("X-ID-CLIENTE", ID_CLIENTE_HEADER)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(alteracao))));
+    }
+}
@@ -0,0 +1,72 @@
+package br.com.sisaudcon.projeto.SAAMCND.extracao;
+
+import br.com.sisaudcon.projeto.SAAMCND.config.ExtratoresProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExtratorCndRegistryTest {
+
+    private final List<ExtratorCnd> extratores = Arrays.asList(new ExtratorReceitaFederal(), new ExtratorSefazMg(), new ExtratorMunicipal());
+    private ExtratoresProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ExtratoresProperties();
+        properties.getOrgaos().put("rfb", Arrays.asList("Receita Federal do Brasil", "RFB"));
+        properties.getOrgaos().put("sefaz-mg", Collections.singletonList("SEFAZ-MG"));
+        properties.getTipos().put("municipal", Collections.singletonList("Municipal"));
+    }
+
+    @Test
+    void resolver_porOrgaoEmissor_ignorandoMaiusculasAcentosEEspacos() {
+        ExtratorCndRegistry registry = new ExtratorCndRegistry(extratores, properties);
+
+        assertEquals(ExtratorSefazMg.ID, registry.resolver("Estadual", " sefaz-mg ").getId());
+        assertEquals(ExtratorReceitaFederal.ID, registry.resolver(null, "RECEITA  FEDERAL DO BRASIL").getId());
+    }
+
+    @Test
+    void resolver_semOrgaoMapeado_usaTipoCertidaoEDepoisOPadrao() {
+        ExtratorCndRegistry registry = new ExtratorCndRegistry(extratores, properties);
+
+        assertEquals(ExtratorMunicipal.ID, registry.resolver("Municipal", "Prefeitura de Belo Horizonte").getId());
+        assertEquals(ExtratorReceitaFederal.ID, registry.resolver("Estadual", "SEFAZ-SP").getId());
+        assertEquals(ExtratorReceitaFederal.ID, registry.resolver(null, null).getId());
+    }
+
+    @Test
+    void construtor_comIdDeExtratorDesconhecido_falhaNaSubida() {
+        properties.getOrgaos().put("sefaz-sp", Collections.singletonList("SEFAZ-SP"));
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> new ExtratorCndRegistry(extratores, properties));
+        assertTrue(e.getMessage().contains("sefaz-sp"));
+    }
+
+    @Test
+    void construtor_comIdRepetido_falhaNaSubida() {
+        assertThrows(IllegalStateException.class, () -> new ExtratorCndRegistry(
+                Arrays.asList(new ExtratorReceitaFederal(), new ExtratorReceitaFederal()), properties));
+    }
+
+    @Test
+    void paginasMaximas_porExtratorOuPadrao() {
+        properties.getPaginas().put("municipal", 3);
+        ExtratorCndRegistry registry = new ExtratorCndRegistry(extratores, properties);
+
+        assertEquals(3, registry.paginasMaximas(registry.resolver("Municipal", null)));
+        assertEquals(2, registry.paginasMaximas(registry.resolver(null, "SEFAZ-MG")));
+    }
+
+    @Test
+    void construtor_comQuantidadeDePaginasInvalida_falhaNaSubida() {
+        properties.getPaginas().put("rfb", 0);
+
+        assertThrows(IllegalStateException.class, () -> new ExtratorCndRegistry(extratores, properties));
+    }
+}
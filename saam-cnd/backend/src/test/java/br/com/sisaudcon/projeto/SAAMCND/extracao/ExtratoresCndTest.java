@@ -0,0 +1,91 @@
+package br.com.sisaudcon.projeto.SAAMCND.extracao;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExtratoresCndTest {
+
+    private final ExtratorReceitaFederal receitaFederal = new ExtratorReceitaFederal();
+    private final ExtratorSefazMg sefazMg = new ExtratorSefazMg();
+    private final ExtratorMunicipal municipal = new ExtratorMunicipal();
+
+    @Test
+    void receitaFederal_extraiTodosOsCampos_preservandoMaiusculasDoCodigo() {
+        DadosExtraidos dados = receitaFederal.extrair("CERTIDÃO NEGATIVA DE DÉBITOS\n" +
+                "Data de Emissão: 01/01/2024\nVálida até: 30/06/2024\nCódigo de Controle: ABC1.23X-YZ");
+
+        assertTrue(dados.isCompleto());
+        assertEquals("Negativa de Débitos", dados.getSituacao());
+        assertEquals(LocalDate.of(2024, 1, 1), dados.getDataEmissao());
+        assertEquals(LocalDate.of(2024, 6, 30), dados.getDataValidade());
+        assertEquals("ABC1.23X-YZ", dados.getCodigoControle());
+    }
+
+    @Test
+    void receitaFederal_positivaComEfeitosDeNegativa_naoViraNegativaNemPositiva() {
+        DadosExtraidos dados = receitaFederal.extrair(
+                "CERTIDÃO POSITIVA COM EFEITOS DE NEGATIVA DE DÉBITOS RELATIVOS AOS TRIBUTOS FEDERAIS\n" +
+                "Emitida às 10:22:33 do dia 2024-03-05\nValidade: 2024-09-01\nCódigo de controle da certidão: 1A2B.3C4D");
+
+        assertEquals("Positiva com Efeitos de Negativa", dados.getSituacao());
+        assertEquals(LocalDate.of(2024, 3, 5), dados.getDataEmissao());
+        assertEquals(LocalDate.of(2024, 9, 1), dados.getDataValidade());
+        assertEquals("1A2B.3C4D", dados.getCodigoControle());
+    }
+
+    @Test
+    void receitaFederal_situacaoGenericaNaoSobrepoeSituacaoEspecificaPosterior() {
+        // "positiva" (prioridade menor) aparece antes de "negativa de débitos" no texto
+        DadosExtraidos dados = receitaFederal.extrair("Esta certidão não é positiva. Certidão Negativa de Débitos.");
+
+        assertEquals("Negativa de Débitos", dados.getSituacao());
+    }
+
+    @Test
+    void receitaFederal_textoSemOsPadroes_retornaIncompleto() {
+        DadosExtraidos dados = receitaFederal.extrair("Este PDF não contém os dados esperados.");
+
+        assertFalse(dados.isCompleto());
+        assertNull(dados.getSituacao());
+        assertNull(dados.getDataEmissao());
+    }
+
+    @Test
+    void receitaFederal_dataInvalida_ehIgnoradaEContinuaProcurando() {
+        DadosExtraidos dados = receitaFederal.extrair("Data de Emissão: 99/99/2024\nEmitida em 02/01/2024");
+
+        assertEquals(LocalDate.of(2024, 1, 2), dados.getDataEmissao());
+    }
+
+    @Test
+    void sefazMg_reconheceOsRotulosDaCdt() {
+        DadosExtraidos dados = sefazMg.extrair("CERTIDÃO DE DÉBITOS TRIBUTÁRIOS NEGATIVA\n" +
+                "Data da emissão: 10/02/2024\nData de validade: 10/05/2024\nCódigo de autenticidade: MG99ZZ01");
+
+        assertTrue(dados.isCompleto());
+        assertEquals("Negativa de Débitos", dados.getSituacao());
+        assertEquals(LocalDate.of(2024, 5, 10), dados.getDataValidade());
+        assertEquals("MG99ZZ01", dados.getCodigoControle());
+    }
+
+    @Test
+    void municipal_reconheceRotulosDeExpedicaoEVerificacao() {
+        DadosExtraidos dados = municipal.extrair("Certidão Positiva com Efeitos de Negativa de Débitos Municipais\n" +
+                "Expedida em 15/03/2024\nVálida até 14/04/2024\nCódigo de verificação: a1b2c3");
+
+        assertTrue(dados.isCompleto());
+        assertEquals("Positiva com Efeitos de Negativa", dados.getSituacao());
+        assertEquals(LocalDate.of(2024, 3, 15), dados.getDataEmissao());
+        assertEquals("a1b2c3", dados.getCodigoControle());
+    }
+
+    @Test
+    void regraDeCapturaSemGrupo_eRejeitadaNaCompilacao() {
+        assertThrows(IllegalArgumentException.class, () -> new ConjuntoRegras(Arrays.asList(
+                RegraExtracao.captura(CampoCnd.CODIGO_CONTROLE, "codigo de controle"))));
+    }
+}
@@ -0,0 +1,140 @@
+package br.com.sisaudcon.projeto.SAAMCND.extracao;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.encryption.AccessPermission;
+import org.apache.pdfbox.pdmodel.encryption.StandardProtectionPolicy;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LeitorPdfTest {
+
+    private final LeitorPdf leitor = new LeitorPdf(DataSize.ofMegabytes(1), DataSize.ofKilobytes(64),
+            DataSize.ofMegabytes(8), Duration.ofSeconds(20));
+
+    @Test
+    void extrairTexto_leApenasAsPrimeirasPaginas() throws IOException {
+        byte[] pdf = gerarPdf(null, "Pagina um", "Pagina dois", "Pagina tres");
+
+        String texto = leitor.extrairTexto(pdf, 2);
+
+        assertTrue(texto.contains("Pagina um"));
+        assertTrue(texto.contains("Pagina dois"));
+        assertFalse(texto.contains("Pagina tres"));
+    }
+
+    @Test
+    void extrairTexto_acimaDoTamanhoMaximo_falhaAntesDeLerOPdf() {
+        LeitorPdf pequeno = new LeitorPdf(DataSize.ofBytes(100), DataSize.ofKilobytes(64), DataSize.ofMegabytes(8), Duration.ofSeconds(20));
+
+        ExtracaoPdfException e = assertThrows(ExtracaoPdfException.class, () -> pequeno.extrairTexto(new byte[101], 2));
+
+        assertEquals(LeitorPdf.STATUS_EXCEDE_TAMANHO, e.getStatusProcessamento());
+        assertEquals("UPDATE-PEC-4963-ERRO_PDF_EXCEDE_TAMANHO", e.getLinha());
+    }
+
+    @Test
+    void extrairTexto_prazoEsgotado_falhaComStatusDeTempoExcedido() throws IOException {
+        byte[] pdf = gerarPdf(null, "Pagina um", "Pagina dois");
+        // Cada leitura do relógio avança 1s: o prazo de 2s se esgota durante a extração
+        AtomicLong relogio = new AtomicLong();
+        LeitorPdf lento = new LeitorPdf(DataSize.ofMegabytes(1), DataSize.ofKilobytes(64), DataSize.ofMegabytes(8),
+                Duration.ofSeconds(2), () -> relogio.addAndGet(Duration.ofSeconds(1).toNanos()));
+
+        ExtracaoPdfException e = assertThrows(ExtracaoPdfException.class, () -> lento.extrairTexto(pdf, 2));
+
+        assertEquals(LeitorPdf.STATUS_TEMPO_EXCEDIDO, e.getStatusProcessamento());
+    }
+
+    @Test
+    void extrairTexto_prazoEsgotadoDentroDeUmFormulario_falhaComStatusDeTempoExcedido() throws IOException {
+        byte[] pdf = gerarPdfComFormulario(400);
+        assertTrue(leitor.extrairTexto(pdf, 2).contains("Linha 399"));
+        // O prazo se esgota nos operadores do Form XObject, não nos da página
+        AtomicLong relogio = new AtomicLong();
+        LeitorPdf lento = new LeitorPdf(DataSize.ofMegabytes(1), DataSize.ofKilobytes(64), DataSize.ofMegabytes(8),
+                Duration.ofSeconds(2), () -> relogio.addAndGet(Duration.ofSeconds(1).toNanos()));
+
+        ExtracaoPdfException e = assertThrows(ExtracaoPdfException.class, () -> lento.extrairTexto(pdf, 2));
+
+        assertEquals(LeitorPdf.STATUS_TEMPO_EXCEDIDO, e.getStatusProcessamento());
+    }
+
+    @Test
+    void extrairTexto_pdfCriptografado_falhaComStatusProprio() throws IOException {
+        byte[] pdf = gerarPdf("senha-dono", "Conteudo protegido");
+
+        ExtracaoPdfException e = assertThrows(ExtracaoPdfException.class, () -> leitor.extrairTexto(pdf, 2));
+
+        assertEquals(LeitorPdf.STATUS_CRIPTOGRAFADO, e.getStatusProcessamento());
+    }
+
+    @Test
+    void extrairTexto_arquivoQueNaoEPdf_lancaIOException() {
+        IOException e = assertThrows(IOException.class, () -> leitor.extrairTexto("não é um pdf".getBytes(), 2));
+
+        assertFalse(e instanceof ExtracaoPdfException);
+    }
+
+    // Uma página por texto; com senha de dono, o PDF é criptografado (abre sem senha de usuário)
+    private static byte[] gerarPdf(String senhaDono, String... paginas) throws IOException {
+        try (PDDocument document = new PDDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            for (String conteudo : paginas) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+                    contentStream.beginText();
+                    contentStream.setFont(PDType1Font.HELVETICA, 12);
+                    contentStream.newLineAtOffset(50, 700);
+                    contentStream.showText(conteudo);
+                    contentStream.endText();
+                }
+            }
+            if (senhaDono != null) {
+                StandardProtectionPolicy protecao = new StandardProtectionPolicy(senhaDono, "", new AccessPermission());
+                protecao.setEncryptionKeyLength(128);
+                document.protect(protecao);
+            }
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    // Uma página cujo conteúdo é só o desenho de um Form XObject com as linhas de texto
+    private static byte[] gerarPdfComFormulario(int linhas) throws IOException {
+        try (PDDocument document = new PDDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            PDPage page = new PDPage();
+            document.addPage(page);
+            PDFormXObject formulario = new PDFormXObject(document);
+            formulario.setBBox(page.getMediaBox());
+            formulario.setResources(new PDResources());
+            try (PDPageContentStream contentStream = new PDPageContentStream(document, formulario,
+                    formulario.getStream().createOutputStream())) {
+                contentStream.beginText();
+                contentStream.setFont(PDType1Font.HELVETICA, 1);
+                contentStream.newLineAtOffset(50, 750);
+                for (int i = 0; i < linhas; i++) {
+                    contentStream.showText("Linha " + i);
+                    contentStream.newLineAtOffset(0, -1.5f);
+                }
+                contentStream.endText();
+            }
+            try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+                contentStream.drawForm(formulario);
+            }
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package br.com.sisaudcon.projeto.SAAMCND.repository;
+
+import br.com.sisaudcon.projeto.SAAMCND.model.CndCliente;
+import br.com.sisaudcon.projeto.SAAMCND.model.CndEmpresa;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class CndClienteRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private CndClienteRepository cndClienteRepository;
+
+    private CndEmpresa comercio;
+    private CndEmpresa industria;
+
+    @BeforeEach
+    void setUp() {
+        comercio = persistirEmpresa(1L, "00.000.000/0001-00", "Comércio São João Ltda");
+        industria = persistirEmpresa(2L, "00.000.000/0002-00", "Indústria Açaí");
+        persistirCliente("11.111.111/0001-11", "João da Silva", comercio);
+        persistirCliente("22.222.222/0001-22", "Ana Conceição", comercio);
+        persistirCliente("33.333.333/0001-33", "JOANA PEREIRA", industria);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    private CndEmpresa persistirEmpresa(Long id, String cnpj, String nome) {
+        CndEmpresa empresa = new CndEmpresa();
+        empresa.setId(id);
+        empresa.setCnpj(cnpj);
+        empresa.setNomeEmpresa(nome);
+        empresa.setStatusEmpresa("ATIVA");
+        return entityManager.persist(empresa);
+    }
+
+    private void persistirCliente(String cnpj, String nome, CndEmpresa empresa) {
+        CndCliente cliente = new CndCliente();
+        cliente.setCnpj(cnpj);
+        cliente.setNome(nome);
+        cliente.setPeriodicidade(30);
+        cliente.setStatusCliente("ATIVO");
+        cliente.setNacional(true);
+        cliente.setMunicipal(false);
+        cliente.setEstadual(false);
+        cliente.setEmpresa(empresa);
+        entityManager.persist(cliente);
+    }
+
+    private static List<String> nomes(List<CndCliente> clientes) {
+        return clientes.stream().map(CndCliente::getNome).collect(Collectors.toList());
+    }
+
+    @Test
+    void buscarPorNome_porTrecho_semDiferenciarMaiusculasNemAcentos_emOrdemDeNome() {
+        assertEquals(List.of("JOANA PEREIRA", "João da Silva"), nomes(cndClienteRepository.buscarPorNome("jOa", null, 10)));
+        assertEquals(List.of("Ana Conceição"), nomes(cndClienteRepository.buscarPorNome("conceicao", null, 10)));
+        assertEquals(List.of("João da Silva"), nomes(cndClienteRepository.buscarPorNome("joão", null, 1)));
+    }
+
+    @Test
+    void buscarPorNome_porNomeDaEmpresa_trazAEmpresaNaMesmaConsulta() {
+        List<CndCliente> clientes = cndClienteRepository.buscarPorNome(null, "ACAI", 10);
+
+        assertEquals(List.of("JOANA PEREIRA"), nomes(clientes));
+        assertEquals("Indústria Açaí", clientes.get(0).getEmpresa().getNomeEmpresa());
+        assertEquals(List.of("Ana Conceição"), nomes(cndClienteRepository.buscarPorNome("ana", "sao joao", 10)));
+    }
+}
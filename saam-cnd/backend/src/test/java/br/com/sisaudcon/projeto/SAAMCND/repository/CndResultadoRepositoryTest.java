@@ -0,0 +1,365 @@
+package br.com.sisaudcon.projeto.SAAMCND.repository;
+
+import br.com.sisaudcon.projeto.SAAMCND.dto.CndArquivoResumo;
+import br.com.sisaudcon.projeto.SAAMCND.model.CndCliente;
+import br.com.sisaudcon.projeto.SAAMCND.model.CndEmpresa;
+import br.com.sisaudcon.projeto.SAAMCND.model.CndResultado;
+import br.com.sisaudcon.projeto.SAAMCND.model.CndResultadoArquivo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.persistence.Tuple;
+import javax.persistence.TupleElement;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class CndResultadoRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private CndResultadoRepository cndResultadoRepository;
+
+    @Autowired
+    private CndResultadoArquivoRepository cndResultadoArquivoRepository;
+
+    private CndCliente cliente;
+
+    @BeforeEach
+    void setUp() {
+        CndEmpresa empresa = new CndEmpresa();
+        empresa.setId(1L);
+        empresa.setCnpj("00.000.000/0001-00");
+        empresa.setNomeEmpresa("Empresa Teste");
+        empresa.setStatusEmpresa("ATIVA");
+        entityManager.persist(empresa);
+
+        cliente = new CndCliente();
+        cliente.setCnpj("11.111.111/0001-11");
+        cliente.setNome("Cliente Teste");
+        cliente.setPeriodicidade(30);
+        cliente.setStatusCliente("ATIVO");
+        cliente.setNacional(true);
+        cliente.setMunicipal(false);
+        cliente.setEstadual(false);
+        cliente.setEmpresa(empresa);
+        entityManager.persist(cliente);
+    }
+
+    private CndResultado persistirResultado(String statusProcessamento, String situacao, String leaseDono, LocalDateTime leaseExpiraEm) {
+        CndResultado resultado = new CndResultado();
+        resultado.setCliente(cliente);
+        resultado.setStatusProcessamento(statusProcessamento);
+        resultado.setSituacao(situacao);
+        resultado.setLeaseDono(leaseDono);
+        resultado.setLeaseExpiraEm(leaseExpiraEm);
+        return entityManager.persist(resultado);
+    }
+
+    private List<Long> travar(LocalDateTime agora, int limite) {
+        return cndResultadoRepository.travarIdsLivresParaExtracao("CONSULTA_REALIZADA", agora, PageRequest.of(0, limite));
+    }
+
+    @Test
+    void travarIdsLivresParaExtracao_ignoraLeasesAtivosEReivindicaLeasesVencidos() {
+        LocalDateTime agora = LocalDateTime.now();
+        CndResultado livre = persistirResultado("CONSULTA_REALIZADA", null, null, null);
+        persistirResultado("CONSULTA_REALIZADA", null, "no-a", agora.plusMinutes(5));
+        CndResultado vencido = persistirResultado("CONSULTA_REALIZADA", null, "no-caido", agora.minusMinutes(1));
+        persistirResultado("EXTRACAO_CONCLUIDA", null, null, null);
+        persistirResultado("CONSULTA_REALIZADA", "Negativa de Débitos", null, null);
+        entityManager.flush();
+
+        assertEquals(List.of(livre.getId(), vencido.getId()), travar(agora, 10));
+        assertEquals(List.of(livre.getId()), travar(agora, 1));
+    }
+
+    @Test
+    void atribuirLease_marcaDonoEExpiracao_eTiraOsItensDoBacklogLivre() {
+        LocalDateTime agora = LocalDateTime.now();
+        CndResultado r1 = persistirResultado("CONSULTA_REALIZADA", null, null, null);
+        CndResultado r2 = persistirResultado("CONSULTA_REALIZADA", null, null, null);
+        entityManager.flush();
+
+        List<Long> ids = travar(agora, 10);
+        assertEquals(2, cndResultadoRepository.atribuirLease(ids, "no-b", agora.plusMinutes(10)));
+        entityManager.clear();
+
+        CndResultado recarregado = entityManager.find(CndResultado.class, r1.getId());
+        assertEquals("no-b", recarregado.getLeaseDono());
+        assertTrue(travar(agora, 10).isEmpty());
+        // Passado o lease, os itens voltam a ficar disponíveis
+        assertEquals(List.of(r1.getId(), r2.getId()), travar(agora.plusMinutes(11), 10));
+    }
+
+    @Test
+    void atribuirLeaseSeLivre_reivindicaSoItemPendenteSemLeaseAtivo() {
+        LocalDateTime agora = LocalDateTime.now();
+        CndResultado livre = persistirResultado("CONSULTA_REALIZADA", null, null, null);
+        CndResultado comLease = persistirResultado("CONSULTA_REALIZADA", null, "no-a", agora.plusMinutes(5));
+        CndResultado extraido = persistirResultado("CONSULTA_REALIZADA", "Negativa de Débitos", null, null);
+        entityManager.flush();
+
+        assertEquals(1, cndResultadoRepository.atribuirLeaseSeLivre(livre.getId(), "CONSULTA_REALIZADA", "no-b", agora, agora.plusMinutes(10)));
+        // Segunda tentativa (ex: varredura de outro nó) não rouba o lease recém-atribuído
+        assertEquals(0, cndResultadoRepository.atribuirLeaseSeLivre(livre.getId(), "CONSULTA_REALIZADA", "no-c", agora, agora.plusMinutes(10)));
+        assertEquals(0, cndResultadoRepository.atribuirLeaseSeLivre(comLease.getId(), "CONSULTA_REALIZADA", "no-b", agora, agora.plusMinutes(10)));
+        assertEquals(0, cndResultadoRepository.atribuirLeaseSeLivre(extraido.getId(), "CONSULTA_REALIZADA", "no-b", agora, agora.plusMinutes(10)));
+        entityManager.clear();
+
+        assertEquals("no-b", entityManager.find(CndResultado.class, livre.getId()).getLeaseDono());
+    }
+
+    // PDF legado gravado na coluna inline (anterior ao BlobStore)
+    private void gravarArquivoInline(CndResultado resultado, String conteudo) {
+        entityManager.flush();
+        entityManager.find(CndResultadoArquivo.class, resultado.getId()).setArquivo(conteudo.getBytes());
+        entityManager.flush();
+    }
+
+    @Test
+    void confirmarLease_soComOLeaseDoProprioNoAindaValido() {
+        LocalDateTime agora = LocalDateTime.now();
+        CndResultado valido = persistirResultado("CONSULTA_REALIZADA", null, "no-a", agora.plusMinutes(5));
+        CndResultado vencido = persistirResultado("CONSULTA_REALIZADA", null, "no-a", agora.minusMinutes(1));
+        CndResultado deOutroNo = persistirResultado("CONSULTA_REALIZADA", null, "no-b", agora.plusMinutes(5));
+        CndResultado semLease = persistirResultado("CONSULTA_REALIZADA", null, null, null);
+        entityManager.flush();
+
+        assertEquals(1, cndResultadoRepository.confirmarLease(valido.getId(), "no-a", agora));
+        assertEquals(0, cndResultadoRepository.confirmarLease(vencido.getId(), "no-a", agora));
+        assertEquals(0, cndResultadoRepository.confirmarLease(deOutroNo.getId(), "no-a", agora));
+        assertEquals(0, cndResultadoRepository.confirmarLease(semLease.getId(), "no-a", agora));
+    }
+
+    @Test
+    void resultado_naoCarregaOConteudoInline_masSinalizaQueEleExiste() {
+        CndResultado inline = persistirResultado("CONSULTA_REALIZADA", null, null, null);
+        CndResultado semArquivo = persistirResultado("CONSULTA_REALIZADA", null, null, null);
+        gravarArquivoInline(inline, "um");
+        entityManager.clear();
+
+        CndResultado recarregado = cndResultadoRepository.findById(inline.getId()).orElseThrow();
+        assertNull(recarregado.getArquivo());
+        assertTrue(recarregado.possuiArquivo());
+        assertFalse(cndResultadoRepository.findById(semArquivo.getId()).orElseThrow().possuiArquivo());
+        assertEquals("um", new String(cndResultadoArquivoRepository.findArquivoInline(inline.getId()).orElseThrow()));
+        assertTrue(cndResultadoArquivoRepository.findArquivoInline(semArquivo.getId()).isEmpty());
+    }
+
+    @Test
+    void findIdsComArquivoInline_paginaPorIdSoEntreOsAindaNaoMigrados() {
+        CndResultado inline1 = persistirResultado("CONSULTA_REALIZADA", null, null, null);
+        persistirResultado("CONSULTA_REALIZADA", null, null, null); // sem arquivo
+        CndResultado inline2 = persistirResultado("CONSULTA_REALIZADA", null, null, null);
+        gravarArquivoInline(inline1, "um");
+        gravarArquivoInline(inline2, "dois");
+
+        assertEquals(List.of(inline1.getId(), inline2.getId()), cndResultadoArquivoRepository.findIdsComArquivoInline(0L, PageRequest.of(0, 10)));
+        assertEquals(List.of(inline2.getId()), cndResultadoArquivoRepository.findIdsComArquivoInline(inline1.getId(), PageRequest.of(0, 10)));
+        assertEquals(2, cndResultadoArquivoRepository.countComArquivoInline());
+
+        assertEquals(1, cndResultadoArquivoRepository.limparArquivoInline(inline1.getId()));
+        assertEquals(List.of(inline2.getId()), cndResultadoArquivoRepository.findIdsComArquivoInline(0L, PageRequest.of(0, 10)));
+    }
+
+    @Test
+    void atribuirArquivoSeAusente_naoSobrescreveArquivoJaNoBlobStore() {
+        CndResultado resultado = persistirResultado("CONSULTA_REALIZADA", null, null, null);
+        entityManager.flush();
+        String ref = "b".repeat(64);
+
+        assertEquals(1, cndResultadoRepository.atribuirArquivoSeAusente(resultado.getId(), ref, 2L, ref, null));
+        assertEquals(0, cndResultadoRepository.atribuirArquivoSeAusente(resultado.getId(), "c".repeat(64), 3L, "c".repeat(64), "deflate"));
+        entityManager.clear();
+
+        CndResultado recarregado = entityManager.find(CndResultado.class, resultado.getId());
+        assertEquals(ref, recarregado.getArquivoRef());
+        assertEquals(2L, recarregado.getArquivoTamanho());
+    }
+
+    @Test
+    void streamArquivos_trazSoResultadosComArquivoQueAtendemAoFiltro_emOrdemDeId() {
+        CndResultado noBlob = persistirResultado("EXTRACAO_CONCLUIDA", "Negativa", null, null);
+        noBlob.setArquivoRef("d".repeat(64));
+        noBlob.setTipoCertidao("Federal");
+        CndResultado inline = persistirResultado("EXTRACAO_CONCLUIDA", "Negativa", null, null);
+        persistirResultado("EXTRACAO_CONCLUIDA", "Negativa", null, null); // sem arquivo
+        CndResultado foraDoFiltro = persistirResultado("CONSULTA_REALIZADA", null, null, null);
+        foraDoFiltro.setArquivoRef("e".repeat(64));
+        gravarArquivoInline(inline, "legado");
+        entityManager.clear();
+
+        Specification<CndResultado> filtro = (root, query, cb) -> cb.equal(root.get("statusProcessamento"), "EXTRACAO_CONCLUIDA");
+        List<CndArquivoResumo> arquivos;
+        try (Stream<CndArquivoResumo> stream = cndResultadoRepository.streamArquivos(filtro, 10)) {
+            arquivos = stream.collect(Collectors.toList());
+        }
+
+        assertEquals(List.of(noBlob.getId(), inline.getId()), arquivos.stream().map(CndArquivoResumo::getId).collect(Collectors.toList()));
+        assertEquals("d".repeat(64), arquivos.get(0).getArquivoRef());
+        assertEquals("Federal", arquivos.get(0).getTipoCertidao());
+        assertEquals("11.111.111/0001-11", arquivos.get(0).getCnpjCliente());
+        assertTrue(arquivos.get(1).getArquivoInline());
+    }
+
+    @Test
+    void buscarPagina_percorreDoMaisRecenteAoMaisAntigoPelaChave_eTerminaNosSemDataProcessamento() {
+        LocalDateTime base = LocalDateTime.of(2024, 5, 10, 8, 0);
+        CndResultado antigo = persistirResultado("EXTRACAO_CONCLUIDA", "Negativa", null, null);
+        CndResultado empateA = persistirResultado("EXTRACAO_CONCLUIDA", "Negativa", null, null);
+        CndResultado empateB = persistirResultado("EXTRACAO_CONCLUIDA", "Negativa", null, null);
+        CndResultado recente = persistirResultado("EXTRACAO_CONCLUIDA", "Negativa", null, null);
+        CndResultado semData = persistirResultado("EXTRACAO_CONCLUIDA", "Negativa", null, null);
+        CndResultado foraDoFiltro = persistirResultado("CONSULTA_REALIZADA", null, null, null);
+        antigo.setDataProcessamento(base.minusDays(3));
+        empateA.setDataProcessamento(base);
+        empateB.setDataProcessamento(base);
+        recente.setDataProcessamento(base.plusDays(1));
+        foraDoFiltro.setDataProcessamento(base.plusDays(2));
+        entityManager.flush();
+        // Legado: a data é preenchida no @PrePersist, então só um UPDATE direto deixa a coluna vazia
+        entityManager.getEntityManager().createQuery("UPDATE CndResultado r SET r.dataProcessamento = NULL WHERE r.id = :id")
+                .setParameter("id", semData.getId()).executeUpdate();
+        entityManager.clear();
+        Specification<CndResultado> filtro = (root, query, cb) -> cb.equal(root.get("statusProcessamento"), "EXTRACAO_CONCLUIDA");
+
+        List<Long> percorridos = new ArrayList<>();
+        Set<CampoCndResultado> campos = EnumSet.of(CampoCndResultado.SITUACAO);
+        List<Tuple> pagina = cndResultadoRepository.buscarPagina(filtro, campos, null, null, 2);
+        while (!pagina.isEmpty()) {
+            pagina.forEach(linha -> percorridos.add(linha.get("id", Long.class)));
+            Tuple ultima = pagina.get(pagina.size() - 1);
+            pagina = cndResultadoRepository.buscarPagina(filtro, campos, ultima.get("dataProcessamento", LocalDateTime.class),
+                    ultima.get("id", Long.class), 2);
+        }
+
+        assertEquals(List.of(recente.getId(), empateB.getId(), empateA.getId(), antigo.getId(), semData.getId()), percorridos);
+    }
+
+    @Test
+    void buscarPagina_selecionaSoAsColunasDosCamposPedidos() {
+        CndResultado resultado = persistirResultado("EXTRACAO_CONCLUIDA", "Negativa", null, null);
+        resultado.setArquivoRef("f".repeat(64));
+        resultado.setObservacoes("não deve ser lida");
+        entityManager.flush();
+        entityManager.clear();
+
+        Tuple resumo = cndResultadoRepository.buscarPagina(Specification.where(null), CampoCndResultado.RESUMO, null, null, 10).get(0);
+        Tuple soSituacao = cndResultadoRepository.buscarPagina(Specification.where(null),
+                EnumSet.of(CampoCndResultado.SITUACAO), null, null, 10).get(0);
+
+        assertEquals("11.111.111/0001-11", resumo.get("cnpjCliente"));
+        assertEquals("f".repeat(64), resumo.get("arquivoRef"));
+        assertEquals(Set.of("id", "dataProcessamento", "situacao"),
+                soSituacao.getElements().stream().map(TupleElement::getAlias).collect(Collectors.toSet()));
+        assertEquals("Negativa", soSituacao.get("situacao"));
+    }
+
+    @Test
+    void findArquivoRefsEmUso_devolveCadaReferenciaAindaUsadaUmaVez() {
+        String compartilhada = "b".repeat(64);
+        persistirResultado("EXTRACAO_CONCLUIDA", "Negativa", null, null).setArquivoRef(compartilhada);
+        persistirResultado("EXTRACAO_CONCLUIDA", "Negativa", null, null).setArquivoRef(compartilhada);
+        persistirResultado("EXTRACAO_CONCLUIDA", "Negativa", null, null).setArquivoRef("c".repeat(64));
+        entityManager.flush();
+
+        assertEquals(List.of(compartilhada),
+                cndResultadoRepository.findArquivoRefsEmUso(List.of(compartilhada, "9".repeat(64))));
+    }
+
+    @Test
+    void arquivosSemCodec_listaSoBlobsNaoAvaliados_eAtribuirCodecValeParaTodosComAMesmaReferencia() {
+        String ref = "f".repeat(64);
+        CndResultado primeiro = persistirResultado("EXTRACAO_CONCLUIDA", "Negativa", null, null);
+        primeiro.setArquivoRef(ref);
+        CndResultado mesmoBlob = persistirResultado("EXTRACAO_CONCLUIDA", "Negativa", null, null);
+        mesmoBlob.setArquivoRef(ref);
+        CndResultado avaliado = persistirResultado("EXTRACAO_CONCLUIDA", "Negativa", null, null);
+        avaliado.setArquivoRef("a".repeat(64));
+        avaliado.setArquivoCodec("none");
+        persistirResultado("EXTRACAO_CONCLUIDA", "Negativa", null, null); // sem arquivo
+        entityManager.flush();
+
+        assertEquals(List.of(primeiro.getId(), mesmoBlob.getId()), cndResultadoRepository.findIdsComArquivoSemCodec(0L, PageRequest.of(0, 10)));
+        assertEquals(2, cndResultadoRepository.countByArquivoRefIsNotNullAndArquivoCodecIsNull());
+        assertEquals(Optional.of(ref), cndResultadoRepository.findArquivoRefSemCodec(primeiro.getId()));
+        assertEquals(Optional.empty(), cndResultadoRepository.findArquivoRefSemCodec(avaliado.getId()));
+
+        assertEquals(2, cndResultadoRepository.atribuirCodec(ref, "deflate"));
+        entityManager.clear();
+
+        assertEquals(0, cndResultadoRepository.countByArquivoRefIsNotNullAndArquivoCodecIsNull());
+        assertEquals("deflate", entityManager.find(CndResultado.class, mesmoBlob.getId()).getArquivoCodec());
+    }
+
+    @Test
+    void arquivamento_listaVencidosNaCamadaQuente_eNaoArquivaBlobAindaEmUso() {
+        LocalDate limite = LocalDate.now().minusDays(90);
+        String refVencido = "1".repeat(64);
+        String refCompartilhado = "2".repeat(64);
+        CndResultado vencido = persistirResultado("EXTRACAO_CONCLUIDA", "Negativa", null, null);
+        vencido.setArquivoRef(refVencido);
+        vencido.setDataValidade(limite.minusDays(1));
+        CndResultado vencidoCompartilhado = persistirResultado("EXTRACAO_CONCLUIDA", "Negativa", null, null);
+        vencidoCompartilhado.setArquivoRef(refCompartilhado);
+        vencidoCompartilhado.setDataValidade(limite.minusDays(10));
+        CndResultado valido = persistirResultado("EXTRACAO_CONCLUIDA", "Negativa", null, null);
+        valido.setArquivoRef(refCompartilhado);
+        valido.setDataValidade(LocalDate.now().plusDays(30));
+        entityManager.flush();
+
+        assertEquals(List.of(vencido.getId(), vencidoCompartilhado.getId()),
+                cndResultadoRepository.findIdsParaArquivamento(limite, 0L, PageRequest.of(0, 10)));
+        assertFalse(cndResultadoRepository.existsEmUsoComArquivoRef(refVencido, limite));
+        assertTrue(cndResultadoRepository.existsEmUsoComArquivoRef(refCompartilhado, limite));
+
+        assertEquals(1, cndResultadoRepository.marcarArquivado(refVencido));
+        entityManager.clear();
+
+        assertEquals(Optional.empty(), cndResultadoRepository.findArquivoRefNaoArquivado(vencido.getId()));
+        assertEquals(1, cndResultadoRepository.countParaArquivamento(limite));
+    }
+
+    @Test
+    void buscaTextual_situacaoPorTrecho_semDiferenciarMaiusculasNemAcentos() {
+        CndResultado debitos = persistirResultado("EXTRACAO_CONCLUIDA", "Negativa de Débitos", null, null);
+        CndResultado certidao = persistirResultado("EXTRACAO_CONCLUIDA", "Certidão Positiva com Efeitos de Negativa", null, null);
+        persistirResultado("EXTRACAO_CONCLUIDA", "Positiva", null, null);
+        persistirResultado("CONSULTA_REALIZADA", null, null, null);
+        entityManager.flush();
+
+        assertEquals(List.of(debitos.getId()), idsComSituacao("DEBITOS"));
+        assertEquals(List.of(certidao.getId()), idsComSituacao("certidao"));
+        assertEquals(List.of(debitos.getId(), certidao.getId()), idsComSituacao("negatíva"));
+        // Curingas do LIKE no termo são literais
+        assertTrue(idsComSituacao("Neg%").isEmpty());
+        assertTrue(idsComSituacao("_ositiva").isEmpty());
+    }
+
+    private List<Long> idsComSituacao(String termo) {
+        return cndResultadoRepository.findAll((root, query, cb) -> BuscaTextual.contem(cb, root.get("situacao"), termo)).stream()
+                .map(CndResultado::getId)
+                .sorted()
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,137 @@
+package br.com.sisaudcon.projeto.SAAMCND.repository;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * As consultas de IndicesConsultasTest no PostgreSQL (mesma imagem do docker-compose, via Testcontainers), com as
+ * migrações de db/migration/postgresql aplicadas: cada consulta usa o índice criado para ela, inclusive os
+ * parciais e os de trigramas. Tabelas populadas com uma distribuição parecida com a de produção (poucos pendentes,
+ * quase todos os blobs com codec e arquivados) e analisadas; sequential scan desligado, para que sem um índice
+ * utilizável o plano caia nele. Sem Docker disponível a classe é ignorada.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class IndicesConsultasPostgresTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:13-alpine");
+
+    private static final List<String> DADOS = List.of(
+            "INSERT INTO cnd_empresa (id, cnpj, nome_empresa) " +
+                    "SELECT g, lpad(g::text, 14, '0'), 'Empresa ' || g FROM generate_series(1, 200) g",
+            "INSERT INTO cnd_cliente (cnpj, estadual, municipal, nacional, nome, periodicidade, status_cliente, fk_empresa) " +
+                    "SELECT lpad(g::text, 14, '0'), false, false, true, 'Cliente ' || g, 30, 'ATIVO', 1 + g % 200 " +
+                    "FROM generate_series(1, 2000) g",
+            "INSERT INTO cnd_resultado (fk_cliente, status_processamento, situacao, data_processamento, data_emissao, " +
+                    "data_validade, arquivo_ref, arquivo_codec, arquivo_arquivado) " +
+                    "SELECT 1 + g % 2000, " +
+                    "CASE WHEN g % 500 = 0 THEN 'PENDENTE_EXTRACAO' WHEN g % 50 = 0 THEN 'ERRO_EXTRACAO_PDF' ELSE 'CONCLUIDO' END, " +
+                    "CASE WHEN g % 500 = 0 THEN NULL ELSE 'Negativa' END, " +
+                    "TIMESTAMP '2023-01-01 00:00:00' + g * INTERVAL '1 minute', " +
+                    "DATE '2023-01-01' + g % 700, DATE '2023-01-01' + g % 700 + 180, md5(g::text), " +
+                    "CASE WHEN g % 400 = 0 THEN NULL ELSE 'DEFLATE' END, " +
+                    "CASE WHEN g % 300 = 0 THEN NULL ELSE true END " +
+                    "FROM generate_series(1, 50000) g",
+            "ANALYZE");
+
+    // Consultas só do PostgreSQL -> índice esperado (no H2 a FK já tem índice próprio)
+    private static final Map<String, String> CONSULTAS_POSTGRES = Map.of(
+            "SELECT id FROM cnd_cliente WHERE fk_empresa = 1", "idx_cnd_cliente_empresa",
+            // Mesma forma do predicado de BuscaTextual.contem
+            "SELECT id FROM cnd_resultado WHERE cnd_normalizar_busca(situacao) LIKE '%negativa%' ESCAPE '\\'",
+            "idx_cnd_resultado_situacao_trgm",
+            "SELECT id FROM cnd_cliente WHERE cnd_normalizar_busca(nome) LIKE '%joao%' ESCAPE '\\'",
+            "idx_cnd_cliente_nome_trgm",
+            "SELECT id FROM cnd_empresa WHERE cnd_normalizar_busca(nome_empresa) LIKE '%comercio%' ESCAPE '\\'",
+            "idx_cnd_empresa_nome_trgm");
+
+    private Connection conexao;
+    private Statement comando;
+
+    @BeforeAll
+    static void migrar() throws SQLException {
+        Flyway.configure()
+                .dataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword())
+                .locations("classpath:db/migration/postgresql")
+                .load()
+                .migrate();
+        try (Connection conexao = conectar(); Statement comando = conexao.createStatement()) {
+            for (String sql : DADOS) {
+                comando.execute(sql);
+            }
+        }
+    }
+
+    @BeforeEach
+    void abrir() throws SQLException {
+        conexao = conectar();
+        comando = conexao.createStatement();
+        comando.execute("SET enable_seqscan = off");
+    }
+
+    @AfterEach
+    void fechar() throws SQLException {
+        comando.close();
+        conexao.close();
+    }
+
+    @Test
+    void consultasFrequentes_usamOIndiceDeCadaUma() throws SQLException {
+        for (Map.Entry<String, String> consulta : IndicesConsultasTest.CONSULTAS.entrySet()) {
+            assertUsaIndice(consulta.getKey(), consulta.getValue());
+        }
+    }
+
+    @Test
+    void clientesDaEmpresaEBuscaPorTrecho_usamOIndiceDeCadaUma() throws SQLException {
+        for (Map.Entry<String, String> consulta : CONSULTAS_POSTGRES.entrySet()) {
+            assertUsaIndice(consulta.getKey(), consulta.getValue());
+        }
+    }
+
+    @Test
+    void normalizacaoDaBusca_igualADoJava() throws SQLException {
+        try (ResultSet normalizado = comando.executeQuery("SELECT cnd_normalizar_busca('Certidão NEGATIVA de Débitos')")) {
+            normalizado.next();
+            assertEquals(BuscaTextual.normalizar("Certidão NEGATIVA de Débitos"), normalizado.getString(1));
+        }
+    }
+
+    private void assertUsaIndice(String sql, String indice) throws SQLException {
+        String plano = plano(sql);
+        assertFalse(plano.contains("Seq Scan"), () -> "Sequential scan em: " + sql + "\n" + plano);
+        assertTrue(plano.contains(indice), () -> "Esperado " + indice + " em: " + sql + "\n" + plano);
+    }
+
+    private String plano(String sql) throws SQLException {
+        StringBuilder plano = new StringBuilder();
+        try (ResultSet linhas = comando.executeQuery("EXPLAIN " + sql)) {
+            while (linhas.next()) {
+                plano.append(linhas.getString(1)).append('\n');
+            }
+        }
+        return plano.toString();
+    }
+
+    private static Connection conectar() throws SQLException {
+        return DriverManager.getConnection(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+    }
+}
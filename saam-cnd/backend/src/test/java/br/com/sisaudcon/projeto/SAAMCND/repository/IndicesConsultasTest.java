@@ -0,0 +1,80 @@
+package br.com.sisaudcon.projeto.SAAMCND.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Plano (EXPLAIN) das consultas frequentes sobre o esquema das migrações (db/migration/h2): cada uma usa o índice
+ * criado para ela, nunca uma varredura da tabela. O SQL reproduz o gerado pelas consultas do repositório e pelos
+ * filtros da listagem, com os parâmetros como literais. No PostgreSQL: IndicesConsultasPostgresTest.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+class IndicesConsultasTest {
+
+    // Consulta -> índice esperado no plano do H2
+    static final Map<String, String> CONSULTAS = Map.ofEntries(
+            // Listagem paginada: primeira página, páginas seguintes (posição do cursor) e filtros com índice
+            Map.entry("SELECT id FROM cnd_resultado WHERE data_processamento IS NOT NULL " +
+                    "ORDER BY data_processamento DESC, id DESC LIMIT 51", "idx_cnd_resultado_processamento"),
+            Map.entry("SELECT id FROM cnd_resultado WHERE data_processamento IS NOT NULL " +
+                    "AND data_processamento <= TIMESTAMP '2024-01-01 10:00:00' " +
+                    "AND (data_processamento < TIMESTAMP '2024-01-01 10:00:00' " +
+                    "OR (data_processamento = TIMESTAMP '2024-01-01 10:00:00' AND id < 100)) " +
+                    "ORDER BY data_processamento DESC, id DESC LIMIT 51", "idx_cnd_resultado_processamento"),
+            Map.entry("SELECT id FROM cnd_resultado WHERE fk_cliente = 1 AND data_processamento IS NOT NULL " +
+                    "ORDER BY data_processamento DESC, id DESC LIMIT 51", "idx_cnd_resultado_cliente_processamento"),
+            Map.entry("SELECT id FROM cnd_resultado WHERE status_processamento = 'ERRO_EXTRACAO_PDF' " +
+                    "AND data_processamento IS NOT NULL ORDER BY data_processamento DESC, id DESC LIMIT 51",
+                    "idx_cnd_resultado_status_processamento"),
+            Map.entry("SELECT id FROM cnd_resultado WHERE data_emissao >= DATE '2024-01-01' " +
+                    "AND data_emissao <= DATE '2024-06-30'", "idx_cnd_resultado_data_emissao"),
+            Map.entry("SELECT r.id FROM cnd_resultado r JOIN cnd_cliente c ON c.id = r.fk_cliente " +
+                    "WHERE c.cnpj = '11.111.111/0001-11'", "idx_cnd_cliente_cnpj"),
+            // Backlog da extração: reivindicação do lote e contagem da métrica
+            Map.entry("SELECT id FROM cnd_resultado WHERE status_processamento = 'PENDENTE_EXTRACAO' " +
+                    "AND situacao IS NULL AND (lease_expira_em IS NULL OR lease_expira_em < CURRENT_TIMESTAMP) " +
+                    "ORDER BY id LIMIT 100", "idx_cnd_resultado_pendentes_extracao"),
+            Map.entry("SELECT COUNT(*) FROM cnd_resultado WHERE status_processamento = 'PENDENTE_EXTRACAO' " +
+                    "AND situacao IS NULL", "idx_cnd_resultado_pendentes_extracao"),
+            // Armazenamento: recompressão, arquivamento e resultados por blob
+            Map.entry("SELECT id FROM cnd_resultado WHERE arquivo_ref IS NOT NULL AND arquivo_codec IS NULL " +
+                    "AND id > 0 ORDER BY id LIMIT 50", "idx_cnd_resultado_sem_codec"),
+            Map.entry("SELECT id FROM cnd_resultado WHERE arquivo_ref IS NOT NULL AND arquivo_arquivado IS NULL " +
+                    "AND data_validade < DATE '2024-01-01' AND id > 0 ORDER BY id LIMIT 100",
+                    "idx_cnd_resultado_para_arquivamento"),
+            Map.entry("SELECT COUNT(*) FROM cnd_resultado WHERE arquivo_ref = 'abc' " +
+                    "AND (data_validade IS NULL OR data_validade >= DATE '2024-01-01')", "idx_cnd_resultado_arquivo_ref"),
+            // Clientes da empresa e cliente por CNPJ na empresa
+            Map.entry("SELECT id FROM cnd_cliente WHERE cnpj = '11.111.111/0001-11' AND fk_empresa = 1",
+                    "idx_cnd_cliente_cnpj"));
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void consultasFrequentes_usamOIndiceDeCadaUma() {
+        CONSULTAS.forEach((sql, indice) -> {
+            String plano = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+
+            assertFalse(plano.contains("tableScan"), () -> "Varredura da tabela em: " + sql + "\n" + plano);
+            assertTrue(plano.toLowerCase().contains(indice), () -> "Esperado " + indice + " em: " + sql + "\n" + plano);
+        });
+    }
+
+    @Test
+    void clientesDaEmpresa_usamIndiceDaChaveEstrangeira() {
+        String plano = jdbcTemplate.queryForObject("EXPLAIN SELECT id FROM cnd_cliente WHERE fk_empresa = 1", String.class);
+
+        // No H2 o índice pode ser o criado automaticamente para a FK; no PostgreSQL é idx_cnd_cliente_empresa
+        assertFalse(plano.contains("tableScan"), plano);
+    }
+}
@@ -0,0 +1,119 @@
+package br.com.sisaudcon.projeto.SAAMCND.repository;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationVersion;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Banco já em produção antes do Flyway: criado pelo Hibernate (ddl-auto=update) com as entidades originais e
+ * marcado em V1 pelo baseline-on-migrate, como em application.properties. As migrações seguintes precisam trazer
+ * tudo o que o esquema inicial não tinha, também num banco que o Hibernate já tinha atualizado em parte.
+ */
+class MigracoesBaselineTest {
+
+    // Esquema criado pelo Hibernate com as entidades originais (sem as colunas de blob, codec, arquivamento e lease)
+    private static final List<String> ESQUEMA_ANTERIOR = List.of(
+            "CREATE TABLE cnd_empresa (id bigint NOT NULL, cnpj varchar(18) NOT NULL, data_atualizacao timestamp, " +
+                    "data_cadastro timestamp, linha varchar(255), nome_empresa varchar(255), status_empresa varchar(50), " +
+                    "PRIMARY KEY (id), CONSTRAINT uk_cnd_empresa_cnpj UNIQUE (cnpj))",
+            "CREATE TABLE cnd_cliente (id bigint GENERATED BY DEFAULT AS IDENTITY, cnpj varchar(18) NOT NULL, " +
+                    "data_atualizacao timestamp, data_cadastro timestamp, estadual boolean NOT NULL, linha varchar(255), " +
+                    "municipal boolean NOT NULL, nacional boolean NOT NULL, nome varchar(255) NOT NULL, " +
+                    "periodicidade integer NOT NULL, status_cliente varchar(50) NOT NULL, fk_empresa bigint NOT NULL, " +
+                    "PRIMARY KEY (id), CONSTRAINT fk_cnd_cliente_empresa FOREIGN KEY (fk_empresa) REFERENCES cnd_empresa)",
+            "CREATE TABLE cnd_resultado (id bigint GENERATED BY DEFAULT AS IDENTITY, codigo_controle varchar(100), " +
+                    "data_atualizacao timestamp, data_cadastro timestamp, data_emissao date, data_processamento timestamp, " +
+                    "data_validade date, linha varchar(255), mensagem_erro_processamento varchar(500), " +
+                    "observacoes varchar(1000), orgao_emissor varchar(100), situacao varchar(100), " +
+                    "status_processamento varchar(50), tipo_certidao varchar(50), arquivo blob, fk_cliente bigint NOT NULL, " +
+                    "PRIMARY KEY (id), CONSTRAINT fk_cnd_resultado_cliente FOREIGN KEY (fk_cliente) REFERENCES cnd_cliente)",
+            "INSERT INTO cnd_empresa (id, cnpj, nome_empresa) VALUES (1, '00.000.000/0001-00', 'Empresa')",
+            "INSERT INTO cnd_cliente (cnpj, estadual, municipal, nacional, nome, periodicidade, status_cliente, fk_empresa) " +
+                    "VALUES ('11.111.111/0001-11', false, false, true, 'Cliente', 30, 'ATIVO', 1)",
+            "INSERT INTO cnd_resultado (situacao, status_processamento, fk_cliente) VALUES ('Negativa', 'CONCLUIDO', 1)");
+
+    private static final List<String> COLUNAS_POSTERIORES = List.of("ARQUIVO_REF", "ARQUIVO_TAMANHO", "ARQUIVO_SHA256",
+            "ARQUIVO_CODEC", "ARQUIVO_ARQUIVADO", "LEASE_DONO", "LEASE_EXPIRA_EM");
+
+    private final String url = "jdbc:h2:mem:baseline-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1";
+
+    private Flyway flyway() {
+        return Flyway.configure()
+                .dataSource(url, "sa", "")
+                .locations("classpath:db/migration/h2")
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load();
+    }
+
+    private void executar(List<String> comandos) throws SQLException {
+        try (Connection conexao = DriverManager.getConnection(url, "sa", "");
+             Statement comando = conexao.createStatement()) {
+            for (String sql : comandos) {
+                comando.execute(sql);
+            }
+        }
+    }
+
+    private Set<String> consultar(String sql) throws SQLException {
+        Set<String> valores = new HashSet<>();
+        try (Connection conexao = DriverManager.getConnection(url, "sa", "");
+             Statement comando = conexao.createStatement();
+             ResultSet rs = comando.executeQuery(sql)) {
+            while (rs.next()) {
+                valores.add(rs.getString(1));
+            }
+        }
+        return valores;
+    }
+
+    private void assertEsquemaAtual() throws SQLException {
+        Set<String> colunas = consultar("SELECT COLUMN_NAME FROM INFORMATION_SCHEMA.COLUMNS WHERE TABLE_NAME = 'CND_RESULTADO'");
+        assertTrue(colunas.containsAll(COLUNAS_POSTERIORES), () -> "Colunas de cnd_resultado: " + colunas);
+        assertEquals(Set.of("CND_EXTRACAO_CACHE"),
+                consultar("SELECT TABLE_NAME FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME = 'CND_EXTRACAO_CACHE'"));
+        // Índices sobre as colunas novas (migração seguinte) criados
+        assertTrue(consultar("SELECT INDEX_NAME FROM INFORMATION_SCHEMA.INDEXES WHERE TABLE_NAME = 'CND_RESULTADO'")
+                .contains("IDX_CND_RESULTADO_ARQUIVO_REF"));
+        // Dados de antes preservados
+        assertEquals(Set.of("Negativa"), consultar("SELECT situacao FROM cnd_resultado"));
+    }
+
+    @Test
+    void bancoAnteriorAoFlyway_marcadoEmV1_recebeAsColunasETabelasPosteriores() throws SQLException {
+        executar(ESQUEMA_ANTERIOR);
+
+        flyway().migrate();
+
+        assertEquals(MigrationVersion.fromVersion("1"), flyway().info().applied()[0].getVersion()); // Baseline, V1 não executada
+        assertEsquemaAtual();
+    }
+
+    @Test
+    void bancoJaAtualizadoEmPartePeloHibernate_migraSemConflito() throws SQLException {
+        executar(ESQUEMA_ANTERIOR);
+        executar(List.of(
+                "ALTER TABLE cnd_resultado ADD COLUMN arquivo_ref varchar(100)",
+                "ALTER TABLE cnd_resultado ADD COLUMN arquivo_tamanho bigint",
+                "CREATE TABLE cnd_extracao_cache (id bigint GENERATED BY DEFAULT AS IDENTITY, " +
+                        "arquivo_sha256 varchar(64) NOT NULL, codigo_controle varchar(100), data_cadastro timestamp, " +
+                        "data_emissao date, data_validade date, situacao varchar(100), versao_extrator varchar(100) NOT NULL, " +
+                        "PRIMARY KEY (id), CONSTRAINT uk_cnd_extracao_cache_digest_versao UNIQUE (arquivo_sha256, versao_extrator))"));
+
+        flyway().migrate();
+
+        assertEsquemaAtual();
+    }
+}
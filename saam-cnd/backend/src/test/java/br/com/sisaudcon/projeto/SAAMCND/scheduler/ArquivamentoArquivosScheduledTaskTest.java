@@ -0,0 +1,68 @@
+package br.com.sisaudcon.projeto.SAAMCND.scheduler;
+
+import br.com.sisaudcon.projeto.SAAMCND.exception.ArmazenamentoArquivoException;
+import br.com.sisaudcon.projeto.SAAMCND.service.CndResultadoService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ArquivamentoArquivosScheduledTaskTest {
+
+    private static final LocalDate LIMITE = LocalDate.of(2024, 1, 1);
+
+    @Mock
+    private CndResultadoService cndResultadoService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ArquivamentoArquivosScheduledTask task;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        task = new ArquivamentoArquivosScheduledTask(cndResultadoService, meterRegistry, 90, 2, true);
+    }
+
+    @Test
+    void arquivar_percorreOsLotesEContaOsArquivados() {
+        when(cndResultadoService.idsParaArquivamento(LIMITE, 0L, 2)).thenReturn(List.of(1L, 2L));
+        when(cndResultadoService.idsParaArquivamento(LIMITE, 2L, 2)).thenReturn(List.of(5L));
+        when(cndResultadoService.arquivarArquivo(anyLong(), any())).thenReturn(true);
+        when(cndResultadoService.arquivarArquivo(2L, LIMITE)).thenReturn(false); // PDF ainda em uso por outro resultado
+        when(cndResultadoService.contarParaArquivamento(LIMITE)).thenReturn(1L);
+
+        assertEquals(2, task.arquivar(LIMITE));
+
+        assertEquals(2.0, meterRegistry.get("cnd.armazenamento.arquivamento.arquivos").counter().count());
+        assertEquals(1.0, meterRegistry.get("cnd.armazenamento.arquivamento.pendentes").gauge().value());
+    }
+
+    @Test
+    void arquivar_falhaNumItem_contaEContinuaComOsDemais() {
+        when(cndResultadoService.idsParaArquivamento(LIMITE, 0L, 2)).thenReturn(List.of(1L));
+        when(cndResultadoService.arquivarArquivo(1L, LIMITE)).thenThrow(new ArmazenamentoArquivoException("disco cheio", null));
+
+        assertEquals(0, task.arquivar(LIMITE));
+
+        assertEquals(1.0, meterRegistry.get("cnd.armazenamento.arquivamento.falhas").counter().count());
+    }
+
+    @Test
+    void arquivarVencidos_desabilitado_naoConsultaOBanco() {
+        new ArquivamentoArquivosScheduledTask(cndResultadoService, new SimpleMeterRegistry(), 90, 2, false).arquivarVencidos();
+
+        verify(cndResultadoService, never()).idsParaArquivamento(any(), anyLong(), anyInt());
+    }
+}
@@ -0,0 +1,77 @@
+package br.com.sisaudcon.projeto.SAAMCND.scheduler;
+
+import br.com.sisaudcon.projeto.SAAMCND.service.ManutencaoBlobsOrfaosService;
+import br.com.sisaudcon.projeto.SAAMCND.service.ManutencaoBlobsOrfaosService.LoteBlobs;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ManutencaoBlobsOrfaosScheduledTaskTest {
+
+    @Mock
+    private ManutencaoBlobsOrfaosService manutencaoBlobsOrfaosService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Instant limite = Instant.parse("2026-01-01T00:00:00Z");
+
+    private ManutencaoBlobsOrfaosScheduledTask task(boolean habilitada, boolean simulacao) {
+        return new ManutencaoBlobsOrfaosScheduledTask(manutencaoBlobsOrfaosService, meterRegistry, 2, habilitada,
+                simulacao, Duration.ofHours(24));
+    }
+
+    @Test
+    void limpar_confereOsCandidatosEmLotesEContaBytesRecuperados() {
+        when(manutencaoBlobsOrfaosService.candidatosCamadaQuente(limite)).thenReturn(Stream.of("a", "b", "c"));
+        when(manutencaoBlobsOrfaosService.limparOrfaosCamadaQuente(List.of("a", "b"), limite, false)).thenReturn(new LoteBlobs(2, 300L));
+        when(manutencaoBlobsOrfaosService.limparOrfaosCamadaQuente(List.of("c"), limite, false)).thenReturn(new LoteBlobs(0, 0L));
+
+        assertEquals(2, task(true, false).limpar(limite));
+
+        assertEquals(2.0, meterRegistry.get("cnd.armazenamento.orfaos.removidos").counter().count());
+        assertEquals(300.0, meterRegistry.get("cnd.armazenamento.orfaos.bytes-recuperados").counter().count());
+        assertEquals(300.0, meterRegistry.get("cnd.armazenamento.orfaos.bytes").gauge().value());
+    }
+
+    @Test
+    void limpar_simulacao_informaOsOrfaosSemContarComoRecuperados() {
+        when(manutencaoBlobsOrfaosService.candidatosCamadaQuente(limite)).thenReturn(Stream.of("a"));
+        when(manutencaoBlobsOrfaosService.limparOrfaosCamadaQuente(List.of("a"), limite, true)).thenReturn(new LoteBlobs(1, 80L));
+
+        assertEquals(1, task(true, true).limpar(limite));
+
+        assertEquals(0.0, meterRegistry.get("cnd.armazenamento.orfaos.removidos").counter().count());
+        assertEquals(1.0, meterRegistry.get("cnd.armazenamento.orfaos.encontrados").gauge().value());
+        assertEquals(80.0, meterRegistry.get("cnd.armazenamento.orfaos.bytes").gauge().value());
+    }
+
+    @Test
+    void limparBlobsOrfaos_publicaOsOrfaosDoArquivoMorto() {
+        when(manutencaoBlobsOrfaosService.candidatosCamadaQuente(any(Instant.class))).thenReturn(Stream.empty());
+        when(manutencaoBlobsOrfaosService.contarOrfaosArquivoMorto(2)).thenReturn(new LoteBlobs(3, 900L));
+
+        task(true, true).limparBlobsOrfaos();
+
+        verify(manutencaoBlobsOrfaosService, never()).limparOrfaosCamadaQuente(any(), any(), anyBoolean());
+        assertEquals(3.0, meterRegistry.get("cnd.armazenamento.orfaos.arquivo-morto").gauge().value());
+        assertEquals(900.0, meterRegistry.get("cnd.armazenamento.orfaos.arquivo-morto.bytes").gauge().value());
+    }
+
+    @Test
+    void limparBlobsOrfaos_desabilitada_naoFazNada() {
+        task(false, false).limparBlobsOrfaos();
+
+        verifyNoInteractions(manutencaoBlobsOrfaosService);
+    }
+}
@@ -0,0 +1,72 @@
+package br.com.sisaudcon.projeto.SAAMCND.scheduler;
+
+import br.com.sisaudcon.projeto.SAAMCND.service.ManutencaoLargeObjectsService;
+import br.com.sisaudcon.projeto.SAAMCND.service.ManutencaoLargeObjectsService.LoteLargeObjects;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ManutencaoLargeObjectsScheduledTaskTest {
+
+    @Mock
+    private ManutencaoLargeObjectsService manutencaoLargeObjectsService;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ManutencaoLargeObjectsScheduledTask task(boolean simulacao, boolean converterParaBytea) {
+        return new ManutencaoLargeObjectsScheduledTask(manutencaoLargeObjectsService, meterRegistry, 2, true,
+                simulacao, converterParaBytea);
+    }
+
+    @Test
+    void limpar_percorreOsLotesPeloUltimoOidEContaBytesRecuperados() {
+        when(manutencaoLargeObjectsService.limparOrfaos(0L, 2, false)).thenReturn(new LoteLargeObjects(20L, 2, 300L));
+        when(manutencaoLargeObjectsService.limparOrfaos(20L, 2, false)).thenReturn(new LoteLargeObjects(31L, 1, 50L));
+
+        assertEquals(3, task(false, false).limpar());
+
+        assertEquals(3.0, meterRegistry.get("cnd.lob.orfaos.removidos").counter().count());
+        assertEquals(350.0, meterRegistry.get("cnd.lob.orfaos.bytes-recuperados").counter().count());
+        assertEquals(350.0, meterRegistry.get("cnd.lob.orfaos.bytes").gauge().value());
+    }
+
+    @Test
+    void limpar_simulacao_informaOsOrfaosSemContarComoRecuperados() {
+        when(manutencaoLargeObjectsService.limparOrfaos(0L, 2, true)).thenReturn(new LoteLargeObjects(7L, 1, 80L));
+
+        assertEquals(1, task(true, false).limpar());
+
+        assertEquals(0.0, meterRegistry.get("cnd.lob.orfaos.removidos").counter().count());
+        assertEquals(1.0, meterRegistry.get("cnd.lob.orfaos.encontrados").gauge().value());
+        assertEquals(80.0, meterRegistry.get("cnd.lob.orfaos.bytes").gauge().value());
+    }
+
+    @Test
+    void limparLargeObjectsOrfaos_converteAntesDeLimparQuandoConfigurado() {
+        when(manutencaoLargeObjectsService.disponivel()).thenReturn(true);
+        when(manutencaoLargeObjectsService.limparOrfaos(0L, 2, false)).thenReturn(new LoteLargeObjects(0L, 0, 0L));
+
+        task(false, true).limparLargeObjectsOrfaos();
+
+        verify(manutencaoLargeObjectsService).converterColunaParaBytea();
+    }
+
+    @Test
+    void limparLargeObjectsOrfaos_foraDoPostgresql_naoFazNada() {
+        when(manutencaoLargeObjectsService.disponivel()).thenReturn(false);
+
+        task(false, true).limparLargeObjectsOrfaos();
+
+        verify(manutencaoLargeObjectsService, never()).limparOrfaos(anyLong(), anyInt(), anyBoolean());
+        verify(manutencaoLargeObjectsService, never()).converterColunaParaBytea();
+    }
+}
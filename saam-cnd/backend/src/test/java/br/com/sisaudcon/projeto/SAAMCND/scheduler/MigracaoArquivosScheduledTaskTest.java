@@ -0,0 +1,66 @@
+package br.com.sisaudcon.projeto.SAAMCND.scheduler;
+
+import br.com.sisaudcon.projeto.SAAMCND.exception.ArmazenamentoArquivoException;
+import br.com.sisaudcon.projeto.SAAMCND.service.CndResultadoService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MigracaoArquivosScheduledTaskTest {
+
+    @Mock
+    private CndResultadoService cndResultadoService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private MigracaoArquivosScheduledTask task;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        task = new MigracaoArquivosScheduledTask(cndResultadoService, meterRegistry, 2, true);
+    }
+
+    @Test
+    void migrar_percorreOsLotesPeloUltimoIdEContaArquivosEBytes() {
+        when(cndResultadoService.idsComArquivoInline(0L, 2)).thenReturn(List.of(1L, 2L));
+        when(cndResultadoService.idsComArquivoInline(2L, 2)).thenReturn(List.of(5L));
+        when(cndResultadoService.migrarArquivoInline(anyLong())).thenReturn(100L);
+        when(cndResultadoService.contarArquivosInline()).thenReturn(0L);
+
+        assertEquals(3, task.migrar());
+
+        assertEquals(3.0, meterRegistry.get("cnd.armazenamento.migracao.arquivos").counter().count());
+        assertEquals(300.0, meterRegistry.get("cnd.armazenamento.migracao.bytes").counter().count());
+        assertEquals(0.0, meterRegistry.get("cnd.armazenamento.migracao.pendentes").gauge().value());
+    }
+
+    @Test
+    void migrar_falhaNumItem_contaEContinuaComOsDemais() {
+        when(cndResultadoService.idsComArquivoInline(0L, 2)).thenReturn(List.of(1L));
+        when(cndResultadoService.migrarArquivoInline(1L)).thenThrow(new ArmazenamentoArquivoException("disco cheio", null));
+        when(cndResultadoService.contarArquivosInline()).thenReturn(1L);
+
+        assertEquals(0, task.migrar());
+
+        assertEquals(1.0, meterRegistry.get("cnd.armazenamento.migracao.falhas").counter().count());
+        assertEquals(1.0, meterRegistry.get("cnd.armazenamento.migracao.pendentes").gauge().value());
+    }
+
+    @Test
+    void migrarArquivosInline_desabilitada_naoConsultaOBanco() {
+        new MigracaoArquivosScheduledTask(cndResultadoService, new SimpleMeterRegistry(), 2, false).migrarArquivosInline();
+
+        verify(cndResultadoService, never()).idsComArquivoInline(anyLong(), anyInt());
+    }
+}
@@ -1,19 +1,43 @@
 package br.com.sisaudcon.projeto.SAAMCND.scheduler;
 
+import br.com.sisaudcon.projeto.SAAMCND.config.ExtratoresProperties;
+import br.com.sisaudcon.projeto.SAAMCND.extracao.ExtratorCndRegistry;
+import br.com.sisaudcon.projeto.SAAMCND.extracao.ExtratorMunicipal;
+import br.com.sisaudcon.projeto.SAAMCND.extracao.ExtratorReceitaFederal;
+import br.com.sisaudcon.projeto.SAAMCND.extracao.ExtratorSefazMg;
+import br.com.sisaudcon.projeto.SAAMCND.extracao.LeitorPdf;
 import br.com.sisaudcon.projeto.SAAMCND.model.CndResultado;
+import br.com.sisaudcon.projeto.SAAMCND.extracao.DadosExtraidos;
 import br.com.sisaudcon.projeto.SAAMCND.service.CndResultadoService;
+import br.com.sisaudcon.projeto.SAAMCND.armazenamento.DigestArquivo;
+import br.com.sisaudcon.projeto.SAAMCND.service.ExtracaoCacheService;
+import br.com.sisaudcon.projeto.SAAMCND.service.ResultadoPendenteExtracaoEvent;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -24,7 +48,12 @@ class PdfExtractionScheduledTaskTest {
     @Mock
     private CndResultadoService cndResultadoService;
 
-    @InjectMocks
+    @Mock
+    private ExtracaoCacheService extracaoCacheService;
+
+    private static final String ID_NO = "no-teste";
+
+    private SimpleMeterRegistry meterRegistry;
     private PdfExtractionScheduledTask pdfExtractionScheduledTask;
 
     private CndResultado resultado1;
@@ -32,7 +61,14 @@ class PdfExtractionScheduledTaskTest {
     private CndResultado resultado3_semDadosNoPdf;
 
     @BeforeEach
-    void setUp() {
+    void setUp() throws IOException {
+        meterRegistry = new SimpleMeterRegistry();
+        pdfExtractionScheduledTask = new PdfExtractionScheduledTask(cndResultadoService,
+                new ExtracaoPdfProcessor(cndResultadoService, extratores(), leitorPdf(), extracaoCacheService, meterRegistry), meterRegistry, 2, 1, 2, ID_NO, Duration.ofMinutes(10), true);
+        // Os PDFs dos testes são atribuídos direto na entidade (conteúdo ainda não gravado no armazenamento)
+        lenient().when(cndResultadoService.lerArquivo(any(CndResultado.class)))
+                .thenAnswer(invocation -> ((CndResultado) invocation.getArgument(0)).getArquivo());
+
         resultado1 = new CndResultado();
         resultado1.setId(1L);
         // Simula um PDF com dados extraíveis
@@ -40,7 +76,7 @@ class PdfExtractionScheduledTaskTest {
                              "Data de Emissão: 01/01/2024\n" +
                              "Válida até: 30/06/2024\n" +
                              "Código de Controle: ABC123XYZ";
-        resultado1.setArquivo(pdfContent1.getBytes(StandardCharsets.UTF_8));
+        resultado1.setArquivo(gerarPdf(pdfContent1));
         resultado1.setStatusProcessamento("CONSULTA_REALIZADA"); // Status que o job procura
         resultado1.setSituacao(null); // Garante que a situação não está preenchida
 
@@ -61,15 +97,20 @@ class PdfExtractionScheduledTaskTest {
         resultado3_semDadosNoPdf = new CndResultado();
         resultado3_semDadosNoPdf.setId(3L);
         String pdfContent3 = "Este PDF não contém os dados esperados.";
-        resultado3_semDadosNoPdf.setArquivo(pdfContent3.getBytes(StandardCharsets.UTF_8));
+        resultado3_semDadosNoPdf.setArquivo(gerarPdf(pdfContent3));
         resultado3_semDadosNoPdf.setStatusProcessamento("CONSULTA_REALIZADA");
         resultado3_semDadosNoPdf.setSituacao(null);
 
     }
 
+    @AfterEach
+    void tearDown() {
+        pdfExtractionScheduledTask.encerrar();
+    }
+
     @Test
     void processarResultadosParaExtracaoDePdf_quandoHaResultados_processaTodos() {
-        when(cndResultadoService.findResultadosParaExtracao()).thenReturn(Arrays.asList(resultado1, resultado3_semDadosNoPdf));
+        backlog(Arrays.asList(resultado1, resultado3_semDadosNoPdf), 0L);
         // Não precisamos mockar PDDocument.load() aqui, pois o método extrairEPreencherDados
         // será chamado com o texto extraído. O teste foca na lógica do scheduler.
         // O PDFBox é testado indiretamente se o texto for realmente extraído.
@@ -101,7 +142,7 @@ class PdfExtractionScheduledTaskTest {
         resultadoPdfAusente.setStatusProcessamento("CONSULTA_REALIZADA");
         resultadoPdfAusente.setSituacao(null);
 
-        when(cndResultadoService.findResultadosParaExtracao()).thenReturn(Collections.singletonList(resultadoPdfAusente));
+        backlog(Collections.singletonList(resultadoPdfAusente), 0L);
 
         pdfExtractionScheduledTask.processarResultadosParaExtracaoDePdf();
 
@@ -113,15 +154,241 @@ class PdfExtractionScheduledTaskTest {
 
     @Test
     void processarResultadosParaExtracaoDePdf_quandoNaoHaResultados_naoFazNada() {
-        when(cndResultadoService.findResultadosParaExtracao()).thenReturn(Collections.emptyList());
+        when(cndResultadoService.contarResultadosParaExtracao()).thenReturn(0L);
 
         pdfExtractionScheduledTask.processarResultadosParaExtracaoDePdf();
 
+        verify(cndResultadoService, never()).reivindicarParaExtracao(anyString(), anyInt(), any(Duration.class));
         verify(cndResultadoService, never()).salvarResultado(any(CndResultado.class));
     }
 
-    // Testes mais detalhados para o método privado `extrairEPreencherDados` poderiam ser feitos
-    // se ele fosse tornado package-private ou usando PowerMockito para testar métodos privados,
-    // ou refatorando-o para uma classe separada de "ExtratorDeDadosPdf".
-    // Por enquanto, o teste acima cobre o fluxo principal do scheduler.
+    @Test
+    void processarResultadosParaExtracaoDePdf_falhaAoGravarUmItem_naoImpedeOsDemais() {
+        backlog(Arrays.asList(resultado1, resultado2_pdfCorrompido, resultado3_semDadosNoPdf), 1L);
+        // Answer por identidade: os itens são alterados em paralelo, o que tornaria instável o matching por equals
+        when(cndResultadoService.salvarResultado(any(CndResultado.class))).thenAnswer(invocation -> {
+            if (invocation.getArgument(0) == resultado1) {
+                throw new IllegalStateException("Conexão perdida");
+            }
+            return invocation.getArgument(0);
+        });
+
+        pdfExtractionScheduledTask.processarResultadosParaExtracaoDePdf();
+
+        verify(cndResultadoService).salvarResultado(resultado2_pdfCorrompido);
+        verify(cndResultadoService).salvarResultado(resultado3_semDadosNoPdf);
+        assertEquals("ERRO_EXTRACAO_IO", resultado2_pdfCorrompido.getStatusProcessamento());
+        assertEquals("ERRO_EXTRACAO_DADOS_NAO_ENCONTRADOS", resultado3_semDadosNoPdf.getStatusProcessamento());
+
+        RelatorioExtracao relatorio = pdfExtractionScheduledTask.getUltimaExecucao();
+        assertEquals(3, relatorio.getBacklogInicial());
+        assertEquals(1, relatorio.getBacklogRestante());
+        assertEquals(3, relatorio.getItensProcessados());
+        assertEquals(1L, relatorio.getItensPorStatus().get(PdfExtractionScheduledTask.STATUS_FALHA_TRANSACAO));
+        assertEquals(1L, relatorio.getItensPorStatus().get("ERRO_EXTRACAO_IO"));
+        assertEquals(1.0, meterRegistry.get("cnd.extracao.itens").tag("status", "ERRO_EXTRACAO_IO").counter().count());
+        assertEquals(1.0, meterRegistry.get("cnd.extracao.backlog").gauge().value());
+        assertEquals(1L, meterRegistry.get("cnd.extracao.execucao").timer().count());
+    }
+
+    @Test
+    void processarResultadosParaExtracaoDePdf_comFilaCheia_processaTodosOsItens() throws IOException {
+        // 2 workers + fila de 1: os excedentes são processados pela própria thread do agendador
+        List<CndResultado> muitos = new ArrayList<>();
+        byte[] pdf = gerarPdf("Certidão Negativa de Débitos\nData de Emissão: 01/01/2024\nVálida até: 30/06/2024\nCódigo de Controle: ABC");
+        for (long id = 10; id < 30; id++) {
+            CndResultado resultado = new CndResultado();
+            resultado.setId(id);
+            resultado.setArquivo(pdf);
+            resultado.setStatusProcessamento("CONSULTA_REALIZADA");
+            muitos.add(resultado);
+        }
+        backlog(muitos, 0L);
+
+        pdfExtractionScheduledTask.processarResultadosParaExtracaoDePdf();
+
+        verify(cndResultadoService, times(20)).salvarResultado(any(CndResultado.class));
+        assertTrue(muitos.stream().allMatch(r -> "EXTRACAO_CONCLUIDA".equals(r.getStatusProcessamento())));
+        assertEquals(20L, pdfExtractionScheduledTask.getUltimaExecucao().getItensPorStatus().get("EXTRACAO_CONCLUIDA"));
+    }
+
+    @Test
+    void processarResultadosParaExtracaoDePdf_consomeBacklogEmLotesReivindicadosELiberaOLease() {
+        backlog(Arrays.asList(resultado1, resultado2_pdfCorrompido, resultado3_semDadosNoPdf), 0L);
+
+        pdfExtractionScheduledTask.processarResultadosParaExtracaoDePdf();
+
+        // Lotes de 2 IDs: (1, 2) e depois (3), que por ser incompleto encerra a execução
+        verify(cndResultadoService, times(2)).reivindicarParaExtracao(ID_NO, 2, Duration.ofMinutes(10));
+        verify(cndResultadoService).findResultadoParaExtracao(1L, ID_NO);
+        verify(cndResultadoService).findResultadoParaExtracao(2L, ID_NO);
+        verify(cndResultadoService).findResultadoParaExtracao(3L, ID_NO);
+        assertNull(resultado1.getLeaseDono());
+        assertNull(resultado1.getLeaseExpiraEm());
+        assertNull(resultado2_pdfCorrompido.getLeaseDono());
+    }
+
+    @Test
+    void processarResultadosParaExtracaoDePdf_leaseVencidoReivindicadoPorOutroNo_eIgnorado() {
+        when(cndResultadoService.contarResultadosParaExtracao()).thenReturn(1L, 1L);
+        when(cndResultadoService.reivindicarParaExtracao(ID_NO, 2, Duration.ofMinutes(10))).thenReturn(Collections.singletonList(1L));
+        // O serviço não confirma o lease (venceu e passou a outro nó): o item não é carregado
+        when(cndResultadoService.findResultadoParaExtracao(1L, ID_NO)).thenReturn(Optional.empty());
+
+        pdfExtractionScheduledTask.processarResultadosParaExtracaoDePdf();
+
+        verify(cndResultadoService, never()).salvarResultado(any(CndResultado.class));
+        assertEquals("CONSULTA_REALIZADA", resultado1.getStatusProcessamento());
+        assertEquals(1L, pdfExtractionScheduledTask.getUltimaExecucao().getItensPorStatus().get(ExtracaoPdfProcessor.STATUS_IGNORADO));
+    }
+
+    @Test
+    void processarResultadosParaExtracaoDePdf_itemJaProcessadoOuRemovido_eIgnorado() {
+        resultado1.setSituacao("Negativa de Débitos"); // Processado por outra execução desde a leitura dos IDs
+        when(cndResultadoService.contarResultadosParaExtracao()).thenReturn(2L, 0L);
+        resultado1.setLeaseDono(ID_NO);
+        when(cndResultadoService.reivindicarParaExtracao(ID_NO, 2, Duration.ofMinutes(10)))
+                .thenReturn(Arrays.asList(1L, 99L))
+                .thenReturn(Collections.emptyList());
+        when(cndResultadoService.findResultadoParaExtracao(1L, ID_NO)).thenReturn(Optional.of(resultado1));
+        when(cndResultadoService.findResultadoParaExtracao(99L, ID_NO)).thenReturn(Optional.empty());
+
+        pdfExtractionScheduledTask.processarResultadosParaExtracaoDePdf();
+
+        verify(cndResultadoService, never()).salvarResultado(any(CndResultado.class));
+        assertEquals(2L, pdfExtractionScheduledTask.getUltimaExecucao().getItensPorStatus().get(ExtracaoPdfProcessor.STATUS_IGNORADO));
+    }
+
+    @Test
+    void processarResultadosParaExtracaoDePdf_pdfJaExtraido_reaproveitaOCacheSemAbrirOPdf() {
+        // Conteúdo inválido: se o PDFBox fosse chamado, o item terminaria em ERRO_EXTRACAO_IO
+        resultado2_pdfCorrompido.setArquivoSha256("a".repeat(64));
+        DadosExtraidos emCache = new DadosExtraidos();
+        emCache.setSituacao("Negativa de Débitos");
+        emCache.setDataEmissao(LocalDate.of(2024, 1, 1));
+        emCache.setDataValidade(LocalDate.of(2024, 6, 30));
+        emCache.setCodigoControle("ABC123XYZ");
+        when(extracaoCacheService.buscar(anyString(), anyString())).thenAnswer(invocation ->
+                "a".repeat(64).equals(invocation.getArgument(0)) ? Optional.of(emCache) : Optional.empty());
+        backlog(Arrays.asList(resultado1, resultado2_pdfCorrompido), 0L);
+
+        pdfExtractionScheduledTask.processarResultadosParaExtracaoDePdf();
+
+        assertEquals("EXTRACAO_CONCLUIDA", resultado2_pdfCorrompido.getStatusProcessamento());
+        assertEquals("ABC123XYZ", resultado2_pdfCorrompido.getCodigoControle());
+        verify(extracaoCacheService, never()).guardar(eq("a".repeat(64)), anyString(), any());
+        // resultado1 não estava no cache: o digest é calculado e a extração gravada para os próximos
+        String digest1 = DigestArquivo.sha256Hex(resultado1.getArquivo());
+        assertEquals(digest1, resultado1.getArquivoSha256());
+        verify(extracaoCacheService).guardar(eq(digest1), startsWith("rfb:"), argThat(DadosExtraidos::isCompleto));
+
+        RelatorioExtracao relatorio = pdfExtractionScheduledTask.getUltimaExecucao();
+        assertEquals(1L, relatorio.getAcertosCache());
+        assertEquals(2L, relatorio.getItensPorStatus().get("EXTRACAO_CONCLUIDA"));
+        assertEquals(1.0, meterRegistry.get("cnd.extracao.cache").tag("resultado", "acerto").counter().count());
+        assertEquals(1.0, meterRegistry.get("cnd.extracao.cache").tag("resultado", "falta").counter().count());
+    }
+
+    @Test
+    void processarResultadosParaExtracaoDePdf_falhaAoGravarNoCache_naoAfetaOItem() {
+        doThrow(new IllegalStateException("chave duplicada")).when(extracaoCacheService).guardar(anyString(), anyString(), any());
+        backlog(Collections.singletonList(resultado1), 0L);
+
+        pdfExtractionScheduledTask.processarResultadosParaExtracaoDePdf();
+
+        assertEquals("EXTRACAO_CONCLUIDA", resultado1.getStatusProcessamento());
+        verify(cndResultadoService).salvarResultado(resultado1);
+    }
+
+    @Test
+    void aoGravarResultadoPendente_reivindicaEExtraiNoWorker_eRegistraALatencia() {
+        resultado1.setDataAtualizacao(LocalDateTime.now());
+        when(cndResultadoService.reivindicarResultadoParaExtracao(1L, ID_NO, Duration.ofMinutes(10))).thenAnswer(invocation -> {
+            resultado1.setLeaseDono(ID_NO);
+            return true;
+        });
+        when(cndResultadoService.findResultadoParaExtracao(1L, ID_NO)).thenReturn(Optional.of(resultado1));
+
+        pdfExtractionScheduledTask.aoGravarResultadoPendente(new ResultadoPendenteExtracaoEvent(1L));
+
+        verify(cndResultadoService, timeout(5000)).salvarResultado(resultado1);
+        pdfExtractionScheduledTask.encerrar(); // aguarda o worker terminar (métricas registradas após salvar)
+        assertEquals("EXTRACAO_CONCLUIDA", resultado1.getStatusProcessamento());
+        assertNull(resultado1.getLeaseDono());
+        assertEquals(1L, meterRegistry.get("cnd.extracao.latencia").tag("origem", ExtracaoPdfProcessor.ORIGEM_EVENTO).timer().count());
+        assertEquals(1.0, meterRegistry.get("cnd.extracao.itens").tag("status", "EXTRACAO_CONCLUIDA").counter().count());
+    }
+
+    @Test
+    void aoGravarResultadoPendente_itemJaReivindicadoPorOutroNo_naoProcessa() {
+        when(cndResultadoService.reivindicarResultadoParaExtracao(1L, ID_NO, Duration.ofMinutes(10))).thenReturn(false);
+
+        pdfExtractionScheduledTask.aoGravarResultadoPendente(new ResultadoPendenteExtracaoEvent(1L));
+
+        verify(cndResultadoService, timeout(5000)).reivindicarResultadoParaExtracao(1L, ID_NO, Duration.ofMinutes(10));
+        pdfExtractionScheduledTask.encerrar(); // aguarda o worker terminar
+        verify(cndResultadoService, never()).findResultadoParaExtracao(anyLong(), anyString());
+        verify(cndResultadoService, never()).salvarResultado(any(CndResultado.class));
+    }
+
+    @Test
+    void aoGravarResultadoPendente_extracaoPorEventoDesabilitada_naoFazNada() {
+        PdfExtractionScheduledTask semEvento = new PdfExtractionScheduledTask(cndResultadoService,
+                new ExtracaoPdfProcessor(cndResultadoService, extratores(), leitorPdf(), extracaoCacheService, meterRegistry), new SimpleMeterRegistry(), 1, 1, 2, ID_NO, Duration.ofMinutes(10), false);
+        try {
+            semEvento.aoGravarResultadoPendente(new ResultadoPendenteExtracaoEvent(1L));
+        } finally {
+            semEvento.encerrar();
+        }
+        verifyNoInteractions(cndResultadoService);
+    }
+
+    // Simula o backlog no serviço: contagem, lotes reivindicados (lease atribuído ao nó) e carga individual de cada item.
+    private void backlog(List<CndResultado> resultados, long restanteAoFinal) {
+        when(cndResultadoService.contarResultadosParaExtracao()).thenReturn((long) resultados.size(), restanteAoFinal);
+        when(cndResultadoService.reivindicarParaExtracao(eq(ID_NO), anyInt(), any(Duration.class))).thenAnswer(invocation -> {
+            int limite = invocation.getArgument(1);
+            List<CndResultado> lote = resultados.stream()
+                    .filter(r -> r.getLeaseDono() == null && "CONSULTA_REALIZADA".equals(r.getStatusProcessamento()))
+                    .sorted(Comparator.comparing(CndResultado::getId)).limit(limite).collect(Collectors.toList());
+            lote.forEach(r -> r.setLeaseDono(ID_NO));
+            return lote.stream().map(CndResultado::getId).collect(Collectors.toList());
+        });
+        when(cndResultadoService.findResultadoParaExtracao(anyLong(), eq(ID_NO))).thenAnswer(invocation -> {
+            Long id = invocation.getArgument(0);
+            return resultados.stream().filter(r -> r.getId().equals(id)).findFirst();
+        });
+    }
+
+    private static ExtratorCndRegistry extratores() {
+        return new ExtratorCndRegistry(Arrays.asList(new ExtratorReceitaFederal(), new ExtratorSefazMg(), new ExtratorMunicipal()),
+                new ExtratoresProperties());
+    }
+
+    private static LeitorPdf leitorPdf() {
+        return new LeitorPdf(DataSize.ofMegabytes(10), DataSize.ofMegabytes(1), DataSize.ofMegabytes(16), Duration.ofSeconds(20));
+    }
+
+    // Gera um PDF real (uma linha de texto por linha do conteúdo) para que o PDFBox consiga extrair o texto.
+    static byte[] gerarPdf(String conteudo) throws IOException {
+        try (PDDocument document = new PDDocument(); ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            PDPage page = new PDPage();
+            document.addPage(page);
+            try (PDPageContentStream contentStream = new PDPageContentStream(document, page)) {
+                contentStream.beginText();
+                contentStream.setFont(PDType1Font.HELVETICA, 12);
+                contentStream.setLeading(14.5f);
+                contentStream.newLineAtOffset(50, 700);
+                for (String linha : conteudo.split("\n")) {
+                    contentStream.showText(linha);
+                    contentStream.newLine();
+                }
+                contentStream.endText();
+            }
+            document.save(out);
+            return out.toByteArray();
+        }
+    }
+
+    // As regras de cada órgão emissor são testadas diretamente em extracao/ExtratoresCndTest.
 }
@@ -0,0 +1,75 @@
+package br.com.sisaudcon.projeto.SAAMCND.scheduler;
+
+import br.com.sisaudcon.projeto.SAAMCND.armazenamento.BlobArmazenado;
+import br.com.sisaudcon.projeto.SAAMCND.armazenamento.CodecArmazenamento;
+import br.com.sisaudcon.projeto.SAAMCND.exception.ArmazenamentoArquivoException;
+import br.com.sisaudcon.projeto.SAAMCND.service.CndResultadoService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RecompressaoArquivosScheduledTaskTest {
+
+    @Mock
+    private CndResultadoService cndResultadoService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private RecompressaoArquivosScheduledTask task;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        task = new RecompressaoArquivosScheduledTask(cndResultadoService, meterRegistry, "deflate", 2, true);
+    }
+
+    private static BlobArmazenado blob(CodecArmazenamento codec, long tamanho, long armazenado) {
+        return new BlobArmazenado("a".repeat(64), tamanho, "a".repeat(64), false, codec, armazenado);
+    }
+
+    @Test
+    void recomprimir_percorreOsLotesEContaComprimidosMantidosEBytesEconomizados() {
+        when(cndResultadoService.idsComArquivoSemCodec(0L, 2)).thenReturn(List.of(1L, 2L));
+        when(cndResultadoService.idsComArquivoSemCodec(2L, 2)).thenReturn(List.of(5L));
+        when(cndResultadoService.recomprimirArquivo(1L)).thenReturn(blob(CodecArmazenamento.DEFLATE, 1000, 300));
+        when(cndResultadoService.recomprimirArquivo(2L)).thenReturn(blob(CodecArmazenamento.NENHUM, 500, 500));
+        when(cndResultadoService.recomprimirArquivo(5L)).thenReturn(null); // Avaliado junto com outro resultado
+        when(cndResultadoService.contarArquivosSemCodec()).thenReturn(0L);
+
+        assertEquals(1, task.recomprimir());
+
+        assertEquals(1.0, meterRegistry.get("cnd.armazenamento.compressao.arquivos").counter().count());
+        assertEquals(1.0, meterRegistry.get("cnd.armazenamento.compressao.mantidos").counter().count());
+        assertEquals(700.0, meterRegistry.get("cnd.armazenamento.compressao.bytes-economizados").counter().count());
+        assertEquals(0.0, meterRegistry.get("cnd.armazenamento.compressao.pendentes").gauge().value());
+    }
+
+    @Test
+    void recomprimir_falhaNumItem_contaEContinuaComOsDemais() {
+        when(cndResultadoService.idsComArquivoSemCodec(0L, 2)).thenReturn(List.of(1L));
+        when(cndResultadoService.recomprimirArquivo(1L)).thenThrow(new ArmazenamentoArquivoException("blob corrompido", null));
+        when(cndResultadoService.contarArquivosSemCodec()).thenReturn(1L);
+
+        assertEquals(0, task.recomprimir());
+
+        assertEquals(1.0, meterRegistry.get("cnd.armazenamento.compressao.falhas").counter().count());
+        assertEquals(1.0, meterRegistry.get("cnd.armazenamento.compressao.pendentes").gauge().value());
+    }
+
+    @Test
+    void recomprimirArquivos_semCodecConfigurado_naoConsultaOBanco() {
+        new RecompressaoArquivosScheduledTask(cndResultadoService, new SimpleMeterRegistry(), "none", 2, true).recomprimirArquivos();
+
+        verify(cndResultadoService, never()).idsComArquivoSemCodec(anyLong(), anyInt());
+    }
+}
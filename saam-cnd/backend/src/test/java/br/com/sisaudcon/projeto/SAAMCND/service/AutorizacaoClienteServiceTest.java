@@ -0,0 +1,277 @@
+package br.com.sisaudcon.projeto.SAAMCND.service;
+
+import br.com.sisaudcon.projeto.SAAMCND.config.CircuitBreakerProperties;
+import br.com.sisaudcon.projeto.SAAMCND.exception.ClienteNaoAutorizadoException;
+import br.com.sisaudcon.projeto.SAAMCND.exception.ServicoExternoException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AutorizacaoClienteServiceTest {
+
+    @Mock
+    private SaamCrValidationService saamCrValidationService;
+
+    private final AtomicLong relogioNanos = new AtomicLong();
+    private SimpleMeterRegistry meterRegistry;
+    private CircuitBreakerProperties circuitBreakerProperties;
+    private AutorizacaoClienteService autorizacaoClienteService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        circuitBreakerProperties = new CircuitBreakerProperties();
+        circuitBreakerProperties.setMinimoChamadas(2);
+        circuitBreakerProperties.setJanela(4);
+        autorizacaoClienteService = new AutorizacaoClienteService(saamCrValidationService, meterRegistry, circuitBreakerProperties, true, 100,
+                Duration.ofMinutes(5), Duration.ofMinutes(1), Duration.ofSeconds(5), relogioNanos::get);
+    }
+
+    private void avancarRelogio(Duration duracao) {
+        relogioNanos.addAndGet(duracao.toNanos());
+    }
+
+    @Test
+    void verificarAutorizacao_quandoAutorizado_consultaSaamCrApenasUmaVezDentroDoTtl() {
+        when(saamCrValidationService.isClienteAutorizado("1")).thenReturn(true);
+
+        assertTrue(autorizacaoClienteService.verificarAutorizacao("1"));
+        assertTrue(autorizacaoClienteService.verificarAutorizacao("1"));
+        avancarRelogio(Duration.ofMinutes(4));
+        assertTrue(autorizacaoClienteService.verificarAutorizacao("1"));
+
+        verify(saamCrValidationService, times(1)).isClienteAutorizado("1");
+        assertEquals(2L, autorizacaoClienteService.estatisticas().get("hits"));
+    }
+
+    @Test
+    void verificarAutorizacao_quandoTtlExpira_consultaNovamente() {
+        when(saamCrValidationService.isClienteAutorizado("1")).thenReturn(true);
+
+        autorizacaoClienteService.verificarAutorizacao("1");
+        avancarRelogio(Duration.ofMinutes(6));
+        autorizacaoClienteService.verificarAutorizacao("1");
+
+        verify(saamCrValidationService, times(2)).isClienteAutorizado("1");
+    }
+
+    @Test
+    void verificarAutorizacao_quandoNegado_reproduzExcecaoDoCacheComTtlProprio() {
+        when(saamCrValidationService.isClienteAutorizado("2"))
+                .thenThrow(new ClienteNaoAutorizadoException("Acesso negado. (Situação: 0)"));
+
+        ClienteNaoAutorizadoException primeira = assertThrows(ClienteNaoAutorizadoException.class,
+                () -> autorizacaoClienteService.verificarAutorizacao("2"));
+        ClienteNaoAutorizadoException emCache = assertThrows(ClienteNaoAutorizadoException.class,
+                () -> autorizacaoClienteService.verificarAutorizacao("2"));
+        assertEquals(primeira.getMessage(), emCache.getMessage());
+        verify(saamCrValidationService, times(1)).isClienteAutorizado("2");
+
+        avancarRelogio(Duration.ofSeconds(61)); // TTL de negação (1 min) é menor que o de autorização
+        assertThrows(ClienteNaoAutorizadoException.class, () -> autorizacaoClienteService.verificarAutorizacao("2"));
+        verify(saamCrValidationService, times(2)).isClienteAutorizado("2");
+    }
+
+    @Test
+    void verificarAutorizacao_quandoErroExterno_cacheiaPorTtlCurto() {
+        when(saamCrValidationService.isClienteAutorizado("3"))
+                .thenThrow(new ServicoExternoException("Falha na comunicação"));
+
+        assertThrows(ServicoExternoException.class, () -> autorizacaoClienteService.verificarAutorizacao("3"));
+        assertThrows(ServicoExternoException.class, () -> autorizacaoClienteService.verificarAutorizacao("3"));
+        verify(saamCrValidationService, times(1)).isClienteAutorizado("3");
+
+        avancarRelogio(Duration.ofSeconds(6));
+        assertThrows(ServicoExternoException.class, () -> autorizacaoClienteService.verificarAutorizacao("3"));
+        verify(saamCrValidationService, times(2)).isClienteAutorizado("3");
+    }
+
+    @Test
+    void invalidar_removeVereditoDoCliente() {
+        when(saamCrValidationService.isClienteAutorizado("1")).thenReturn(true);
+
+        autorizacaoClienteService.verificarAutorizacao("1");
+        autorizacaoClienteService.invalidar("1");
+        autorizacaoClienteService.verificarAutorizacao("1");
+
+        verify(saamCrValidationService, times(2)).isClienteAutorizado("1");
+        assertEquals(1L, autorizacaoClienteService.estatisticas().get("invalidacoesManuais"));
+    }
+
+    @Test
+    void verificarAutorizacao_comCacheDesabilitado_sempreConsultaSaamCr() {
+        AutorizacaoClienteService semCache = new AutorizacaoClienteService(saamCrValidationService, meterRegistry, circuitBreakerProperties, false, 100,
+                Duration.ofMinutes(5), Duration.ofMinutes(1), Duration.ofSeconds(5), relogioNanos::get);
+        when(saamCrValidationService.isClienteAutorizado("1")).thenReturn(true);
+
+        semCache.verificarAutorizacao("1");
+        semCache.verificarAutorizacao("1");
+
+        verify(saamCrValidationService, times(2)).isClienteAutorizado("1");
+    }
+
+    @Test
+    void estatisticas_expoeMetricasNoMeterRegistry() {
+        when(saamCrValidationService.isClienteAutorizado("1")).thenReturn(true);
+
+        autorizacaoClienteService.verificarAutorizacao("1");
+        autorizacaoClienteService.verificarAutorizacao("1");
+
+        Map<String, Object> estatisticas = autorizacaoClienteService.estatisticas();
+        assertEquals(1L, estatisticas.get("misses"));
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", AutorizacaoClienteService.NOME_CACHE)
+                .tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("saam.cr.autorizacao.consultas").tag("veredito", "AUTORIZADO").counter().count());
+    }
+
+    @Test
+    void verificarAutorizacao_chamadasConcorrentes_compartilhamUmaUnicaValidacao() throws Exception {
+        CountDownLatch chamadaIniciada = new CountDownLatch(1);
+        CountDownLatch liberarResposta = new CountDownLatch(1);
+        when(saamCrValidationService.isClienteAutorizado("1")).thenAnswer(invocation -> {
+            chamadaIniciada.countDown();
+            liberarResposta.await(5, TimeUnit.SECONDS);
+            return true;
+        });
+
+        List<Future<Boolean>> respostas = dispararConcorrentes(autorizacaoClienteService, "1", 5, chamadaIniciada, liberarResposta);
+
+        for (Future<Boolean> resposta : respostas) {
+            assertTrue(resposta.get(5, TimeUnit.SECONDS));
+        }
+        verify(saamCrValidationService, times(1)).isClienteAutorizado("1");
+        assertEquals(4L, autorizacaoClienteService.estatisticas().get("validacoesCoalescidas"));
+        assertEquals(4.0, meterRegistry.get("saam.cr.validacao.coalescidas").functionCounter().count());
+    }
+
+    @Test
+    void verificarAutorizacao_chamadasConcorrentesSemCache_compartilhamOErro() throws Exception {
+        AutorizacaoClienteService semCache = new AutorizacaoClienteService(saamCrValidationService, new SimpleMeterRegistry(), circuitBreakerProperties, false, 100,
+                Duration.ofMinutes(5), Duration.ofMinutes(1), Duration.ofSeconds(5), relogioNanos::get);
+        CountDownLatch chamadaIniciada = new CountDownLatch(1);
+        CountDownLatch liberarResposta = new CountDownLatch(1);
+        when(saamCrValidationService.isClienteAutorizado("3")).thenAnswer(invocation -> {
+            chamadaIniciada.countDown();
+            liberarResposta.await(5, TimeUnit.SECONDS);
+            throw new ServicoExternoException("MOCK: Falha na comunicação com o serviço de validação SAAM-CR.");
+        });
+
+        List<Future<Boolean>> respostas = dispararConcorrentes(semCache, "3", 3, chamadaIniciada, liberarResposta);
+
+        for (Future<Boolean> resposta : respostas) {
+            ExecutionException erro = assertThrows(ExecutionException.class, () -> resposta.get(5, TimeUnit.SECONDS));
+            assertTrue(erro.getCause() instanceof ServicoExternoException);
+        }
+        verify(saamCrValidationService, times(1)).isClienteAutorizado("3");
+        assertEquals(2L, semCache.estatisticas().get("validacoesCoalescidas"));
+    }
+
+    @Test
+    void verificarAutorizacao_comCircuitoAberto_falhaSemChamarSaamCr() {
+        when(saamCrValidationService.isClienteAutorizado(anyString()))
+                .thenThrow(new ServicoExternoException("Falha na comunicação"));
+
+        assertThrows(ServicoExternoException.class, () -> autorizacaoClienteService.verificarAutorizacao("3"));
+        assertThrows(ServicoExternoException.class, () -> autorizacaoClienteService.verificarAutorizacao("4"));
+        assertEquals("ABERTO", autorizacaoClienteService.estatisticas().get("circuito"));
+
+        ServicoExternoException erro = assertThrows(ServicoExternoException.class,
+                () -> autorizacaoClienteService.verificarAutorizacao("5"));
+        assertTrue(erro.getMessage().contains("temporariamente indisponível"));
+        verify(saamCrValidationService, never()).isClienteAutorizado("5");
+        assertEquals(1L, autorizacaoClienteService.estatisticas().get("circuitoChamadasRejeitadas"));
+        assertEquals(1.0, meterRegistry.get("circuito.transicoes").tag("de", "FECHADO").tag("para", "ABERTO").counter().count());
+    }
+
+    @Test
+    void verificarAutorizacao_comSaamCrIndisponivel_serveUltimoVereditoDentroDoPeriodoDeGraca() {
+        when(saamCrValidationService.isClienteAutorizado("1"))
+                .thenReturn(true)
+                .thenThrow(new ServicoExternoException("Falha na comunicação"));
+
+        assertTrue(autorizacaoClienteService.verificarAutorizacao("1"));
+        avancarRelogio(Duration.ofMinutes(6)); // Expira o cache normal
+
+        // Falha na revalidação abre o circuito (1 de 2 chamadas); último veredito servido, com TTL curto
+        assertTrue(autorizacaoClienteService.verificarAutorizacao("1"));
+        assertEquals("ABERTO", autorizacaoClienteService.estatisticas().get("circuito"));
+        // Cliente sem veredito anterior: falha imediata
+        assertThrows(ServicoExternoException.class, () -> autorizacaoClienteService.verificarAutorizacao("2"));
+        verify(saamCrValidationService, never()).isClienteAutorizado("2");
+
+        avancarRelogio(Duration.ofSeconds(6));
+        assertTrue(autorizacaoClienteService.verificarAutorizacao("1")); // Circuito aberto, ainda na graça
+        verify(saamCrValidationService, times(2)).isClienteAutorizado("1");
+        assertEquals(2L, autorizacaoClienteService.estatisticas().get("vereditosObsoletosServidos"));
+
+        avancarRelogio(Duration.ofMinutes(10)); // Fim do período de graça (15 min desde o último veredito)
+        assertThrows(ServicoExternoException.class, () -> autorizacaoClienteService.verificarAutorizacao("1"));
+    }
+
+    @Test
+    void verificarAutorizacao_quandoSaamCrVolta_circuitoFechaAposChamadasDeTeste() {
+        when(saamCrValidationService.isClienteAutorizado(anyString()))
+                .thenThrow(new ServicoExternoException("Falha na comunicação"))
+                .thenThrow(new ServicoExternoException("Falha na comunicação"))
+                .thenReturn(true);
+
+        assertThrows(ServicoExternoException.class, () -> autorizacaoClienteService.verificarAutorizacao("3"));
+        assertThrows(ServicoExternoException.class, () -> autorizacaoClienteService.verificarAutorizacao("4"));
+        avancarRelogio(Duration.ofSeconds(31));
+
+        assertTrue(autorizacaoClienteService.verificarAutorizacao("5"));
+        assertTrue(autorizacaoClienteService.verificarAutorizacao("6"));
+        assertEquals("MEIO_ABERTO", autorizacaoClienteService.estatisticas().get("circuito"));
+        assertTrue(autorizacaoClienteService.verificarAutorizacao("7"));
+        assertEquals("FECHADO", autorizacaoClienteService.estatisticas().get("circuito"));
+    }
+
+    @Test
+    void verificarAutorizacao_negacaoNaoContaComoFalhaDoCircuito() {
+        when(saamCrValidationService.isClienteAutorizado(anyString()))
+                .thenThrow(new ClienteNaoAutorizadoException("Acesso negado. (Situação: 0)"));
+
+        for (int i = 0; i < 5; i++) {
+            String idCliente = "neg-" + i;
+            assertThrows(ClienteNaoAutorizadoException.class, () -> autorizacaoClienteService.verificarAutorizacao(idCliente));
+        }
+        assertEquals("FECHADO", autorizacaoClienteService.estatisticas().get("circuito"));
+    }
+
+    // Dispara uma chamada líder, espera ela chegar ao SAAM-CR e então dispara as demais,
+    // liberando a resposta somente depois que todas estiverem aguardando a chamada em andamento.
+    private List<Future<Boolean>> dispararConcorrentes(AutorizacaoClienteService servico, String idCliente, int total,
+                                                       CountDownLatch chamadaIniciada, CountDownLatch liberarResposta) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(total);
+        try {
+            List<Future<Boolean>> respostas = new ArrayList<>();
+            respostas.add(executor.submit(() -> servico.verificarAutorizacao(idCliente)));
+            assertTrue(chamadaIniciada.await(5, TimeUnit.SECONDS));
+            for (int i = 1; i < total; i++) {
+                respostas.add(executor.submit(() -> servico.verificarAutorizacao(idCliente)));
+            }
+            long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while ((long) servico.estatisticas().get("validacoesCoalescidas") < total - 1 && System.nanoTime() < limite) {
+                Thread.sleep(5);
+            }
+            liberarResposta.countDown();
+            return respostas;
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package br.com.sisaudcon.projeto.SAAMCND.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheDownloadPdfServiceTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private CacheDownloadPdfService cache;
+    private final AtomicInteger aberturas = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new CacheDownloadPdfService(meterRegistry, true, DataSize.ofBytes(100), DataSize.ofBytes(60));
+    }
+
+    private ArquivoCndDownload download(int tamanho) {
+        byte[] conteudo = new byte[tamanho];
+        conteudo[0] = (byte) tamanho;
+        return new ArquivoCndDownload("cnd-" + tamanho + ".pdf", tamanho, "sha-" + tamanho, () -> {
+            aberturas.incrementAndGet();
+            return new ByteArrayInputStream(conteudo);
+        });
+    }
+
+    @Test
+    void guardar_serveODownloadDoBufferComOsMesmosBytesEMetadados() throws Exception {
+        ArquivoCndDownload guardado = cache.guardar(1L, cache.geracao(), download(40));
+
+        ArquivoCndDownload emCache = cache.buscar(1L);
+
+        assertNotNull(emCache);
+        assertEquals(40, emCache.contentLength());
+        assertEquals("cnd-40.pdf", emCache.getFilename());
+        assertEquals("\"sha-40\"", emCache.getEtag());
+        assertArrayEquals(guardado.getInputStream().readAllBytes(), emCache.getInputStream().readAllBytes());
+        assertEquals(1, aberturas.get()); // Só a leitura para o cache
+        // Leituras independentes (ex: faixas de um Range) sobre o mesmo buffer
+        try (InputStream faixa = emCache.getInputStream()) {
+            assertEquals(39, faixa.skip(39));
+            assertEquals(0, faixa.read());
+            assertEquals(-1, faixa.read());
+        }
+        assertEquals(40, emCache.getInputStream().read());
+        assertEquals(40.0, meterRegistry.get("cnd.download.cache.bytes").gauge().value());
+    }
+
+    @Test
+    void guardar_respeitaOLimiteEmBytesENaoGuardaArquivoGrandeDemais() {
+        cache.guardar(1L, cache.geracao(), download(50));
+        cache.guardar(2L, cache.geracao(), download(50));
+        cache.guardar(3L, cache.geracao(), download(50));
+        ArquivoCndDownload grande = download(61);
+
+        assertSame(grande, cache.guardar(4L, cache.geracao(), grande));
+        assertNull(cache.buscar(4L));
+        assertTrue(cache.bytesResidentes() <= 100);
+        assertEquals(3, aberturas.get()); // O grande demais nem é lido
+    }
+
+    @Test
+    void guardar_invalidacaoDepoisDaLeituraDoBanco_naoGuardaOConteudoAntigo() {
+        long geracao = cache.geracao();
+        cache.invalidar(1L); // Resultado alterado enquanto o download era preparado
+
+        cache.guardar(1L, geracao, download(10));
+
+        assertNull(cache.buscar(1L));
+    }
+
+    @Test
+    void invalidarTodos_dentroDeTransacao_esvaziaDeNovoAposOCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.invalidarTodos(); // CNPJ do cliente alterado, transação ainda aberta
+            // Download concorrente: lê o banco (CNPJ antigo) depois da invalidação e antes do commit
+            cache.guardar(1L, cache.geracao(), download(10));
+            assertNotNull(cache.buscar(1L));
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+            assertNull(cache.buscar(1L));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void invalidar_removeAEntradaEATaxaDeAcertoRefleteAsBuscas() {
+        cache.guardar(1L, cache.geracao(), download(10));
+        assertNotNull(cache.buscar(1L));
+
+        cache.invalidar(1L);
+
+        assertNull(cache.buscar(1L));
+        assertEquals(0.5, meterRegistry.get("cnd.download.cache.taxa-acerto").gauge().value());
+    }
+
+    @Test
+    void guardar_tamanhoDiferenteDoConteudo_naoGuarda() {
+        ArquivoCndDownload inconsistente = new ArquivoCndDownload("x.pdf", 5, "sha",
+                () -> new ByteArrayInputStream("mais de cinco bytes".getBytes(StandardCharsets.UTF_8)));
+
+        assertSame(inconsistente, cache.guardar(1L, cache.geracao(), inconsistente));
+        assertNull(cache.buscar(1L));
+    }
+}
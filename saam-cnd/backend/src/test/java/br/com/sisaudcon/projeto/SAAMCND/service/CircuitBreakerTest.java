@@ -0,0 +1,167 @@
+package br.com.sisaudcon.projeto.SAAMCND.service;
+
+import br.com.sisaudcon.projeto.SAAMCND.config.CircuitBreakerProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    private static final long RAPIDA = Duration.ofMillis(50).toNanos();
+    private static final long LENTA = Duration.ofSeconds(3).toNanos();
+
+    private final AtomicLong relogioNanos = new AtomicLong();
+    private CircuitBreakerProperties config;
+    private SimpleMeterRegistry meterRegistry;
+    private CircuitBreaker circuitBreaker;
+
+    @BeforeEach
+    void setUp() {
+        config = new CircuitBreakerProperties();
+        config.setJanela(10);
+        config.setMinimoChamadas(5);
+        config.setLimiarTaxaFalhas(50);
+        config.setLimiarChamadaLenta(Duration.ofSeconds(2));
+        config.setLimiarTaxaLentas(80);
+        config.setEsperaAberto(Duration.ofSeconds(30));
+        config.setChamadasMeiaAbertura(2);
+        meterRegistry = new SimpleMeterRegistry();
+        circuitBreaker = new CircuitBreaker("teste", config, relogioNanos::get, meterRegistry);
+    }
+
+    private void chamar(boolean falha, long duracaoNanos) {
+        CircuitBreaker.Permissao permissao = circuitBreaker.permitirChamada();
+        assertTrue(permissao.isPermitida());
+        circuitBreaker.registrar(permissao, falha, duracaoNanos);
+    }
+
+    private void abrir() {
+        for (int i = 0; i < 5; i++) {
+            chamar(true, RAPIDA);
+        }
+        assertEquals(CircuitBreaker.Estado.ABERTO, circuitBreaker.getEstado());
+    }
+
+    @Test
+    void naoAbreAntesDoMinimoDeChamadas() {
+        for (int i = 0; i < 4; i++) {
+            chamar(true, RAPIDA);
+        }
+        assertEquals(CircuitBreaker.Estado.FECHADO, circuitBreaker.getEstado());
+    }
+
+    @Test
+    void abreQuandoTaxaDeFalhasAtingeOLimiar() {
+        chamar(false, RAPIDA);
+        chamar(false, RAPIDA);
+        chamar(false, RAPIDA);
+        chamar(true, RAPIDA);
+        chamar(true, RAPIDA);
+        assertEquals(CircuitBreaker.Estado.FECHADO, circuitBreaker.getEstado()); // 40%
+
+        chamar(true, RAPIDA);
+        assertEquals(CircuitBreaker.Estado.ABERTO, circuitBreaker.getEstado()); // 50%
+        assertFalse(circuitBreaker.permitirChamada().isPermitida());
+        assertEquals(1L, circuitBreaker.getChamadasRejeitadas());
+    }
+
+    @Test
+    void abreQuandoChamadasLentasDominamAJanela() {
+        chamar(false, RAPIDA);
+        for (int i = 0; i < 4; i++) {
+            chamar(false, LENTA);
+        }
+        assertEquals(CircuitBreaker.Estado.ABERTO, circuitBreaker.getEstado()); // 80% lentas, nenhuma falha
+    }
+
+    @Test
+    void janelaDeslizanteDescartaResultadosAntigos() {
+        for (int i = 0; i < 2; i++) {
+            chamar(true, RAPIDA);
+        }
+        for (int i = 0; i < 10; i++) {
+            chamar(false, RAPIDA);
+        }
+        assertEquals(0.0, circuitBreaker.getTaxaFalhas());
+        assertEquals(CircuitBreaker.Estado.FECHADO, circuitBreaker.getEstado());
+    }
+
+    @Test
+    void meioAberto_liberaApenasAsChamadasDeTesteEFechaSeTodasPassarem() {
+        abrir();
+        relogioNanos.addAndGet(Duration.ofSeconds(31).toNanos());
+
+        CircuitBreaker.Permissao teste1 = circuitBreaker.permitirChamada();
+        CircuitBreaker.Permissao teste2 = circuitBreaker.permitirChamada();
+        assertTrue(teste1.isPermitida());
+        assertTrue(teste2.isPermitida());
+        assertFalse(circuitBreaker.permitirChamada().isPermitida());
+        assertEquals(CircuitBreaker.Estado.MEIO_ABERTO, circuitBreaker.getEstado());
+
+        circuitBreaker.registrar(teste1, false, RAPIDA);
+        circuitBreaker.registrar(teste2, false, RAPIDA);
+        assertEquals(CircuitBreaker.Estado.FECHADO, circuitBreaker.getEstado());
+        assertEquals(0.0, circuitBreaker.getTaxaFalhas());
+    }
+
+    @Test
+    void meioAberto_falhaReabreOCircuitoERecomecaAEspera() {
+        abrir();
+        relogioNanos.addAndGet(Duration.ofSeconds(31).toNanos());
+
+        chamar(true, RAPIDA);
+
+        assertEquals(CircuitBreaker.Estado.ABERTO, circuitBreaker.getEstado());
+        relogioNanos.addAndGet(Duration.ofSeconds(29).toNanos());
+        assertFalse(circuitBreaker.permitirChamada().isPermitida());
+    }
+
+    @Test
+    void chamadaIniciadaAntesDaAbertura_eConcluidaNoMeioAberto_naoContaComoTeste() {
+        CircuitBreaker.Permissao lentaSucesso = circuitBreaker.permitirChamada();
+        CircuitBreaker.Permissao lentaFalha = circuitBreaker.permitirChamada();
+        abrir();
+        relogioNanos.addAndGet(Duration.ofSeconds(31).toNanos());
+        CircuitBreaker.Permissao teste1 = circuitBreaker.permitirChamada();
+        CircuitBreaker.Permissao teste2 = circuitBreaker.permitirChamada();
+        assertEquals(CircuitBreaker.Estado.MEIO_ABERTO, circuitBreaker.getEstado());
+
+        // As chamadas de antes da abertura terminam agora: nem fecham nem reabrem o circuito
+        circuitBreaker.registrar(lentaSucesso, false, RAPIDA);
+        circuitBreaker.registrar(lentaFalha, true, RAPIDA);
+        assertEquals(CircuitBreaker.Estado.MEIO_ABERTO, circuitBreaker.getEstado());
+        circuitBreaker.registrar(teste1, false, RAPIDA);
+        assertEquals(CircuitBreaker.Estado.MEIO_ABERTO, circuitBreaker.getEstado());
+
+        // Só as chamadas de teste decidem
+        circuitBreaker.registrar(teste2, false, RAPIDA);
+        assertEquals(CircuitBreaker.Estado.FECHADO, circuitBreaker.getEstado());
+    }
+
+    @Test
+    void transicoesSaoExpostasComoMetricas() {
+        abrir();
+        relogioNanos.addAndGet(Duration.ofSeconds(31).toNanos());
+        chamar(false, RAPIDA);
+        chamar(false, RAPIDA);
+
+        assertEquals(1.0, meterRegistry.get("circuito.transicoes").tag("de", "FECHADO").tag("para", "ABERTO").counter().count());
+        assertEquals(1.0, meterRegistry.get("circuito.transicoes").tag("de", "ABERTO").tag("para", "MEIO_ABERTO").counter().count());
+        assertEquals(1.0, meterRegistry.get("circuito.transicoes").tag("de", "MEIO_ABERTO").tag("para", "FECHADO").counter().count());
+        assertEquals(0.0, meterRegistry.get("circuito.estado").tag("circuito", "teste").gauge().value());
+    }
+
+    @Test
+    void desabilitado_semprePermite() {
+        config.setEnabled(false);
+        for (int i = 0; i < 20; i++) {
+            chamar(true, LENTA);
+        }
+        assertEquals(CircuitBreaker.Estado.FECHADO, circuitBreaker.getEstado());
+    }
+}
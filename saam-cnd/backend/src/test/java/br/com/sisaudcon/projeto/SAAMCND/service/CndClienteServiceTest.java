@@ -33,6 +33,9 @@ class CndClienteServiceTest {
     @Mock
     private CndEmpresaService cndEmpresaService;
 
+    @Mock
+    private CacheDownloadPdfService cacheDownloadPdf;
+
     @InjectMocks
     private CndClienteService cndClienteService;
 
@@ -117,16 +120,25 @@ class CndClienteServiceTest {
 
     @Test
     void listarClientes_retornaListaDeClientes() {
-        when(cndClienteRepository.findAll()).thenReturn(Arrays.asList(cliente));
+        when(cndClienteRepository.findAllComEmpresa()).thenReturn(Arrays.asList(cliente));
         List<CndClienteResponseDTO> resultados = cndClienteService.listarClientes();
         assertFalse(resultados.isEmpty());
         assertEquals(1, resultados.size());
         assertEquals("12.345.678/0001-99", resultados.get(0).getCnpj());
     }
 
+    @Test
+    void buscarClientesPorNome_ignoraTermosVaziosELimitaOsResultados() {
+        when(cndClienteRepository.buscarPorNome("joao", null, CndClienteService.LIMITE_BUSCA)).thenReturn(List.of(cliente));
+
+        assertEquals(1, cndClienteService.buscarClientesPorNome(" joao ", "  ").size());
+        assertTrue(cndClienteService.buscarClientesPorNome("", null).isEmpty());
+        verify(cndClienteRepository, times(1)).buscarPorNome(any(), any(), anyInt());
+    }
+
     @Test
     void buscarClientePorId_quandoClienteExiste_retornaCliente() {
-        when(cndClienteRepository.findById(1L)).thenReturn(Optional.of(cliente));
+        when(cndClienteRepository.findComEmpresaById(1L)).thenReturn(Optional.of(cliente));
         CndClienteResponseDTO resultado = cndClienteService.buscarClientePorId(1L);
         assertNotNull(resultado);
         assertEquals(1L, resultado.getId());
@@ -134,7 +146,7 @@ class CndClienteServiceTest {
 
     @Test
     void buscarClientePorId_quandoClienteNaoExiste_lancaResourceNotFoundException() {
-        when(cndClienteRepository.findById(1L)).thenReturn(Optional.empty());
+        when(cndClienteRepository.findComEmpresaById(1L)).thenReturn(Optional.empty());
         assertThrows(ResourceNotFoundException.class, () -> cndClienteService.buscarClientePorId(1L));
     }
 
@@ -150,7 +162,7 @@ class CndClienteServiceTest {
                 false,
                 1L
         );
-        when(cndClienteRepository.findById(1L)).thenReturn(Optional.of(cliente));
+        when(cndClienteRepository.findComEmpresaById(1L)).thenReturn(Optional.of(cliente));
         when(cndClienteRepository.save(any(CndCliente.class))).thenAnswer(invocation -> invocation.getArgument(0));
         // Não precisamos mockar cndEmpresaService.getEmpresaByIdAndFetchIfNecessary se o fkEmpresa não mudar
 
@@ -181,7 +193,7 @@ class CndClienteServiceTest {
         novaEmpresa.setId(2L);
         novaEmpresa.setNomeEmpresa("Nova Empresa Teste");
 
-        when(cndClienteRepository.findById(1L)).thenReturn(Optional.of(cliente));
+        when(cndClienteRepository.findComEmpresaById(1L)).thenReturn(Optional.of(cliente));
         when(cndEmpresaService.getEmpresaByIdAndFetchIfNecessary(2L)).thenReturn(novaEmpresa);
         when(cndClienteRepository.save(any(CndCliente.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
@@ -196,7 +208,7 @@ class CndClienteServiceTest {
 
     @Test
     void atualizarCliente_quandoClienteNaoExiste_lancaResourceNotFoundException() {
-        when(cndClienteRepository.findById(1L)).thenReturn(Optional.empty());
+        when(cndClienteRepository.findComEmpresaById(1L)).thenReturn(Optional.empty());
         assertThrows(ResourceNotFoundException.class, () -> cndClienteService.atualizarCliente(1L, clienteRequestDTO));
     }
 
@@ -1,27 +1,56 @@
 package br.com.sisaudcon.projeto.SAAMCND.service;
 
+import br.com.sisaudcon.projeto.SAAMCND.armazenamento.BlobArmazenado;
+import br.com.sisaudcon.projeto.SAAMCND.armazenamento.BlobStoreEmCamadas;
+import br.com.sisaudcon.projeto.SAAMCND.armazenamento.DigestArquivo;
+import br.com.sisaudcon.projeto.SAAMCND.armazenamento.FileSystemBlobStore;
+import br.com.sisaudcon.projeto.SAAMCND.armazenamento.SegmentosArquivoMorto;
 import br.com.sisaudcon.projeto.SAAMCND.model.CndCliente;
 import br.com.sisaudcon.projeto.SAAMCND.model.CndResultado;
+import br.com.sisaudcon.projeto.SAAMCND.repository.CampoCndResultado;
+import br.com.sisaudcon.projeto.SAAMCND.repository.CndResultadoArquivoRepository;
 import br.com.sisaudcon.projeto.SAAMCND.repository.CndResultadoRepository;
+import br.com.sisaudcon.projeto.SAAMCND.dto.CndArquivoResumo;
 import br.com.sisaudcon.projeto.SAAMCND.dto.CndResultadoDTO;
+import br.com.sisaudcon.projeto.SAAMCND.dto.PaginaCndResultados;
 import br.com.sisaudcon.projeto.SAAMCND.exception.ResourceNotFoundException;
+import br.com.sisaudcon.projeto.SAAMCND.exception.ArquivoExcedeLimiteException;
 import br.com.sisaudcon.projeto.SAAMCND.exception.BadRequestException;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.jpa.domain.Specification;
-
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+
+import javax.persistence.Tuple;
+import javax.persistence.TupleElement;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -30,18 +59,86 @@ class CndResultadoServiceTest {
     @Mock
     private CndResultadoRepository cndResultadoRepository;
 
+    @Mock
+    private CndResultadoArquivoRepository cndResultadoArquivoRepository;
+
     @Mock
     private CndClienteService cndClienteService;
 
-    @InjectMocks
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @TempDir
+    Path diretorioBlobs;
+
+    private FileSystemBlobStore blobStore;
     private CndResultadoService cndResultadoService;
 
     private CndCliente cliente;
     private CndResultado resultado;
     private CndResultadoDTO resultadoDTO;
 
+    // Nos demais testes o download não passa pelo cache (o blob só é aberto na leitura)
+    private static CacheDownloadPdfService cacheDesabilitado() {
+        return new CacheDownloadPdfService(new SimpleMeterRegistry(), false, DataSize.ofMegabytes(1), DataSize.ofKilobytes(64));
+    }
+
+    // Linha da listagem como vem da consulta por campos (aliases = nomes dos campos)
+    private static Tuple linha(Map<String, Object> valores) {
+        return new Tuple() {
+            @Override
+            public <X> X get(TupleElement<X> elemento) {
+                return elemento.getJavaType().cast(valores.get(elemento.getAlias()));
+            }
+
+            @Override
+            public <X> X get(String alias, Class<X> tipo) {
+                return tipo.cast(valores.get(alias));
+            }
+
+            @Override
+            public Object get(String alias) {
+                return valores.get(alias);
+            }
+
+            @Override
+            public <X> X get(int i, Class<X> tipo) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Object get(int i) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Object[] toArray() {
+                return valores.values().toArray();
+            }
+
+            @Override
+            public List<TupleElement<?>> getElements() {
+                return List.of();
+            }
+        };
+    }
+
+    private static Tuple linha(Long id, LocalDateTime dataProcessamento) {
+        Map<String, Object> valores = new HashMap<>();
+        valores.put("id", id);
+        valores.put("dataProcessamento", dataProcessamento);
+        valores.put("situacao", "Negativa");
+        valores.put("fkCliente", 1L);
+        valores.put("cnpjCliente", "12.345.678/0001-99");
+        return linha(valores);
+    }
+
     @BeforeEach
     void setUp() {
+        blobStore = new FileSystemBlobStore(diretorioBlobs.toString());
+        cndResultadoService = new CndResultadoService(cndResultadoRepository, cndResultadoArquivoRepository, cndClienteService,
+                eventPublisher, blobStore, DataSize.ofBytes(64), cacheDesabilitado());
+
         cliente = new CndCliente();
         cliente.setId(1L);
         cliente.setCnpj("12.345.678/0001-99");
@@ -119,8 +216,9 @@ class CndResultadoServiceTest {
 
     @Test
     void listarCndResultados_semFiltros_retornaLista() {
-        when(cndResultadoRepository.findAll(any(Specification.class))).thenReturn(Arrays.asList(resultado));
-        List<CndResultadoDTO> resultados = cndResultadoService.listarCndResultados(Collections.emptyMap());
+        when(cndResultadoRepository.buscarPagina(any(), eq(CampoCndResultado.RESUMO), isNull(), isNull(),
+                eq(CndResultadoService.LIMITE_PADRAO_PAGINA + 1))).thenReturn(List.of(linha(1L, LocalDateTime.now())));
+        List<CndResultadoDTO> resultados = cndResultadoService.listarCndResultados(Collections.emptyMap()).getItens();
         assertFalse(resultados.isEmpty());
         assertEquals(1, resultados.size());
         assertEquals("Negativa", resultados.get(0).getSituacao());
@@ -131,20 +229,104 @@ class CndResultadoServiceTest {
         Map<String, String> filters = new HashMap<>();
         filters.put("fkCliente", "1");
 
-        when(cndResultadoRepository.findAll(any(Specification.class))).thenReturn(Arrays.asList(resultado));
-        List<CndResultadoDTO> resultados = cndResultadoService.listarCndResultados(filters);
+        when(cndResultadoRepository.buscarPagina(any(), any(), isNull(), isNull(), anyInt()))
+                .thenReturn(List.of(linha(1L, LocalDateTime.now())));
+        List<CndResultadoDTO> resultados = cndResultadoService.listarCndResultados(filters).getItens();
 
         assertFalse(resultados.isEmpty());
         assertEquals(1, resultados.size());
         assertEquals(1L, resultados.get(0).getFkCliente());
+        assertEquals("12.345.678/0001-99", resultados.get(0).getCnpjCliente());
         // A verificação da Specification é mais complexa, confiamos que o mock está correto para o teste unitário do serviço.
         // Testes de integração para o controller validariam a query real.
     }
 
+    @Test
+    void listarCndResultados_paginaCheia_devolveCursorQueContinuaDepoisDoUltimoItem() {
+        LocalDateTime processadoEm = LocalDateTime.of(2024, 3, 1, 10, 30, 15, 123456000);
+        when(cndResultadoRepository.buscarPagina(any(), any(), isNull(), isNull(), eq(2)))
+                .thenReturn(List.of(linha(5L, processadoEm), linha(4L, processadoEm))); // limite + 1 encontrados: há página seguinte
+
+        PaginaCndResultados pagina = cndResultadoService.listarCndResultados(Map.of("limite", "1"));
+
+        assertEquals(1, pagina.getItens().size());
+        assertNotNull(pagina.getProximoCursor());
+        when(cndResultadoRepository.buscarPagina(any(), any(), eq(processadoEm), eq(5L), eq(2)))
+                .thenReturn(List.of(linha(4L, processadoEm)));
+        PaginaCndResultados seguinte = cndResultadoService.listarCndResultados(
+                Map.of("limite", "1", "cursor", pagina.getProximoCursor()));
+        assertEquals(4L, seguinte.getItens().get(0).getId());
+        assertNull(seguinte.getProximoCursor());
+    }
+
+    @Test
+    void listarCndResultados_cursorDeItemSemDataProcessamento_continuaEntreOsSemData() {
+        when(cndResultadoRepository.buscarPagina(any(), any(), isNull(), isNull(), eq(2)))
+                .thenReturn(List.of(linha(7L, null), linha(3L, null)));
+        String cursor = cndResultadoService.listarCndResultados(Map.of("limite", "1")).getProximoCursor();
+
+        cndResultadoService.listarCndResultados(Map.of("limite", "1", "cursor", cursor));
+
+        verify(cndResultadoRepository).buscarPagina(any(), any(), isNull(), eq(7L), eq(2));
+    }
+
+    @Test
+    void listarCndResultados_limiteAcimaDoMaximo_usaOMaximo() {
+        when(cndResultadoRepository.buscarPagina(any(), any(), isNull(), isNull(), anyInt())).thenReturn(List.of());
+
+        cndResultadoService.listarCndResultados(Map.of("limite", "100000"));
+
+        verify(cndResultadoRepository).buscarPagina(any(), any(), isNull(), isNull(),
+                eq(CndResultadoService.LIMITE_MAXIMO_PAGINA + 1));
+    }
+
+    @Test
+    void listarCndResultados_limiteCursorOuCampoInvalido_lancaBadRequest() {
+        assertThrows(BadRequestException.class, () -> cndResultadoService.listarCndResultados(Map.of("limite", "0")));
+        assertThrows(BadRequestException.class, () -> cndResultadoService.listarCndResultados(Map.of("limite", "dez")));
+        assertThrows(BadRequestException.class, () -> cndResultadoService.listarCndResultados(Map.of("cursor", "nao-e-um-cursor")));
+        String semId = Base64.getUrlEncoder().encodeToString("2024-01-01T00:00|".getBytes());
+        assertThrows(BadRequestException.class, () -> cndResultadoService.listarCndResultados(Map.of("cursor", semId)));
+        assertThrows(BadRequestException.class, () -> cndResultadoService.listarCndResultados(Map.of("campos", "situacao,arquivo")));
+        verifyNoInteractions(cndResultadoRepository);
+    }
+
+    @Test
+    void listarCndResultados_comCampos_pedeSoEssesCamposEDevolveSoEles() {
+        when(cndResultadoRepository.buscarPagina(any(),
+                eq(EnumSet.of(CampoCndResultado.SITUACAO, CampoCndResultado.DATA_EMISSAO)), isNull(), isNull(), anyInt()))
+                .thenReturn(List.of(linha(1L, LocalDateTime.now()))); // id e dataProcessamento vêm sempre (posição da página)
+
+        CndResultadoDTO dto = cndResultadoService.listarCndResultados(Map.of("campos", "situacao, dataEmissao")).getItens().get(0);
+
+        assertEquals(1L, dto.getId());
+        assertEquals("Negativa", dto.getSituacao());
+        assertNull(dto.getDataProcessamento());
+        assertNull(dto.getFkCliente());
+        assertNull(dto.getCnpjCliente());
+    }
+
+    @Test
+    void listarCndResultados_naoTrazOConteudoDoArquivo() {
+        Map<String, Object> valores = new HashMap<>();
+        valores.put("id", 1L);
+        valores.put("arquivoRef", "a".repeat(64));
+        valores.put("arquivoInline", false);
+        valores.put("arquivoTamanho", 3L);
+        when(cndResultadoRepository.buscarPagina(any(), any(), isNull(), isNull(), anyInt()))
+                .thenReturn(List.of(linha(valores)));
+
+        CndResultadoDTO dto = cndResultadoService.listarCndResultados(Map.of("campos", "possuiArquivo,arquivoTamanho")).getItens().get(0);
+
+        assertTrue(dto.getPossuiArquivo());
+        assertEquals(3L, dto.getArquivoTamanho());
+        assertNull(dto.getArquivo());
+        verifyNoInteractions(cndResultadoArquivoRepository);
+    }
 
     @Test
     void buscarCndResultadoPorId_quandoExiste_retornaDTO() {
-        when(cndResultadoRepository.findById(1L)).thenReturn(Optional.of(resultado));
+        when(cndResultadoRepository.findComClienteById(1L)).thenReturn(Optional.of(resultado));
         CndResultadoDTO encontrado = cndResultadoService.buscarCndResultadoPorId(1L);
         assertNotNull(encontrado);
         assertEquals(1L, encontrado.getId());
@@ -152,14 +334,14 @@ class CndResultadoServiceTest {
 
     @Test
     void buscarCndResultadoPorId_quandoNaoExiste_lancaResourceNotFoundException() {
-        when(cndResultadoRepository.findById(1L)).thenReturn(Optional.empty());
+        when(cndResultadoRepository.findComClienteById(1L)).thenReturn(Optional.empty());
         assertThrows(ResourceNotFoundException.class, () -> cndResultadoService.buscarCndResultadoPorId(1L));
     }
 
     @Test
     void atualizarCndResultado_comDadosValidos_retornaDTOAtualizado() {
         resultadoDTO.setArquivo("dGVzdA=="); // Ensure valid Base64
-        when(cndResultadoRepository.findById(1L)).thenReturn(Optional.of(resultado));
+        when(cndResultadoRepository.findComClienteById(1L)).thenReturn(Optional.of(resultado));
         when(cndResultadoRepository.save(any(CndResultado.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         resultadoDTO.setLinha("UPDATE-PEC-4537-TEST"); // Linha específica para atualização
@@ -175,7 +357,7 @@ class CndResultadoServiceTest {
     void atualizarCndResultado_comLinhaNula_defineLinhaDefaultUpdate() {
         resultadoDTO.setArquivo("dGVzdA=="); // Ensure valid Base64
         resultadoDTO.setLinha(null);
-        when(cndResultadoRepository.findById(1L)).thenReturn(Optional.of(resultado));
+        when(cndResultadoRepository.findComClienteById(1L)).thenReturn(Optional.of(resultado));
         when(cndResultadoRepository.save(any(CndResultado.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         CndResultadoDTO atualizado = cndResultadoService.atualizarCndResultado(1L, resultadoDTO);
@@ -190,7 +372,7 @@ class CndResultadoServiceTest {
         CndCliente novoCliente = new CndCliente();
         novoCliente.setId(2L);
 
-        when(cndResultadoRepository.findById(1L)).thenReturn(Optional.of(resultado));
+        when(cndResultadoRepository.findComClienteById(1L)).thenReturn(Optional.of(resultado));
         when(cndClienteService.getClienteEntityById(2L)).thenReturn(novoCliente);
         when(cndResultadoRepository.save(any(CndResultado.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
@@ -215,19 +397,25 @@ class CndResultadoServiceTest {
     }
 
     @Test
-    void downloadPdf_quandoArquivoExiste_retornaBytes() {
-        when(cndResultadoRepository.findById(1L)).thenReturn(Optional.of(resultado));
-        byte[] pdfBytes = cndResultadoService.downloadPdf(1L);
+    void prepararDownload_quandoArquivoExiste_retornaBytes() throws Exception {
+        when(cndResultadoRepository.findComClienteById(1L)).thenReturn(Optional.of(resultado));
+        byte[] pdfBytes = cndResultadoService.prepararDownload(1L).getInputStream().readAllBytes();
         assertNotNull(pdfBytes);
         assertEquals("dGVzdGU=", Base64.getEncoder().encodeToString(pdfBytes));
         assertEquals("teste", new String(pdfBytes));
     }
 
     @Test
-    void downloadPdf_quandoArquivoNaoExisteOuVazio_lancaResourceNotFoundException() {
+    void prepararDownload_quandoArquivoNaoExisteOuVazio_lancaResourceNotFoundException() {
         resultado.setArquivo(null);
-        when(cndResultadoRepository.findById(1L)).thenReturn(Optional.of(resultado));
-        assertThrows(ResourceNotFoundException.class, () -> cndResultadoService.downloadPdf(1L));
+        when(cndResultadoRepository.findComClienteById(1L)).thenReturn(Optional.of(resultado));
+        assertThrows(ResourceNotFoundException.class, () -> cndResultadoService.prepararDownload(1L));
+    }
+
+    @Test
+    void prepararDownload_quandoResultadoNaoExiste_lancaResourceNotFoundException() {
+        when(cndResultadoRepository.findComClienteById(1L)).thenReturn(Optional.empty());
+        assertThrows(ResourceNotFoundException.class, () -> cndResultadoService.prepararDownload(1L));
     }
 
 
@@ -299,13 +487,346 @@ class CndResultadoServiceTest {
     }
 
     @Test
-    void findResultadosParaExtracao_chamaRepositorioCorretamente() {
-        List<CndResultado> mockList = Arrays.asList(new CndResultado());
-        when(cndResultadoRepository.findByStatusProcessamentoAndSituacaoIsNull("CONSULTA_REALIZADA")).thenReturn(mockList);
+    void reivindicarParaExtracao_travaLoteEAtribuiLeaseAoNo() {
+        when(cndResultadoRepository.travarIdsLivresParaExtracao(eq("CONSULTA_REALIZADA"), any(LocalDateTime.class), eq(PageRequest.of(0, 50))))
+                .thenReturn(Arrays.asList(11L, 12L));
+
+        LocalDateTime antes = LocalDateTime.now();
+        List<Long> ids = cndResultadoService.reivindicarParaExtracao("no-1", 50, Duration.ofMinutes(10));
+
+        assertEquals(Arrays.asList(11L, 12L), ids);
+        ArgumentCaptor<LocalDateTime> expiraEm = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(cndResultadoRepository).atribuirLease(eq(Arrays.asList(11L, 12L)), eq("no-1"), expiraEm.capture());
+        assertFalse(expiraEm.getValue().isBefore(antes.plusMinutes(10)));
+    }
+
+    @Test
+    void reivindicarParaExtracao_semItensLivres_naoAtribuiLease() {
+        when(cndResultadoRepository.travarIdsLivresParaExtracao(eq("CONSULTA_REALIZADA"), any(LocalDateTime.class), eq(PageRequest.of(0, 50))))
+                .thenReturn(Collections.emptyList());
+
+        assertTrue(cndResultadoService.reivindicarParaExtracao("no-1", 50, Duration.ofMinutes(10)).isEmpty());
+        verify(cndResultadoRepository, never()).atribuirLease(any(), any(), any());
+    }
+
+    @Test
+    void salvarResultado_pendenteDeExtracao_publicaEvento() {
+        resultado.setStatusProcessamento("CONSULTA_REALIZADA");
+        resultado.setSituacao(null);
+        when(cndResultadoRepository.save(resultado)).thenReturn(resultado);
+
+        cndResultadoService.salvarResultado(resultado);
+
+        ArgumentCaptor<ResultadoPendenteExtracaoEvent> evento = ArgumentCaptor.forClass(ResultadoPendenteExtracaoEvent.class);
+        verify(eventPublisher).publishEvent(evento.capture());
+        assertEquals(1L, evento.getValue().getIdResultado());
+    }
+
+    @Test
+    void salvarResultado_jaExtraido_naoPublicaEvento() {
+        when(cndResultadoRepository.save(resultado)).thenReturn(resultado);
+
+        cndResultadoService.salvarResultado(resultado);
+
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void reivindicarResultadoParaExtracao_retornaSeOLeaseFoiAtribuido() {
+        when(cndResultadoRepository.atribuirLeaseSeLivre(eq(7L), eq("CONSULTA_REALIZADA"), eq("no-1"), any(LocalDateTime.class), any(LocalDateTime.class)))
+                .thenReturn(1, 0);
+
+        assertTrue(cndResultadoService.reivindicarResultadoParaExtracao(7L, "no-1", Duration.ofMinutes(10)));
+        assertFalse(cndResultadoService.reivindicarResultadoParaExtracao(7L, "no-1", Duration.ofMinutes(10)));
+    }
+
+    @Test
+    void salvarResultado_comArquivoInline_gravaNoBlobStoreELimpaAColuna() throws Exception {
+        when(cndResultadoRepository.save(resultado)).thenReturn(resultado);
+
+        cndResultadoService.salvarResultado(resultado);
+
+        // SHA-256 de "teste": digest e referência do blob
+        String sha256 = "46070d4bf934fb0d4b06d9e2c46e346944e322444900a435d7d9a95e6d7435f5";
+        assertEquals(sha256, resultado.getArquivoSha256());
+        assertEquals(sha256, resultado.getArquivoRef());
+        assertEquals(5L, resultado.getArquivoTamanho());
+        assertNull(resultado.getArquivo());
+        assertEquals("teste", new String(blobStore.ler(sha256)));
+    }
+
+    @Test
+    void atualizarCndResultado_novoArquivo_recalculaODigest() {
+        resultado.setArquivoSha256("digest-antigo");
+        CndResultadoDTO dto = new CndResultadoDTO();
+        dto.setArquivo(Base64.getEncoder().encodeToString("outro".getBytes()));
+        when(cndResultadoRepository.findComClienteById(1L)).thenReturn(Optional.of(resultado));
+        when(cndResultadoRepository.save(any(CndResultado.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        CndResultadoDTO atualizado = cndResultadoService.atualizarCndResultado(1L, dto);
+
+        assertEquals(DigestArquivo.sha256Hex("outro".getBytes()), resultado.getArquivoSha256());
+        assertEquals(resultado.getArquivoSha256(), resultado.getArquivoRef());
+        // A resposta só sinaliza o arquivo, sem trazer o conteúdo
+        assertTrue(atualizado.getPossuiArquivo());
+        assertNull(atualizado.getArquivo());
+    }
+
+    @Test
+    void prepararDownload_arquivoNoBlobStore_usaOsMetadadosEAbreOBlobSoNaLeitura() throws Exception {
+        BlobArmazenado blob = blobStore.gravar("do blob".getBytes());
+        resultado.setArquivo(null);
+        resultado.setArquivoRef(blob.getRef());
+        resultado.setArquivoTamanho(blob.getTamanho());
+        resultado.setArquivoSha256(blob.getSha256());
+        resultado.setTipoCertidao("Federal");
+        when(cndResultadoRepository.findComClienteById(1L)).thenReturn(Optional.of(resultado));
+
+        ArquivoCndDownload download = cndResultadoService.prepararDownload(1L);
+
+        assertEquals(7L, download.contentLength());
+        assertEquals("\"" + blob.getSha256() + "\"", download.getEtag());
+        assertTrue(download.getFilename().startsWith("CND_12345678000199_RFB_"));
+        assertEquals("do blob", new String(download.getInputStream().readAllBytes()));
+        verify(cndResultadoRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void buscarCndResultadoComArquivo_trazOConteudoEmBase64() throws Exception {
+        resultado.setArquivo(null);
+        resultado.setArquivoRef(blobStore.gravar("do blob".getBytes()).getRef());
+        when(cndResultadoRepository.findComClienteById(1L)).thenReturn(Optional.of(resultado));
+
+        CndResultadoDTO dto = cndResultadoService.buscarCndResultadoComArquivo(1L);
+
+        assertEquals(Base64.getEncoder().encodeToString("do blob".getBytes()), dto.getArquivo());
+    }
+
+    @Test
+    void migrarArquivoInline_gravaOBlobEAtribuiAReferencia() {
+        when(cndResultadoArquivoRepository.findArquivoInline(1L)).thenReturn(Optional.of("teste".getBytes()));
+        String sha256 = DigestArquivo.sha256Hex("teste".getBytes());
+        when(cndResultadoRepository.atribuirArquivoSeAusente(1L, sha256, 5L, sha256, null)).thenReturn(1);
+
+        assertEquals(5L, cndResultadoService.migrarArquivoInline(1L));
+        assertTrue(blobStore.existe(sha256));
+        verify(cndResultadoArquivoRepository).limparArquivoInline(1L);
+    }
+
+    @Test
+    void migrarArquivoInline_semArquivoInline_naoGravaNada() {
+        when(cndResultadoArquivoRepository.findArquivoInline(1L)).thenReturn(Optional.empty());
+
+        assertEquals(0L, cndResultadoService.migrarArquivoInline(1L));
+        verify(cndResultadoRepository, never()).atribuirArquivoSeAusente(anyLong(), any(), any(), any(), any());
+        verify(cndResultadoArquivoRepository, never()).limparArquivoInline(anyLong());
+    }
+
+    private Map<String, byte[]> lerZip(byte[] zip) throws Exception {
+        Map<String, byte[]> entradas = new LinkedHashMap<>();
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            for (ZipEntry entrada = in.getNextEntry(); entrada != null; entrada = in.getNextEntry()) {
+                entradas.put(entrada.getName(), in.readAllBytes());
+            }
+        }
+        return entradas;
+    }
+
+    @Test
+    void exportarZip_incluiUmPdfPorResultadoComNomePadronizadoEDesambiguado() throws Exception {
+        String ref1 = blobStore.gravar("pdf 1".getBytes()).getRef();
+        String ref2 = blobStore.gravar("pdf 2".getBytes()).getRef();
+        LocalDate emissao = LocalDate.of(2024, 1, 15);
+        when(cndResultadoRepository.streamArquivos(any(), anyInt())).thenReturn(Stream.of(
+                new CndArquivoResumo(1L, ref1, false, "Federal", null, emissao, "12.345.678/0001-99"),
+                new CndArquivoResumo(2L, ref2, false, "Federal", null, emissao, "12.345.678/0001-99"),
+                new CndArquivoResumo(3L, null, true, "Municipal", null, emissao, "12.345.678/0001-99")));
+        when(cndResultadoArquivoRepository.findArquivoInline(3L)).thenReturn(Optional.of("legado".getBytes()));
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+
+        assertEquals(3, cndResultadoService.exportarZip(cndResultadoService.filtros(Collections.emptyMap()), saida));
+
+        Map<String, byte[]> entradas = lerZip(saida.toByteArray());
+        assertEquals(List.of("CND_12345678000199_RFB_2024-01-15.pdf", "CND_12345678000199_RFB_2024-01-15_2.pdf",
+                "CND_12345678000199_MUN_2024-01-15.pdf"), new ArrayList<>(entradas.keySet()));
+        assertEquals("pdf 2", new String(entradas.get("CND_12345678000199_RFB_2024-01-15_2.pdf")));
+        assertEquals("legado", new String(entradas.get("CND_12345678000199_MUN_2024-01-15.pdf")));
+    }
+
+    @Test
+    void exportarZip_blobAusente_naoInterrompeOPacoteERegistraOErro() throws Exception {
+        String ref = blobStore.gravar("pdf 1".getBytes()).getRef();
+        String ausente = DigestArquivo.sha256Hex("nunca gravado".getBytes());
+        when(cndResultadoRepository.streamArquivos(any(), anyInt())).thenReturn(Stream.of(
+                new CndArquivoResumo(1L, ausente, false, "Federal", null, null, "12.345.678/0001-99"),
+                new CndArquivoResumo(2L, ref, false, "Estadual", null, null, "12.345.678/0001-99")));
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+
+        assertEquals(1, cndResultadoService.exportarZip(cndResultadoService.filtros(Collections.emptyMap()), saida));
+
+        Map<String, byte[]> entradas = lerZip(saida.toByteArray());
+        assertEquals(List.of("CND_12345678000199_EST_SEM_DATA.pdf", CndResultadoService.ENTRADA_ERROS_EXPORTACAO),
+                new ArrayList<>(entradas.keySet()));
+        assertTrue(new String(entradas.get(CndResultadoService.ENTRADA_ERROS_EXPORTACAO)).contains("CND ID 1"));
+    }
+
+    @Test
+    void exportarZip_blobCorrompido_ficaForaDoPacoteENaoContaComoIncluido() throws Exception {
+        String corrompido = blobStore.gravar("pdf original".getBytes()).getRef();
+        java.nio.file.Files.write(diretorioBlobs.resolve(corrompido.substring(0, 2)).resolve(corrompido.substring(2, 4))
+                .resolve(corrompido), "pdf adulterado".getBytes());
+        String ref = blobStore.gravar("pdf 2".getBytes()).getRef();
+        when(cndResultadoRepository.streamArquivos(any(), anyInt())).thenReturn(Stream.of(
+                new CndArquivoResumo(1L, corrompido, false, "Federal", null, null, "12.345.678/0001-99"),
+                new CndArquivoResumo(2L, ref, false, "Estadual", null, null, "12.345.678/0001-99")));
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+
+        assertEquals(1, cndResultadoService.exportarZip(cndResultadoService.filtros(Collections.emptyMap()), saida));
+
+        Map<String, byte[]> entradas = lerZip(saida.toByteArray());
+        assertEquals(List.of("CND_12345678000199_EST_SEM_DATA.pdf", CndResultadoService.ENTRADA_ERROS_EXPORTACAO),
+                new ArrayList<>(entradas.keySet()));
+        assertTrue(new String(entradas.get(CndResultadoService.ENTRADA_ERROS_EXPORTACAO)).contains("CND ID 1"));
+    }
+
+    @Test
+    void filtros_comDataInvalida_lancaBadRequestException() {
+        assertThrows(BadRequestException.class, () -> cndResultadoService.filtros(Map.of("dataEmissaoApos", "15/01/2024")));
+        assertThrows(BadRequestException.class, () -> cndResultadoService.filtros(Map.of("fkEmpresa", "abc")));
+    }
+
+    @Test
+    void receberPdf_gravaOStreamNoBlobStore() throws Exception {
+        byte[] pdf = "%PDF-1.4 conteudo".getBytes();
+
+        BlobArmazenado blob = cndResultadoService.receberPdf(new ByteArrayInputStream(pdf));
+
+        assertEquals(DigestArquivo.sha256Hex(pdf), blob.getRef());
+        assertArrayEquals(pdf, blobStore.ler(blob.getRef()));
+    }
+
+    @Test
+    void receberPdf_conteudoQueNaoEPdf_lancaBadRequestSemGravar() throws Exception {
+        assertThrows(BadRequestException.class, () -> cndResultadoService.receberPdf(new ByteArrayInputStream("<html>".getBytes())));
+        assertThrows(BadRequestException.class, () -> cndResultadoService.receberPdf(new ByteArrayInputStream("%PD".getBytes())));
+        try (Stream<Path> arquivos = java.nio.file.Files.walk(diretorioBlobs)) {
+            assertEquals(0, arquivos.filter(java.nio.file.Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    void receberPdf_acimaDoLimite_interrompeALeituraNoLimite() {
+        // Limite de 64 bytes no teste; o stream "infinito" mostra que a leitura para logo após o limite
+        InputStream infinito = new InputStream() {
+            private long lidos;
+            @Override
+            public int read() {
+                return "%PDF-".charAt((int) Math.min(lidos++, 4));
+            }
+        };
+
+        assertThrows(ArquivoExcedeLimiteException.class, () -> cndResultadoService.receberPdf(infinito));
+    }
+
+    @Test
+    void substituirArquivo_atribuiOBlobRecebidoELimpaOConteudoLegado() throws Exception {
+        CndResultado legado = new CndResultado();
+        legado.setId(1L);
+        ReflectionTestUtils.setField(legado, "arquivoInline", true); // Calculado pelo banco (@Formula)
+        BlobArmazenado blob = blobStore.gravar("%PDF-novo".getBytes());
+        when(cndResultadoRepository.findComClienteById(1L)).thenReturn(Optional.of(legado));
+        when(cndResultadoRepository.save(legado)).thenReturn(legado);
+
+        CndResultadoDTO dto = cndResultadoService.substituirArquivo(1L, blob);
+
+        assertEquals(blob.getRef(), legado.getArquivoRef());
+        assertEquals(9L, dto.getArquivoTamanho());
+        verify(cndResultadoArquivoRepository).limparArquivoInline(1L);
+    }
+
+    @Test
+    void recomprimirArquivo_comprimeOBlobERegistraOCodecPelaReferencia() throws Exception {
+        byte[] conteudo = "%PDF-1.4 ".repeat(100).getBytes();
+        String ref = blobStore.gravar(conteudo).getRef();
+        CndResultadoService comCompressao = new CndResultadoService(cndResultadoRepository, cndResultadoArquivoRepository,
+                cndClienteService, eventPublisher, new FileSystemBlobStore(diretorioBlobs.toString(), "deflate", 6), DataSize.ofBytes(64),
+                cacheDesabilitado());
+        when(cndResultadoRepository.findArquivoRefSemCodec(1L)).thenReturn(Optional.of(ref));
+
+        BlobArmazenado blob = comCompressao.recomprimirArquivo(1L);
+
+        assertEquals("deflate", blob.getCodecId());
+        verify(cndResultadoRepository).atribuirCodec(ref, "deflate");
+        assertArrayEquals(conteudo, blobStore.ler(ref)); // Mesmos bytes para quem lê (download, extração)
+    }
+
+    @Test
+    void recomprimirArquivo_jaAvaliado_naoFazNada() {
+        when(cndResultadoRepository.findArquivoRefSemCodec(1L)).thenReturn(Optional.empty());
+
+        assertNull(cndResultadoService.recomprimirArquivo(1L));
+        verify(cndResultadoRepository, never()).atribuirCodec(any(), any());
+    }
+
+    @Test
+    void arquivarArquivo_moveOBlobParaOArquivoMortoEMarcaOsResultados() throws Exception {
+        BlobStoreEmCamadas emCamadas = new BlobStoreEmCamadas(blobStore,
+                new SegmentosArquivoMorto(diretorioBlobs.resolve("arquivo-morto").toString(), DataSize.ofMegabytes(1)));
+        CndResultadoService comArquivoMorto = new CndResultadoService(cndResultadoRepository, cndResultadoArquivoRepository,
+                cndClienteService, eventPublisher, emCamadas, DataSize.ofBytes(64), cacheDesabilitado());
+        byte[] conteudo = "%PDF-1.4 vencida".getBytes();
+        String ref = blobStore.gravar(conteudo).getRef();
+        LocalDate limite = LocalDate.now().minusDays(90);
+        when(cndResultadoRepository.findArquivoRefNaoArquivado(1L)).thenReturn(Optional.of(ref));
+        when(cndResultadoRepository.existsEmUsoComArquivoRef(ref, limite)).thenReturn(false);
+
+        assertTrue(comArquivoMorto.arquivarArquivo(1L, limite));
+
+        verify(cndResultadoRepository).marcarArquivado(ref);
+        assertFalse(blobStore.existe(ref));
+        assertArrayEquals(conteudo, emCamadas.ler(ref));
+    }
+
+    @Test
+    void arquivarArquivo_blobDeUmResultadoAindaEmUso_ficaNaCamadaQuente() throws Exception {
+        String ref = blobStore.gravar("%PDF-1.4 compartilhado".getBytes()).getRef();
+        LocalDate limite = LocalDate.now().minusDays(90);
+        when(cndResultadoRepository.findArquivoRefNaoArquivado(1L)).thenReturn(Optional.of(ref));
+        when(cndResultadoRepository.existsEmUsoComArquivoRef(ref, limite)).thenReturn(true);
+
+        assertFalse(cndResultadoService.arquivarArquivo(1L, limite));
+
+        verify(cndResultadoRepository, never()).marcarArquivado(any());
+        assertTrue(blobStore.existe(ref));
+    }
+
+    @Test
+    void prepararDownload_comCache_segundoDownloadNaoConsultaOBancoAteOResultadoSerAtualizado() throws Exception {
+        CacheDownloadPdfService cache = new CacheDownloadPdfService(new SimpleMeterRegistry(), true, DataSize.ofMegabytes(1), DataSize.ofKilobytes(64));
+        CndResultadoService comCache = new CndResultadoService(cndResultadoRepository, cndResultadoArquivoRepository,
+                cndClienteService, eventPublisher, blobStore, DataSize.ofBytes(64), cache);
+        BlobArmazenado blob = blobStore.gravar("pdf quente".getBytes());
+        resultado.setArquivo(null);
+        resultado.setArquivoRef(blob.getRef());
+        resultado.setArquivoTamanho(blob.getTamanho());
+        resultado.setArquivoSha256(blob.getSha256());
+        when(cndResultadoRepository.findComClienteById(1L)).thenReturn(Optional.of(resultado));
+        when(cndResultadoRepository.save(any(CndResultado.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        ArquivoCndDownload primeiro = comCache.prepararDownload(1L);
+        ArquivoCndDownload segundo = comCache.prepararDownload(1L);
+
+        assertEquals("pdf quente", new String(primeiro.getInputStream().readAllBytes()));
+        assertEquals("pdf quente", new String(segundo.getInputStream().readAllBytes()));
+        assertEquals(primeiro.getEtag(), segundo.getEtag());
+        assertEquals(primeiro.getFilename(), segundo.getFilename());
+        verify(cndResultadoRepository, times(1)).findComClienteById(1L);
 
-        List<CndResultado> resultadosParaExtracao = cndResultadoService.findResultadosParaExtracao();
+        CndResultadoDTO alteracao = new CndResultadoDTO();
+        alteracao.setObservacoes("revisada");
+        comCache.atualizarCndResultado(1L, alteracao);
+        comCache.prepararDownload(1L);
 
-        assertEquals(mockList, resultadosParaExtracao);
-        verify(cndResultadoRepository, times(1)).findByStatusProcessamentoAndSituacaoIsNull("CONSULTA_REALIZADA");
+        verify(cndResultadoRepository, times(3)).findComClienteById(1L); // Primeiro download, atualização e novo download
     }
 }
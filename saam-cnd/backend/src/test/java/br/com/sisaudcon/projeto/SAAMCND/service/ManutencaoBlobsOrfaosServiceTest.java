@@ -0,0 +1,143 @@
+package br.com.sisaudcon.projeto.SAAMCND.service;
+
+import br.com.sisaudcon.projeto.SAAMCND.armazenamento.BlobStoreEmCamadas;
+import br.com.sisaudcon.projeto.SAAMCND.armazenamento.FileSystemBlobStore;
+import br.com.sisaudcon.projeto.SAAMCND.armazenamento.SegmentosArquivoMorto;
+import br.com.sisaudcon.projeto.SAAMCND.repository.CndResultadoRepository;
+import br.com.sisaudcon.projeto.SAAMCND.service.ManutencaoBlobsOrfaosService.LoteBlobs;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ManutencaoBlobsOrfaosServiceTest {
+
+    @TempDir
+    Path raiz;
+
+    @Mock
+    private CndResultadoRepository cndResultadoRepository;
+
+    private FileSystemBlobStore quente;
+    private BlobStoreEmCamadas blobStore;
+    private ManutencaoBlobsOrfaosService service;
+
+    private final Instant limite = Instant.now().minus(Duration.ofHours(24));
+
+    @BeforeEach
+    void setUp() {
+        quente = new FileSystemBlobStore(raiz.resolve("blobs").toString(), "deflate", 6);
+        SegmentosArquivoMorto arquivoMorto = new SegmentosArquivoMorto(raiz.resolve("arquivo-morto").toString(), DataSize.ofMegabytes(1));
+        blobStore = new BlobStoreEmCamadas(quente, arquivoMorto);
+        service = new ManutencaoBlobsOrfaosService(quente, arquivoMorto, cndResultadoRepository);
+    }
+
+    private static byte[] pdf(String texto) {
+        return ("%PDF-1.4 " + texto + " ").repeat(50).getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Data de modificação de todos os blobs já gravados para antes da carência
+    private void envelhecerBlobs() throws Exception {
+        FileTime antigo = FileTime.from(limite.minus(Duration.ofHours(1)));
+        try (Stream<Path> arquivos = Files.walk(raiz.resolve("blobs"))) {
+            for (Path arquivo : arquivos.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                Files.setLastModifiedTime(arquivo, antigo);
+            }
+        }
+    }
+
+    private List<String> candidatos() {
+        try (Stream<String> refs = service.candidatosCamadaQuente(limite)) {
+            return refs.sorted().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    void limparOrfaosCamadaQuente_removeSoOsSemReferenciaForaDaCarencia() throws Exception {
+        String orfao = blobStore.gravar(pdf("excluida")).getRef();
+        String emUso = blobStore.gravar(pdf("vigente")).getRef();
+        envelhecerBlobs();
+        String recente = blobStore.gravar(pdf("upload em andamento")).getRef();
+        when(cndResultadoRepository.findArquivoRefsEmUso(anyCollection())).thenReturn(List.of(emUso));
+
+        List<String> candidatos = candidatos();
+        assertEquals(Stream.of(orfao, emUso).sorted().collect(Collectors.toList()), candidatos); // O recente não é candidato
+
+        LoteBlobs lote = service.limparOrfaosCamadaQuente(candidatos, limite, false);
+
+        assertEquals(1, lote.getQuantidade());
+        assertTrue(lote.getBytes() > 0);
+        assertFalse(blobStore.existe(orfao));
+        assertTrue(blobStore.existe(emUso));
+        assertTrue(blobStore.existe(recente));
+        // Nada sobra no diretório de temporários
+        try (Stream<Path> temporarios = Files.list(raiz.resolve("blobs/tmp"))) {
+            assertEquals(0, temporarios.count());
+        }
+    }
+
+    @Test
+    void limparOrfaosCamadaQuente_simulacao_contaSemRemover() throws Exception {
+        String orfao = blobStore.gravar(pdf("excluida")).getRef();
+        envelhecerBlobs();
+        when(cndResultadoRepository.findArquivoRefsEmUso(anyCollection())).thenReturn(Collections.emptyList());
+
+        LoteBlobs lote = service.limparOrfaosCamadaQuente(candidatos(), limite, true);
+
+        assertEquals(1, lote.getQuantidade());
+        assertTrue(lote.getBytes() > 0);
+        assertTrue(blobStore.existe(orfao));
+    }
+
+    @Test
+    void limparOrfaosCamadaQuente_blobRegravadoDepoisDaListagem_naoERemovido() throws Exception {
+        byte[] conteudo = pdf("mesmo pdf enviado de novo");
+        String ref = blobStore.gravar(conteudo).getRef();
+        envelhecerBlobs();
+        List<String> candidatos = candidatos();
+        assertEquals(List.of(ref), candidatos);
+
+        // Um upload do mesmo conteúdo (transação ainda aberta, sem referência no banco) renova o blob existente
+        assertEquals(ref, blobStore.gravar(conteudo).getRef());
+        when(cndResultadoRepository.findArquivoRefsEmUso(anyCollection())).thenReturn(Collections.emptyList());
+
+        LoteBlobs lote = service.limparOrfaosCamadaQuente(candidatos, limite, false);
+
+        assertEquals(0, lote.getQuantidade());
+        assertArrayEquals(conteudo, blobStore.ler(ref));
+    }
+
+    @Test
+    void contarOrfaosArquivoMorto_contaOsArquivadosSemReferencia() throws Exception {
+        String orfao = blobStore.gravar(pdf("vencida e excluida")).getRef();
+        String emUso = blobStore.gravar(pdf("vencida")).getRef();
+        blobStore.arquivar(orfao);
+        blobStore.arquivar(emUso);
+        when(cndResultadoRepository.findArquivoRefsEmUso(anyCollection())).thenReturn(List.of(emUso));
+
+        LoteBlobs lote = service.contarOrfaosArquivoMorto(500);
+
+        assertEquals(1, lote.getQuantidade());
+        assertTrue(lote.getBytes() > 0);
+        assertTrue(blobStore.existe(orfao)); // Os segmentos não são alterados
+    }
+}
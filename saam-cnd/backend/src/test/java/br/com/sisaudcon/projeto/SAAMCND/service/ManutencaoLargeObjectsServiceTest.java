@@ -0,0 +1,93 @@
+package br.com.sisaudcon.projeto.SAAMCND.service;
+
+import br.com.sisaudcon.projeto.SAAMCND.repository.CndResultadoArquivoRepository;
+import br.com.sisaudcon.projeto.SAAMCND.repository.LargeObjectRepository;
+import br.com.sisaudcon.projeto.SAAMCND.service.ManutencaoLargeObjectsService.LoteLargeObjects;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ManutencaoLargeObjectsServiceTest {
+
+    @Mock
+    private LargeObjectRepository largeObjectRepository;
+
+    @Mock
+    private CndResultadoArquivoRepository cndResultadoArquivoRepository;
+
+    private ManutencaoLargeObjectsService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ManutencaoLargeObjectsService(largeObjectRepository, cndResultadoArquivoRepository);
+    }
+
+    @Test
+    void limparOrfaos_removeCadaOrfaoESomaOsBytes() {
+        when(largeObjectRepository.tipoColunaArquivo()).thenReturn("oid");
+        when(largeObjectRepository.findOrfaos(0L, 10, true)).thenReturn(List.of(101L, 205L));
+        when(largeObjectRepository.tamanho(101L)).thenReturn(1000L);
+        when(largeObjectRepository.tamanho(205L)).thenReturn(24L);
+
+        LoteLargeObjects lote = service.limparOrfaos(0L, 10, false);
+
+        assertEquals(2, lote.getQuantidade());
+        assertEquals(1024L, lote.getBytes());
+        assertEquals(205L, lote.getUltimoOid());
+        verify(largeObjectRepository).unlink(101L);
+        verify(largeObjectRepository).unlink(205L);
+    }
+
+    @Test
+    void limparOrfaos_simulacao_informaSemRemover() {
+        when(largeObjectRepository.tipoColunaArquivo()).thenReturn("oid");
+        when(largeObjectRepository.findOrfaos(50L, 10, true)).thenReturn(List.of(101L));
+        when(largeObjectRepository.tamanho(101L)).thenReturn(300L);
+
+        LoteLargeObjects lote = service.limparOrfaos(50L, 10, true);
+
+        assertEquals(1, lote.getQuantidade());
+        assertEquals(300L, lote.getBytes());
+        verify(largeObjectRepository, never()).unlink(anyLong());
+    }
+
+    @Test
+    void limparOrfaos_colunaJaEmBytea_todoLargeObjectEOrfao() {
+        when(largeObjectRepository.tipoColunaArquivo()).thenReturn("bytea");
+        when(largeObjectRepository.findOrfaos(0L, 10, false)).thenReturn(List.of());
+
+        LoteLargeObjects lote = service.limparOrfaos(0L, 10, false);
+
+        assertEquals(0, lote.getQuantidade());
+        assertEquals(0L, lote.getUltimoOid());
+    }
+
+    @Test
+    void converterColunaParaBytea_soComAColunaVazia() {
+        when(largeObjectRepository.tipoColunaArquivo()).thenReturn("oid");
+        when(cndResultadoArquivoRepository.countComArquivoInline()).thenReturn(3L, 0L);
+
+        assertFalse(service.converterColunaParaBytea());
+        verify(largeObjectRepository, never()).converterColunaArquivoParaBytea();
+
+        assertTrue(service.converterColunaParaBytea());
+        verify(largeObjectRepository).converterColunaArquivoParaBytea();
+    }
+
+    @Test
+    void converterColunaParaBytea_jaConvertida_naoFazNada() {
+        when(largeObjectRepository.tipoColunaArquivo()).thenReturn("bytea");
+
+        assertFalse(service.converterColunaParaBytea());
+        verify(largeObjectRepository, never()).converterColunaArquivoParaBytea();
+    }
+}
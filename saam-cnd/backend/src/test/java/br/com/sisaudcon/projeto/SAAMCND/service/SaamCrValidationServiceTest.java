@@ -1,5 +1,6 @@
 package br.com.sisaudcon.projeto.SAAMCND.service;
 
+import br.com.sisaudcon.projeto.SAAMCND.config.HttpClientPools;
 import br.com.sisaudcon.projeto.SAAMCND.exception.ClienteNaoAutorizadoException;
 import br.com.sisaudcon.projeto.SAAMCND.exception.ServicoExternoException;
 import com.fasterxml.jackson.core.JsonProcessingException;
@@ -11,7 +12,6 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.client.HttpClientErrorException;
@@ -19,6 +19,7 @@ import org.springframework.web.client.HttpServerErrorException; // Import adicio
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.URI;
 import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -46,14 +47,14 @@ class SaamCrValidationServiceTest {
 
     @BeforeEach
     void setUp() {
-        RestTemplateBuilder mockRestTemplateBuilder = mock(RestTemplateBuilder.class);
-        when(mockRestTemplateBuilder.build()).thenReturn(restTemplate);
+        HttpClientPools mockHttpClientPools = mock(HttpClientPools.class);
+        when(mockHttpClientPools.restTemplate("saam-cr")).thenReturn(restTemplate);
 
         // Serviço com mock habilitado
-        saamCrValidationServiceWithMockEnabled = new SaamCrValidationService(mockRestTemplateBuilder, baseUrl, true);
+        saamCrValidationServiceWithMockEnabled = new SaamCrValidationService(mockHttpClientPools, baseUrl, true);
 
         // Serviço com mock desabilitado (para testar chamadas reais mockadas com RestTemplate)
-        saamCrValidationServiceWithMockDisabled = new SaamCrValidationService(mockRestTemplateBuilder, baseUrl, false);
+        saamCrValidationServiceWithMockDisabled = new SaamCrValidationService(mockHttpClientPools, baseUrl, false);
     }
 
     private String createJsonResponse(String situacao) throws JsonProcessingException {
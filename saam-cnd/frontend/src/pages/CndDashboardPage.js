@@ -21,11 +21,14 @@ import AccountBalanceIcon from '@mui/icons-material/AccountBalance'; // Para Fed
 
 const CndDashboardPage = () => {
     const [resultados, setResultados] = useState([]);
+    const [proximoCursor, setProximoCursor] = useState(null); // Há mais resultados no servidor
+    const [loadingMais, setLoadingMais] = useState(false);
     const [loading, setLoading] = useState(true);
     const [error, setError] = useState(null);
     const [successMessage, setSuccessMessage] = useState(null);
     const [filters, setFilters] = useState({
         cnpjCliente: '',
+        nomeCliente: '', // Trecho do nome, sem diferenciar acentos
         situacao: '',
         statusProcessamento: '',
         // TODO: Adicionar filtros de data (dataEmissaoInicio, dataEmissaoFim) com DatePickers
@@ -53,7 +56,8 @@ const CndDashboardPage = () => {
                 Object.entries(filters).filter(([_, value]) => value !== '')
             );
             const data = await getCndResultados(activeFilters);
-            setResultados(data);
+            setResultados(data.itens);
+            setProximoCursor(data.proximoCursor);
         } catch (err) {
             setError('Falha ao carregar resultados CND: ' + (err.response?.data?.message || err.message));
             console.error(err);
@@ -62,6 +66,24 @@ const CndDashboardPage = () => {
         }
     }, [filters]);
 
+    const fetchMaisResultados = async () => {
+        if (!proximoCursor) return;
+        setLoadingMais(true);
+        try {
+            const activeFilters = Object.fromEntries(
+                Object.entries(filters).filter(([_, value]) => value !== '')
+            );
+            const data = await getCndResultados(activeFilters, proximoCursor);
+            setResultados(prev => [...prev, ...data.itens]);
+            setProximoCursor(data.proximoCursor);
+        } catch (err) {
+            setError('Falha ao carregar mais resultados CND: ' + (err.response?.data?.message || err.message));
+            console.error(err);
+        } finally {
+            setLoadingMais(false);
+        }
+    };
+
     useEffect(() => {
         fetchResultados();
         // Buscar clientes para o formulário de nova consulta
@@ -252,7 +274,7 @@ const CndDashboardPage = () => {
                 </AccordionSummary>
                 <AccordionDetails>
                     <Grid container spacing={2} alignItems="center">
-                        <Grid item xs={12} sm={4}>
+                        <Grid item xs={12} sm={3}>
                             <TextField
                                 fullWidth
                                 label="CNPJ do Cliente"
@@ -263,7 +285,18 @@ const CndDashboardPage = () => {
                                 size="small"
                             />
                         </Grid>
-                        <Grid item xs={12} sm={4}>
+                        <Grid item xs={12} sm={3}>
+                            <TextField
+                                fullWidth
+                                label="Nome do Cliente"
+                                name="nomeCliente"
+                                value={filters.nomeCliente}
+                                onChange={handleFilterChange}
+                                variant="outlined"
+                                size="small"
+                            />
+                        </Grid>
+                        <Grid item xs={12} sm={3}>
                             <TextField
                                 fullWidth
                                 label="Situação da Certidão"
@@ -274,7 +307,7 @@ const CndDashboardPage = () => {
                                 size="small"
                             />
                         </Grid>
-                        <Grid item xs={12} sm={4}>
+                        <Grid item xs={12} sm={3}>
                             <TextField
                                 fullWidth
                                 label="Status do Processamento"
@@ -396,7 +429,7 @@ const CndDashboardPage = () => {
                                     sx={{ '&:last-child td, &:last-child th': { border: 0 } }}
                                 >
                                     <TableCell>{res.id}</TableCell>
-                                    <TableCell>{res.cliente?.cnpj || res.fkCliente || 'N/A'}</TableCell>
+                                    <TableCell>{res.cnpjCliente || res.fkCliente || 'N/A'}</TableCell>
                                     <TableCell>{res.dataProcessamento ? new Date(res.dataProcessamento).toLocaleString() : '-'}</TableCell>
                                     <TableCell>{res.situacao || '-'}</TableCell>
                                     <TableCell>{res.dataEmissao ? new Date(res.dataEmissao).toLocaleDateString() : '-'}</TableCell>
@@ -413,9 +446,9 @@ const CndDashboardPage = () => {
                                                 <EditIcon />
                                             </IconButton>
                                         </Tooltip>
-                                        {res.arquivo && (
+                                        {res.possuiArquivo && (
                                         <Tooltip title={`Baixar PDF ${res.nomeArquivo || ''}`}>
-                                            <IconButton onClick={() => handleDownloadPdf(res.id, res.nomeArquivo)} size="small" sx={{ mr: 0.5 }} color="secondary" disabled={!res.arquivo}>
+                                            <IconButton onClick={() => handleDownloadPdf(res.id, res.nomeArquivo)} size="small" sx={{ mr: 0.5 }} color="secondary" disabled={!res.possuiArquivo}>
                                                 <CloudDownloadIcon />
                                             </IconButton>
                                         </Tooltip>
@@ -459,6 +492,13 @@ const CndDashboardPage = () => {
                         onRowsPerPageChange={handleChangeRowsPerPage}
                         labelRowsPerPage="Resultados por página:"
                     />
+                    {proximoCursor && (
+                        <Box sx={{ display: 'flex', justifyContent: 'center', p: 1 }}>
+                            <Button onClick={fetchMaisResultados} disabled={loadingMais}>
+                                {loadingMais ? <CircularProgress size={20} /> : 'Carregar mais resultados'}
+                            </Button>
+                        </Box>
+                    )}
                 </TableContainer>
             )}
 
@@ -136,7 +136,7 @@ const CndDetailPage = () => {
                         <DetailItem label="Observações" value={resultadoCnd.observacoes} />
                         <DetailItem label="Linha de Auditoria" value={resultadoCnd.linha} />
                     </List>
-                    {resultadoCnd.arquivo && (
+                    {resultadoCnd.possuiArquivo && (
                         <Button
                             variant="contained"
                             startIcon={<CloudDownloadIcon />}
@@ -147,7 +147,7 @@ const CndDetailPage = () => {
                             Baixar PDF da Certidão
                         </Button>
                     )}
-                     {!resultadoCnd.arquivo && <Typography variant="caption" display="block" sx={{mt:1}}><em>PDF da certidão não disponível.</em></Typography>}
+                     {!resultadoCnd.possuiArquivo && <Typography variant="caption" display="block" sx={{mt:1}}><em>PDF da certidão não disponível.</em></Typography>}
                 </Paper>
             )}
 
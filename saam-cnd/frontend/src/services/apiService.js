@@ -115,9 +115,11 @@ export const updateCndResultado = async (id, cndData) => {
 
 
 // --- CNDResultado Service ---
-export const getCndResultados = async (filters = {}) => { // Já implementada
+// Uma página da listagem: { itens, proximoCursor }. Para a página seguinte, repassar proximoCursor como 'cursor'
+export const getCndResultados = async (filters = {}, cursor = null) => {
   try {
-    const response = await apiClient.get('/cnd-resultados', { params: filters });
+    const params = cursor ? { ...filters, cursor } : filters;
+    const response = await apiClient.get('/cnd-resultados', { params });
     return response.data;
   } catch (error) {
     console.error('Erro ao buscar resultados CND:', error);